@@ -0,0 +1,281 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>A snapshot of a batch-file execution (in between 2 lines of the batch-file), so that a failed execution can be resumed from that point (see '--checkpoint' and '--resume' command-line options).</p>
+ *  <p>The snapshot has: the line# of the last line that completed, the output of that line, all the property-sets (see {@link BatchCmdProcessor#allProps}) and everything saved into memory (see {@link MemoryAndContext#getSavedOutputMaps()}).</p>
+ *  <p>The file-format is a GZIP-compressed binary-stream.  YAML content is saved as YAML-text (using the {@link YAMLImplementation}), as SnakeYAML's Node is NOT serializable.  Any other content must be java.io.Serializable.</p>
+ *  <p>ATTENTION: A checkpoint is valid ONLY for the exact same batch-file (same path, last-modified-time and size).</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class BatchCheckpoint {
+
+    public static final String CLASSNAME = BatchCheckpoint.class.getName();
+
+    private static final String MAGIC = "ASUX.yaml.BatchCheckpoint";
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_YAML = 1;
+    private static final byte TYPE_SERIALIZED = 2;
+
+    //------------------------------------------------------------------------------
+    public final String batchFilePath;
+    public final long lastModified;
+    public final long fileSize;
+
+    /** line# (per {@link BatchFileGrammer#getLineNum()}) of the last line that completed */
+    public final int lineNum;
+    public final int runcount;
+    /** the output of line# {@link #lineNum} */
+    public final Object output;
+    public final LinkedHashMap<String,Properties> allProps;
+    public final LinkedHashMap<String,Object> memory;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _batchFilePath NotNull path to the batch-file (WITHOUT the '@' prefix)
+     *  @param _lineNum line# of the last line that completed
+     *  @param _runcount # of commands run so far
+     *  @param _output the output of the line# _lineNum
+     *  @param _allProps NotNull
+     *  @param _memory NotNull
+     */
+    public BatchCheckpoint( final String _batchFilePath, final int _lineNum, final int _runcount, final Object _output,
+                            final LinkedHashMap<String,Properties> _allProps, final LinkedHashMap<String,Object> _memory )
+    {
+        this( new java.io.File( _batchFilePath ).getAbsolutePath(), new java.io.File( _batchFilePath ).lastModified(), new java.io.File( _batchFilePath ).length(),
+                _lineNum, _runcount, _output, _allProps, _memory );
+    }
+
+    private BatchCheckpoint( final String _batchFilePath, final long _lastModified, final long _fileSize, final int _lineNum, final int _runcount, final Object _output,
+                            final LinkedHashMap<String,Properties> _allProps, final LinkedHashMap<String,Object> _memory )
+    {
+        assertNotNull( _allProps );
+        assertNotNull( _memory );
+        this.batchFilePath = _batchFilePath;
+        this.lastModified = _lastModified;
+        this.fileSize = _fileSize;
+        this.lineNum = _lineNum;
+        this.runcount = _runcount;
+        this.output = _output;
+        this.allProps = _allProps;
+        this.memory = _memory;
+    }
+
+    /**
+     *  @param _batchFilePath path to the batch-file (WITHOUT the '@' prefix)
+     *  @return true if this checkpoint was created by executing the SAME (unchanged) batch-file
+     */
+    public boolean isFor( final String _batchFilePath ) {
+        final java.io.File file = new java.io.File( _batchFilePath );
+        return this.batchFilePath.equals( file.getAbsolutePath() ) && this.lastModified == file.lastModified() && this.fileSize == file.length();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  Saves this checkpoint into a file.  The file is written to completely (under a temporary name) and then renamed.  So, a crash while saving will leave the previous checkpoint intact.
+     *  @param _checkpointFile NotNull path
+     *  @param _yamlImpl NotNull, used to convert YAML content into YAML-text
+     *  @throws Exception if the file could Not be written, or if some content in memory is neither YAML nor java.io.Serializable
+     */
+    public void save( final String _checkpointFile, final YAMLImplementation<?> _yamlImpl ) throws Exception
+    {
+        final Path path = Paths.get( _checkpointFile ).toAbsolutePath();
+        final Path tmp = Files.createTempFile( path.getParent(), path.getFileName().toString(), ".tmp" );
+        try {
+            try ( DataOutputStream out = new DataOutputStream( new GZIPOutputStream( Files.newOutputStream( tmp ) ) ) ) {
+                out.writeUTF( MAGIC );
+                out.writeInt( VERSION );
+                out.writeUTF( this.batchFilePath );
+                out.writeLong( this.lastModified );
+                out.writeLong( this.fileSize );
+                out.writeInt( this.lineNum );
+                out.writeInt( this.runcount );
+                writeValue( out, this.output, _yamlImpl );
+
+                out.writeInt( this.allProps.size() );
+                for ( Map.Entry<String,Properties> e: this.allProps.entrySet() ) {
+                    out.writeUTF( e.getKey() );
+                    final java.io.StringWriter sw = new java.io.StringWriter();
+                    e.getValue().store( sw, null );
+                    writeBytes( out, sw.toString().getBytes( StandardCharsets.UTF_8 ) );
+                }
+
+                out.writeInt( this.memory.size() );
+                for ( Map.Entry<String,Object> e: this.memory.entrySet() ) {
+                    out.writeUTF( e.getKey() );
+                    writeValue( out, e.getValue(), _yamlImpl );
+                }
+            }
+            Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    /**
+     *  @param _checkpointFile NotNull path
+     *  @param _yamlImpl NotNull, used to convert YAML-text back into YAML content
+     *  @return Nullable.  null if the file does Not exist.
+     *  @throws Exception if the file is Not a checkpoint file, or is corrupt
+     */
+    public static BatchCheckpoint load( final String _checkpointFile, final YAMLImplementation<?> _yamlImpl ) throws Exception
+    {
+        final Path path = Paths.get( _checkpointFile );
+        if ( ! Files.exists( path ) )
+            return null;
+        try ( DataInputStream in = new DataInputStream( new GZIPInputStream( Files.newInputStream( path ) ) ) ) {
+            if ( ! MAGIC.equals( in.readUTF() ) || in.readInt() != VERSION )
+                throw new java.io.IOException( "Not a checkpoint-file (or created by an incompatible version): "+ _checkpointFile );
+            final String batchFilePath = in.readUTF();
+            final long lastModified = in.readLong();
+            final long fileSize = in.readLong();
+            final int lineNum = in.readInt();
+            final int runcount = in.readInt();
+            final Object output = readValue( in, _yamlImpl );
+
+            final LinkedHashMap<String,Properties> allProps = new LinkedHashMap<>();
+            for ( int ix = in.readInt(); ix > 0; ix -- ) {
+                final String name = in.readUTF();
+                final Properties props = new Properties();
+                props.load( new java.io.StringReader( new String( readBytes( in ), StandardCharsets.UTF_8 ) ) );
+                allProps.put( name, props );
+            }
+
+            final LinkedHashMap<String,Object> memory = new LinkedHashMap<>();
+            for ( int ix = in.readInt(); ix > 0; ix -- ) {
+                final String label = in.readUTF();
+                memory.put( label, readValue( in, _yamlImpl ) );
+            }
+            return new BatchCheckpoint( batchFilePath, lastModified, fileSize, lineNum, runcount, output, allProps, memory );
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  Writes one value (as found in memory) in a compact binary form.  Also used by {@link MemorySpill}, for content that is moved out of memory into temporary files.
+     *  @param _out NotNull
+     *  @param _o Nullable.  YAML content, a {@link MemorySpill.Spilled} or anything that is java.io.Serializable
+     *  @param _yamlImpl NotNull, used to convert YAML content into YAML-text
+     *  @throws Exception if the value could Not be written
+     */
+    static void writeValue( final DataOutputStream _out, final Object _o, final YAMLImplementation<?> _yamlImpl ) throws Exception {
+        if ( _o == null ) {
+            _out.writeByte( TYPE_NULL );
+        } else if ( _o instanceof MemorySpill.Spilled ) {
+            ( (MemorySpill.Spilled) _o ).copyTo( _out ); // already in this very same form
+        } else if ( _yamlImpl.instanceof_YAMLImplClass( _o ) ) {
+            final java.io.StringWriter sw = new java.io.StringWriter();
+            _yamlImpl.write( sw, _o );
+            _yamlImpl.close();
+            _out.writeByte( TYPE_YAML );
+            writeBytes( _out, sw.toString().getBytes( StandardCharsets.UTF_8 ) );
+        } else if ( _o instanceof java.io.Serializable ) {
+            final java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+            try ( java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream( bos ) ) {
+                oos.writeObject( _o );
+            }
+            _out.writeByte( TYPE_SERIALIZED );
+            writeBytes( _out, bos.toByteArray() );
+        } else {
+            throw new java.io.NotSerializableException( CLASSNAME +": can Not checkpoint content of type "+ _o.getClass().getName() );
+        }
+    }
+
+    /**
+     *  @param _in NotNull
+     *  @param _yamlImpl NotNull, used to convert YAML-text back into YAML content
+     *  @return the value as written by {@link #writeValue}
+     *  @throws Exception if the value could Not be read
+     */
+    static Object readValue( final DataInputStream _in, final YAMLImplementation<?> _yamlImpl ) throws Exception {
+        final byte type = _in.readByte();
+        switch( type ) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_YAML:
+                final String yaml = new String( readBytes( _in ), StandardCharsets.UTF_8 );
+                return _yamlImpl.load( new java.io.StringReader( yaml ) );
+            case TYPE_SERIALIZED:
+                try ( java.io.ObjectInputStream ois = new java.io.ObjectInputStream( new java.io.ByteArrayInputStream( readBytes( _in ) ) ) ) {
+                    return ois.readObject();
+                }
+            default:
+                throw new java.io.IOException( CLASSNAME +": corrupt checkpoint-file (unknown content-type "+ type +")" );
+        }
+    }
+
+    private static void writeBytes( final DataOutputStream _out, final byte[] _bytes ) throws java.io.IOException {
+        _out.writeInt( _bytes.length );
+        _out.write( _bytes );
+    }
+
+    private static byte[] readBytes( final DataInputStream _in ) throws java.io.IOException {
+        final byte[] bytes = new byte[ _in.readInt() ];
+        _in.readFully( bytes );
+        return bytes;
+    }
+
+    public String toString() {
+        return "checkpoint of "+ this.batchFilePath +" @ line# "+ this.lineNum +" ("+ this.memory.size() +" items in memory)";
+    }
+
+}
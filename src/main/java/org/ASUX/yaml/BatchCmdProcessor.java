@@ -32,12 +32,20 @@
 
 package org.ASUX.yaml;
 
+import org.ASUX.common.ConfigFileScanner;
 import org.ASUX.common.Macros;
 
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -48,7 +56,7 @@ import static org.junit.Assert.*;
  *  <p>See full details of how to use this, in {@link org.ASUX.yaml.CmdInvoker} as well as the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
  */
  // *  @param T either the SnakeYaml library's org.yaml.snakeyaml.nodes.Node .. or.. EsotericSoftware Library's preference for LinkedHashMap&lt;String,Object&gt;
-public abstract class BatchCmdProcessor<T> {
+public abstract class BatchCmdProcessor<T> implements Cloneable {
 
     public static final String CLASSNAME = BatchCmdProcessor.class.getName();
 
@@ -93,6 +101,37 @@ public abstract class BatchCmdProcessor<T> {
 
     protected MemoryAndContext memoryAndContext = null;
 
+    /** Within a 'foreach --parallel' iteration, the input that may be shared with other iterations.  See {@link #isSharedYAML} */
+    private Object foreachSharedInput = null;
+
+    /** Copy-on-write: the YAML (by identity, Not by equals()) that must NOT be modified in place, as it is saved in memory, or was derived from such YAML by a read-only command.  See {@link #isSharedYAML} */
+    private Set<Object> sharedYAML = java.util.Collections.newSetFromMap( new IdentityHashMap<>() );
+
+    /** # of invocations of {@link #processFOREACHIterations}.  Used to detect subclasses that ignore 'foreach --parallel' */
+    private int foreachIterationsRun = 0;
+
+    /** NotNull ONLY while {@link #getFOREACHIterations} is finding out the iterations of a loop, by invoking {@link #processFOREACHCmd_Step1}.  Each iteration is added to this, instead of being run. */
+    private List<ForeachIteration<T>> recordedIterations = null;
+
+    /** Nullable.  NotNull ONLY if '--profile' was specified.  It is shared by all the copies of this processor (see {@link #newForeachScope()}) */
+    protected BatchProfiler profiler = null;
+
+    /** Nullable.  NotNull ONLY if '--incremental' was specified.  It is shared by all the copies of this processor (see {@link #newForeachScope()}) */
+    protected BatchStepCache stepCache = null;
+    /** Nullable.  NotNull ONLY if '--prefetch' was specified.  It is shared by all the copies of this processor (see {@link #newForeachScope()}) */
+    protected BatchPrefetcher prefetcher = null;
+
+    /** Nullable.  The copies of the YAML-implementation of {@link #memoryAndContext}, that each command acquires (instead of a deep-clone per command).  See {@link #getYAMLImplementations()} */
+    private YAMLImplementation.Shared<T> yamlImpls = null;
+
+    /** Nullable.  The {@link BatchStepCache} key of the output of the previous line.  null implies unknown. */
+    private String pipelineKey = null;
+
+    /** Nullable.  NotNull ONLY if '--checkpoint' was specified.  Checkpoints are saved ONLY in between the lines of this (the outermost) batch-file.  See {@link BatchCheckpoint} */
+    private BatchFileGrammer checkpointGrammer = null;
+    private String checkpointBatchFile = null;
+    private long lastCheckpointNanos = 0L;
+
     //==============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
@@ -152,13 +191,19 @@ public abstract class BatchCmdProcessor<T> {
      *  <p>Creates a well-initialized list of java.util.Properties objects, for use by Operating-System-linked OSScriptFileScanner or it's subclasses.</p>
      *  <p>Currently, the list is augmented by adding just one new Properties object labelled {@link #FOREACH_PROPERTIES}</p>
      *  <p>If the instance passed in as argument to this method _ALREADY_ has a Property object labelled {@link #FOREACH_PROPERTIES}, then no action is taken.</p>
+     *  <p>Both {@link #FOREACH_PROPERTIES} and {@link org.ASUX.common.ScriptFileScanner#GLOBALVARIABLES} are (converted, in place, into) {@link BatchSymbolTable} instances.</p>
      *  @param _allProps a NotNull instance (else NullPointerException is thrown)
      *  @return a NotNull object
      */
     public static LinkedHashMap<String,Properties> initProperties( final LinkedHashMap<String,Properties> _allProps ) {
         final Properties existing = _allProps.get( FOREACH_PROPERTIES );
         if ( existing == null )
-            _allProps.put( FOREACH_PROPERTIES, new Properties() );
+            _allProps.put( FOREACH_PROPERTIES, new BatchSymbolTable() );
+        else if ( ! ( existing instanceof BatchSymbolTable ) )
+            _allProps.put( FOREACH_PROPERTIES, new BatchSymbolTable( existing ) );
+        final Properties globals = _allProps.get( org.ASUX.common.ScriptFileScanner.GLOBALVARIABLES );
+        if ( globals != null && ! ( globals instanceof BatchSymbolTable ) && globals != System.getProperties() )
+            _allProps.put( org.ASUX.common.ScriptFileScanner.GLOBALVARIABLES, new BatchSymbolTable( globals ) );
         return _allProps;
     }
 
@@ -245,12 +290,34 @@ public abstract class BatchCmdProcessor<T> {
         this.startTime = new java.util.Date();
         // String line = null;
 
-        final BatchFileGrammer batchCmds = new BatchFileGrammer( this.cmdLineArgs.verbose, this.allProps );
-        if ( _batchFileName.startsWith("@") ) {
-            batchCmds.useDelimiter( System.lineSeparator() );
-            // !!!!!!!!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!!!  For actual files.. do _NOT_ use ';' as a separator --- for actual files.  see 2 lines below.
-        } else {
+        // Sub-batches (see Cmd_SubBatch) invoke this method recursively.  Only the outermost invocation creates (and reports) the profiler.
+        final boolean bOwnsProfiler = this.cmdLineArgs.profile && this.profiler == null;
+        if ( bOwnsProfiler )
+            this.profiler = new BatchProfiler();
+        final boolean bOwnsStepCache = this.cmdLineArgs.incrementalCacheDir != null && this.stepCache == null;
+        if ( bOwnsStepCache )
+            this.stepCache = new BatchStepCache( this.cmdLineArgs.verbose, this.cmdLineArgs.incrementalCacheDir );
+        final boolean bOwnsMemorySpill = this.cmdLineArgs.memoryBudget > 0 && this.memoryAndContext != null && this.memoryAndContext.getContext() != null
+                                            && this.memoryAndContext.getMemorySpill() == null;
+        if ( bOwnsMemorySpill )
+            this.memoryAndContext.setMemoryBudget( this.cmdLineArgs.memoryBudget );
+        final boolean bOwnsPrefetcher = this.cmdLineArgs.prefetch && this.prefetcher == null && this.memoryAndContext != null && this.memoryAndContext.getContext() != null;
+        if ( bOwnsPrefetcher )
+            this.prefetcher = new BatchPrefetcher( this.cmdLineArgs.verbose, this.cmdLineArgs.virtualThreads );
+        // The only input that is actually hashed.  All other keys are derived from this one.  See BatchStepCache.java
+        // A sub-batch's input is the output of the 'batch' line's previous line.  So, its key is already known (as this.pipelineKey).
+        if ( bOwnsStepCache )
+            this.pipelineKey = ( this.memoryAndContext != null && this.memoryAndContext.getContext() != null )
+                        ? BatchStepCache.keyOfYAML( this.memoryAndContext.getContext().getYAMLImplementation(), _node ) : null;
+
+        // For batch-files, this is created from the compiled program (see BatchFileProgram.getOrCompile() below)
+        BatchFileGrammer batchCmds = null;
+        final boolean isBatchFile = _batchFileName.startsWith("@");
+        if ( isBatchFile )
+            _batchFileName = this.cmdLineArgs.resolvePath( _batchFileName ); // relative to the directory of the user (see CmdDaemon), rather than of this JVM
+        if ( ! isBatchFile ) {
             // for __INLINE__ batch-scripts provided via command-line
+            batchCmds = new BatchFileGrammer( this.cmdLineArgs.verbose, this.allProps );
             batchCmds.useDelimiter( ";|"+System.lineSeparator() );  // for __INLINE__ strings provided on commandline, _YES_ use ';' as EOLN-substitute
             if ( this.cmdLineArgs.showStats ) System.out.println( HDR +" _batchFileName had VESTIGIAL QUOTES, which need to be removed.\n\t"+ _batchFileName +"\n");
             // If _batchFileName's content has any beginning and ending quote-characters.. remove them
@@ -260,15 +327,59 @@ public abstract class BatchCmdProcessor<T> {
         }
 
         try {
-            if ( batchCmds.openFile( _batchFileName, true, true ) ) {
+            // If this batch-file was executed before (and has Not changed since), re-use the compiled version.  See BatchFileProgram.java
+            // This matters most for sub-batches (the 'batch' statement), which are typically invoked over and over within 'foreach' loops.
+            boolean bOpened;
+            if ( isBatchFile ) {
+                final BatchFileProgram program = BatchFileProgram.getOrCompile( this.cmdLineArgs.verbose, _batchFileName.substring(1), this.allProps );
+                bOpened = program != null;
+                if ( bOpened )
+                    batchCmds = program.newGrammer( this.cmdLineArgs.verbose, this.allProps );
+            } else {
+                bOpened = batchCmds.openFile( _batchFileName, true, true );
+            }
+
+            if ( bOpened ) {
                 if ( this.cmdLineArgs.verbose ) System.out.println( HDR + ": go(): successfully opened _batchFileName [" + _batchFileName +"]" );
                 if ( this.cmdLineArgs.showStats ) System.out.println( _batchFileName +" has "+ batchCmds.getCommandCount() );
 
-                final T  retNode = this.processBatch( false, batchCmds, _node );
+                // Sub-batches do NOT checkpoint.  Only the outermost batch-file does.
+                final boolean bOwnsCheckpoint = this.cmdLineArgs.checkpointFile != null && this.checkpointGrammer == null;
+                T input = _node;
+                int resumeAfterLine = 0;
+                if ( bOwnsCheckpoint ) {
+                    if ( ! isBatchFile || this.memoryAndContext == null || this.memoryAndContext.getContext() == null )
+                        throw new BatchFileException( "--checkpoint is supported ONLY for batch-files (@file) - @ "+ _batchFileName );
+                    this.checkpointGrammer = batchCmds;
+                    this.checkpointBatchFile = _batchFileName.substring(1);
+                    this.lastCheckpointNanos = System.nanoTime();
+                    final BatchCheckpoint ckpt = this.cmdLineArgs.resume ? this.restoreCheckpoint() : null;
+                    if ( ckpt != null ) {
+                        @SuppressWarnings("unchecked")
+                        final T restored = (T) ckpt.output;
+                        if ( restored != null ) input = restored;
+                        resumeAfterLine = ckpt.lineNum;
+                    }
+                }
+
+                final T  retNode;
+                try {
+                    retNode = this.processBatchScheduled( batchCmds, input, resumeAfterLine );
+                } finally {
+                    if ( bOwnsCheckpoint ) this.checkpointGrammer = null;
+                }
+                // Completed successfully.  So, the next run must start from the beginning.
+                if ( bOwnsCheckpoint ) java.nio.file.Files.deleteIfExists( java.nio.file.Paths.get( this.cmdLineArgs.checkpointFile ) );
                 if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" go():  retNode =" + retNode +"\n\n");
 
                 this.endTime = new java.util.Date();
                 if ( this.cmdLineArgs.showStats ) System.out.println( HDR + "Ran "+ this.runcount +" commands from "+ this.startTime +" until "+ this.endTime +" = " + (this.endTime.getTime() - this.startTime.getTime()) +" seconds" );
+                if ( this.cmdLineArgs.showStats ) System.out.println( HDR + YAMLCmdANTLR4Parser.getCacheStats() );
+                if ( this.cmdLineArgs.showStats ) System.out.println( HDR + MacroTemplate.getCacheStats() );
+                if ( bOwnsProfiler ) this.reportProfile( _batchFileName );
+                if ( bOwnsStepCache && this.cmdLineArgs.showStats ) System.out.println( HDR + this.stepCache );
+                if ( bOwnsMemorySpill && this.cmdLineArgs.showStats ) System.out.println( HDR + this.memoryAndContext.getMemorySpill().getStats() );
+                if ( bOwnsPrefetcher && this.cmdLineArgs.showStats ) System.out.println( HDR + this.prefetcher );
                 return retNode;
 
             } else { // if-else openFile()
@@ -277,13 +388,20 @@ public abstract class BatchCmdProcessor<T> {
 
         } catch (BatchFileException bfe) {
             if ( this.cmdLineArgs.verbose ) bfe.printStackTrace(System.err);
-            System.err.println( bfe +"\n\nERROR while processing: Batch-"+ batchCmds.getState() + "\nERROR: " + bfe.getMessage() );
+            this.cmdLineArgs.getStderr().println( bfe +"\n\nERROR while processing: Batch-"+ ( batchCmds == null ? _batchFileName : batchCmds.getState() ) + "\nERROR: " + bfe.getMessage() );
         } catch(java.io.FileNotFoundException fe) {
             if ( this.cmdLineArgs.verbose ) fe.printStackTrace(System.err);
-            System.err.println( fe +"\n\nERROR: File Not found: within Batch-"+ batchCmds.getState() +".\nSee full-details by re-running command using --verbose cmdline option. " );
+            this.cmdLineArgs.getStderr().println( fe +"\n\nERROR: File Not found: within Batch-"+ ( batchCmds == null ? _batchFileName : batchCmds.getState() ) +".\nSee full-details by re-running command using --verbose cmdline option. " );
         } catch (Exception e) {
             if ( this.cmdLineArgs.verbose ) e.printStackTrace(System.err);
-            System.err.println( e +"\n\nERROR: Unexpected Serious Internal ERROR while processing Batch-"+ batchCmds.getState() +".\nERROR: See full-details by re-running command using --verbose cmdline option.");
+            this.cmdLineArgs.getStderr().println( e +"\n\nERROR: Unexpected Serious Internal ERROR while processing Batch-"+ ( batchCmds == null ? _batchFileName : batchCmds.getState() ) +".\nERROR: See full-details by re-running command using --verbose cmdline option.");
+        } finally {
+            if ( bOwnsPrefetcher ) {
+                this.prefetcher.close();
+                this.prefetcher = null;
+            }
+            if ( bOwnsMemorySpill )
+                this.memoryAndContext.closeMemorySpill();
         }
 
         return null;
@@ -308,32 +426,71 @@ public abstract class BatchCmdProcessor<T> {
      */
     protected T processBatch( final boolean _bInRecursion, final BatchFileGrammer _batchCmds, T _input )
                         throws BatchFileException, java.io.FileNotFoundException, Exception
+    {
+        return this.processBatch( _bInRecursion, _batchCmds, _input, Integer.MAX_VALUE );
+    }
+
+    /**
+     *  Same as {@link #processBatch(boolean, BatchFileGrammer, Object)}, except that it stops after the specified line#
+     *  @param _bInRecursion true or false, whether this invocation is a recursive call or not.  If true, when the 'end' or [EOF] is detected.. this function returns
+     *  @param _batchCmds an object of type BatchFileGrammer created by reading a batch-file, or .. .. the contents between 'foreach' and 'end' commands
+     *  @param _input either the SnakeYaml library's org.yaml.snakeyaml.nodes.Node ( as generated by SnakeYAML library).. or.. EsotericSoftware Library's preference for LinkedHashMap&lt;String,Object&gt;, -- in either case, this object contains the entire Tree representing the YAML file.
+     *  @param _lastLineNum the line# (per {@link BatchFileGrammer#getLineNum()}) of the last line to be processed.  Integer.MAX_VALUE implies until [EOF]
+     *  @return a BLANK/EMPTY/NON-NULL org.yaml.snakeyaml.nodes.Node object, as generated by SnakeYAML/CollectionsImpl library and you'll get the final YAML output representing all processing done by the batch file.  If there is any failure, either an Exception is thrown.
+     *  @throws BatchFileException if any failure trying to execute any entry in the batch file.  Batch file processing will Not proceed once a problem occurs.
+     *  @throws java.io.FileNotFoundException if the batch file to be loaded does Not exist
+     *  @throws Exception when any of the commands are being processed
+     */
+    protected T processBatch( final boolean _bInRecursion, final BatchFileGrammer _batchCmds, T _input, final int _lastLineNum )
+                        throws BatchFileException, java.io.FileNotFoundException, Exception
     {
         assertNotNull( _batchCmds );
         assertNotNull( _input );
         final String HDR = CLASSNAME +": processBatch(recursion="+ _bInRecursion +","+ _batchCmds.getCmdType() +"): ";
+        if ( _bInRecursion && this.recordedIterations != null ) {
+            this.recordIteration( _input ); // see getFOREACHIterations()
+            return _input;
+        }
         T tempOutput = null; // it's immediately re-initialized within WHILE-Loop below.
+        if ( _bInRecursion )
+            this.pipelineKey = null; // the input to each iteration of 'foreach' is NOT known to the BatchStepCache
 
         if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" BEFORE STARTING while-loop.. "+ _batchCmds.hasNextLine() +" re: "+ _batchCmds.getState() +" @ BEGINNING _input="+ _input +"]" );
 
-        while ( _batchCmds.hasNextLine() )
+        // Check the line# __BEFORE__ hasNextLine(), as hasNextLine() will execute any built-in commands that follow.
+        while ( _batchCmds.getLineNum() < _lastLineNum && _batchCmds.hasNextLine() )
         {
             _batchCmds.nextLine(); // we can always get the return value of this statement .. via _batchCmds.getCurrentLine()
+            if ( this.prefetcher != null && _batchCmds.getCmdType() != BatchFileGrammer.BatchCmdType.Cmd_Foreach ) // a loop looks ahead into its own iterations
+                this.prefetchAhead( _batchCmds, _batchCmds.getLineNum() + 1, this.allProps );
 
             if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" START of while-loop for "+ _batchCmds.getState() +" .. for input=["+ toStringDebug(_input) +"]" );
 
+            // looked up BEFORE executing the line, as 'foreach' moves _batchCmds to the matching 'end'
+            final BatchProfiler.LineStats lineStats = ( this.profiler != null ) ? this.profiler.getLineStats( _batchCmds ) : null;
+            final long lineStartNanos = ( lineStats != null ) ? System.nanoTime() : 0L;
+            final long lineStartAllocated = ( lineStats != null ) ? BatchProfiler.allocatedBytes() : 0L;
+
             // start each loop, with an 'empty' placeholder Map, to collect output of current batch command
             tempOutput = getEmptyYAML();
 
             switch( _batchCmds.getCmdType() ) {
                 case Cmd_MakeNewRoot:
-                    final String newRootElem = Macros.evalThoroughly( this.cmdLineArgs.verbose, _batchCmds.getMakeNewRoot(), this.allProps );
+                    final String newRootElem = this.evalMacros( _batchCmds, _batchCmds.getMakeNewRoot() );
                     tempOutput = getNewSingleYAMLEntry( newRootElem, "", _batchCmds.getQuoteType() ); // Very simple YAML:-    NewRoot: <blank>
+                    if ( this.stepCache != null ) this.pipelineKey = BatchStepCache.key( "makeNewRoot", newRootElem, ""+ _batchCmds.getQuoteType() );
                     this.runcount ++;
                     break;
                 case Cmd_SubBatch:
-                    final String bSubBatch = Macros.evalThoroughly( this.cmdLineArgs.verbose, _batchCmds.getSubBatchFile(), this.allProps );
-                    tempOutput = this.go( bSubBatch, _input );
+                    final String bSubBatch = this.evalMacros( _batchCmds, _batchCmds.getSubBatchFile() );
+                    // The sub-batch sees all the variables, but whatever variables it sets are forgotten when it completes (like a child-process of a shell)
+                    final List<BatchSymbolTable> subBatchFrames = this.pushFrames( FOREACH_PROPERTIES, org.ASUX.common.ScriptFileScanner.GLOBALVARIABLES );
+                    try {
+                        tempOutput = this.go( bSubBatch, _input );
+                    } finally {
+                        popFrames( subBatchFrames );
+                    }
+                    this.pipelineKey = null;
 // ????????????????????????????????????????????????????????????????
 // As the above statement stands.. it will NEVER BE used, as 'include' is a far better way of doing SUB-BATCHES.
 // Unless you want to use 'include' (for the equivalent of '.' in BASH / 'source' in TCSH)..
@@ -345,15 +502,31 @@ public abstract class BatchCmdProcessor<T> {
                 case Cmd_Foreach:
                     if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"\t'foreach'_cmd detected'");
                     if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"InputMap = "+ toStringDebug(_input) );
-                    tempOutput = processFOREACHCmd_Step1( _batchCmds, _input  );
+                    final int parallelism = _batchCmds.getForeachParallelism();
+                    final List<ForeachIteration<T>> iterations = this.getFOREACHIterations( _batchCmds, _input );
+                    if ( iterations != null ) {
+                        tempOutput = this.mergeFOREACHOutputs( _batchCmds, _input, this.processFOREACHIterations( _batchCmds, iterations ) );
+                    } else {
+                        final int iterationsRunBefore = this.foreachIterationsRun;
+                        final List<BatchSymbolTable> frames = this.pushFrames( FOREACH_PROPERTIES ); // this loop's variables hide (and do Not clobber) those of any enclosing loop
+                        try {
+                            tempOutput = processFOREACHCmd_Step1( _batchCmds, _input  );
+                        } finally {
+                            popFrames( frames );
+                        }
+                        if ( parallelism != 1 && this.foreachIterationsRun == iterationsRunBefore )
+                            System.err.println( HDR +"WARNING: 'foreach --parallel' is NOT supported by "+ this.getClass().getName() +".  The loop @ "+ _batchCmds.getState() +" ran serially." );
+                    }
                     // since we processed the lines !!INSIDE!! the 'foreach' --> 'end' block .. via recursion.. we need to skip all those lines here.
                     _batchCmds.skip2MatchingEnd();
+                    this.pipelineKey = null;
 // skipInnerForeachLoops( _batchCmds, "processBatch(foreach)" );
                     this.runcount ++;
                     break;
                 case Cmd_End:
                     if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"found matching 'end' keyword for 'foreach' !!!!!!! \n\n");
                     this.runcount ++;
+                    if ( lineStats != null ) lineStats.record( lineStartNanos, lineStartAllocated );
                     return _input;
                     // !!!!!!!!!!!! ATTENTION : Function exits here SUCCESSFULLY / NORMALLY. !!!!!!!!!!!!!!!!
                     // break;
@@ -365,11 +538,17 @@ public abstract class BatchCmdProcessor<T> {
                     this.runcount ++;
                     break;
                 case Cmd_UseAsInput:
+                    final ArrayList<CmdLineArgsCommon> readGroup = this.getReadGroup( _batchCmds, _lastLineNum );
+                    if ( readGroup != null ) {
+                        tempOutput = this.onReadGroup( _batchCmds, readGroup ); // _batchCmds is now at the last line of the group
+                        this.runcount += 3 * readGroup.size();
+                        break;
+                    }
                     tempOutput = processUseAsInputLine( _batchCmds );
                     this.runcount ++;
                     break;
                 case Cmd_PrintDash:
-                    System.out.print( toStringDebug(  _input ) ); // There is already a 'final/ending' \n - generated by SnakeYaml Library's attempt to generate YAML as nicely-formatted MULTI-LINE String output
+                    this.cmdLineArgs.getStdout().print( toStringDebug(  _input ) ); // There is already a 'final/ending' \n - generated by SnakeYaml Library's attempt to generate YAML as nicely-formatted MULTI-LINE String output
                     tempOutput = _input; // as nothing changes re: Input and Output Maps.
                     this.runcount ++;
                     break;
@@ -403,13 +582,15 @@ fail();
                     this.runcount ++;
                     break;
                 default:
-                    System.out.println( HDR +"  unknown (new?) Batch-file command." );
-                    System.exit(99);
+                    throw new BatchFileException( HDR +"  unknown (new?) Batch-file command @ "+ _batchCmds.getState() );
             } // switch
+            if ( lineStats != null ) lineStats.record( lineStartNanos, lineStartAllocated );
 
             // this line below must be the very last line in the loop
             _input = tempOutput; // because we might be doing ANOTHER iteraton of the While() loop.
             this.cmdLineArgs.verbose = _batchCmds.getVerbose(); // always keep checking the verbose level, which can change 'implicitly' within _batchCmds / BatchFileGrammerr.java
+            if ( _batchCmds == this.checkpointGrammer )
+                this.checkpoint( _input, false );
 
             if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" _________________________ BOTTOM of WHILE-loop: tempOutput =" + toStringDebug(tempOutput) +"");
         } // while loop
@@ -425,7 +606,232 @@ fail();
     //=============================================================================
 
     /**
-     *  Based on command type, process the inputNode and produce an output - for that specific command
+     *  <p>Runs the top-level of a batch-file, running independent chains of statements concurrently (see {@link BatchFileSchedule}).</p>
+     *  <p>The results (output, memory, files) are exactly the same as {@link #processBatch(boolean, BatchFileGrammer, Object)}, which is what this falls back to, if there's nothing to run concurrently.</p>
+     *  @param _batchCmds NotNull instance, positioned BEFORE the 1st line of the batch-file
+     *  @param _input either the SnakeYaml library's org.yaml.snakeyaml.nodes.Node ( as generated by SnakeYAML library).. or.. EsotericSoftware Library's preference for LinkedHashMap&lt;String,Object&gt;, -- in either case, this object contains the entire Tree representing the YAML file.
+     *  @return a BLANK/EMPTY/NON-NULL org.yaml.snakeyaml.nodes.Node object, as generated by SnakeYAML/CollectionsImpl library and you'll get the final YAML output representing all processing done by the batch file.  If there is any failure, either an Exception is thrown.
+     *  @throws Exception the exception thrown by the earliest line (in the batch-file) that failed
+     */
+    protected T processBatchScheduled( final BatchFileGrammer _batchCmds, T _input ) throws Exception
+    {
+        return this.processBatchScheduled( _batchCmds, _input, 0 );
+    }
+
+    /**
+     *  Same as {@link #processBatchScheduled(BatchFileGrammer, Object)}, except that it starts right AFTER the specified line# (see '--resume' and {@link BatchCheckpoint})
+     *  @param _batchCmds NotNull instance, positioned BEFORE the 1st line of the batch-file
+     *  @param _input the output of line# _resumeAfterLine (or, if that is 0, the input to the batch-file)
+     *  @param _resumeAfterLine the line# (per {@link BatchFileGrammer#getLineNum()}) of the last line that was completed (by a previous run).  0 implies start from the beginning.
+     *  @return a BLANK/EMPTY/NON-NULL org.yaml.snakeyaml.nodes.Node object, as generated by SnakeYAML/CollectionsImpl library and you'll get the final YAML output representing all processing done by the batch file.  If there is any failure, either an Exception is thrown.
+     *  @throws Exception the exception thrown by the earliest line (in the batch-file) that failed
+     */
+    protected T processBatchScheduled( final BatchFileGrammer _batchCmds, T _input, final int _resumeAfterLine ) throws Exception
+    {
+        final String HDR = CLASSNAME +": processBatchScheduled("+ _batchCmds.getState() +"): ";
+        // The lines already completed are skipped WITHOUT executing them (incl. any built-in commands, whose effects are already in the restored this.allProps)
+        if ( _resumeAfterLine > 0 )
+            skipLines( _batchCmds, _resumeAfterLine );
+
+        final BatchFileProgram program = _batchCmds.getProgram();
+        // verbose-output would be a mess if interleaved.  No memory implies No labels to be shared between statements.
+        final boolean bCanSchedule = program != null && ! this.cmdLineArgs.verbose && this.memoryAndContext != null && this.memoryAndContext.getContext() != null;
+        final BatchFileSchedule schedule = bCanSchedule ? program.getSchedule() : null;
+        if ( schedule == null || ! schedule.hasConcurrency() )
+            return this.processBatch( false, _batchCmds, _input );
+
+        if ( this.cmdLineArgs.showStats ) System.out.println( HDR + schedule );
+        final List<BatchFileSchedule.Segment> segments = schedule.getSegments();
+        T output = _input;
+        int ix = 0;
+        while ( ix < segments.size() ) {
+            int last = ix; // run of concurrent segments is: ix .. last
+            if ( segments.get( ix ).concurrent )
+                while ( last + 1 < segments.size() && segments.get( last + 1 ).concurrent )
+                    last ++;
+            if ( segments.get( last ).lastLine <= _resumeAfterLine ) {
+                // completed by a previous run
+            } else if ( last == ix || segments.get( ix ).firstLine <= _resumeAfterLine ) {
+                // if resuming in the middle of these segments, just run the rest of them one line at a time.
+                output = this.processBatch( false, _batchCmds, _input, segments.get( last ).lastLine );
+            } else {
+                output = this.processSegmentsConcurrently( _batchCmds, segments.subList( ix, last + 1 ), _input );
+                skipLines( _batchCmds, segments.get( last ).lastLine );
+                if ( _batchCmds == this.checkpointGrammer )
+                    this.checkpoint( output, false );
+            }
+            _input = output;
+            ix = last + 1;
+        }
+        return output;
+    }
+
+    /**
+     *  <p>Runs a contiguous run of concurrent segments.  Each segment is started as soon as the segments it depends on have completed.</p>
+     *  <p>Each segment is run by its own copy of this processor (just like each iteration of 'foreach --parallel' - see {@link #newForeachScope()}), created with a snapshot of memory as of when it starts.
+     *      Whatever each segment saves into memory, is copied back into this processor's memory, as soon as the segment completes.</p>
+     *  @param _batchCmds NotNull instance, positioned right BEFORE the 1st segment.  It is NOT modified.
+     *  @param _window NotNull list of 2 or more consecutive concurrent segments
+     *  @param _input the output of the line right before the 1st segment
+     *  @return the output of the last segment
+     *  @throws Exception the exception thrown by the lowest-index segment that failed
+     */
+    private T processSegmentsConcurrently( final BatchFileGrammer _batchCmds, final List<BatchFileSchedule.Segment> _window, final T _input ) throws Exception
+    {
+        final String HDR = CLASSNAME +": processSegmentsConcurrently("+ _batchCmds.getState() +"): ";
+        final int firstIndex = _window.get( 0 ).index;
+        final LinkedHashMap<String, Object> memory = this.memoryAndContext.getSavedOutputMaps();
+        final boolean bVirtual = this.cmdLineArgs.virtualThreads && isIOBound( _batchCmds, _window.get( 0 ).firstLine, _window.get( _window.size() - 1 ).lastLine );
+        final int threads = BatchThreads.poolSize( _window.size(), 0, bVirtual );
+        if ( this.cmdLineArgs.showStats ) System.out.println( HDR +"running segments #"+ firstIndex +" to #"+ ( firstIndex + _window.size() - 1 ) +" on "+ BatchThreads.describe( threads, bVirtual ) );
+
+        final ArrayList< CompletableFuture<T> > futures = new ArrayList<>( _window.size() );
+        // Labels that each segment saved into memory, in the order that segment saved them.  Used to restore the order of memory (as if the segments ran one after the other).
+        final ArrayList< List<String> > savedLabels = new ArrayList<>( java.util.Collections.nCopies( _window.size(), java.util.Collections.<String>emptyList() ) );
+        final java.util.HashSet<String> labelsBefore = new java.util.HashSet<>( memory.keySet() );
+        final String[] pipelineKeys = new String[ _window.size() ]; // see BatchStepCache.java
+        final ExecutorService pool = BatchThreads.newPool( threads, bVirtual );
+        try {
+            for ( BatchFileSchedule.Segment seg: _window ) {
+                // position a copy of the batch-file right BEFORE this segment.  Done here (on this thread), as _batchCmds is Not thread-safe.
+                final BatchFileGrammer segCmds = BatchFileGrammer.deepClone( _batchCmds );
+                skipLines( segCmds, seg.firstLine - 1 );
+
+                final ArrayList< CompletableFuture<T> > deps = new ArrayList<>();
+                for ( Integer dep: seg.dependsOn )
+                    if ( dep >= firstIndex ) // earlier segments have already completed.
+                        deps.add( futures.get( dep - firstIndex ) );
+
+                futures.add( CompletableFuture.allOf( deps.toArray( new CompletableFuture<?>[ deps.size() ] ) ).thenApplyAsync( ignore -> {
+                    try {
+                        final BatchCmdProcessor<T> scope;
+                        final LinkedHashMap<String, Object> before;
+                        synchronized( memory ) {
+                            scope = this.newForeachScope();
+                            before = new LinkedHashMap<>( scope.memoryAndContext.getSavedOutputMaps() );
+                        }
+                        segCmds.rebind( scope.cmdLineArgs.verbose, scope.allProps );
+                        final T out = scope.processBatch( false, segCmds, _input, seg.lastLine );
+                        final ArrayList<String> saved = new ArrayList<>();
+                        synchronized( memory ) {
+                            for ( java.util.Map.Entry<String, Object> e: scope.memoryAndContext.getSavedOutputMaps().entrySet() )
+                                if ( before.get( e.getKey() ) != e.getValue() ) { // the segment did a 'saveTo'
+                                    memory.put( e.getKey(), e.getValue() );
+                                    this.markSharedYAML( e.getValue() );
+                                    saved.add( e.getKey() );
+                                }
+                            this.runcount += scope.runcount;
+                            savedLabels.set( seg.index - firstIndex, saved );
+                            pipelineKeys[ seg.index - firstIndex ] = scope.pipelineKey;
+                        }
+                        return out;
+                    } catch ( Exception e ) {
+                        throw new CompletionException( e );
+                    }
+                }, pool ) );
+            }
+
+            // join() in index order => the exception thrown is the one the batch-file would have failed with, had it been run one line at a time.
+            T output = null;
+            for ( CompletableFuture<T> f: futures ) {
+                try {
+                    output = f.join();
+                } catch ( CompletionException ce ) {
+                    if ( ce.getCause() instanceof Exception )
+                        throw (Exception) ce.getCause();
+                    throw ce;
+                }
+            }
+
+            // New labels must be in memory in the same order as if the segments ran one after the other.  Labels that existed before, do Not move.
+            final java.util.LinkedHashSet<String> newLabels = new java.util.LinkedHashSet<>();
+            for ( List<String> saved: savedLabels )
+                for ( String label: saved )
+                    if ( ! labelsBefore.contains( label ) )
+                        newLabels.add( label );
+            for ( String label: newLabels )
+                memory.put( label, memory.remove( label ) );
+            this.pipelineKey = pipelineKeys[ pipelineKeys.length - 1 ];
+            return output;
+        } finally {
+            pool.shutdownNow(); // in case of failure, do Not wait for the remaining segments
+        }
+    }
+
+    /**
+     *  <p>Saves a checkpoint (see {@link BatchCheckpoint}) into the '--checkpoint' file, if '--checkpointInterval' seconds have passed since the previous one.</p>
+     *  <p>Must be invoked ONLY in between 2 top-level lines of the batch-file, as that is where a run can be resumed from.</p>
+     *  @param _output the output of the line that just completed (the current line of {@link #checkpointGrammer})
+     *  @param _bForce true to ignore '--checkpointInterval'
+     *  @throws Exception if the checkpoint could Not be saved
+     */
+    private void checkpoint( final T _output, final boolean _bForce ) throws Exception
+    {
+        final String HDR = CLASSNAME +": checkpoint(): ";
+        final long now = System.nanoTime();
+        if ( ! _bForce && ( now - this.lastCheckpointNanos ) < this.cmdLineArgs.checkpointIntervalSecs * 1000000000L )
+            return;
+
+        final LinkedHashMap<String,Properties> props = new LinkedHashMap<>();
+        for ( java.util.Map.Entry<String,Properties> e: this.allProps.entrySet() )
+            if ( e.getValue() != System.getProperties() ) // the JVM's own properties are NOT part of the state of this batch-file
+                props.put( e.getKey(), e.getValue() );
+        final BatchCheckpoint ckpt = new BatchCheckpoint( this.checkpointBatchFile, this.checkpointGrammer.getLineNum(), this.runcount, _output,
+                                                            props, this.memoryAndContext.getSavedOutputMaps() );
+        ckpt.save( this.cmdLineArgs.checkpointFile, this.memoryAndContext.getContext().getYAMLImplementation() );
+        this.lastCheckpointNanos = System.nanoTime();
+        if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"saved "+ ckpt +" into "+ this.cmdLineArgs.checkpointFile +" in "+ ( this.lastCheckpointNanos - now ) / 1000000 +"ms" );
+    }
+
+    /**
+     *  Restores {@link #allProps}, memory and {@link #runcount} from the '--checkpoint' file (as saved by a previous run of this very same batch-file).
+     *  @return Nullable.  null if there is No checkpoint-file (i.e., the batch-file must be run from the beginning)
+     *  @throws BatchFileException if the checkpoint-file was created by a different (or since-modified) batch-file
+     *  @throws Exception if the checkpoint-file could Not be read
+     */
+    private BatchCheckpoint restoreCheckpoint() throws BatchFileException, Exception
+    {
+        final String HDR = CLASSNAME +": restoreCheckpoint(): ";
+        final BatchCheckpoint ckpt = BatchCheckpoint.load( this.cmdLineArgs.checkpointFile, this.memoryAndContext.getContext().getYAMLImplementation() );
+        if ( ckpt == null ) {
+            if ( this.cmdLineArgs.showStats ) System.out.println( HDR +"No checkpoint-file "+ this.cmdLineArgs.checkpointFile +".  Starting from the beginning of "+ this.checkpointBatchFile );
+            return null;
+        }
+        if ( ! ckpt.isFor( this.checkpointBatchFile ) )
+            throw new BatchFileException( "checkpoint-file "+ this.cmdLineArgs.checkpointFile +" is for a different (or since-modified) batch-file: "+ ckpt.batchFilePath );
+
+        // update in place, as the BatchFileGrammer and MemoryAndContext share these very same instances.
+        this.allProps.putAll( ckpt.allProps );
+        BatchCmdProcessor.initProperties( this.allProps );
+        final LinkedHashMap<String, Object> memory = this.memoryAndContext.getSavedOutputMaps();
+        memory.clear();
+        memory.putAll( ckpt.memory );
+        this.runcount = ckpt.runcount;
+        this.pipelineKey = null; // not known to the BatchStepCache
+        if ( this.cmdLineArgs.showStats ) System.out.println( HDR +"resuming from "+ ckpt );
+        return ckpt;
+    }
+
+    /**
+     *  Moves the batch-file forward (WITHOUT executing any built-in commands) so that the current line is _lineNum.
+     *  @param _batchCmds NotNull
+     *  @param _lineNum per {@link BatchFileGrammer#getLineNum()}
+     *  @throws Exception if the batch-file is messed up
+     */
+    private static void skipLines( final BatchFileGrammer _batchCmds, final int _lineNum ) throws Exception {
+        while ( _batchCmds.getLineNum() < _lineNum && ConfigFileScanner.hasNextLine( _batchCmds ) )
+            _batchCmds.skipLine();
+    }
+
+    //=============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=============================================================================
+
+    /**
+     *  <p>Based on command type, process the inputNode and produce an output - for that specific command</p>
+     *  <p>Invoked if {@link #getFOREACHIterations} returns null - and, for 'foreach --parallel', by the default implementation of {@link #getFOREACHIterations} to find out the iterations.
+     *      So, for each iteration, this should set {@link #FOREACH_INDEX}, {@link #FOREACH_ITER_KEY} and {@link #FOREACH_ITER_VALUE} and then invoke {@link #processBatch(boolean, BatchFileGrammer, Object) processBatch( true, .. )}
+     *      (or, use {@link #processFOREACHIterations} to run the lines inside the loop).</p>
      *  @param _batchCmds Non-Null instance of {@link BatchFileGrammer}
      *  @param _node Non-null instance of either the SnakeYaml library's org.yaml.snakeyaml.nodes.Node ( as generated by SnakeYAML library).. or.. EsotericSoftware Library's preference for LinkedHashMap&lt;String,Object&gt;, -- in either case, this object contains the entire Tree representing the YAML file.
      *  @return a BLANK/EMPTY/NON-NULL org.yaml.snakeyaml.nodes.Node object, as generated by SnakeYAML/CollectionsImpl library and you'll get the final YAML output representing all processing done by the batch file.  If there is any failure, either an Exception is thrown.
@@ -438,6 +844,299 @@ fail();
     protected abstract T  processFOREACHCmd_Step1( final BatchFileGrammer _batchCmds, T _node )
                 throws BatchCmdProcessor.BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception;
 
+    /**
+     *  <p>What a 'foreach' loop iterates over.  If this returns NotNull, the lines inside the loop are run by {@link #processFOREACHIterations} (which takes care of 'foreach --parallel'),
+     *      and the output of the loop is per {@link #mergeFOREACHOutputs}.  If this returns null, {@link #processFOREACHCmd_Step1} runs the whole loop instead.</p>
+     *  <p>This default implementation returns null for a plain 'foreach' (so, {@link #processFOREACHCmd_Step1} runs it, exactly as always).
+     *      For 'foreach --parallel', it invokes {@link #processFOREACHCmd_Step1} - but, rather than running the lines inside the loop, each invocation of
+     *      {@link #processBatch(boolean, BatchFileGrammer, Object) processBatch( true, .. )} (or of {@link #processFOREACHIterations}) by it, is remembered as an iteration:
+     *      with {@link #FOREACH_INDEX}, {@link #FOREACH_ITER_KEY} and {@link #FOREACH_ITER_VALUE} as they were set by it, and the input passed to processBatch().</p>
+     *  <p>Subclasses whose processFOREACHCmd_Step1() does anything else per iteration (other than setting those properties), must override this.</p>
+     *  @param _batchCmds Non-Null instance of {@link BatchFileGrammer}, whose current line is the 'foreach' line.  It must NOT be modified.
+     *  @param _node Non-null input to the 'foreach' line
+     *  @return Nullable list of iterations (can be empty)
+     *  @throws Exception Any unexpected error
+     */
+    protected List<ForeachIteration<T>> getFOREACHIterations( final BatchFileGrammer _batchCmds, final T _node ) throws Exception {
+        if ( _batchCmds.getForeachParallelism() == 1 )
+            return null;
+        final ArrayList<ForeachIteration<T>> iterations = new ArrayList<>();
+        final List<BatchSymbolTable> frames = this.pushFrames( FOREACH_PROPERTIES ); // whatever processFOREACHCmd_Step1() sets, is forgotten
+        this.recordedIterations = iterations;
+        try {
+            this.processFOREACHCmd_Step1( _batchCmds, _node );
+        } finally {
+            this.recordedIterations = null;
+            popFrames( frames );
+        }
+        return iterations;
+    }
+
+    /**
+     *  See {@link #getFOREACHIterations}.  Remembers 1 iteration, as per the current {@link #FOREACH_PROPERTIES}.
+     *  @param _input the input to the 1st line inside the loop
+     */
+    private void recordIteration( final T _input ) {
+        final Properties foreachProps = this.allProps.get( FOREACH_PROPERTIES );
+        final String key = ( foreachProps == null ) ? null : foreachProps.getProperty( FOREACH_ITER_KEY );
+        final String value = ( foreachProps == null ) ? null : foreachProps.getProperty( FOREACH_ITER_VALUE );
+        this.recordedIterations.add( new ForeachIteration<>( this.recordedIterations.size(), key, value, _input ) );
+    }
+
+    /**
+     *  <p>The output of a 'foreach' loop, given the output of each iteration.  Used ONLY if {@link #getFOREACHIterations} returns NotNull.</p>
+     *  <p>This default implementation returns the output of the last iteration (or, if there were No iterations, _node)</p>
+     *  @param _batchCmds Non-Null instance of {@link BatchFileGrammer}, whose current line is the 'foreach' line
+     *  @param _node Non-null input to the 'foreach' line
+     *  @param _outputs NotNull, as returned by {@link #processFOREACHIterations}
+     *  @return NotNull output of the 'foreach' loop
+     *  @throws Exception Any unexpected error
+     */
+    protected T mergeFOREACHOutputs( final BatchFileGrammer _batchCmds, final T _node, final ArrayList<T> _outputs ) throws Exception {
+        return _outputs.isEmpty() ? _node : _outputs.get( _outputs.size() - 1 );
+    }
+
+    //=============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=============================================================================
+
+    /**
+     *  <p>One iteration of a 'foreach' loop, as determined by the subclass (see {@link #getFOREACHIterations}).</p>
+     *  @param <T> either SnakeYAML's Node.class or LinkedHashMap&lt;String,Object&gt; for EsotericSoftware's YAML implementation
+     */
+    public static class ForeachIteration<T> {
+        public final int index;
+        /** Nullable. Will be made available as {@link #FOREACH_ITER_KEY} */
+        public final String key;
+        /** Nullable. Will be made available as {@link #FOREACH_ITER_VALUE} */
+        public final String value;
+        /** NotNull. The input to the 1st line inside the loop */
+        public final T input;
+
+        public ForeachIteration( final int _index, final String _key, final String _value, final T _input ) {
+            this.index = _index;
+            this.key = _key;
+            this.value = _value;
+            this.input = _input;
+        }
+    }
+
+    /**
+     *  <p>Runs the lines between 'foreach' and the matching 'end' - once for each of the _iterations.</p>
+     *  <p>For a plain 'foreach', the iterations run one after another (each iteration can see what the prior iteration saved into memory).</p>
+     *  <p>For 'foreach --parallel' or 'foreach --parallel=N', the iterations run on a pool of threads.
+     *     Each iteration gets its own scope of {@link #FOREACH_PROPERTIES} and its own {@link MemoryAndContext}, so iterations can NOT see each other's 'saveTo'.
+     *     Once ALL iterations are done, whatever the iterations saved into memory is merged back in index-order (so, for the same label, the highest index wins - just like a serial loop).
+     *     Output of 'print -' lines inside a parallel loop will be interleaved.</p>
+     *  @param _batchCmds NotNull instance of {@link BatchFileGrammer}, whose current line is the 'foreach' line.  It's NOT modified.
+     *  @param _iterations NotNull list (can be empty)
+     *  @return NotNull list of the output of each iteration, in the SAME order as _iterations
+     *  @throws Exception the exception thrown by the lowest-index iteration that failed
+     */
+    protected ArrayList<T> processFOREACHIterations( final BatchFileGrammer _batchCmds, final List<ForeachIteration<T>> _iterations ) throws Exception
+    {
+        final String HDR = CLASSNAME +": processFOREACHIterations("+ _batchCmds.getState() +"): ";
+        final int parallelism = _batchCmds.getForeachParallelism();
+        final ArrayList<T> outputs = new ArrayList<>( _iterations.size() );
+        if ( this.recordedIterations != null ) { // see getFOREACHIterations()
+            for ( ForeachIteration<T> iter: _iterations ) {
+                this.recordedIterations.add( new ForeachIteration<>( this.recordedIterations.size(), iter.key, iter.value, iter.input ) );
+                outputs.add( iter.input );
+            }
+            return outputs;
+        }
+        this.foreachIterationsRun ++;
+        if ( this.profiler != null ) this.profiler.recordIterations( _batchCmds, _iterations.size() );
+
+        if ( parallelism == 1 || _iterations.size() <= 1 ) {
+            final Properties foreachProps = this.allProps.get( FOREACH_PROPERTIES );
+            final List<BatchSymbolTable> frames = this.pushFrames( FOREACH_PROPERTIES ); // this loop's variables hide (and do Not clobber) those of any enclosing loop
+            final Object outerSharedInput = this.foreachSharedInput;
+            try {
+                for ( int ix = 0; ix < _iterations.size(); ix ++ ) {
+                    final ForeachIteration<T> iter = _iterations.get( ix );
+                    if ( this.prefetcher != null )
+                        this.prefetchIterations( _batchCmds, _iterations, ix + 1 );
+                    setForeachProperties( foreachProps, iter );
+                    final long cloneStart = ( this.profiler != null ) ? System.nanoTime() : 0L;
+                    final BatchFileGrammer loopCmds = BatchFileGrammer.deepClone( _batchCmds );
+                    if ( this.profiler != null ) this.profiler.recordPhase( _batchCmds, BatchProfiler.Phase.CLONE, cloneStart );
+                    this.foreachSharedInput = iter.input; // copy-on-write, as the input is part of the loop's input
+                    outputs.add( this.processBatch( true, loopCmds, iter.input ) );
+                }
+            } finally {
+                this.foreachSharedInput = outerSharedInput;
+                popFrames( frames );
+            }
+            return outputs;
+        }
+
+        final boolean bVirtual = this.cmdLineArgs.virtualThreads && isIOBound( _batchCmds, _batchCmds.getLineNum(), -1 );
+        final int threads = BatchThreads.poolSize( _iterations.size(), parallelism, bVirtual );
+        if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"running "+ _iterations.size() +" iterations on "+ BatchThreads.describe( threads, bVirtual ) );
+
+        // Each element is set by exactly one iteration.  Future.get() (below) ensures they are visible to this thread.
+        final List< BatchCmdProcessor<T> > scopes = new ArrayList<>( java.util.Collections.nCopies( _iterations.size(), (BatchCmdProcessor<T>) null ) );
+        final ArrayList< Future<T> > futures = new ArrayList<>( _iterations.size() );
+        final ExecutorService pool = BatchThreads.newPool( threads, bVirtual );
+        try {
+            for ( int ix = 0; ix < _iterations.size(); ix ++ ) {
+                final int index = ix;
+                final ForeachIteration<T> iter = _iterations.get( ix );
+                futures.add( pool.submit( () -> {
+                    final BatchCmdProcessor<T> scope = this.newForeachScope();
+                    scope.foreachSharedInput = iter.input; // copy-on-write, as other iterations may have the same input
+                    scopes.set( index, scope );
+                    try {
+                        setForeachProperties( scope.allProps.get( FOREACH_PROPERTIES ), iter );
+                        final BatchFileGrammer loopCmds = BatchFileGrammer.deepClone( _batchCmds );
+                        loopCmds.rebind( scope.cmdLineArgs.verbose, scope.allProps );
+                        return scope.processBatch( true, loopCmds, iter.input );
+                    } finally {
+                        scope.closeForeachScope();
+                    }
+                } ) );
+            }
+            // Future.get() in index order => the outputs are in index order, and the exception thrown is deterministic.
+            for ( Future<T> f: futures ) {
+                try {
+                    outputs.add( f.get() );
+                } catch ( ExecutionException ee ) {
+                    if ( ee.getCause() instanceof Exception )
+                        throw (Exception) ee.getCause();
+                    throw ee;
+                }
+            }
+        } finally {
+            pool.shutdownNow(); // in case of failure, do Not wait for the remaining iterations
+        }
+
+        // merge back in index order
+        final LinkedHashMap<String, Object> memory = ( this.memoryAndContext != null ) ? this.memoryAndContext.getSavedOutputMaps() : null;
+        for ( BatchCmdProcessor<T> scope: scopes ) {
+            if ( scope == null ) continue; // never ran, as the pool was shut down
+            this.runcount += scope.runcount;
+            if ( memory == null || scope.memoryAndContext == null )
+                continue;
+            for ( java.util.Map.Entry<String, Object> e: scope.memoryAndContext.getSavedOutputMaps().entrySet() )
+                if ( memory.get( e.getKey() ) != e.getValue() ) { // the iteration did a 'saveTo'
+                    memory.put( e.getKey(), e.getValue() );
+                    this.markSharedYAML( e.getValue() );
+                }
+        }
+        return outputs;
+    }
+
+    /**
+     *  @param _batchCmds NotNull
+     *  @param _fromLine line# of the 1st line
+     *  @param _toLine line# of the last line (inclusive).  If &lt; 0, then _fromLine must be a 'foreach' line, and this is its matching 'end'.
+     *  @return true if any of those lines is I/O-bound (see {@link BatchFileProgram#isIOBound(int, int)}).  Also true, if the batch-file is Not compiled (as the user asked for '--virtualThreads').
+     */
+    private static boolean isIOBound( final BatchFileGrammer _batchCmds, final int _fromLine, final int _toLine ) {
+        final BatchFileProgram program = _batchCmds.getProgram();
+        if ( program == null )
+            return true;
+        final int toLine = ( _toLine >= 0 ) ? _toLine : program.getMatchingEnd( _fromLine );
+        return program.isIOBound( _fromLine, ( toLine >= 0 ) ? toLine : program.maxLineNum() );
+    }
+
+    /**
+     *  <p>Creates a copy of this processor, for use by exactly ONE iteration of a 'foreach --parallel' loop.</p>
+     *  <p>Everything that the lines inside a loop can modify (command-line flags, {@link #FOREACH_PROPERTIES}, {@link MemoryAndContext}) is copied.  Everything else is shared.
+     *      {@link #FOREACH_PROPERTIES} is Not literally copied: the copy is a child-scope (see {@link BatchSymbolTable#newScope()}) of this processor's.</p>
+     *  <p>The {@link MemoryAndContext} is new (with a copy of the labels in memory, but NOT of the YAML they refer to).  Its YAML-implementation is acquired from {@link #getYAMLImplementations()} -
+     *      So, it's Not deep-cloned for every iteration.  Once the iteration is done, {@link #closeForeachScope()} must be invoked.</p>
+     *  @return a NotNull new instance of the same subclass as this
+     *  @throws Exception if deep-cloning fails
+     */
+    protected BatchCmdProcessor<T> newForeachScope() throws Exception
+    {
+        @SuppressWarnings("unchecked")
+        final BatchCmdProcessor<T> scope = (BatchCmdProcessor<T>) super.clone(); // shallow
+        scope.cmdLineArgs = org.ASUX.common.Utils.deepClone( this.cmdLineArgs );
+        scope.runcount = 0;
+        scope.sharedYAML = java.util.Collections.newSetFromMap( new IdentityHashMap<>() );
+        scope.sharedYAML.addAll( this.sharedYAML );
+
+        final LinkedHashMap<String,Properties> scopedProps = new LinkedHashMap<>( this.allProps );
+        final Properties parentProps = this.allProps.get( FOREACH_PROPERTIES );
+        final BatchSymbolTable foreachProps = ( parentProps instanceof BatchSymbolTable ) ? ( (BatchSymbolTable) parentProps ).newScope() : new BatchSymbolTable( parentProps );
+        scopedProps.put( FOREACH_PROPERTIES, foreachProps );
+
+        if ( this.memoryAndContext != null && this.memoryAndContext.getContext() != null ) {
+            final YAMLImplementation.Shared<T> impls = this.getYAMLImplementations(); // shared with the scope.  See YAMLImplementation.Shared.isFor()
+            final CmdFamilyRegistry.CmdFamily family = CmdFamilyRegistry.lookup( "yaml" );
+            @SuppressWarnings("unchecked")
+            final CmdInvoker<T> invoker = ( family != null )
+                            ? (CmdInvoker<T>) family.newCmdInvoker( scope.cmdLineArgs, null ) // its own (new) MemoryAndContext
+                            : (CmdInvoker<T>) CmdInvoker.deepClone( this.memoryAndContext.getContext() );
+            invoker.setYAMLImplementation( impls.acquire() );
+            invoker.getMemoryAndContext().setSavedOutputMaps( new LinkedHashMap<>( this.memoryAndContext.getSavedOutputMaps() ) );
+            invoker.getMemoryAndContext().setAllPropsRef( scopedProps );
+            scope.yamlImpls = impls;
+            scope.setMemoryAndContext( invoker.getMemoryAndContext() );
+        } else {
+            scope.allProps = scopedProps;
+        }
+        return scope;
+    }
+
+    /**
+     *  Invoked once the 'foreach --parallel' iteration that uses this (as created by {@link #newForeachScope()}) is done.  So, its YAML-implementation can be re-used by another iteration.
+     */
+    private void closeForeachScope() {
+        if ( this.yamlImpls == null || this.memoryAndContext == null || this.memoryAndContext.getContext() == null )
+            return;
+        @SuppressWarnings("unchecked")
+        final CmdInvoker<T> context = (CmdInvoker<T>) this.memoryAndContext.getContext();
+        this.yamlImpls.release( context.getYAMLImplementation() );
+    }
+
+    /**
+     *  Starts a new (innermost) frame in each of the property-sets named, that is a {@link BatchSymbolTable}.  Whatever is set into them from now on, is forgotten by {@link #popFrames}
+     *  @param _propSetNames NotNull names of property-sets within {@link #allProps} (example: {@link #FOREACH_PROPERTIES})
+     *  @return NotNull list of the symbol-tables that got a new frame.  To be passed to {@link #popFrames}
+     */
+    private List<BatchSymbolTable> pushFrames( final String... _propSetNames ) {
+        final ArrayList<BatchSymbolTable> frames = new ArrayList<>( _propSetNames.length );
+        for ( String name: _propSetNames ) {
+            final Properties props = ( this.allProps == null ) ? null : this.allProps.get( name );
+            if ( props instanceof BatchSymbolTable ) {
+                ( (BatchSymbolTable) props ).push();
+                frames.add( (BatchSymbolTable) props );
+            }
+        }
+        return frames;
+    }
+
+    /**
+     *  Discards the frames started by {@link #pushFrames}
+     *  @param _frames NotNull, as returned by {@link #pushFrames}
+     */
+    private static void popFrames( final List<BatchSymbolTable> _frames ) {
+        for ( BatchSymbolTable frames: _frames )
+            frames.pop();
+    }
+
+    /**
+     *  Makes the index/key/value of the current iteration available (for Macro evaluations) within the lines of the 'foreach' loop
+     *  @param _foreachProps the {@link #FOREACH_PROPERTIES} entry within {@link #allProps}
+     *  @param _iter NotNull
+     */
+    protected static void setForeachProperties( final Properties _foreachProps, final ForeachIteration<?> _iter ) {
+        _foreachProps.setProperty( FOREACH_INDEX, ""+ _iter.index );
+        _foreachProps.setProperty( FOREACH_INDEX_PLUS1, ""+ (_iter.index + 1) );
+        if ( _iter.key != null )
+            _foreachProps.setProperty( FOREACH_ITER_KEY, _iter.key );
+        else
+            _foreachProps.remove( FOREACH_ITER_KEY );
+        if ( _iter.value != null )
+            _foreachProps.setProperty( FOREACH_ITER_VALUE, _iter.value );
+        else
+            _foreachProps.remove( FOREACH_ITER_VALUE );
+    }
+
     //=============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=============================================================================
@@ -484,16 +1183,33 @@ fail();
     //======================================================================
     protected T processSaveToLine( final BatchFileGrammer _batchCmds, final T _node )
                                     throws Macros.MacroException,  java.io.IOException, Exception
+    {
+        return this.saveInto( _batchCmds, _batchCmds.getSaveTo(), _node );
+    }
+
+    /**
+     *  Does what a 'saveTo' line does.  See {@link #processSaveToLine}
+     *  @param _batchCmds NotNull
+     *  @param _saveTo_AsIs the label/file-path (as is, within the batch-file)
+     *  @param _node what to save
+     *  @return the output of the 'saveTo' line
+     *  @throws Macros.MacroException if any issues evaluating Macros within _saveTo_AsIs
+     *  @throws java.io.IOException if any issues writing to a file
+     *  @throws Exception any other error
+     */
+    private T saveInto( final BatchFileGrammer _batchCmds, final String _saveTo_AsIs, final T _node )
+                                    throws Macros.MacroException,  java.io.IOException, Exception
     {
         final String HDR = CLASSNAME +": processSaveToLine(): ";
-        final String saveTo_AsIs = new org.ASUX.common.StringUtils(this.cmdLineArgs.verbose).removeBeginEndQuotes(   _batchCmds.getSaveTo()   );
+        final String saveTo_AsIs = new org.ASUX.common.StringUtils(this.cmdLineArgs.verbose).removeBeginEndQuotes(   _saveTo_AsIs   );
         if ( saveTo_AsIs != null ) {
-            String saveTo = Macros.evalThoroughly( this.cmdLineArgs.verbose, saveTo_AsIs, this.allProps );
+            String saveTo = this.evalMacros( _batchCmds, saveTo_AsIs );
             if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" #1 saveTo='"+ saveTo +"' and saveTo.startsWith(?)="+ saveTo.startsWith("?") +" saveTo.substring(1)='"+ saveTo.substring(1) + "'" );
             final boolean bOkIfMissing = saveTo.startsWith("?"); // that is, the script-file line was:- 'properties kwom=?fnwom'
             saveTo = saveTo.startsWith("?") ? saveTo.substring(1) : saveTo; // remove the '?' prefix from key/lhs string
             // repeat a 2nd time - in case user entered '?' BEFORE the quotes surrounding the SaveTo-path
             saveTo = new org.ASUX.common.StringUtils(this.cmdLineArgs.verbose).removeBeginEndQuotes( saveTo );
+            if ( saveTo.startsWith("@") ) saveTo = this.cmdLineArgs.resolvePath( saveTo );
             if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" #2 saveTo='"+ saveTo +"' and saveTo.startsWith(?)="+ saveTo.startsWith("?") +" saveTo.substring(1)='"+ saveTo.substring(1) + "'" );
 
             if ( this.memoryAndContext == null || this.memoryAndContext.getContext() == null )
@@ -505,12 +1221,18 @@ fail();
                     if ( o != null ) {
                         @SuppressWarnings("unchecked")
                         T ret = (T) o;
+                        this.markSharedYAML( ret );
+                        if ( this.stepCache != null ) this.pipelineKey = this.stepCache.keyOfReference( saveTo );
                         return ret;
                     } // else fall thru below.
                 } // else fall thru below.
-                final T newnode = deepClone( _node );
-                this.memoryAndContext.getContext().saveDataIntoReference( saveTo, newnode );
-                return newnode;
+                // Copy-on-write: Do NOT deep-clone here (very expensive for large YAML).  The SAME node is now shared by memory and by the rest of the batch-script.
+                // It will be deep-cloned ONLY IF a later command is about to modify it.  See isSharedYAML() and onAnyCmd().
+                this.memoryAndContext.getContext().saveDataIntoReference( saveTo, _node );
+                if ( ! saveTo.startsWith("@") ) this.markSharedYAML( _node );
+                if ( this.prefetcher != null && saveTo.startsWith("@") ) this.prefetcher.invalidate( saveTo );
+                if ( this.stepCache != null && ! saveTo.startsWith("@") ) this.stepCache.setLabelKey( saveTo, this.pipelineKey );
+                return _node;
             } // if-else
         } else 
             throw new BatchFileException( HDR +" ERROR In "+ _batchCmds.getState() +".. Missing or empty label for SaveTo line was encountered = ["+ saveTo_AsIs +"]" );
@@ -520,6 +1242,52 @@ fail();
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=============================================================================
 
+    /**
+     *  <p>What each command (and each read by {@link BatchPrefetcher}) uses, rather than a deep-clone of the YAML-implementation of {@link #memoryAndContext}.</p>
+     *  <p>It's created afresh, if that YAML-implementation (or its configuration) was replaced.</p>
+     *  @return NotNull
+     */
+    private YAMLImplementation.Shared<T> getYAMLImplementations() {
+        @SuppressWarnings("unchecked")
+        final CmdInvoker<T> context = (CmdInvoker<T>) this.memoryAndContext.getContext();
+        final YAMLImplementation<T> current = context.getYAMLImplementation();
+        if ( this.yamlImpls == null || ! this.yamlImpls.isFor( current ) )
+            this.yamlImpls = new YAMLImplementation.Shared<>( current );
+        return this.yamlImpls;
+    }
+
+    /**
+     *  <p>Copy-on-write support: 'saveTo' does NOT deep-clone.  Instead, any YAML that is referenced from memory is treated as shared (and read-only).
+     *      So is the output of a read-only command (example: 'yaml --read'), whose input is shared - as that output can be a part of its input.</p>
+     *  <p>So, before a command modifies its input, it must check this and deep-clone if needed.</p>
+     *  @param _node Nullable
+     *  @return true if _node is the very same object (Not just equal) as something marked by {@link #markSharedYAML}, or as the input shared by all iterations of a 'foreach' loop.
+     */
+    protected boolean isSharedYAML( final T _node ) {
+        if ( _node == null )
+            return false;
+        return _node == this.foreachSharedInput || this.sharedYAML.contains( _node );
+    }
+
+    /**
+     *  <p>See {@link #isSharedYAML}.  So that this does NOT hold on to YAML that is no longer in memory (example: a label that was overwritten, or moved out of memory by {@link MemorySpill}),
+     *      whenever it has grown to twice the # of labels in memory, it forgets everything other than _node and what is currently in memory.</p>
+     *  @param _node Nullable
+     */
+    private void markSharedYAML( final Object _node ) {
+        if ( _node == null )
+            return;
+        this.sharedYAML.add( _node );
+        final LinkedHashMap<String, Object> memory = ( this.memoryAndContext != null ) ? this.memoryAndContext.getSavedOutputMaps() : null;
+        final int limit = 2 * ( ( memory != null ) ? memory.size() : 0 ) + 16;
+        if ( this.sharedYAML.size() <= limit )
+            return;
+        final Set<Object> live = java.util.Collections.newSetFromMap( new IdentityHashMap<>() );
+        if ( memory != null ) live.addAll( memory.values() );
+        live.add( _node );
+        this.sharedYAML.retainAll( live );
+    }
+
     // protected abstract T processUseAsInputLine( final BatchFileGrammer _batchCmds )
     //                             throws java.io.FileNotFoundException, java.io.IOException, Exception,
     //                             Macros.MacroException, BatchFileException;
@@ -530,23 +1298,27 @@ fail();
     {
         final String HDR = CLASSNAME +": processUseAsInputLine(): ";
         final String inputFrom_AsIs = _batchCmds.getUseAsInput();
-        String inputFrom = Macros.evalThoroughly( this.cmdLineArgs.verbose, inputFrom_AsIs, this.allProps );
+        String inputFrom = this.evalMacros( _batchCmds, inputFrom_AsIs );
         if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" #1 inputFrom='"+ inputFrom +"' and inputFrom.startsWith(?)="+ inputFrom.startsWith("?") +" inputFrom.substring(1)='"+ inputFrom.substring(1) + "'" );
         inputFrom = new org.ASUX.common.StringUtils(this.cmdLineArgs.verbose).removeBeginEndQuotes( inputFrom );
         final boolean bOkIfMissing = inputFrom.startsWith("?"); // that is, the script-file line was:- 'properties kwom=?fnwom'
         inputFrom = inputFrom.startsWith("?") ? inputFrom.substring(1) : inputFrom; // remove the '?' prefix from key/lhs string
         // repeat a 2nd time - in case user entered '?' BEFORE the quotes
         inputFrom = new org.ASUX.common.StringUtils(this.cmdLineArgs.verbose).removeBeginEndQuotes( inputFrom );
+        if ( inputFrom.startsWith("@") ) inputFrom = this.cmdLineArgs.resolvePath( inputFrom );
         if ( this.cmdLineArgs.verbose ) System.out.println( HDR +" #2 inputFrom='"+ inputFrom +"' and inputFrom.startsWith(?)="+ inputFrom.startsWith("?") +" inputFrom.substring(1)='"+ (inputFrom.length()>0?inputFrom.substring(1):"EMPTYString") + "'" );
 
         if ( this.memoryAndContext == null || this.memoryAndContext.getContext() == null )
             throw new BatchFileException( HDR +"ERROR In "+ _batchCmds.getState() +".. This program currently has NO/Zero memory to carry it from one line of the batch file to the next.  And a useAsInput line was encountered for ["+ inputFrom +"]" );
+        if ( this.stepCache != null ) this.pipelineKey = this.stepCache.keyOfReference( inputFrom );
 
         try {
-            final Object o = this.memoryAndContext.getContext().getDataFromReference( inputFrom );
+            final Object prefetched = ( this.prefetcher != null ) ? this.prefetcher.take( inputFrom ) : null;
+            final Object o = ( prefetched != null ) ? prefetched : this.memoryAndContext.getContext().getDataFromReference( inputFrom );
             if ( instanceof_YAMLImplClass( o ) ) // o instanceof T <-- compiler cannot allow me to do this
             {   @SuppressWarnings("unchecked")
                 final T retMap3 = (T) o;
+                if ( prefetched == null && ! inputFrom.startsWith("@") ) this.markSharedYAML( retMap3 ); // it's in memory
                 return retMap3;
                 // if ( isEmptyYAML( retMap3 ) )
                 //     return null;
@@ -572,6 +1344,198 @@ fail();
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=============================================================================
 
+    /**
+     *  <p>Look-ahead for '--prefetch': the upcoming 'useAsInput' lines (up to the next 'foreach' or 'end') whose file-path is already known, are submitted to {@link #prefetcher}.</p>
+     *  <p>A path is known, if the Macros within it can be evaluated using _allProps.  If a Macro's value changes before the line is executed, the path will be different - and the prefetched content is simply Not used.</p>
+     *  <p>Any failure here is ignored: the line itself will read the file (and report any errors), when it's executed.</p>
+     *  @param _batchCmds NotNull
+     *  @param _fromLine line# from where to look ahead (incl. this line)
+     *  @param _allProps NotNull property-sets to lookup the values of macros
+     */
+    private void prefetchAhead( final BatchFileGrammer _batchCmds, final int _fromLine, final LinkedHashMap<String,Properties> _allProps )
+    {
+        final BatchFileProgram program = _batchCmds.getProgram();
+        if ( program == null || this.memoryAndContext == null || this.memoryAndContext.getContext() == null )
+            return;
+        final org.ASUX.common.StringUtils su = new org.ASUX.common.StringUtils( false );
+        int lineNum = program.getNextFileInput( _fromLine );
+        for ( int count = 0; lineNum >= 0 && count < BatchPrefetcher.LOOKAHEAD_LINES; count ++, lineNum = program.getNextFileInput( lineNum + 1 ) ) {
+            try {
+                String ref = MacroTemplate.evalThoroughly( false, program.getInstruction( lineNum ).useAsInput, _allProps );
+                ref = su.removeBeginEndQuotes( ref );
+                ref = su.removeBeginEndQuotes( ref.startsWith("?") ? ref.substring(1) : ref );
+                if ( ref.startsWith("@") ) ref = this.cmdLineArgs.resolvePath( ref ); // exactly as processUseAsInputLine() will
+                if ( ref.contains("${") || ! this.prefetcher.wants( ref ) )
+                    continue;
+                // Just like onAnyCmd(), each read needs its own invoker - and its own copy of the YAML-implementation, until the read completes.
+                @SuppressWarnings("unchecked")
+                final CmdInvoker<T> reader = (CmdInvoker<T>) CmdFamilyRegistry.lookup( "yaml" ).newCmdInvoker( this.cmdLineArgs, this.memoryAndContext );
+                final YAMLImplementation.Shared<T> impls = this.getYAMLImplementations();
+                final YAMLImplementation<T> readerImpl = impls.acquire();
+                reader.setYAMLImplementation( readerImpl );
+                final String reference = ref;
+                this.prefetcher.prefetch( reference, () -> {
+                    try {
+                        return reader.getDataFromReference( reference );
+                    } finally {
+                        impls.release( readerImpl );
+                    }
+                } );
+            } catch ( Exception e ) {
+                if ( this.cmdLineArgs.verbose ) System.out.println( CLASSNAME +": prefetchAhead(): ignoring line# "+ lineNum +".  "+ e );
+            }
+        }
+    }
+
+    /**
+     *  Look-ahead for '--prefetch', into the next few iterations of a (sequential) 'foreach' loop.  See {@link #prefetchAhead}
+     *  @param _batchCmds NotNull, whose current line is the 'foreach' line
+     *  @param _iterations NotNull, all the iterations of the loop
+     *  @param _fromIndex the index (within _iterations) of the 1st iteration to look into
+     */
+    private void prefetchIterations( final BatchFileGrammer _batchCmds, final List<ForeachIteration<T>> _iterations, final int _fromIndex )
+    {
+        final Properties foreachProps = this.allProps.get( FOREACH_PROPERTIES );
+        if ( ! ( foreachProps instanceof BatchSymbolTable ) )
+            return;
+        for ( int ix = _fromIndex; ix < _iterations.size() && ix < _fromIndex + BatchPrefetcher.LOOKAHEAD_ITERATIONS; ix ++ ) {
+            // the properties as they will be, during that iteration
+            final BatchSymbolTable iterProps = ( (BatchSymbolTable) foreachProps ).newScope();
+            setForeachProperties( iterProps, _iterations.get( ix ) );
+            final LinkedHashMap<String,Properties> scopedProps = new LinkedHashMap<>( this.allProps );
+            scopedProps.put( FOREACH_PROPERTIES, iterProps );
+            this.prefetchAhead( _batchCmds, _batchCmds.getLineNum() + 1, scopedProps );
+        }
+    }
+
+    //=============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=============================================================================
+
+    /**
+     *  Same as Macros.evalThoroughly(), but timed by {@link #profiler} (if any).  Evaluations are re-used, as long as the properties they depend on do Not change.  See {@link MacroTemplate}
+     *  @param _batchCmds NotNull, positioned at the line being executed
+     *  @param _s Nullable string that may have Macro-expressions like ${ASUX::..}
+     *  @return the Macro-evaluated version of _s
+     *  @throws Exception if there is any issues with evaluating Macros
+     */
+    private String evalMacros( final BatchFileGrammer _batchCmds, final String _s ) throws Exception {
+        final long start = ( this.profiler != null ) ? System.nanoTime() : 0L;
+        final String ret = MacroTemplate.evalThoroughly( this.cmdLineArgs.verbose, _s, this.allProps );
+        if ( this.profiler != null ) this.profiler.recordPhase( _batchCmds, BatchProfiler.Phase.MACRO, start );
+        return ret;
+    }
+
+    /**
+     *  Prints the slowest lines of the batch-file, and (if '--profileJSON' was specified) saves all the measurements into a JSON file.
+     *  @param _batchFileName for use in the report only
+     */
+    private void reportProfile( final String _batchFileName ) {
+        this.cmdLineArgs.getStdout().println( "\nProfile of "+ _batchFileName +" (top "+ BatchProfiler.DEFAULT_TOPN +" lines, slowest first):"+ this.profiler.report( BatchProfiler.DEFAULT_TOPN ) );
+        if ( this.cmdLineArgs.profileJSONFile != null ) {
+            try ( java.io.Writer w = new java.io.FileWriter( this.cmdLineArgs.profileJSONFile ) ) {
+                w.write( this.profiler.toJSON() );
+            } catch ( java.io.IOException ioe ) {
+                if ( this.cmdLineArgs.verbose ) ioe.printStackTrace(System.err);
+                System.err.println( CLASSNAME +": reportProfile(): ERROR: failed to write profile to file '"+ this.cmdLineArgs.profileJSONFile +"'.  "+ ioe );
+            }
+        }
+    }
+
+    //=============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=============================================================================
+
+    /**
+     *  <p>Whether the current line starts a group of 2 or more 'useAsInput X' + 'yaml read ..' + 'saveTo !label' lines (see {@link BatchFileProgram#getReadGroupEnd(int)}),
+     *      whose reads can be run as ONE invocation of {@link CmdInvoker#processQueries} - so that the YAML-library can traverse X just ONCE.</p>
+     *  <p>Groups are Not fused when profiling (see {@link BatchProfiler}) or in incremental mode (see {@link BatchStepCache}), as both need to see every line.</p>
+     *  @param _batchCmds NotNull, positioned at the 1st 'useAsInput' line of the group.  It is NOT modified.
+     *  @param _lastLineNum the group will NOT go beyond this line#.  See {@link #processBatch(boolean, BatchFileGrammer, Object, int)}
+     *  @return Nullable.  null if the current line must be run as usual, else the parsed command of each 'read' line of the group
+     *  @throws Exception if the parser throws
+     */
+    private ArrayList<CmdLineArgsCommon> getReadGroup( final BatchFileGrammer _batchCmds, final int _lastLineNum ) throws Exception
+    {
+        final BatchFileProgram program = _batchCmds.getProgram();
+        if ( program == null || this.cmdLineArgs.verbose || this.profiler != null || this.stepCache != null
+                || this.memoryAndContext == null || this.memoryAndContext.getContext() == null )
+            return null;
+        final int firstLine = _batchCmds.getLineNum();
+        final int lastLine = program.getReadGroupEnd( firstLine );
+        if ( lastLine <= firstLine || lastLine > _lastLineNum )
+            return null;
+
+        final CmdFamilyRegistry.CmdFamily family = CmdFamilyRegistry.lookup( "yaml" );
+        if ( family == null )
+            return null;
+        final org.ASUX.language.antlr4.GenericCmdANTLR4Parser parser = family.getParser( this.cmdLineArgs.verbose );
+
+        final ArrayList<CmdLineArgsCommon> group = new ArrayList<>();
+        for ( int lineNum = firstLine; lineNum <= lastLine; lineNum ++ ) {
+            final BatchFileProgram.Instruction instr = program.getInstruction( lineNum );
+            if ( instr == null || instr.cmdType != BatchFileGrammer.BatchCmdType.Cmd_Any )
+                continue;
+            final ArrayList<CmdLineArgsCommon> cmds = instr.getParsedCmdLineArgs( instr.line + " -i - -o -", parser );
+            if ( cmds.size() != 1 )
+                return null;
+            final CmdLineArgsCommon cmd = cmds.get( 0 );
+            if ( cmd.cmdType != Enums.CmdEnum.READ || ! "-".equals( cmd.inputFilePath ) || ! "-".equals( cmd.outputFilePath ) )
+                return null;
+            cmd.copyBasicFlags( this.cmdLineArgs );
+            group.add( cmd );
+        }
+        return group;
+    }
+
+    /**
+     *  Runs the group of reads found by {@link #getReadGroup(BatchFileGrammer, int)}: the 'useAsInput' line ONCE, all the 'read' lines as ONE {@link CmdInvoker#processQueries}, and then each of the 'saveTo' lines.
+     *  @param _batchCmds NotNull, positioned at the 1st line of the group.  It's moved to the last line of the group.
+     *  @param _group NotNull, as returned by {@link #getReadGroup(BatchFileGrammer, int)}
+     *  @return the output of the last line of the group
+     *  @throws BatchFileException if any of the lines in the group failed
+     *  @throws Exception if the 'useAsInput' line failed (same as {@link #processUseAsInputLine})
+     */
+    private T onReadGroup( final BatchFileGrammer _batchCmds, final ArrayList<CmdLineArgsCommon> _group ) throws BatchFileException, Exception
+    {
+        final String HDR = CLASSNAME + ": onReadGroup(): ";
+        final BatchFileProgram program = _batchCmds.getProgram();
+        final int firstLine = _batchCmds.getLineNum();
+        final int lastLine = program.getReadGroupEnd( firstLine );
+
+        final T input = this.processUseAsInputLine( _batchCmds );
+        final CmdFamilyRegistry.CmdFamily family = CmdFamilyRegistry.lookup( "yaml" );
+        final java.util.List<Object> outputs;
+        try {
+            @SuppressWarnings("unchecked")
+            final CmdInvoker<T> invoker = (CmdInvoker<T>) family.newCmdInvoker( this.cmdLineArgs, this.memoryAndContext );
+            final YAMLImplementation.Shared<T> impls = this.getYAMLImplementations();
+            final YAMLImplementation<T> yamlImpl = impls.acquire();
+            invoker.setYAMLImplementation( yamlImpl );
+            // read-only commands.  So, No need for copy-on-write of input
+            outputs = invoker.processQueries( _group, input );
+            impls.release( yamlImpl );
+        } catch (Exception e) {
+            if ( this.cmdLineArgs.verbose ) e.printStackTrace(System.err);
+            throw new BatchFileException( "ERROR In "+ _batchCmds.getState() +" (group of reads until line# "+ lastLine +").. "+ e.getMessage() );
+        }
+
+        T output = input;
+        int ix = 0;
+        for ( int lineNum = firstLine; lineNum <= lastLine; lineNum ++ ) {
+            final BatchFileProgram.Instruction instr = program.getInstruction( lineNum );
+            if ( instr == null || instr.cmdType != BatchFileGrammer.BatchCmdType.Cmd_SaveTo )
+                continue;
+            // We expect the underlying library to generate the object of type T (same as for onAnyCmd())
+            @SuppressWarnings("unchecked")
+            final T out = (T) outputs.get( ix ++ );
+            output = this.saveInto( _batchCmds, instr.saveTo, out );
+        }
+        skipLines( _batchCmds, lastLine );
+        if ( this.cmdLineArgs.showStats ) System.out.println( HDR +"ran line# "+ firstLine +" to "+ lastLine +" as a single traversal for "+ _group.size() +" reads" );
+        return output;
+    }
+
     private T onAnyCmd( final BatchFileGrammer _batchCmds, final T _input )
                     throws BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception
     {
@@ -580,83 +1544,67 @@ fail();
         final String HDR = CLASSNAME + ": onAnyCmd(): ";
         final String cmdStr_AsIs = _batchCmds.getCommand();
         assertNotNull(cmdStr_AsIs);
-        final String cmdStrNM = Macros.evalThoroughly( this.cmdLineArgs.verbose, cmdStr_AsIs, this.allProps ).trim();
+        final String cmdStrNM = this.evalMacros( _batchCmds, cmdStr_AsIs ).trim();
         assertNotNull(cmdStrNM);
 
         final boolean isYAMLCmd = cmdStrNM.equals("yaml");
-        final boolean isAWSCmd = cmdStrNM.equals("aws.sdk");
-        final boolean isAWSCFNCmd = cmdStrNM.equals("aws.cfn");
-
-        //--------------------------------
-        // completeCmdLine was enhanced in the above IF-ELSE
-        // String[] cmdLineArgsStrArr = convStr2Array( completeCmdLine );
-
-        // cmdLineArgsStrArr = java.util.Arrays.copyOfRange( cmdLineArgsStrArr, 1, cmdLineArgsStrArr.length ); // get rid of the 'yaml' or 'aws.sdk' word at the beginning of the command
-        // final Class[] mainArgsClassList = new Class[] { cmdLineArgsStrArr.getClass() };
-        // final Object[] mainArgs         =  new Object[] { cmdLineArgsStrArr };
 
         //--------------------------------
         // We need to invoke constructor of the SUB-CLASS of org.ASUX.yaml.CmdInvoker - from the appropriate YAML-Library or AWS-SDK Library.
-        // For that let's gather the Constructor parameter-types and arguments
-        String cmdArgsClassNameStr = null;
-        String antlr4ParserClassNameStr = null;
-        String implClassNameStr = null;
-
-        // ASUX has multiple COMMAND-FAMILIES: YAML, AWS, CFN, TEXT, .. ..
-
-        if ( isYAMLCmd ) {
-            cmdArgsClassNameStr = "org.ASUX.yaml.CmdLineArgsCommon";
-            antlr4ParserClassNameStr = "org.ASUX.yaml.YAMLCmdANTLR4Parser";
-            implClassNameStr = "org.ASUX.YAML.NodeImpl.CmdInvoker";
-        } else if ( isAWSCmd ) {
-            cmdArgsClassNameStr = "org.ASUX.AWSSDK.CmdLineArgsAWS";
-            antlr4ParserClassNameStr = "org.ASUX.yaml.AWSSDKCmdANTLR4Parser";
-            implClassNameStr = "org.ASUX.AWSSDK.CmdInvoker";
-        } else if ( isAWSCFNCmd ) {
-            cmdArgsClassNameStr = "org.ASUX.AWS.CFN.CmdLineArgs";
-            antlr4ParserClassNameStr = "org.ASUX.yaml.AWSCFNCmdANTLR4Parser";
-            implClassNameStr = "org.ASUX.AWS.CFN.CmdInvoker";
-        } else {
+        // ASUX has multiple COMMAND-FAMILIES: YAML, AWS, CFN, TEXT, .. ..   All the reflection needed for that is done ONCE per JVM.  See CmdFamilyRegistry.java
+        final CmdFamilyRegistry.CmdFamily family = CmdFamilyRegistry.lookup( cmdStrNM );
+        if ( family == null )
             throw new BatchFileException( "Unknown Batchfile command ["+ cmdStr_AsIs +"] / ["+ cmdStrNM +"] in "+ _batchCmds.getState() );
-        }
+        if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"command-family = "+ family );
 
-        if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"cmdArgsClassNameStr ="+ cmdArgsClassNameStr );
-        assertNotNull(cmdArgsClassNameStr);
-        if ( this.cmdLineArgs.verbose )  System.out.println( HDR +"antlr4ParserClassNameStr ="+ antlr4ParserClassNameStr );
-        assertNotNull(antlr4ParserClassNameStr);
-        if ( this.cmdLineArgs.verbose )  System.out.println( HDR +"implClassNameStr ="+ implClassNameStr );
-        assertNotNull(implClassNameStr);
+        @SuppressWarnings("unchecked")
+        final CmdInvoker<T> context = ( this.memoryAndContext != null ) ? (CmdInvoker<T>) this.memoryAndContext.getContext() : null;
 
         //--------------------------------
         // Do the equivalent of:- new org.ASUX.YAML.NodeImpl.CmdInvoker( this.cmdLineArgs.verbose, this.cmdLineArgs.showStats, .. .. );
         // Do the equivalent of:- new org.ASUX.AWSSDK.CmdInvoker( this.cmdLineArgs.verbose, this.cmdLineArgs.showStats, .. .. );
         try {
-            if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"about to invoke "+ antlr4ParserClassNameStr +".constructor()." );
-
             //  Just like for YAML, AWS.SDK and AWS.CFN need their own Parser & Grammer.
             // So, all those ASUX_Projects will have their own EQUIVALENT of YAMLCmdANTLR4Parser, implementing the org.ASUX.language.antlr4.GenericCmdANTLR4Parser interface.
-            // So, the generic code here, is to find out what the equivalent of YAMLCmdANTLR4Parser is.
-            final Class<?> antlr4ParserClass = Cmd.class.getClassLoader().loadClass( antlr4ParserClassNameStr ); // returns: protected Class<?> -- throws ClassNotFoundException
-            if ( this.cmdLineArgs.verbose )  System.out.println( HDR +"antlr4ParserClassNameStr=["+ antlr4ParserClassNameStr +"] successfully loaded using ClassLoader.");
-            // // final Object oo2 = org.ASUX.common.GenericProgramming.invokeStaticMethod( cmdArgsClass, "create", mainArgsClassList, mainArgs );
-            final Constructor<?> constructor = antlr4ParserClass.getConstructor( boolean.class );
-            // Constructor<?> constructor = antlr4ParserClass.getConstructors()[0]; // <--- for DEFAULT CONSTRUCTOR only
-            final Object oo2 = constructor.newInstance( this.cmdLineArgs.verbose );
-            final org.ASUX.language.antlr4.GenericCmdANTLR4Parser genericCmdANTLR4Parser = (org.ASUX.language.antlr4.GenericCmdANTLR4Parser) oo2;
+            final org.ASUX.language.antlr4.GenericCmdANTLR4Parser genericCmdANTLR4Parser = family.getParser( this.cmdLineArgs.verbose );
 
             //--------------------------------------------------------------
             final String completeCmdLine = _batchCmds.currentLine() + " -i - -o -"; // Adding the '-i' and '-o' is harmless, but required because CmdLineArgs.java will barf otherwise (as CmdLineArgs.java thinks it's being run on commandline by a user)
             if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"about to parse completeCmdLine="+ completeCmdLine );
 
-            final ArrayList<org.ASUX.language.antlr4.CmdLineArgs> cmds =genericCmdANTLR4Parser.parseYamlCommandLine( completeCmdLine );
+            // For 'yaml' commands without any macros, the line is parsed only ONCE.  See BatchFileProgram.java
+            final BatchFileProgram.Instruction instr = _batchCmds.getInstruction();
+            final long parseStart = ( this.profiler != null ) ? System.nanoTime() : 0L;
+            final ArrayList<? extends org.ASUX.language.antlr4.CmdLineArgs> cmds = ( isYAMLCmd && instr != null && instr.isMacroFree() )
+                                    ? instr.getParsedCmdLineArgs( completeCmdLine, genericCmdANTLR4Parser )
+                                    : genericCmdANTLR4Parser.parseYamlCommandLine( completeCmdLine );
+            if ( this.profiler != null ) this.profiler.recordPhase( _batchCmds, BatchProfiler.Phase.PARSE, parseStart );
             if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"Got "+ cmds.size() +" complete CmdLined" );
 
+            //--------------------------------
+            // Incremental mode: if this exact step (same input, same command, same !labels and files) was executed before, re-use its output.  See BatchStepCache.java
+            // ONLY the commands known to have NO side-effects are memoized:  read, list and table - that do Not read/write any file via '-i' / '-o'.
+            final CmdLineArgsCommon onlyCmd = ( cmds.size() == 1 ) ? (CmdLineArgsCommon) cmds.get( 0 ) : null;
+            final boolean bMemoizable = this.stepCache != null && isYAMLCmd && context != null && onlyCmd != null && onlyCmd.cmdType != null && onlyCmd.cmdType.isReadOnly()
+                                        && "-".equals( onlyCmd.inputFilePath ) && "-".equals( onlyCmd.outputFilePath );
+            final String stepKey = bMemoizable ? this.stepCache.keyOfStep( this.pipelineKey, this.evalMacros( _batchCmds, _batchCmds.currentLine() ) ) : null;
+            this.pipelineKey = null; // until this line completes successfully
+            if ( stepKey != null ) {
+                final T cached = this.stepCache.load( stepKey, context.getYAMLImplementation() );
+                if ( cached != null ) {
+                    this.pipelineKey = stepKey;
+                    return cached;
+                }
+            }
+
             for ( org.ASUX.language.antlr4.CmdLineArgs obj: cmds ) {
                 final CmdLineArgsCommon newCmdLineArgsObj = (CmdLineArgsCommon) obj;
                 if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"about to execute command: "+ newCmdLineArgsObj +" " );
 
                 // if user did NOT specify a quote-option _INSIDE__ batchfile @ current line, then use whatever was specified on CmdLine when starting BATCH command.
                 newCmdLineArgsObj.copyBasicFlags( this.cmdLineArgs );
+                newCmdLineArgsObj.inputFilePath = newCmdLineArgsObj.resolvePath( newCmdLineArgsObj.inputFilePath );
+                newCmdLineArgsObj.outputFilePath = newCmdLineArgsObj.resolvePath( newCmdLineArgsObj.outputFilePath );
                 if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"newCmdLineArgsObj="+ newCmdLineArgsObj );
 
                 // newCmdLineArgsObj.copyBasicFlags( newCmdLineArgsObj, this.cmdLineArgs.verbose, this.cmdLineArgs.showStats, this.cmdLineArgs.offline, this.cmdLineArgs.quoteType );
@@ -666,51 +1614,17 @@ fail();
                 // if ( newCmdLineArgsObj.quoteType == Enums.ScalarStyle.UNDEFINED )
                 //     newCmdLineArgsObj.quoteType = this.cmdLineArgs.quoteType; // if user did NOT specify a quote-option _INSIDE__ batchfile @ current line, then use whatever was specified on CmdLine when starting BATCH command.
 
-                //--------------------------------
-                // We need to invoke constructor of the SUB-CLASS of org.ASUX.yaml.CmdInvoker - from the appropriate YAML-Library or AWS-SDK Library.
-                // For that let's gather the Constructor parameter-types and arguments
-                Class[] paramClassList;
-                Object[] methodArgs;
-
-                // if ( isYAMLCmd ) {
-// now that I am invoking 'newCmdinvoker.setYAMLImplementation( clone );' about 60 lines below..
-// .. i do NOT think methodArgs need to longer for 'isYAMLCmd' - versus 'isAWSCmd'
-// Come back later and simplify the code.
-                    // paramClassList  = new Class[] { boolean.class, boolean.class, MemoryAndContext.class, this.memoryAndContext.getContext().getYAMLImplementation().getLibraryOptionsClass() };
-                    // methodArgs      = new Object[] { newCmdLineArgsObj.verbose, newCmdLineArgsObj.showStats, this.memoryAndContext, this.memoryAndContext.getContext().getYAMLImplementation().getLibraryOptionsObject() };
-                // } else if ( isAWSCmd || isAWSCFNCmd ) {
-
-                if ( isYAMLCmd || isAWSCmd || isAWSCFNCmd ) {
-                    // paramClassList  = new Class[] { boolean.class, boolean.class,           this.memoryAndContext.getContext().getYAMLImplementation().getLibraryOptionsClass() };
-                    // methodArgs      = new Object[] { newCmdLineArgsObj.verbose, newCmdLineArgsObj.showStats,          this.memoryAndContext.getContext().getYAMLImplementation().getLibraryOptionsObject() };
-                    paramClassList  = new Class[]  { CmdLineArgsCommon.class,       MemoryAndContext.class };
-                    methodArgs      = new Object[] { this.cmdLineArgs,              this.memoryAndContext  };
-                } else {
-                    throw new BatchFileException( "Unknown Batchfile command ["+ cmdStr_AsIs +"] / ["+ cmdStrNM +"] in "+ _batchCmds.getState() );
-                }
-
                 //--------------------------------
                 // we should NOT be invoking Cmd.go() within the appropriate Command-Family.
                 // REASON: We need to pass in "Context" (this.memoryAndContext), "YAML-implementation" object, etc.. ..
                 // Now invoke constructor of the SUB-CLASS of org.ASUX.yaml.CmdInvoker - from the appropriate YAML-Library or AWS-SDK Library.
                 org.ASUX.yaml.CmdInvoker<T> newCmdinvoker;
                 try {
-                    if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"about to invoke "+ implClassNameStr +".constructor()." );
-
-                    final Class<?> implClass = Cmd.class.getClassLoader().loadClass( implClassNameStr ); // returns: protected Class<?> -- throws ClassNotFoundException
-                    if ( this.cmdLineArgs.verbose )  System.out.println( HDR +"implClassNameStr=["+ implClassNameStr +"] successfully loaded using ClassLoader.");
-                    final Object oo = org.ASUX.common.GenericProgramming.invokeConstructor( implClass, paramClassList, methodArgs );
-                    if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"returned from successfully invoking "+ implClassNameStr +".constructor()." );
-
+                    if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"about to invoke "+ family.implClassName +".constructor()." );
                     @SuppressWarnings("unchecked")
-                    final org.ASUX.yaml.CmdInvoker<T> tmpObj = (org.ASUX.yaml.CmdInvoker<T>) oo;
+                    final org.ASUX.yaml.CmdInvoker<T> tmpObj = (org.ASUX.yaml.CmdInvoker<T>) family.newCmdInvoker( this.cmdLineArgs, this.memoryAndContext );
                     newCmdinvoker = tmpObj;
-
-                // } catch (ClassNotFoundException e) {
-                //     final String estr = "ERROR In "+ _batchCmds.getState() +".. Failed to run the command in current line.";
-                //     if ( this.cmdLineArgs.verbose ) e.printStackTrace(System.err);
-                //     if ( this.cmdLineArgs.verbose ) System.err.println( HDR + estr +"\n"+ e );
-                //     throw new BatchFileException( e.getMessage() );
+                    if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"returned from successfully invoking "+ family.implClassName +".constructor()." );
 
                 } catch (Exception e) {
                     final String estr = "ERROR In "+ _batchCmds.getState() +".. Failed to run the command in current line.";
@@ -720,25 +1634,35 @@ fail();
                 }
 
                 //--------------------------------
-                if ( isYAMLCmd || isAWSCmd || isAWSCFNCmd ) {
-                    @SuppressWarnings("unchecked")
-                    final CmdInvoker<T> cmdI = (CmdInvoker<T>) this.memoryAndContext.getContext();
-                    final YAMLImplementation<T> orig = cmdI.getYAMLImplementation();
-                    final YAMLImplementation<T> clone = orig.deepClone();
+                @SuppressWarnings("unchecked")
+                final CmdInvoker<T> cmdI = (CmdInvoker<T>) this.memoryAndContext.getContext();
+                final YAMLImplementation<T> orig = cmdI.getYAMLImplementation();
+                final YAMLImplementation.Shared<T> impls = this.getYAMLImplementations();
+                final YAMLImplementation<T> yamlImpl = impls.acquire(); // the very same copy as the previous command's (unless that one changed its configuration)
 
-                    newCmdinvoker.setYAMLImplementation( clone );
-                    if (this.cmdLineArgs.verbose) System.out.println( HDR +" set YAML-Library to [" + orig.getYAMLLibrary() + " and [" + newCmdinvoker.getYAMLImplementation().getYAMLLibrary() + "]" );
+                newCmdinvoker.setYAMLImplementation( yamlImpl );
+                if (this.cmdLineArgs.verbose) System.out.println( HDR +" set YAML-Library to [" + orig.getYAMLLibrary() + " and [" + newCmdinvoker.getYAMLImplementation().getYAMLLibrary() + "]" );
 
-                } else {
-                    // We must have a previous replica of this same IF-ELSE-ELSE above.  So, how come we're still here in this block?
-                    System.err.println( HDR +"FATAL ERROR: Unknown Batchfile command ["+ cmdStr_AsIs +"] / ["+ cmdStrNM +"] in "+ _batchCmds.getState() );
-                    System.exit(61);
-                }
+                //--------------------------------
+                // Copy-on-write: if the input is shared (example: it was 'saveTo'-ed), then it must be cloned before any command (insert/replace/delete/..) modifies it.
+                final boolean bReadOnly = newCmdLineArgsObj.cmdType != null && newCmdLineArgsObj.cmdType.isReadOnly();
+                final long cloneStart = ( this.profiler != null ) ? System.nanoTime() : 0L;
+                final T cmdInput = ( ! bReadOnly && this.isSharedYAML( _input ) ) ? this.deepClone( _input ) : _input;
+                if ( this.profiler != null ) this.profiler.recordPhase( _batchCmds, BatchProfiler.Phase.CLONE, cloneStart );
+                if ( this.cmdLineArgs.verbose && cmdInput != _input ) System.out.println( HDR +" copy-on-write: cloned the input, as it's shared" );
 
                 //--------------------------------
+                final long execStart = ( this.profiler != null ) ? System.nanoTime() : 0L;
                 // We expect the underlying library to generate the object of type T for the return value of newCmdinvoker.processCommand().
                 @SuppressWarnings("unchecked")
-                final T output = (T) newCmdinvoker.processCommand( newCmdLineArgsObj, _input );
+                final T output = (T) newCmdinvoker.processCommand( newCmdLineArgsObj, cmdInput );
+                impls.release( yamlImpl );
+                if ( this.profiler != null ) this.profiler.recordPhase( _batchCmds, BatchProfiler.Phase.EXEC, execStart );
+                if ( bReadOnly && cmdInput == _input && this.isSharedYAML( _input ) ) this.markSharedYAML( output ); // can be a part of _input
+                if ( stepKey != null && output != null ) {
+                    this.stepCache.store( stepKey, output, context.getYAMLImplementation() );
+                    this.pipelineKey = stepKey;
+                }
                 if (this.cmdLineArgs.verbose) System.out.println( HDR +" processing of command returned [" + (output==null?"null":output.getClass().getName()) + "]" );
                 return output;
 
@@ -73,6 +73,18 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
     public static final String REGEXP_VERBOSE = "^\\s*verbose\\s+(on|off)\\s*$";
     public static final String REGEXP_PRINTDASH = "^\\s*print\\s+[-]\\s*$";
     public static final String REGEXP_DEBUGDUMP = "^\\s*debug\\s+--dump\\s*$";
+    public static final String REGEXP_FOREACH = "^\\s*foreach(\\s+--parallel(=([0-9]+))?)?\\s*$";
+
+    // Pre-compiled ONCE.  identifyLine() uses these ONLY to extract the operands, after it has looked at the 1st word of the line.
+    private static final Pattern PATTERN_YAMLLIBRARY = Pattern.compile( REGEXP_YAMLLIBRARY );
+    private static final Pattern PATTERN_MKNEWROOT = Pattern.compile( REGEXP_MKNEWROOT );
+    private static final Pattern PATTERN_BATCH = Pattern.compile( REGEXP_BATCH );
+    private static final Pattern PATTERN_SAVETO = Pattern.compile( REGEXP_SAVETO );
+    private static final Pattern PATTERN_USEASINPUT = Pattern.compile( REGEXP_USEASINPUT );
+    private static final Pattern PATTERN_VERBOSE = Pattern.compile( REGEXP_VERBOSE );
+    private static final Pattern PATTERN_PRINTDASH = Pattern.compile( REGEXP_PRINTDASH );
+    private static final Pattern PATTERN_DEBUGDUMP = Pattern.compile( REGEXP_DEBUGDUMP );
+    private static final Pattern PATTERN_FOREACH = Pattern.compile( REGEXP_FOREACH, Pattern.CASE_INSENSITIVE ); // 'foreach' was always case-insensitive
 
     //--------------------------------------------------------
 
@@ -89,15 +101,25 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
 
     private String makeNewRoot = null;
     private Enums.ScalarStyle quoteType = Enums.ScalarStyle.UNDEFINED;
+    /** 1 (default) = serial 'foreach'.  0 = 'foreach --parallel' (as many threads as CPUs).  N = 'foreach --parallel=N' */
+    private int foreachParallelism = 1;
+
+    /** Nullable. The compiled form of this batch-file.  See {@link BatchFileProgram}.  Not serialized, so {@link #deepClone} explicitly copies the reference. */
+    private transient BatchFileProgram program = null;
+    /** Nullable. The pre-compiled instruction for the current line (if the current line was Not re-classified from scratch) */
+    private transient BatchFileProgram.Instruction instruction = null;
+    /** Nullable. The 1st word of the current line, as determined by {@link #identifyLine()} */
+    private transient String firstWord = null;
 
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
 
     /** <p>The basic constructor - that does __NOT__ allow you to evaluate Macro-expressions like ${XYZ}</p>
      *  @param _verbose Whether you want deluge of debug-output onto System.out.
-     *  @param _propsSet a REFERENCE to an instance of LinkedHashMap, whose object-lifecycle is maintained by some other class (as in, creating new LinkedHashMap&lt;&gt;(), putting content into it, updating content as File is further processed, ..)
+     *  @param _propsSet a REFERENCE to an instance of LinkedHashMap, whose object-lifecycle is maintained by some other class (as in, creating new LinkedHashMap&lt;&gt;(), putting content into it, updating content as File is further processed, ..).
+     *                  The variables within it are converted (in place) into {@link BatchSymbolTable}s.  See {@link BatchCmdProcessor#initProperties(LinkedHashMap)}
      */
     public BatchFileGrammer( boolean _verbose, final LinkedHashMap<String,Properties> _propsSet ) {
-        super( _verbose, _propsSet );
+        super( _verbose, ( _propsSet == null ) ? null : BatchCmdProcessor.initProperties( _propsSet ) ); // the variables are scoped.  See BatchSymbolTable.java
     }
 
     /**
@@ -129,6 +151,9 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
         this.makeNewRoot = null;
         this.subBatchFile = null;
         this.batchVerbose = false;
+        this.foreachParallelism = 1;
+        this.instruction = null;
+        this.firstWord = null;
         if ( this.verbose ) System.out.println( CLASSNAME + ": resetFlagsForEachLine() #2: instance-variables are:- "+ this.dump() );
     }
 
@@ -173,6 +198,71 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
 
+    /**
+     *  Wire up this object to use the compiled form of this batch-file, so that {@link #identifyLine()} does NOT have to re-classify each line.
+     *  @param _program Nullable.  null implies each line will be classified from scratch.
+     */
+    public void setProgram( final BatchFileProgram _program ) {
+        this.program = _program;
+    }
+
+    /**
+     *  @return Nullable. the compiled form of this batch-file (if any)
+     */
+    public BatchFileProgram getProgram() {
+        return this.program;
+    }
+
+    /**
+     *  @return Nullable. the pre-compiled instruction for the current line.  null if there is No compiled program, or if the current line was classified from scratch.
+     */
+    public BatchFileProgram.Instruction getInstruction() {
+        return this.instruction;
+    }
+
+    /**
+     *  <p>Used exclusively by {@link BatchFileProgram}, when a deep-clone of a compiled batch-file is about to be executed by a different {@link BatchCmdProcessor}.</p>
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _propsSet a REFERENCE to the properties-set of the {@link BatchCmdProcessor} that will execute this batch-file
+     */
+    protected void rebind( final boolean _verbose, final LinkedHashMap<String,Properties> _propsSet ) {
+        this.setVerbose( _verbose );
+        super.propsSetRef = ( _propsSet == null ) ? null : BatchCmdProcessor.initProperties( _propsSet );
+    }
+
+    /**
+     *  Takes a snapshot of what {@link #identifyLine()} determined about the current line.
+     *  @return a NotNull immutable instruction
+     */
+    protected BatchFileProgram.Instruction toInstruction() {
+        final String cmd = ( this.whichCmd == BatchCmdType.Cmd_Any ) ? this.getCommand() : null;
+        return new BatchFileProgram.Instruction( this.getLineNum(), this.currentLineOrNull(), this.whichCmd,
+                            this.saveTo, this.useAsInput, this.subBatchFile, this.makeNewRoot,
+                            this.quoteType, this.YAMLLibrary, this.batchVerbose, this.foreachParallelism, cmd );
+    }
+
+    /**
+     *  The reverse of {@link #toInstruction()}
+     *  @param _instr NotNull instruction, that was compiled for the current line.
+     */
+    private void fromInstruction( final BatchFileProgram.Instruction _instr ) {
+        this.whichCmd = _instr.cmdType;
+        this.YAMLLibrary = _instr.YAMLLibrary;
+        this.saveTo = _instr.saveTo;
+        this.useAsInput = _instr.useAsInput;
+        this.subBatchFile = _instr.subBatchFile;
+        this.makeNewRoot = _instr.makeNewRoot;
+        this.batchVerbose = _instr.batchVerbose;
+        this.foreachParallelism = _instr.foreachParallelism;
+        if ( _instr.cmdType == BatchCmdType.Cmd_MakeNewRoot )
+            this.quoteType = _instr.quoteType;
+        this.instruction = _instr;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
     /** <p>Thie method overrides the parent/super class method {@link org.ASUX.common.ConfigFileScannerL2#nextLine()}</p>
      *  <p>The only reason to override is to invoke {@link #identifyLine()} automatically</p>
      *  @return for scripts that end in PRINT command, this returns null. Otherwise, Returns the next string in the list of lines.
@@ -226,122 +316,147 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
         if ( this.verbose ) System.out.println( HDR +": line=("+ line +")\t"+ this.getState() +" "+ this.dump() );
         assertTrue ( line != null );
 
-        try {
+        if ( this.program != null ) {
+            final BatchFileProgram.Instruction instr = this.program.getInstruction( this.getLineNum() );
+            // The compiled instruction is valid ONLY if the line is exactly what was compiled (macros for example, could make it different)
+            if ( instr != null && line.equals( instr.line ) ) {
+                this.fromInstruction( instr );
+                if ( this.verbose ) System.out.println( HDR +" re-using pre-compiled "+ instr );
+                return;
+            }
+        }
+
+        // Most lines are 'yaml ..' or 'aws.sdk ..' commands.  So, do NOT try each of the REGEXP_* patterns one after another.
+        // Instead, look at the 1st word on the line ONCE, and only use the (pre-compiled) REGEXP for that keyword, to extract the operands.
+        this.firstWord = firstWord( line );
+        if ( this.firstWord == null )
+            return; // blank line
+
+        if ( this.firstWord.equalsIgnoreCase( "foreach" ) ) {
+            final Matcher foreachMatcher = this.matchOperands( PATTERN_FOREACH, line );
+            if ( foreachMatcher != null ) {
+                if ( foreachMatcher.group(1) != null ) // 'foreach --parallel' or 'foreach --parallel=N'
+                    this.foreachParallelism = ( foreachMatcher.group(3) != null ) ? Integer.parseInt( foreachMatcher.group(3) ) : 0;
+                if ( this.verbose ) System.out.println( "\t foreach parallelism=[" + this.foreachParallelism +"]" );
+                this.whichCmd = BatchCmdType.Cmd_Foreach;
+                this.batchVerbose = false;  // I do Not want 'verbose on' to last OUTSIDE the loop/block in which it is specified.
+                return;
+            }
+        }
 
-            Pattern yamlLibraryPattern = Pattern.compile( REGEXP_YAMLLIBRARY );
-            Matcher yamlLibraryMatcher    = yamlLibraryPattern.matcher( line );
-            if (yamlLibraryMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ yamlLibraryMatcher.group() +" starting at index "+  yamlLibraryMatcher.start() +" and ending at index "+ yamlLibraryMatcher.end() );    
-                this.YAMLLibrary = YAML_Libraries.fromString( yamlLibraryMatcher.group(1) ); // line.substring( yamlLibraryMatcher.start(), yamlLibraryMatcher.end() );
+        if ( line.equalsIgnoreCase("end") ) {
+            this.whichCmd = BatchCmdType.Cmd_End;
+            this.batchVerbose = false;  // I do Not want 'verbose on' to last OUTSIDE the loop/block in which it is specified.
+            return;
+        }
+
+        Matcher matcher;
+        switch( this.firstWord ) {
+            case "useYAMLLibrary":
+                if ( (matcher = this.matchOperands( PATTERN_YAMLLIBRARY, line )) == null ) break;
+                this.YAMLLibrary = YAML_Libraries.fromString( matcher.group(1) );
                 if ( this.verbose ) System.out.println( "\t YAMLLibrary=[" + this.YAMLLibrary +"]" );
                 this.whichCmd = BatchCmdType.Cmd_YAMLLibrary;
                 return;
-            }
 
-            Pattern makeNewRootPattern = Pattern.compile( REGEXP_MKNEWROOT );
-            Matcher makeNewRootMatcher    = makeNewRootPattern.matcher( line );
-            if (makeNewRootMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ makeNewRootMatcher.group() +" starting at index "+  makeNewRootMatcher.start() +" and ending at index "+ makeNewRootMatcher.end() );    
-                this.makeNewRoot = makeNewRootMatcher.group(1); // line.substring( makeNewRootMatcher.start(), makeNewRootMatcher.end() );
-                String quoteOption = makeNewRootMatcher.group(2); // should NOT throw 'IndexOutOfBoundsException' .. like it would for makeNewRootMatcher.group(99)
+            case "makeNewRoot":
+                if ( (matcher = this.matchOperands( PATTERN_MKNEWROOT, line )) == null ) break;
+                this.makeNewRoot = matcher.group(1);
+                String quoteOption = matcher.group(2); // should NOT throw 'IndexOutOfBoundsException' .. like it would for matcher.group(99)
                 if ( this.verbose ) System.out.println( "\t makeNewRoot=[" + this.makeNewRoot +"] with quote "+ quoteOption );
                 // !!!!!!!! Attention !!!!!! quoteOption will (guaranteed) have a SINGLE whitespace character @ position #0 (see REGEXP_MKNEWROOT)
                 if ( quoteOption != null && quoteOption.trim().length() > 0 ) {
                     quoteOption = quoteOption.trim();
                     // this.quoteType = Enums.ScalarStyle.fromString( quoteOption.trim() ); // WONT WORK.  fromString() expects single-char like: ' "  >  |
-                    final String[] quoteTypesStr = { "--no-quote", "--single-quote", "--double-quote" };
-                    final Enums.ScalarStyle[] quoteTypesEnum = { Enums.ScalarStyle.PLAIN, Enums.ScalarStyle.SINGLE_QUOTED, Enums.ScalarStyle.DOUBLE_QUOTED };
-                    this.quoteType = Enums.ScalarStyle.UNDEFINED; // default value, unless FOR-loop in next-line changes it
-                    for( int ix=0; ix < quoteTypesStr.length; ix++ ) {
-// System.err.println( HDR + "quote #"+ ix +"="+ quoteTypesStr[ix] +" .. checking the value ["+ this.makeNewRoot +"]" );
-                        if ( quoteTypesStr[ix].equals( quoteOption ) ) {
-                            this.quoteType = quoteTypesEnum[ix];
-                        } // if
-                    } // for
-// System.err.println( HDR + "quote="+ this.quoteType +" .. leaving this.makeNewRoot="+ this.makeNewRoot );
+                    switch( quoteOption ) {
+                        case "--no-quote":      this.quoteType = Enums.ScalarStyle.PLAIN;           break;
+                        case "--single-quote":  this.quoteType = Enums.ScalarStyle.SINGLE_QUOTED;   break;
+                        case "--double-quote":  this.quoteType = Enums.ScalarStyle.DOUBLE_QUOTED;   break;
+                        default:                this.quoteType = Enums.ScalarStyle.UNDEFINED;
+                    }
                 }
                 this.whichCmd = BatchCmdType.Cmd_MakeNewRoot;
                 return;
-            }
 
-            Pattern batchPattern = Pattern.compile( REGEXP_BATCH );
-            Matcher batchMatcher    = batchPattern.matcher( line );
-            if (batchMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ batchMatcher.group() +" starting at index "+  batchMatcher.start() +" and ending at index "+ batchMatcher.end() );    
-                this.subBatchFile = batchMatcher.group(1); // line.substring( batchMatcher.start(), batchMatcher.end() );
+            case "batch":
+                if ( (matcher = this.matchOperands( PATTERN_BATCH, line )) == null ) break;
+                this.subBatchFile = matcher.group(1);
                 if ( this.verbose ) System.out.println( "\t batch=[" + this.subBatchFile +"]" );
                 this.whichCmd = BatchCmdType.Cmd_SubBatch;
                 return;
-            }
 
-			if ( line.equalsIgnoreCase( "foreach" ) ) {
-				this.whichCmd = BatchCmdType.Cmd_Foreach;
-                this.batchVerbose = false;  // I do Not want 'verbose on' to last OUTSIDE the loop/block in which it is specified.
-				return;
-			}
-
-			if ( line.equalsIgnoreCase("end") ) {
-                this.whichCmd = BatchCmdType.Cmd_End;
-                this.batchVerbose = false;  // I do Not want 'verbose on' to last OUTSIDE the loop/block in which it is specified.
-				return;
-			}
-
-            Pattern saveToPattern = Pattern.compile( REGEXP_SAVETO );
-            Matcher saveToMatcher    = saveToPattern.matcher( line );
-            if (saveToMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ saveToMatcher.group() +" starting at index "+  saveToMatcher.start() +" and ending at index "+ saveToMatcher.end() );    
-                this.saveTo = saveToMatcher.group(1); // line.substring( saveToMatcher.start(), saveToMatcher.end() );
+            case "saveTo":
+                if ( (matcher = this.matchOperands( PATTERN_SAVETO, line )) == null ) break;
+                this.saveTo = matcher.group(1);
                 if ( this.verbose ) System.out.println( "\t SaveTo=[" + this.saveTo +"]" );
                 this.whichCmd = BatchCmdType.Cmd_SaveTo;
                 return;
-            }
 
-            Pattern useAsInputPattern = Pattern.compile( REGEXP_USEASINPUT );
-            Matcher useAsInputMatcher    = useAsInputPattern.matcher( line );
-            if (useAsInputMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ useAsInputMatcher.group() +" starting at index "+  useAsInputMatcher.start() +" and ending at index "+ useAsInputMatcher.end() );    
-                this.useAsInput = useAsInputMatcher.group(1); // line.substring( useAsInputMatcher.start(), useAsInputMatcher.end() );
+            case "useAsInput":
+                if ( (matcher = this.matchOperands( PATTERN_USEASINPUT, line )) == null ) break;
+                this.useAsInput = matcher.group(1);
                 if ( this.verbose ) System.out.println( "\t useAsInput=[" + this.useAsInput +"]" );
                 this.whichCmd = BatchCmdType.Cmd_UseAsInput;
                 return;
-            }
 
-            Pattern verbosePattern = Pattern.compile( REGEXP_VERBOSE );
-            Matcher verboseMatcher    = verbosePattern.matcher( line );
-            if (verboseMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ verboseMatcher.group() +" starting at index "+  verboseMatcher.start() +" and ending at index "+ verboseMatcher.end() );    
-                this.batchVerbose = "on".equals( verboseMatcher.group(1) ); // line.substring( verboseMatcher.start(), verboseMatcher.end() );
+            case "verbose":
+                if ( (matcher = this.matchOperands( PATTERN_VERBOSE, line )) == null ) break;
+                this.batchVerbose = "on".equals( matcher.group(1) );
                 if ( this.verbose ) System.out.println( "\t verbose=[" + this.batchVerbose +"]" );
                 this.whichCmd = BatchCmdType.Cmd_Verbose;
                 return;
-            }
 
-            Pattern printDashPattern = Pattern.compile( REGEXP_PRINTDASH );
-            Matcher printDashMatcher    = printDashPattern.matcher( line );
-            if (printDashMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ printDashMatcher.group() +" starting at index "+  printDashMatcher.start() +" and ending at index "+ printDashMatcher.end() );    
+            case "print":
+                if ( this.matchOperands( PATTERN_PRINTDASH, line ) == null ) break;
                 if ( this.verbose ) System.out.println( "\t 'print -'" );
                 this.whichCmd = BatchCmdType.Cmd_PrintDash;
                 return;
-            }
 
-            Pattern debugPattern = Pattern.compile( REGEXP_DEBUGDUMP );
-            Matcher debugMatcher    = debugPattern.matcher( line );
-            if (debugMatcher.find()) {
-                if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ debugMatcher.group() +" starting at index "+  debugMatcher.start() +" and ending at index "+ debugMatcher.end() );    
+            case "debug":
+                if ( this.matchOperands( PATTERN_DEBUGDUMP, line ) == null ) break;
                 if ( this.verbose ) System.out.println( "\t 'print --debug'" );
                 this.whichCmd = BatchCmdType.Cmd_DebugDump;
                 return;
-            }
 
-            if ( this.verbose ) System.out.println( HDR +" Oh! oh! oh! oh! oh! oh! oh! oh! oh! Unknown command=("+ line +")\t"+ this.getState() +"\t"+ this.dump() );
-            // If we're here.. it means, This class did NOT process the current line
+            default: break;
+        } // switch
 
-        } catch (PatternSyntaxException e) {
-			e.printStackTrace(System.err); // too serious an internal-error.  Immediate bug-fix required.  The application/Program will exit .. in 2nd line below.
-			System.err.println(CLASSNAME + ": isPropertyLine(): Unexpected Internal ERROR, while checking for patterns for line= [" + line +"]" );
-			System.exit(91); // This is a serious failure. Shouldn't be happening.
-        }
+        if ( this.verbose ) System.out.println( HDR +" Oh! oh! oh! oh! oh! oh! oh! oh! oh! Unknown command=("+ line +")\t"+ this.getState() +"\t"+ this.dump() );
+        // If we're here.. it means, This class did NOT process the current line
+    }
+
+    /**
+     *  @param _pattern one of the pre-compiled PATTERN_* constants of this class
+     *  @param _line NotNull current line
+     *  @return null if the line does Not match, else the matcher (whose groups contain the operands)
+     */
+    private Matcher matchOperands( final Pattern _pattern, final String _line ) {
+        final Matcher matcher = _pattern.matcher( _line );
+        if (  !  matcher.find() )
+            return null;
+        if ( this.verbose ) System.out.println( CLASSNAME +": I found the text "+ matcher.group() +" starting at index "+  matcher.start() +" and ending at index "+ matcher.end() );
+        return matcher;
+    }
+
+    /**
+     *  <p>Equivalent to <code>new Scanner(_line).useDelimiter("\\s+").next()</code> .. but without creating any objects other than the returned String.</p>
+     *  @param _line NotNull
+     *  @return the 1st whitespace-delimited word on the line, or null if the line is blank
+     */
+    protected static String firstWord( final String _line ) {
+        final int len = _line.length();
+        int ix = 0;
+        while ( ix < len && isRegExpWhitespace( _line.charAt(ix) ) ) ix ++;
+        if ( ix >= len )
+            return null;
+        final int begin = ix;
+        while ( ix < len &&  !  isRegExpWhitespace( _line.charAt(ix) ) ) ix ++;
+        return ( begin == 0 && ix == len ) ? _line : _line.substring( begin, ix );
+    }
+
+    /** @return true if _c matches the REGEXP  \\s  (which is NOT the same as Character.isWhitespace()) */
+    private static boolean isRegExpWhitespace( final char _c ) {
+        return _c == ' ' || _c == '\t' || _c == '\n' || _c == '\u000B' || _c == '\f' || _c == '\r';
     }
 
     //==============================================================================
@@ -422,6 +537,16 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
             return false;
     }
 
+    /** For use by {@link BatchCmdProcessor}, when the current line is a 'foreach' line
+     *  @return 1 for a plain 'foreach' (run the iterations serially); 0 for 'foreach --parallel' (use as many threads as CPUs); N for 'foreach --parallel=N'
+     */
+    public int getForeachParallelism() {
+        if ( this.whichCmd == BatchCmdType.Cmd_Foreach )
+            return this.foreachParallelism;
+        else
+            return 1;
+    }
+
     /** This function helps detect if the current line pointed to by this.currentLine() contains just the word 'end' (nothing else other than comments and whitespace)
      * This keyword 'end' indicates the END of the looping-construct within the batch file
      * @return true of false, if 'end' was detected in the current line of batch file
@@ -441,7 +566,8 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
      *  <p>To allow us to skip from current 'foreach' to the matching 'end', while smartly ignoring INNER 'foreach'-'end' pairs.</p>
      *  <p>When this function returns, the "pointer" within batchCmds (.currentLine and .getLineNum()) ..
      *          should be pointing to the matching 'end' command.</p>
-     *  <p>The body of this method counts the # of inner 'foreach' .. and that's how it knows when the matching 'end' was detected.</p>
+     *  <p>If this batch-file was compiled (see {@link BatchFileProgram#getMatchingEnd(int)}), this jumps directly to the matching 'end'.
+     *      Otherwise, the body of this method counts the # of inner 'foreach' .. and that's how it knows when the matching 'end' was detected.</p>
      * @throws Exception when unable to find a matching 'end' within the batch-file.
      */
     public void skip2MatchingEnd() throws Exception
@@ -452,6 +578,19 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
         boolean bFoundMatchingENDCmd = false;
         int recursionLevel = 0;
 
+        // this.instruction is NotNull ONLY if the current 'foreach' line is exactly what was compiled.
+        final int matchingEnd = ( this.program != null && this.instruction != null ) ? this.program.getMatchingEnd( bookmark ) : -1;
+        if ( matchingEnd > bookmark ) {
+            this.currentLineNum = matchingEnd;
+            this.resetFlagsForEachLine();
+            this.identifyLine();
+            if ( this.isEndLine() ) {
+                if ( this.verbose ) System.out.println( HDR +"Jumped from row# "+ bookmark +" to matching 'end' @ line# "+ this.currentLineNum );
+                return;
+            }
+            this.currentLineNum = bookmark; // should never happen.  Just in case, fall back to scanning the lines.
+        }
+
         // !!!!!!!!!!!!!!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!!!!!!!!!
         // We cannot use this.hasNextLine() in FOR loop below!!
         // REASON: hasNextLine() it has been overridden in ConfigFileScannerL2 & other sub-classes, to automatically skip "BUILT-IN-Commands".
@@ -497,6 +636,10 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
     public String getCommand() {
         if ( this.whichCmd != BatchCmdType.Cmd_Any )
             return null; // Since.. It is one of the above commands like: properties, saveAs, foreach, end, useAsInput, makeNewRoot, .. ..
+        if ( this.instruction != null )
+            return this.instruction.command; // pre-compiled.  See BatchFileProgram.java
+        if ( this.firstWord != null )
+            return this.firstWord; // already determined within identifyLine()
 
         try {
             final java.util.Scanner scanner = new java.util.Scanner( this.currentLine() );
@@ -535,12 +678,12 @@ public class BatchFileGrammer extends org.ASUX.common.ScriptFileScanner {
 // new Debug(true).printAllProps( HDR +" >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>> deepClone ORIG <<<<<<<<<<<<<<<<<<<<<<<<<<<< ", _orig.propsSetRef );
             final BatchFileGrammer newobj = Utils.deepClone( _orig );
             newobj.deepCloneFix( _orig );
+            newobj.program = _orig.program; // transient. So, the compiled program is shared (Not cloned).
 // new Debug(true).printAllProps( HDR +" >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>> deepClone NEW! <<<<<<<<<<<<<<<<<<<<<<<<<<<< ", newobj.propsSetRef );
             return newobj;
         } catch (Exception e) {
 			e.printStackTrace(System.err); // Static Method. So.. can't avoid dumping this on the user.
-            System.exit(233);
-            return null;
+            throw new RuntimeException( HDR +"failed to deep-clone "+ _orig.getState(), e ); // NOT System.exit(), as a CmdDaemon runs many requests within the same JVM
         }
     }
 
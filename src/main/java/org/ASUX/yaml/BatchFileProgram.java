@@ -0,0 +1,531 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import org.ASUX.common.ConfigFileScanner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>This class is the "compiled" form of a batch-file.  Each line of the batch-file is classified ONCE (by {@link BatchFileGrammer#identifyLine()}) into an immutable {@link Instruction}.</p>
+ *  <p>Compiled programs are cached (per JVM) by file-path + last-modified-time + file-size.  So, repeated executions of the same batch-file just re-use the compiled program,
+ *      instead of re-opening and re-scanning the batch-file, and re-classifying every line (incl. every line within every 'foreach' iteration).</p>
+ *  <p>ATTENTION: Only batch-<b>files</b> (that is, '@filename') are cached.  Inline batch-scripts provided on the command-line are NOT.</p>
+ *  <p>ATTENTION: If the batch-file 'include's other files, changes to those included files are NOT detected.</p>
+ *
+ * @see org.ASUX.yaml.BatchFileGrammer
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class BatchFileProgram {
+
+    public static final String CLASSNAME = BatchFileProgram.class.getName();
+
+    /** Per-JVM cache of compiled batch-files.  Key is the absolute-path of the batch-file */
+    private static final ConcurrentHashMap<String, BatchFileProgram> CACHE = new ConcurrentHashMap<>();
+    /** One lock per batch-file (key is the absolute-path), so that a batch-file is compiled only ONCE - even if many threads (example: 'foreach --parallel') need it at the same time */
+    private static final ConcurrentHashMap<String, Object> COMPILE_LOCKS = new ConcurrentHashMap<>();
+
+    //------------------------------------------------------------------------------
+    public final String filePath;
+    public final long lastModified;
+    public final long fileSize;
+
+    /** The batch-file __AS OPENED__ (before the 1st line was read).  Every execution works on a deep-clone of this. */
+    private final BatchFileGrammer template;
+
+    /** Index of this array === line# (per {@link BatchFileGrammer#getLineNum()}).  This array may have null-entries. */
+    private final Instruction[] instructions;
+
+    /** Index of this array === line# of a 'foreach'.  Value is the line# of the matching 'end' (or -1).  See {@link #getMatchingEnd(int)} */
+    private final int[] matchingEnd;
+
+    /** Index of this array === line#.  See {@link #getNextFileInput(int)} */
+    private final int[] nextFileInput;
+
+    /** Index of this array === line#.  See {@link #getReadGroupEnd(int)} */
+    private final int[] readGroupEnd;
+
+    /** 'yaml' commands that only query (read, list or table) the output of the previous line.  See {@link CmdLineArgsBasic#READCMD} {@link CmdLineArgsBasic#LISTCMD} {@link CmdLineArgsBasic#TABLECMD} */
+    private static final Pattern PATTERN_QUERY = Pattern.compile( "^\\s*yaml\\s+--?(r|read|l|list|t|table)(\\s.*)?$" );
+    /** 'yaml' read commands.  See {@link CmdLineArgsBasic#READCMD} */
+    private static final Pattern PATTERN_READ = Pattern.compile( "^\\s*yaml\\s+--?(r|read)(\\s.*)?$" );
+
+    /** Lazily created.  See {@link #getSchedule()} */
+    private volatile BatchFileSchedule schedule = null;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  <p>One line of a batch-file, in its fully classified form.  All operands are pre-extracted.</p>
+     *  <p>Once created, instances are immutable - with the exception of the lazily-parsed command-line (for 'yaml' commands), which is memoized on first use.</p>
+     */
+    public static final class Instruction implements java.io.Serializable {
+        private static final long serialVersionUID = 401L;
+
+        public final int lineNum;
+        public final String line;
+        public final BatchFileGrammer.BatchCmdType cmdType;
+
+        public final String saveTo;
+        public final String useAsInput;
+        public final String subBatchFile;
+        public final String makeNewRoot;
+        public final Enums.ScalarStyle quoteType;
+        public final YAML_Libraries YAMLLibrary;
+        public final boolean batchVerbose;
+        /** see {@link BatchFileGrammer#getForeachParallelism()} */
+        public final int foreachParallelism;
+
+        /** the 1st word of the line - for {@link BatchFileGrammer.BatchCmdType#Cmd_Any} lines ONLY (example: 'yaml' 'aws.sdk' ..) */
+        public final String command;
+
+        /** memoized result of parsing this line (for 'yaml' commands only, and ONLY if the line has No macros) */
+        private transient volatile ArrayList<CmdLineArgsCommon> parsedCmdLineArgs = null;
+
+        public Instruction( final int _lineNum, final String _line, final BatchFileGrammer.BatchCmdType _cmdType,
+                            final String _saveTo, final String _useAsInput, final String _subBatchFile, final String _makeNewRoot,
+                            final Enums.ScalarStyle _quoteType, final YAML_Libraries _YAMLLibrary, final boolean _batchVerbose, final int _foreachParallelism, final String _command )
+        {
+            this.lineNum = _lineNum;
+            this.line = _line;
+            this.cmdType = _cmdType;
+            this.saveTo = _saveTo;
+            this.useAsInput = _useAsInput;
+            this.subBatchFile = _subBatchFile;
+            this.makeNewRoot = _makeNewRoot;
+            this.quoteType = _quoteType;
+            this.YAMLLibrary = _YAMLLibrary;
+            this.batchVerbose = _batchVerbose;
+            this.foreachParallelism = _foreachParallelism;
+            this.command = _command;
+        }
+
+        /**
+         *  Whether this line can be parsed just once (as in, it has No macro-expressions like ${ASUX::..} in it)
+         *  @return true if the output of parsing this line will NEVER change from one execution to another
+         */
+        public boolean isMacroFree() {
+            return this.line != null && ! this.line.contains("${");
+        }
+
+        /**
+         *  <p>For 'yaml' commands that have No macros, returns a fresh copy of the parsed command-line.  The line is parsed only ONCE (ever).</p>
+         *  <p>Each invocation returns a new copy (see {@link CmdLineArgsCommon#copy()}), as the objects returned are modified by the caller (see {@link CmdLineArgsCommon#copyBasicFlags}).</p>
+         *  @param _completeCmdLine the line as is, plus '-i - -o -' that {@link BatchCmdProcessor} appends
+         *  @param _parser NotNull parser to use, if this line was never parsed before
+         *  @return a NotNull list (could be empty, if the line has syntax errors)
+         *  @throws Exception if the parser throws
+         */
+        public ArrayList<CmdLineArgsCommon> getParsedCmdLineArgs( final String _completeCmdLine, final org.ASUX.language.antlr4.GenericCmdANTLR4Parser _parser ) throws Exception {
+            ArrayList<CmdLineArgsCommon> parsed = this.parsedCmdLineArgs;
+            if ( parsed == null ) {
+                parsed = new ArrayList<>();
+                for ( org.ASUX.language.antlr4.CmdLineArgs obj: _parser.parseYamlCommandLine( _completeCmdLine ) )
+                    parsed.add( (CmdLineArgsCommon) obj );
+                this.parsedCmdLineArgs = parsed; // benign race: at worst, 2 threads parse the same line
+            }
+            final ArrayList<CmdLineArgsCommon> copy = new ArrayList<>( parsed.size() );
+            for ( CmdLineArgsCommon c: parsed )
+                copy.add( c.copy() );
+            return copy;
+        }
+
+        /**
+         *  Whether executing this line mostly waits (on the network, or on a file-system) rather than using the CPU.  See {@link BatchThreads}
+         *  @return true for commands other than 'yaml' (example: 'aws.sdk', 'aws.cfn'), for 'saveTo @file' and 'useAsInput @file', and for sub-batches (whose lines are Not known here)
+         */
+        public boolean isIOBound() {
+            switch( this.cmdType ) {
+                case Cmd_Any:           return this.command != null && ! this.command.equalsIgnoreCase( "yaml" );
+                case Cmd_SaveTo:        return this.saveTo != null && this.saveTo.startsWith( "@" );
+                case Cmd_UseAsInput:    return this.useAsInput != null && this.useAsInput.startsWith( "@" );
+                case Cmd_SubBatch:      return true;
+                default:                return false;
+            }
+        }
+
+        public String toString() {
+            return "line# "+ this.lineNum +" "+ this.cmdType +" ["+ this.line +"]";
+        }
+    } // class Instruction
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private BatchFileProgram( final String _filePath, final long _lastModified, final long _fileSize,
+                                final BatchFileGrammer _template, final Instruction[] _instructions )
+    {
+        this.filePath = _filePath;
+        this.lastModified = _lastModified;
+        this.fileSize = _fileSize;
+        this.template = _template;
+        this.instructions = _instructions;
+        this.matchingEnd = matchForeachEnds( _instructions );
+        this.nextFileInput = findFileInputs( _instructions );
+        this.readGroupEnd = fuseReads( _instructions );
+    }
+
+    /**
+     *  The jump-table from each 'foreach' to its matching 'end'.  Computed ONCE per compiled batch-file, using a stack (instead of re-scanning the lines of a loop, every time the loop completes).
+     *  @param _instructions NotNull, as passed to the constructor
+     *  @return NotNull array (same size as _instructions).  See {@link #getMatchingEnd(int)}
+     */
+    private static int[] matchForeachEnds( final Instruction[] _instructions ) {
+        final int[] matchingEnd = new int[ _instructions.length ];
+        java.util.Arrays.fill( matchingEnd, -1 );
+        final java.util.ArrayDeque<Integer> openLoops = new java.util.ArrayDeque<>();
+        for ( Instruction instr: _instructions ) {
+            if ( instr == null ) continue;
+            if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_Foreach )
+                openLoops.push( instr.lineNum );
+            else if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_End && ! openLoops.isEmpty() )
+                matchingEnd[ openLoops.pop() ] = instr.lineNum;
+        }
+        // Any 'foreach' left in openLoops has No matching 'end'.  BatchFileGrammer.skip2MatchingEnd() will report that.
+        return matchingEnd;
+    }
+
+    /**
+     *  For the look-ahead of {@link BatchPrefetcher}: the 'useAsInput' lines that (may) read a file.  Computed ONCE per compiled batch-file.
+     *  @param _instructions NotNull, as passed to the constructor
+     *  @return NotNull array (same size as _instructions).  See {@link #getNextFileInput(int)}
+     */
+    private static int[] findFileInputs( final Instruction[] _instructions ) {
+        final int[] next = new int[ _instructions.length ];
+        int nxt = -1;
+        for ( int ix = _instructions.length - 1; ix >= 0; ix -- ) {
+            final Instruction instr = _instructions[ ix ];
+            if ( instr != null ) {
+                if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_Foreach || instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_End )
+                    nxt = -1; // the lines beyond, run with different values of the loop-variables
+                else if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_UseAsInput && instr.useAsInput != null && ! instr.useAsInput.replaceAll( "^[?'\"]+", "" ).startsWith( "!" ) )
+                    nxt = ix;
+            }
+            next[ ix ] = nxt;
+        }
+        return next;
+    }
+
+    /**
+     *  <p>The fusion pass: finds groups of 2 or more consecutive 'useAsInput X' + 'yaml read ..' + 'saveTo !label' lines (with No macros), all with the SAME X.
+     *      As none of these lines modify X, all the 'read's can be run against X in ONE traversal.  See {@link CmdInvoker#processQueries}</p>
+     *  @param _instructions NotNull, as passed to the constructor
+     *  @return NotNull array (same size as _instructions).  See {@link #getReadGroupEnd(int)}
+     */
+    private static int[] fuseReads( final Instruction[] _instructions ) {
+        final int[] groupEnd = new int[ _instructions.length ];
+        final ArrayList<Instruction> lines = new ArrayList<>(); // blank lines and comments do Not break a group
+        for ( int ix = 0; ix < _instructions.length; ix ++ ) {
+            groupEnd[ ix ] = ix;
+            if ( _instructions[ ix ] != null )
+                lines.add( _instructions[ ix ] );
+        }
+        int ix = 0;
+        while ( ix < lines.size() ) {
+            if ( ! isReadTriple( lines, ix, null ) ) {
+                ix ++;
+                continue;
+            }
+            final String src = lines.get( ix ).useAsInput.trim();
+            int last = ix;
+            while ( isReadTriple( lines, last + 3, src ) )
+                last += 3;
+            if ( last > ix )
+                groupEnd[ lines.get( ix ).lineNum ] = lines.get( last + 2 ).lineNum;
+            ix = last + 3;
+        }
+        return groupEnd;
+    }
+
+    /**
+     *  @param _lines NotNull.  The Not-null instructions, in order
+     *  @param _ix index within _lines of the 'useAsInput' line
+     *  @param _src Nullable.  If NotNull, the 'useAsInput' line must use exactly this.
+     *  @return true if the 3 lines from _ix onwards are: 'useAsInput X', 'yaml read ..' and 'saveTo !label' (where label is Not X)
+     */
+    private static boolean isReadTriple( final ArrayList<Instruction> _lines, final int _ix, final String _src ) {
+        if ( _ix + 2 >= _lines.size() )
+            return false;
+        final Instruction use = _lines.get( _ix );
+        final Instruction read = _lines.get( _ix + 1 );
+        final Instruction save = _lines.get( _ix + 2 );
+        if ( use.cmdType != BatchFileGrammer.BatchCmdType.Cmd_UseAsInput || use.useAsInput == null || ! use.isMacroFree() )
+            return false;
+        if ( _src != null && ! _src.equals( use.useAsInput.trim() ) )
+            return false;
+        if ( ! isQuery( read ) || ! PATTERN_READ.matcher( read.line ).matches() )
+            return false;
+        return save.cmdType == BatchFileGrammer.BatchCmdType.Cmd_SaveTo && save.saveTo != null && save.isMacroFree()
+                && save.saveTo.trim().startsWith( "!" ) && ! save.saveTo.replaceAll( "[?'\"]", "" ).trim().equals( use.useAsInput.replaceAll( "[?'\"]", "" ).trim() );
+    }
+
+    private static boolean isQuery( final Instruction _instr ) {
+        return _instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_Any && "yaml".equals( _instr.command ) && _instr.isMacroFree()
+                && PATTERN_QUERY.matcher( _instr.line ).matches();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _lineNum as returned by {@link BatchFileGrammer#getLineNum()}
+     *  @return Nullable.  The pre-compiled instruction for that line#
+     */
+    public Instruction getInstruction( final int _lineNum ) {
+        if ( _lineNum < 0 || _lineNum >= this.instructions.length )
+            return null;
+        return this.instructions[ _lineNum ];
+    }
+
+    /**
+     *  @return the highest line# (per {@link BatchFileGrammer#getLineNum()}) in this compiled batch-file
+     */
+    public int maxLineNum() {
+        return this.instructions.length - 1;
+    }
+
+    /**
+     *  @param _foreachLineNum line# (as returned by {@link BatchFileGrammer#getLineNum()}) of a 'foreach'
+     *  @return the line# of the matching 'end' (skipping over any inner 'foreach'-'end' pairs).  -1 if _foreachLineNum is Not a 'foreach', or if it has No matching 'end'
+     */
+    public int getMatchingEnd( final int _foreachLineNum ) {
+        if ( _foreachLineNum < 0 || _foreachLineNum >= this.matchingEnd.length )
+            return -1;
+        return this.matchingEnd[ _foreachLineNum ];
+    }
+
+    /**
+     *  @param _fromLine line# (as returned by {@link BatchFileGrammer#getLineNum()})
+     *  @return the line# of the 1st 'useAsInput' line (at or after _fromLine) that is Not a '!label' - that is, it may read a file.  -1 if there is none, before the next 'foreach' or 'end' line.
+     */
+    public int getNextFileInput( final int _fromLine ) {
+        if ( _fromLine < 0 || _fromLine >= this.nextFileInput.length )
+            return -1;
+        return this.nextFileInput[ _fromLine ];
+    }
+
+    /**
+     *  @param _lineNum as returned by {@link BatchFileGrammer#getLineNum()}
+     *  @return the last line# of the group of 'useAsInput' + 'read' + 'saveTo' lines that starts at _lineNum (see {@link #fuseReads}).  If there is No such group (of 2 or more reads), returns _lineNum itself.
+     */
+    public int getReadGroupEnd( final int _lineNum ) {
+        if ( _lineNum < 0 || _lineNum >= this.readGroupEnd.length )
+            return _lineNum;
+        return this.readGroupEnd[ _lineNum ];
+    }
+
+    /**
+     *  @param _fromLine line# (as returned by {@link BatchFileGrammer#getLineNum()})
+     *  @param _toLine line# (inclusive)
+     *  @return true if ANY line within that range is I/O-bound (see {@link Instruction#isIOBound()})
+     */
+    public boolean isIOBound( final int _fromLine, final int _toLine ) {
+        for ( int ix = Math.max( 0, _fromLine ); ix <= _toLine && ix < this.instructions.length; ix ++ )
+            if ( this.instructions[ ix ] != null && this.instructions[ ix ].isIOBound() )
+                return true;
+        return false;
+    }
+
+    /**
+     *  @return the # of lines in this compiled batch-file
+     */
+    public int size() {
+        int count = 0;
+        for ( Instruction i: this.instructions )
+            if ( i != null ) count ++;
+        return count;
+    }
+
+    /**
+     *  The analysis of which lines can be run concurrently is done only ONCE per compiled batch-file.
+     *  @return NotNull.  See {@link BatchFileSchedule}
+     */
+    public BatchFileSchedule getSchedule() {
+        BatchFileSchedule s = this.schedule;
+        if ( s == null ) {
+            s = BatchFileSchedule.analyze( this );
+            this.schedule = s; // benign race: at worst, 2 threads analyze the same batch-file
+        }
+        return s;
+    }
+
+    /**
+     *  <p>Creates a new instance of {@link BatchFileGrammer} that is ready to be executed, without re-opening/re-reading the batch-file.</p>
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _propsSet a REFERENCE to the properties-set of the {@link BatchCmdProcessor} that will execute the batch-file
+     *  @return a NotNull instance that is positioned BEFORE the 1st line of the batch-file
+     */
+    public BatchFileGrammer newGrammer( final boolean _verbose, final LinkedHashMap<String,Properties> _propsSet ) {
+        final BatchFileGrammer newobj = BatchFileGrammer.deepClone( this.template );
+        newobj.rebind( _verbose, _propsSet );
+        newobj.setProgram( this );
+        return newobj;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  <p>Looks up the cache for a compiled version of the batch-file.  If the batch-file was modified since it was compiled, the stale entry is discarded.</p>
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _batchFilePath path to the batch-file (WITHOUT the '@' prefix)
+     *  @return Nullable.  null if the file was never compiled, or is stale, or does Not exist.
+     */
+    public static BatchFileProgram lookup( final boolean _verbose, final String _batchFilePath ) {
+        final String HDR = CLASSNAME +": lookup("+ _batchFilePath +"): ";
+        final java.io.File file = new java.io.File( _batchFilePath );
+        final String key = file.getAbsolutePath();
+        final BatchFileProgram program = CACHE.get( key );
+        if ( program == null )
+            return null;
+        // a single stat() of the file, instead of one each for lastModified() and length()
+        java.nio.file.attribute.BasicFileAttributes attrs;
+        try {
+            attrs = java.nio.file.Files.readAttributes( file.toPath(), java.nio.file.attribute.BasicFileAttributes.class );
+        } catch ( java.io.IOException ioe ) {
+            attrs = null; // file was deleted
+        }
+        if ( attrs != null && program.lastModified == attrs.lastModifiedTime().toMillis() && program.fileSize == attrs.size() ) {
+            if ( _verbose ) System.out.println( HDR +"cache-hit." );
+            return program;
+        }
+        if ( _verbose ) System.out.println( HDR +"stale cache-entry.  Will recompile." );
+        CACHE.remove( key, program );
+        return null;
+    }
+
+    //==============================================================================
+
+    /**
+     *  <p>Compiles the batch-file (which MUST already be successfully opened, but Not yet read from) and caches the compiled form.</p>
+     *  <p>The instance passed in is NOT advanced - it stays positioned BEFORE its 1st line.  It is also wired up to use the compiled program.</p>
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _batchFilePath path to the batch-file (WITHOUT the '@' prefix)
+     *  @param _openedBatchFile NotNull instance on which {@link BatchFileGrammer#openFile} was successfully invoked
+     *  @return the NotNull compiled program
+     *  @throws Exception if any of the lines in the batch-file could Not be classified
+     */
+    public static BatchFileProgram compile( final boolean _verbose, final String _batchFilePath, final BatchFileGrammer _openedBatchFile ) throws Exception
+    {
+        final String HDR = CLASSNAME +": compile("+ _batchFilePath +"): ";
+        assertNotNull( _openedBatchFile );
+        final java.io.File file = new java.io.File( _batchFilePath );
+        // capture the file's timestamp __BEFORE__ compiling.  If it changes while compiling, the next lookup() will detect it.
+        // Same as lookup(), as File.lastModified() can have a different resolution (on some JDKs)
+        final java.nio.file.attribute.BasicFileAttributes attrs = java.nio.file.Files.readAttributes( file.toPath(), java.nio.file.attribute.BasicFileAttributes.class );
+        final long lastModified = attrs.lastModifiedTime().toMillis();
+        final long fileSize = attrs.size();
+
+        final BatchFileGrammer template = BatchFileGrammer.deepClone( _openedBatchFile );
+        final BatchFileGrammer scratch = BatchFileGrammer.deepClone( _openedBatchFile );
+
+        final ArrayList<Instruction> list = new ArrayList<>();
+        int maxLineNum = 0;
+        // !!!!!!!!!!!!!!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!!!!!!!!!
+        // Just like BatchFileGrammer.skip2MatchingEnd() .. we canNOT use scratch.hasNextLine() and scratch.nextLine(), as that will __EXECUTE__ the built-in commands.
+        while ( ConfigFileScanner.hasNextLine( scratch ) ) {
+            scratch.skipLine();
+            scratch.resetFlagsForEachLine();
+            scratch.identifyLine();
+            final Instruction instr = scratch.toInstruction();
+            list.add( instr );
+            maxLineNum = Math.max( maxLineNum, instr.lineNum );
+        }
+
+        final Instruction[] instructions = new Instruction[ maxLineNum + 1 ];
+        for ( Instruction instr: list )
+            if ( instr.lineNum >= 0 )
+                instructions[ instr.lineNum ] = instr;
+
+        final BatchFileProgram program = new BatchFileProgram( file.getAbsolutePath(), lastModified, fileSize, template, instructions );
+        CACHE.put( program.filePath, program );
+        _openedBatchFile.setProgram( program );
+        if ( _verbose ) System.out.println( HDR +"compiled "+ list.size() +" lines." );
+        return program;
+    }
+
+    //==============================================================================
+
+    /**
+     *  <p>Same as {@link #lookup(boolean, String)}.  But if there's No (up-to-date) compiled version of the batch-file, the batch-file is opened and compiled.</p>
+     *  <p>This is what sub-batches (the 'batch' statement) use, as they're typically invoked over and over (example: within a 'foreach' loop).  The batch-file is read and compiled just ONCE (per JVM), and re-compiled only if it's modified.
+     *      Even if multiple threads need the same batch-file at the same time, only ONE of them compiles it.</p>
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _batchFilePath path to the batch-file (WITHOUT the '@' prefix)
+     *  @param _propsSet a REFERENCE to the properties-set of the {@link BatchCmdProcessor}, needed to open the batch-file (the compiled program is NOT tied to it)
+     *  @return Nullable.  null if the batch-file could Not be opened
+     *  @throws java.io.FileNotFoundException if the batch-file does Not exist
+     *  @throws Exception if any of the lines in the batch-file could Not be classified
+     */
+    public static BatchFileProgram getOrCompile( final boolean _verbose, final String _batchFilePath, final LinkedHashMap<String,Properties> _propsSet )
+                            throws java.io.FileNotFoundException, Exception
+    {
+        BatchFileProgram program = lookup( _verbose, _batchFilePath );
+        if ( program != null )
+            return program;
+        final Object lock = COMPILE_LOCKS.computeIfAbsent( new java.io.File( _batchFilePath ).getAbsolutePath(), k -> new Object() );
+        synchronized( lock ) {
+            program = lookup( _verbose, _batchFilePath ); // another thread may have JUST compiled it
+            if ( program != null )
+                return program;
+            final BatchFileGrammer batchCmds = new BatchFileGrammer( _verbose, _propsSet );
+            // !!!!!!!!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!!!  For actual files.. do _NOT_ use ';' as a separator.  See BatchCmdProcessor.go()
+            batchCmds.useDelimiter( System.lineSeparator() );
+            if ( ! batchCmds.openFile( "@"+ _batchFilePath, true, true ) )
+                return null;
+            return compile( _verbose, _batchFilePath, batchCmds );
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     *  Discards ALL compiled batch-files.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+}
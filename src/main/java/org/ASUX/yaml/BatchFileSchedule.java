@@ -0,0 +1,301 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>This class is a static analysis of a compiled batch-file ({@link BatchFileProgram}), to figure out which statements can run concurrently.</p>
+ *  <p>The batch-file is split into {@link Segment}s.  A new segment starts at every top-level 'useAsInput' or 'makeNewRoot' line, as those lines ignore the output of the previous line.
+ *      So, each segment is a chain of statements, that is connected to other segments ONLY via 'saveTo' labels (memory) and files.</p>
+ *  <p>Each segment's labels and files (anything that looks like !label or @file) are collected.  A segment depends on every earlier segment that references any of the same labels/files.
+ *      Segments that do Not depend on each other can be run concurrently, with the exact same results as running the batch-file one line at a time.</p>
+ *  <p>Segments that have anything other than plain 'yaml' commands (like 'foreach', 'batch', 'print', 'verbose', built-in commands like 'properties', 'aws.sdk' or 'aws.cfn' commands whose side-effects are unknown,
+ *      any file-path that is Not prefixed with '@', or any Macro-expression like ${ASUX::..}) are NOT analyzed.
+ *      They are run sequentially, and act as a barrier - that is, only after all the previous segments complete, and before any of the following segments start.</p>
+ *  <p>ATTENTION: If the batch-file has an 'include', nothing is run concurrently.</p>
+ *
+ * @see org.ASUX.yaml.BatchFileProgram
+ * @see org.ASUX.yaml.BatchCmdProcessor#processBatchScheduled
+ */
+public final class BatchFileSchedule {
+
+    public static final String CLASSNAME = BatchFileSchedule.class.getName();
+
+    /** anything that looks like a reference to memory (!label) or to a file (@filename) */
+    static final Pattern PATTERN_REFERENCE = Pattern.compile( "[@!][^\\s'\";,]+" );
+    /** a word that looks like a file-path (Not prefixed with '@'): it has a '/' or '\\', or ends with a well-known file-extension */
+    private static final Pattern PATTERN_FILE_PATH = Pattern.compile( "^[^@!-].*(?:[/\\\\].*|\\.(?:yaml|yml|json|txt|properties|csv|xml))$", Pattern.CASE_INSENSITIVE );
+    private static final Pattern PATTERN_BATCH = Pattern.compile( "\\bbatch\\b", Pattern.CASE_INSENSITIVE );
+    private static final Pattern PATTERN_INCLUDE = Pattern.compile( "^\\s*include\\b", Pattern.CASE_INSENSITIVE );
+
+    /** To switch off concurrent execution of batch-files (for the entire JVM) */
+    private static volatile boolean enabled = true;
+
+    //------------------------------------------------------------------------------
+    private final List<Segment> segments;
+    private final boolean hasConcurrency;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  <p>A contiguous range of lines of the batch-file.  Once created, instances are immutable.</p>
+     */
+    public static final class Segment {
+        /** index of this segment within {@link BatchFileSchedule#getSegments()} */
+        public final int index;
+        /** line# (per {@link BatchFileGrammer#getLineNum()}) of the 1st line of this segment */
+        public final int firstLine;
+        /** line# (per {@link BatchFileGrammer#getLineNum()}) of the last line of this segment */
+        public final int lastLine;
+        /** false implies this segment is a barrier, and must run sequentially */
+        public final boolean concurrent;
+        /** memory-labels (without the '!' prefix) and files (with the '@' prefix) that this segment reads and/or writes */
+        public final java.util.Set<String> references;
+        /** NotNull.  index of the EARLIER segments, that this segment directly depends on */
+        public final List<Integer> dependsOn;
+
+        private Segment( final int _index, final int _firstLine, final int _lastLine, final boolean _concurrent,
+                            final java.util.Set<String> _references, final List<Integer> _dependsOn )
+        {
+            this.index = _index;
+            this.firstLine = _firstLine;
+            this.lastLine = _lastLine;
+            this.concurrent = _concurrent;
+            this.references = Collections.unmodifiableSet( _references );
+            this.dependsOn = Collections.unmodifiableList( _dependsOn );
+        }
+
+        public String toString() {
+            return "segment #"+ this.index +" lines "+ this.firstLine +"-"+ this.lastLine +( this.concurrent ? " concurrent" : " barrier" )
+                            +" references="+ this.references +" dependsOn="+ this.dependsOn;
+        }
+    } // class Segment
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private BatchFileSchedule( final List<Segment> _segments ) {
+        this.segments = Collections.unmodifiableList( _segments );
+        this.hasConcurrency = findConcurrency( _segments );
+    }
+
+    /**
+     *  @return NotNull list of segments, in the order they appear in the batch-file
+     */
+    public List<Segment> getSegments() {
+        return this.segments;
+    }
+
+    /**
+     *  @return true if at least 2 consecutive concurrent segments do Not depend on each other (directly or indirectly).  If false, there is No benefit to concurrent execution.
+     */
+    public boolean hasConcurrency() {
+        return enabled && this.hasConcurrency;
+    }
+
+    /**
+     *  To switch off (or back on) concurrent execution of batch-files, for the entire JVM.
+     *  @param _enabled false implies every batch-file is run one line at a time.
+     */
+    public static void setEnabled( final boolean _enabled ) {
+        enabled = _enabled;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  <p>Analyzes the compiled batch-file.  See class-level documentation for details.</p>
+     *  @param _program NotNull compiled batch-file
+     *  @return a NotNull schedule
+     */
+    public static BatchFileSchedule analyze( final BatchFileProgram _program )
+    {
+        assertNotNull( _program );
+        final ArrayList<BatchFileProgram.Instruction> lines = new ArrayList<>();
+        for ( int lineNum = 0; lineNum <= _program.maxLineNum(); lineNum ++ ) {
+            final BatchFileProgram.Instruction instr = _program.getInstruction( lineNum );
+            if ( instr == null )
+                continue;
+            if ( instr.line != null && PATTERN_INCLUDE.matcher( instr.line ).find() )
+                return new BatchFileSchedule( new ArrayList<>() ); // 'include' changes the line#s.  So, nothing can be run concurrently.
+            lines.add( instr );
+        }
+
+        //--------------------------------
+        // Pass 1: split into segments.
+        final ArrayList<int[]> ranges = new ArrayList<>(); // each entry is { index-of-1st-line, index-of-last-line } within 'lines'
+        int start = 0;
+        int depth = 0;              // nesting of 'foreach' - 'end'
+        int unknownRunStart = -1;   // built-in commands (like 'properties') are executed by the line that follows them.  So, they go into the same segment as the line that follows them.
+        for ( int ix = 0; ix < lines.size(); ix ++ ) {
+            final BatchFileProgram.Instruction instr = lines.get( ix );
+            final boolean isStartOfChain = ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_UseAsInput || instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_MakeNewRoot );
+            if ( depth == 0 && isStartOfChain ) {
+                final int newStart = ( unknownRunStart >= 0 ) ? unknownRunStart : ix;
+                if ( newStart > start ) {
+                    ranges.add( new int[] { start, newStart - 1 } );
+                    start = newStart;
+                }
+            }
+            if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_Foreach ) depth ++;
+            if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_End ) depth --;
+            if ( instr.cmdType == BatchFileGrammer.BatchCmdType.Cmd_Any && CmdFamilyRegistry.lookup( instr.command ) == null ) {
+                if ( unknownRunStart < 0 ) unknownRunStart = ix;
+            } else {
+                unknownRunStart = -1;
+            }
+        }
+        if ( start < lines.size() )
+            ranges.add( new int[] { start, lines.size() - 1 } );
+
+        //--------------------------------
+        // Pass 2: references & dependencies.
+        final ArrayList<Segment> segments = new ArrayList<>( ranges.size() );
+        for ( int[] range: ranges ) {
+            boolean concurrent = true;
+            final LinkedHashSet<String> references = new LinkedHashSet<>();
+            for ( int ix = range[0]; ix <= range[1]; ix ++ ) {
+                final BatchFileProgram.Instruction instr = lines.get( ix );
+                concurrent = concurrent && isConcurrent( instr );
+                addReferences( instr.line, references );
+            }
+            final ArrayList<Integer> dependsOn = new ArrayList<>();
+            for ( Segment earlier: segments )
+                if ( ! Collections.disjoint( earlier.references, references ) )
+                    dependsOn.add( earlier.index );
+            segments.add( new Segment( segments.size(), lines.get( range[0] ).lineNum, lines.get( range[1] ).lineNum, concurrent, references, dependsOn ) );
+        }
+        return new BatchFileSchedule( segments );
+    }
+
+    //==============================================================================
+
+    /**
+     *  @param _instr NotNull
+     *  @return true if the line can be part of a concurrent segment
+     */
+    private static boolean isConcurrent( final BatchFileProgram.Instruction _instr ) {
+        if ( ! _instr.isMacroFree() )
+            return false; // can't figure out the labels & files referenced
+        switch( _instr.cmdType ) {
+            case Cmd_UseAsInput:
+            case Cmd_MakeNewRoot:
+            case Cmd_SaveTo:
+                return true;
+            case Cmd_Any:
+                // Only 'yaml' commands are known to have No side-effects other than via !labels and @files.
+                return "yaml".equals( _instr.command ) && CmdFamilyRegistry.lookup( _instr.command ) != null
+                        && ! PATTERN_BATCH.matcher( _instr.line ).find() && ! hasPlainFilePath( _instr.line );
+            default:
+                return false; // foreach, end, batch, print, verbose, ..
+        }
+    }
+
+    /**
+     *  Conservatively checks whether any word on the line (other than the command itself) is a file-path without the '@' prefix (which {@link #addReferences} can NOT see).
+     *  That is, the value of a '-i', '--input', '-o' or '--output' option (other than '-'), or any word that looks like a file-path.
+     *  @param _line Nullable
+     *  @return true if the line may read or write a file that is Not prefixed with '@'
+     */
+    private static boolean hasPlainFilePath( final String _line ) {
+        if ( _line == null )
+            return false;
+        final String[] words = _line.trim().split( "\\s+" );
+        for ( int ix = 1; ix < words.length; ix ++ ) {
+            final String word = words[ ix ].replaceAll( "^['\"]+|['\"]+$", "" );
+            final String prev = words[ ix - 1 ];
+            if ( ( prev.equals("-i") || prev.equals("--input") || prev.equals("-o") || prev.equals("--output") ) && ! word.equals("-") )
+                return true;
+            if ( PATTERN_FILE_PATH.matcher( word ).matches() )
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     *  Conservatively collects all the !labels and @files on the line.  It's OK to collect too many (some segments will unnecessarily run sequentially).  It is NOT ok to miss any.
+     *  @param _line Nullable
+     *  @param _references memory-labels are added without the '!' prefix, and files are added with the '@' prefix
+     */
+    private static void addReferences( final String _line, final java.util.Set<String> _references ) {
+        if ( _line == null )
+            return;
+        final Matcher m = PATTERN_REFERENCE.matcher( _line );
+        while ( m.find() ) {
+            final String ref = m.group();
+            _references.add( ref.startsWith("!") ? ref.substring(1) : ref );
+        }
+    }
+
+    /**
+     *  @param _segments NotNull
+     *  @return true if within any run of concurrent segments, at least one segment does Not depend (directly or indirectly) on the segment right before it
+     */
+    private static boolean findConcurrency( final List<Segment> _segments ) {
+        final BitSet[] reach = new BitSet[ _segments.size() ];
+        for ( Segment seg: _segments ) {
+            reach[ seg.index ] = new BitSet();
+            for ( Integer dep: seg.dependsOn ) {
+                reach[ seg.index ].set( dep );
+                reach[ seg.index ].or( reach[ dep ] );
+            }
+        }
+        for ( int ix = 1; ix < _segments.size(); ix ++ )
+            if ( _segments.get( ix ).concurrent && _segments.get( ix - 1 ).concurrent && ! reach[ ix ].get( ix - 1 ) )
+                return true;
+        return false;
+    }
+
+    public String toString() {
+        final StringBuilder sb = new StringBuilder( CLASSNAME ).append( " hasConcurrency=" ).append( this.hasConcurrency );
+        for ( Segment seg: this.segments )
+            sb.append( "\n\t" ).append( seg );
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>Reads (and parses) the files of upcoming 'useAsInput @file' lines in the background (see '--prefetch' command-line option), so that - on slow (example: network) file-systems -
+ *      the batch-file does Not have to wait for them, when it gets to those lines.</p>
+ *  <p>{@link BatchCmdProcessor} looks ahead - at the lines following the current line (see {@link BatchFileProgram#getNextFileInput(int)}), and at the next few iterations of a 'foreach' -
+ *      and submits each file whose path (after Macro-evaluation) is already known.  When it gets to that line, it {@link #take}s the content.</p>
+ *  <p>A prefetched content is used ONLY if it was read from the very same file as the line asks for, and ONLY if that file has Not changed since (as per its size and last-modified time).
+ *      Else (or, if the read failed), the line reads the file itself - exactly as it would without '--prefetch' (incl. reporting any errors).</p>
+ *  <p>Thread-safe.  It is shared by all the copies of {@link BatchCmdProcessor} (see 'foreach --parallel')</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class BatchPrefetcher {
+
+    public static final String CLASSNAME = BatchPrefetcher.class.getName();
+
+    /** # of files read at the same time */
+    public static final int THREADS = 4;
+
+    /** Max. # of files that are prefetched, but Not yet used.  Beyond that, the oldest is discarded (the look-ahead guessed wrong, or the batch-file failed before getting there). */
+    public static final int MAX_PENDING = 32;
+
+    /** # of iterations of a 'foreach' loop, that are looked-ahead */
+    public static final int LOOKAHEAD_ITERATIONS = 4;
+
+    /** # of 'useAsInput' lines (following the current line) that are looked-ahead */
+    public static final int LOOKAHEAD_LINES = 8;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** A file being read (or already read) in the background */
+    private static final class Pending {
+        final Path path;
+        /** as of just BEFORE the file was read.  Null if the file did Not exist */
+        final BasicFileAttributes attrs;
+        final Future<Object> future;
+        Pending( final Path _path, final BasicFileAttributes _attrs, final Future<Object> _future ) {
+            this.path = _path;
+            this.attrs = _attrs;
+            this.future = _future;
+        }
+    }
+
+    private final boolean verbose;
+    private final ExecutorService pool;
+
+    /** key = the reference (example: '@/path/to/file.yaml') exactly as passed to {@link CmdInvoker#getDataFromReference(String)}.  In insertion-order, so that the oldest can be discarded.  Always synchronize on this object before use. */
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<String, Pending>( 64, 0.75f, false ) {
+        private static final long serialVersionUID = 420L;
+        @Override protected boolean removeEldestEntry( final Map.Entry<String, Pending> _eldest ) {
+            if ( this.size() <= MAX_PENDING )
+                return false;
+            _eldest.getValue().future.cancel( true );
+            BatchPrefetcher.this.discarded ++;
+            return true;
+        }
+    };
+
+    private int submitted = 0;
+    private int hits = 0;
+    private int discarded = 0;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _bVirtual whether the files should be read on virtual threads (see '--virtualThreads' and {@link BatchThreads})
+     */
+    public BatchPrefetcher( final boolean _verbose, final boolean _bVirtual ) {
+        this.verbose = _verbose;
+        this.pool = BatchThreads.newPool( THREADS, _bVirtual );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _reference NotNull.  Example: '@/path/to/file.yaml'
+     *  @return true if it's a file, that is Not already being read (or, already read) in the background
+     */
+    public boolean wants( final String _reference ) {
+        if ( ! _reference.startsWith("@") )
+            return false;
+        synchronized( this.pending ) {
+            return ! this.pending.containsKey( _reference );
+        }
+    }
+
+    /**
+     *  Starts reading a file in the background, unless it's already being read.
+     *  @param _reference NotNull.  Must start with '@' (else, it's ignored)
+     *  @param _loader NotNull.  Reads the file (example: {@link CmdInvoker#getDataFromReference(String)} of an invoker used by No other thread)
+     */
+    public void prefetch( final String _reference, final Callable<Object> _loader ) {
+        if ( ! _reference.startsWith("@") )
+            return;
+        synchronized( this.pending ) {
+            if ( this.pending.containsKey( _reference ) )
+                return;
+            final Path path;
+            try {
+                path = Paths.get( _reference.substring(1) );
+            } catch ( java.nio.file.InvalidPathException ipe ) {
+                return;
+            }
+            final BasicFileAttributes attrs = attributes( path );
+            if ( attrs == null )
+                return; // let the line itself report the missing file (or, ignore it - if it's '?@file')
+            if ( this.verbose ) System.out.println( CLASSNAME +": prefetch(): reading "+ _reference +" in the background" );
+            this.pending.put( _reference, new Pending( path, attrs, this.pool.submit( _loader ) ) );
+            this.submitted ++;
+        }
+    }
+
+    /**
+     *  @param _reference NotNull.  Example: '@/path/to/file.yaml'
+     *  @return Nullable.  The content of that file (waiting for the background read to complete, if need be).  Null if it was Not prefetched, if the read failed, or if the file has changed since.
+     *  @throws InterruptedException if this thread was interrupted while waiting
+     */
+    public Object take( final String _reference ) throws InterruptedException {
+        final Pending p;
+        synchronized( this.pending ) {
+            p = this.pending.remove( _reference );
+        }
+        if ( p == null )
+            return null;
+        final Object content;
+        try {
+            content = p.future.get();
+        } catch ( java.util.concurrent.ExecutionException | java.util.concurrent.CancellationException e ) {
+            if ( this.verbose ) System.out.println( CLASSNAME +": take(): background read of "+ _reference +" failed.  "+ e );
+            return null;
+        }
+        final BasicFileAttributes now = attributes( p.path );
+        if ( now == null || now.size() != p.attrs.size() || ! now.lastModifiedTime().equals( p.attrs.lastModifiedTime() ) ) {
+            if ( this.verbose ) System.out.println( CLASSNAME +": take(): "+ _reference +" changed, after it was read in the background" );
+            return null;
+        }
+        synchronized( this.pending ) {
+            this.hits ++;
+        }
+        return content;
+    }
+
+    /**
+     *  Discards whatever was prefetched for a file, as that file is being written to (example: 'saveTo @file')
+     *  @param _reference NotNull.  Example: '@/path/to/file.yaml'
+     */
+    public void invalidate( final String _reference ) {
+        synchronized( this.pending ) {
+            final Pending p = this.pending.remove( _reference );
+            if ( p != null ) {
+                p.future.cancel( true );
+                this.discarded ++;
+            }
+        }
+    }
+
+    /**
+     *  Stops all the background reads.  This object must Not be used afterwards.
+     */
+    public void close() {
+        this.pool.shutdownNow();
+        synchronized( this.pending ) {
+            this.discarded += this.pending.size();
+            this.pending.clear();
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _path NotNull
+     *  @return Nullable.  Null if the file does Not exist (or can Not be accessed)
+     */
+    private static BasicFileAttributes attributes( final Path _path ) {
+        try {
+            return Files.readAttributes( _path, BasicFileAttributes.class );
+        } catch ( java.io.IOException ioe ) {
+            return null;
+        }
+    }
+
+    public String toString() {
+        synchronized( this.pending ) {
+            return "Prefetch: "+ this.submitted +" files read in the background, "+ this.hits +" used, "+ this.discarded +" discarded";
+        }
+    }
+
+}
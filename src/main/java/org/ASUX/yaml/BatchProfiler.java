@@ -0,0 +1,251 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>Per-line profiler for batch-files.  Switched on via the '--profile' command-line option.</p>
+ *  <p>For each line of a batch-file, this collects: how many times the line was executed (for lines inside a 'foreach' loop, that's once per iteration),
+ *      the total wall-clock time (in nanoseconds), a break-up of that time into {@link Phase}s, and the bytes allocated by the thread that ran the line (if the JVM supports it).</p>
+ *  <p>For a 'foreach' line, the time is inclusive of all the lines within the loop.  For all other lines, the time is just for that line.</p>
+ *  <p>Thread-safe, as lines are executed concurrently for 'foreach --parallel' and by {@link BatchFileSchedule}.</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class BatchProfiler {
+
+    public static final String CLASSNAME = BatchProfiler.class.getName();
+
+    public static final int DEFAULT_TOPN = 20;
+
+    public enum Phase { MACRO, PARSE, EXEC, CLONE };
+
+    /** Null, if the JVM can Not measure per-thread allocations */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = initAllocations();
+
+    //------------------------------------------------------------------------------
+    private final ConcurrentHashMap<String, LineStats> stats = new ConcurrentHashMap<>();
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  All the measurements for ONE line of a batch-file.
+     */
+    public static final class LineStats {
+        public final String source;
+        public final int lineNum;
+        public final String line;
+
+        public final LongAdder count = new LongAdder();
+        public final LongAdder totalNanos = new LongAdder();
+        public final LongAdder allocatedBytes = new LongAdder();
+        /** for 'foreach' lines only: total # of iterations */
+        public final LongAdder iterations = new LongAdder();
+        /** indexed by {@link Phase#ordinal()} */
+        private final LongAdder[] phaseNanos = new LongAdder[ Phase.values().length ];
+
+        private LineStats( final String _source, final int _lineNum, final String _line ) {
+            this.source = _source;
+            this.lineNum = _lineNum;
+            this.line = _line;
+            for ( int ix = 0; ix < this.phaseNanos.length; ix ++ )
+                this.phaseNanos[ ix ] = new LongAdder();
+        }
+
+        /**
+         *  Records one execution of this line.
+         *  @param _startNanos value of System.nanoTime() when the line started executing
+         *  @param _startAllocatedBytes value of {@link BatchProfiler#allocatedBytes()} when the line started executing (on the current thread)
+         */
+        public void record( final long _startNanos, final long _startAllocatedBytes ) {
+            this.count.increment();
+            this.totalNanos.add( System.nanoTime() - _startNanos );
+            this.allocatedBytes.add( allocatedBytes() - _startAllocatedBytes );
+        }
+
+        public long getPhaseNanos( final Phase _phase ) {
+            return this.phaseNanos[ _phase.ordinal() ].sum();
+        }
+    } // class LineStats
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private static com.sun.management.ThreadMXBean initAllocations() {
+        try {
+            final java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+            if ( bean instanceof com.sun.management.ThreadMXBean ) {
+                final com.sun.management.ThreadMXBean sunbean = (com.sun.management.ThreadMXBean) bean;
+                if ( sunbean.isThreadAllocatedMemorySupported() ) {
+                    if ( ! sunbean.isThreadAllocatedMemoryEnabled() )
+                        sunbean.setThreadAllocatedMemoryEnabled( true );
+                    return sunbean;
+                }
+            }
+        } catch ( Throwable t ) {
+            // Not a HotSpot-based JVM, or Not permitted.  Allocations will NOT be measured.
+        }
+        return null;
+    }
+
+    /**
+     *  @return the total bytes allocated so far by the current thread.  Always 0, if the JVM can Not measure that.
+     */
+    public static long allocatedBytes() {
+        return ( ALLOCATIONS == null ) ? 0L : ALLOCATIONS.getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _batchCmds NotNull, positioned at the line to be measured
+     *  @return NotNull (created if needed) the measurements for the current line of _batchCmds
+     */
+    public LineStats getLineStats( final BatchFileGrammer _batchCmds ) {
+        final BatchFileProgram program = _batchCmds.getProgram();
+        final String source = ( program != null ) ? program.filePath : "(inline)";
+        final int lineNum = _batchCmds.getLineNum();
+        return this.stats.computeIfAbsent( source +":"+ lineNum, k -> new LineStats( source, lineNum, _batchCmds.currentLineOrNull() ) );
+    }
+
+    /**
+     *  Records the time spent (within the current line of _batchCmds) in a specific phase.
+     *  @param _batchCmds NotNull, positioned at the line being executed
+     *  @param _phase NotNull
+     *  @param _startNanos value of System.nanoTime() when the phase started
+     */
+    public void recordPhase( final BatchFileGrammer _batchCmds, final Phase _phase, final long _startNanos ) {
+        this.getLineStats( _batchCmds ).phaseNanos[ _phase.ordinal() ].add( System.nanoTime() - _startNanos );
+    }
+
+    /**
+     *  @param _batchCmds NotNull, positioned at a 'foreach' line
+     *  @param _iterations # of iterations of that loop
+     */
+    public void recordIterations( final BatchFileGrammer _batchCmds, final int _iterations ) {
+        this.getLineStats( _batchCmds ).iterations.add( _iterations );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @return NotNull list of all lines (that were executed at least once), with the slowest line first
+     */
+    public ArrayList<LineStats> getSortedStats() {
+        final ArrayList<LineStats> list = new ArrayList<>( this.stats.values() );
+        list.sort( Comparator.comparingLong( (LineStats ls) -> ls.totalNanos.sum() ).reversed()
+                        .thenComparing( ls -> ls.source ).thenComparingInt( ls -> ls.lineNum ) );
+        return list;
+    }
+
+    /**
+     *  @param _topN how many of the slowest lines to show
+     *  @return a human-readable table of the slowest lines (milliseconds and kilobytes)
+     */
+    public String report( final int _topN ) {
+        final ArrayList<LineStats> list = this.getSortedStats();
+        final StringBuilder sb = new StringBuilder();
+        sb.append( String.format( "%n%-6s %8s %10s %10s %10s %10s %10s %10s %8s  %s%n", "line#", "count", "total-ms", "macro-ms", "parse-ms", "exec-ms", "clone-ms", "alloc-KB", "iters", "batch-line" ) );
+        for ( int ix = 0; ix < list.size() && ix < _topN; ix ++ ) {
+            final LineStats ls = list.get( ix );
+            sb.append( String.format( "%-6d %8d %10.3f %10.3f %10.3f %10.3f %10.3f %10d %8s  %s%n", ls.lineNum, ls.count.sum(), ms( ls.totalNanos.sum() ),
+                            ms( ls.getPhaseNanos( Phase.MACRO ) ), ms( ls.getPhaseNanos( Phase.PARSE ) ), ms( ls.getPhaseNanos( Phase.EXEC ) ), ms( ls.getPhaseNanos( Phase.CLONE ) ),
+                            ls.allocatedBytes.sum() / 1024, ( ls.iterations.sum() > 0 ) ? ""+ ls.iterations.sum() : "", ls.line ) );
+        }
+        if ( list.size() > _topN )
+            sb.append( "... and "+ ( list.size() - _topN ) +" more lines.\n" );
+        if ( ALLOCATIONS == null )
+            sb.append( "(This JVM can NOT measure allocated bytes)\n" );
+        return sb.toString();
+    }
+
+    private static double ms( final long _nanos ) {
+        return _nanos / 1000000.0;
+    }
+
+    /**
+     *  @return all the measurements (in nanoseconds and bytes) as a JSON array, with the slowest line first
+     */
+    public String toJSON() {
+        final StringBuilder sb = new StringBuilder( "[" );
+        boolean first = true;
+        for ( LineStats ls: this.getSortedStats() ) {
+            sb.append( first ? "\n" : ",\n" );
+            first = false;
+            sb.append( "  { \"source\": " ).append( quote( ls.source ) )
+              .append( ", \"line#\": " ).append( ls.lineNum )
+              .append( ", \"line\": " ).append( quote( ls.line ) )
+              .append( ", \"count\": " ).append( ls.count.sum() )
+              .append( ", \"iterations\": " ).append( ls.iterations.sum() )
+              .append( ", \"totalNanos\": " ).append( ls.totalNanos.sum() );
+            for ( Phase p: Phase.values() )
+                sb.append( ", \"" ).append( p.name().toLowerCase() ).append( "Nanos\": " ).append( ls.getPhaseNanos( p ) );
+            sb.append( ", \"allocatedBytes\": " ).append( ls.allocatedBytes.sum() ).append( " }" );
+        }
+        return sb.append( "\n]\n" ).toString();
+    }
+
+    private static String quote( final String _s ) {
+        if ( _s == null )
+            return "null";
+        final StringBuilder sb = new StringBuilder( "\"" );
+        for ( char c: _s.toCharArray() ) {
+            switch( c ) {
+                case '"':  sb.append( "\\\"" ); break;
+                case '\\': sb.append( "\\\\" ); break;
+                case '\n': sb.append( "\\n" ); break;
+                case '\r': sb.append( "\\r" ); break;
+                case '\t': sb.append( "\\t" ); break;
+                default:
+                    if ( c < 0x20 )
+                        sb.append( String.format( "\\u%04x", (int) c ) );
+                    else
+                        sb.append( c );
+            }
+        }
+        return sb.append( '"' ).toString();
+    }
+
+}
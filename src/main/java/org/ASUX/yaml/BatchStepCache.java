@@ -0,0 +1,285 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+import static org.junit.Assert.*;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>On-disk memoization of the output of each step of a batch-file.  Switched on via the '--incremental &lt;cachedir&gt;' command-line option.</p>
+ *  <p>Each step is identified by a SHA-256 hash ("key") of: the key of its input, the command (after Macro-evaluation, so the values of any properties used are included),
+ *      and the contents of every !label and @file that the command refers to - as well as any other word of the command that is the path of an existing file.</p>
+ *  <p>The key of the input is NOT computed by serializing the input.  Instead, it's simply the key of the step that produced the input.  Only the very 1st input (and any files read via 'useAsInput @file') are actually hashed.
+ *      So, an unchanged prefix of a batch-file is replayed from the cache, and ONLY the steps after the 1st change are re-executed.</p>
+ *  <p>A null key implies "unknown" - that step (and every step that follows, until the next 'useAsInput' or 'makeNewRoot') is NOT memoized.</p>
+ *  <p>ATTENTION: Only 'yaml' read, list and table commands are memoized, as they have No side-effects.  Any other command (and any line within a 'foreach' loop) is NOT memoized,
+ *      and its output is unknown.</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class BatchStepCache {
+
+    public static final String CLASSNAME = BatchStepCache.class.getName();
+
+    private final Path cacheDir;
+    private final boolean verbose;
+
+    /** key of the content saved into memory under each label (without the '!' prefix).  Shared by all copies of a {@link BatchCmdProcessor} */
+    private final ConcurrentHashMap<String, String> labelKeys = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _cacheDir NotNull path to a directory (it's created if it does Not exist)
+     *  @throws java.io.IOException if the directory can Not be created
+     */
+    public BatchStepCache( final boolean _verbose, final String _cacheDir ) throws java.io.IOException {
+        assertNotNull( _cacheDir );
+        this.verbose = _verbose;
+        this.cacheDir = Paths.get( _cacheDir );
+        Files.createDirectories( this.cacheDir );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _parts NotNull list of strings.  Any null entry will result in a null return value.
+     *  @return a SHA-256 hash (hex-string) of all the strings.  Null if any of the strings is null (as in, unknown).
+     */
+    public static String key( final String... _parts ) {
+        final MessageDigest md = newDigest();
+        for ( String part: _parts ) {
+            if ( part == null )
+                return null;
+            md.update( part.getBytes( StandardCharsets.UTF_8 ) );
+            md.update( (byte) 0 );
+        }
+        return toHex( md.digest() );
+    }
+
+    /**
+     *  @param _file NotNull path to a file
+     *  @return a SHA-256 hash of the file's contents.  Null if the file does Not exist, or can Not be read.
+     */
+    public static String keyOfFile( final String _file ) {
+        try {
+            final MessageDigest md = newDigest();
+            md.update( Files.readAllBytes( Paths.get( _file ) ) );
+            return toHex( md.digest() );
+        } catch ( java.io.IOException | java.nio.file.InvalidPathException e ) {
+            return null;
+        }
+    }
+
+    private static boolean isFile( final String _path ) {
+        try {
+            return Files.isRegularFile( Paths.get( _path ) );
+        } catch ( java.nio.file.InvalidPathException e ) {
+            return false;
+        }
+    }
+
+    /**
+     *  @param _yamlImpl NotNull
+     *  @param _node the YAML content
+     *  @return a SHA-256 hash of the YAML-text of _node
+     *  @throws Exception if the YAML-library fails to generate the YAML-text
+     */
+    public static <T> String keyOfYAML( final YAMLImplementation<T> _yamlImpl, final Object _node ) throws Exception {
+        final java.io.StringWriter sw = new java.io.StringWriter();
+        _yamlImpl.write( sw, _node );
+        _yamlImpl.close();
+        return key( sw.toString() );
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance( "SHA-256" );
+        } catch ( java.security.NoSuchAlgorithmException e ) {
+            throw new AssertionError( e ); // every JVM is required to support SHA-256.  So, this can NOT happen.
+        }
+    }
+
+    private static String toHex( final byte[] _bytes ) {
+        final StringBuilder sb = new StringBuilder( _bytes.length * 2 );
+        for ( byte b: _bytes )
+            sb.append( String.format( "%02x", b ) );
+        return sb.toString();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _label memory-label (with or without the '!' prefix)
+     *  @param _key Nullable.  null implies the content saved under this label is Not known.
+     */
+    public void setLabelKey( final String _label, final String _key ) {
+        final String label = _label.startsWith("!") ? _label.substring(1) : _label;
+        if ( _key == null )
+            this.labelKeys.remove( label );
+        else
+            this.labelKeys.put( label, _key );
+    }
+
+    /**
+     *  @param _label memory-label (with or without the '!' prefix)
+     *  @return Nullable.  the key of the content saved under this label
+     */
+    public String getLabelKey( final String _label ) {
+        return this.labelKeys.get( _label.startsWith("!") ? _label.substring(1) : _label );
+    }
+
+    /**
+     *  @param _reference either a memory-label (prefixed with '!'), a file (prefixed with '@'), or inline YAML/JSON
+     *  @return Nullable.  the key of whatever that reference refers to.  null if it's Not known.
+     */
+    public String keyOfReference( final String _reference ) {
+        if ( _reference.startsWith("!") )
+            return this.getLabelKey( _reference );
+        if ( _reference.startsWith("@") )
+            return keyOfFile( _reference.substring(1) );
+        return key( "inline", _reference );
+    }
+
+    /**
+     *  @param _inputKey Nullable.  key of the input to the command
+     *  @param _cmdLine NotNull.  the command, after Macro-evaluation.
+     *  @return Nullable.  the key of the command's output.  Null, if the input is unknown, or if any of the !labels / files referred to by the command, are unknown.
+     */
+    public String keyOfStep( final String _inputKey, final String _cmdLine ) {
+        if ( _inputKey == null )
+            return null;
+        final java.util.ArrayList<String> parts = new java.util.ArrayList<>();
+        parts.add( _inputKey );
+        parts.add( _cmdLine );
+        final Matcher m = BatchFileSchedule.PATTERN_REFERENCE.matcher( _cmdLine );
+        while ( m.find() ) {
+            final String refKey = this.keyOfReference( m.group() );
+            if ( refKey == null )
+                return null;
+            parts.add( refKey );
+        }
+        // files whose paths are Not prefixed with '@'
+        for ( String word: _cmdLine.trim().split( "\\s+" ) ) {
+            final String path = word.replaceAll( "^['\"]+|['\"]+$", "" );
+            if ( path.isEmpty() || "-@!".indexOf( path.charAt(0) ) >= 0 || ! isFile( path ) )
+                continue;
+            final String fileKey = keyOfFile( path );
+            if ( fileKey == null )
+                return null;
+            parts.add( path );
+            parts.add( fileKey );
+        }
+        return key( parts.toArray( new String[ parts.size() ] ) );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private Path pathOf( final String _key ) {
+        return this.cacheDir.resolve( _key.substring( 0, 2 ) ).resolve( _key +".yaml" );
+    }
+
+    /**
+     *  @param _key NotNull, as returned by {@link #keyOfStep}
+     *  @param _yamlImpl NotNull, used to load the YAML-content
+     *  @return Nullable.  The output memoized for this key.  Null if it's Not in the cache (or if the cached file is corrupt)
+     */
+    public <T> T load( final String _key, final YAMLImplementation<T> _yamlImpl ) {
+        final Path path = this.pathOf( _key );
+        if ( ! Files.exists( path ) ) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        try ( java.io.Reader reader = Files.newBufferedReader( path, StandardCharsets.UTF_8 ) ) {
+            final T ret = _yamlImpl.load( reader );
+            this.hits.incrementAndGet();
+            if ( this.verbose ) System.out.println( CLASSNAME +": load(): cache-hit "+ path );
+            return ret;
+        } catch ( Exception e ) {
+            if ( this.verbose ) e.printStackTrace(System.err);
+            System.err.println( CLASSNAME +": load(): WARNING: ignoring corrupt cache-entry "+ path +".  "+ e );
+            this.misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     *  Memoizes the output of a step.  Failures are NOT fatal (the step will simply be re-executed next time).
+     *  @param _key NotNull, as returned by {@link #keyOfStep}
+     *  @param _output the output of the command
+     *  @param _yamlImpl NotNull, used to write out the YAML-content
+     */
+    public <T> void store( final String _key, final T _output, final YAMLImplementation<T> _yamlImpl ) {
+        final Path path = this.pathOf( _key );
+        try {
+            Files.createDirectories( path.getParent() );
+            // write to a temporary file, and rename.  So, a concurrent reader (or a crash) will never see a partial file.
+            final Path tmp = Files.createTempFile( path.getParent(), _key, ".tmp" );
+            try ( java.io.Writer writer = Files.newBufferedWriter( tmp, StandardCharsets.UTF_8 ) ) {
+                _yamlImpl.write( writer, _output );
+                _yamlImpl.close();
+            }
+            Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( Exception e ) {
+            if ( this.verbose ) e.printStackTrace(System.err);
+            System.err.println( CLASSNAME +": store(): WARNING: failed to save into cache "+ path +".  "+ e );
+        }
+    }
+
+    public String toString() {
+        return "Incremental-cache "+ this.cacheDir +": "+ this.hits.get() +" hits, "+ this.misses.get() +" misses";
+    }
+
+}
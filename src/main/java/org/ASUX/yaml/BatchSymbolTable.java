@@ -0,0 +1,366 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>A scoped symbol-table for the variables of a batch-file (the {@link BatchCmdProcessor#FOREACH_PROPERTIES} and the {@link org.ASUX.common.ScriptFileScanner#GLOBALVARIABLES} property-sets).</p>
+ *  <p>The variables are kept in a chain of frames.  Each 'foreach' loop pushes a new frame (and pops it when the loop is done), so a nested loop no longer clobbers the 'foreach.index' (etc.) of the enclosing loop.
+ *      Each iteration of 'foreach --parallel' gets a child-scope ({@link #newScope()}) that sees - but never writes into - the frames of its parent.  Both are O(1): nothing is copied.</p>
+ *  <p>A lookup walks the frames from the innermost outwards (the innermost definition wins, and a removal in an inner frame hides the outer definition).
+ *      Each frame is a ConcurrentHashMap, so lookups never take a lock - unlike java.util.Properties (a synchronized Hashtable), whose every getProperty() is contended when many 'foreach --parallel' threads evaluate Macros.</p>
+ *  <p>This class extends java.util.Properties ONLY so that it can be put into the LinkedHashMap&lt;String,Properties&gt; that org.ASUX.common (Macros, ConfigFileScannerL2, ..) expects.
+ *      All of the Properties/Hashtable/Map methods (incl. compute, merge, replace, ..) operate on the flattened view of the frames - and write ONLY into the innermost frame.</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class BatchSymbolTable extends Properties {
+
+    private static final long serialVersionUID = 416L;
+
+    public static final String CLASSNAME = BatchSymbolTable.class.getName();
+
+    /** Marks a variable as removed within a frame, so that the definition in an outer frame is hidden */
+    private enum Removed { INSTANCE }
+
+    private static final class Frame implements java.io.Serializable {
+        private static final long serialVersionUID = 417L;
+        final ConcurrentHashMap<Object,Object> map = new ConcurrentHashMap<>();
+        final Frame parent;
+        Frame( final Frame _parent ) { this.parent = _parent; }
+    }
+
+    /** the innermost frame.  Written ONLY by the thread that owns this scope */
+    private volatile Frame top;
+    /** the outermost frame that belongs to this scope (frames beyond it belong to the parent scope, and are never written into) */
+    private final Frame base;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** Creates an empty symbol-table, with just one frame */
+    public BatchSymbolTable() {
+        this( (Frame) null );
+    }
+
+    /**
+     *  Creates a symbol-table, whose only frame has the same entries as _initial
+     *  @param _initial NotNull
+     */
+    public BatchSymbolTable( final Properties _initial ) {
+        this( (Frame) null );
+        for ( Map.Entry<Object,Object> e: _initial.entrySet() )
+            this.base.map.put( e.getKey(), e.getValue() );
+    }
+
+    private BatchSymbolTable( final Frame _parent ) {
+        super();
+        this.base = new Frame( _parent );
+        this.top = this.base;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** Starts a new (innermost) frame.  Whatever is set from now on, until the matching {@link #pop()}, is forgotten by that {@link #pop()} */
+    public void push() {
+        this.top = new Frame( this.top );
+    }
+
+    /**
+     *  Discards the innermost frame (and everything that was set since the matching {@link #push()})
+     *  @throws IllegalStateException if there is No matching {@link #push()}
+     */
+    public void pop() {
+        final Frame f = this.top;
+        if ( f == this.base )
+            throw new IllegalStateException( CLASSNAME +": pop(): No matching push()" );
+        this.top = f.parent;
+    }
+
+    /**
+     *  <p>Creates a child-scope (for example: for an iteration of 'foreach --parallel', running on a different thread).</p>
+     *  <p>The child sees everything in this scope (as of any point in time), but whatever is set into the child is visible ONLY within the child.
+     *      So, this scope must Not {@link #pop()} its current frame while the child is still in use.</p>
+     *  @return a NotNull new instance
+     */
+    public BatchSymbolTable newScope() {
+        return new BatchSymbolTable( this.top );
+    }
+
+    /** @return the number of frames (incl. those of the parent scopes) */
+    public int getDepth() {
+        int depth = 0;
+        for ( Frame f = this.top; f != null; f = f.parent )
+            depth ++;
+        return depth;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private Object lookup( final Object _key ) {
+        if ( _key == null )
+            throw new NullPointerException();
+        for ( Frame f = this.top; f != null; f = f.parent ) {
+            final Object v = f.map.get( _key );
+            if ( v != null )
+                return ( v == Removed.INSTANCE ) ? null : v;
+        }
+        return null;
+    }
+
+    /** @return a NotNull copy of the flattened view: the outermost definitions first, and the innermost definition wins */
+    private LinkedHashMap<Object,Object> flatten() {
+        final ArrayList<Frame> frames = new ArrayList<>();
+        for ( Frame f = this.top; f != null; f = f.parent )
+            frames.add( f );
+        final LinkedHashMap<Object,Object> flat = new LinkedHashMap<>();
+        for ( int ix = frames.size() - 1; ix >= 0; ix -- ) {
+            for ( Map.Entry<Object,Object> e: frames.get( ix ).map.entrySet() ) {
+                if ( e.getValue() == Removed.INSTANCE )
+                    flat.remove( e.getKey() );
+                else
+                    flat.put( e.getKey(), e.getValue() );
+            }
+        }
+        return flat;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    @Override
+    public String getProperty( final String _key ) {
+        final Object v = this.lookup( _key );
+        return ( v instanceof String ) ? (String) v : null;
+    }
+
+    @Override
+    public String getProperty( final String _key, final String _defaultValue ) {
+        final String v = this.getProperty( _key );
+        return ( v == null ) ? _defaultValue : v;
+    }
+
+    @Override
+    public Object setProperty( final String _key, final String _value ) {
+        return this.put( _key, _value );
+    }
+
+    @Override
+    public Object get( final Object _key ) {
+        return this.lookup( _key );
+    }
+
+    @Override
+    public Object getOrDefault( final Object _key, final Object _defaultValue ) {
+        final Object v = this.lookup( _key );
+        return ( v == null ) ? _defaultValue : v;
+    }
+
+    @Override
+    public boolean containsKey( final Object _key ) {
+        return this.lookup( _key ) != null;
+    }
+
+    @Override
+    public Object put( final Object _key, final Object _value ) {
+        if ( _key == null || _value == null )
+            throw new NullPointerException();
+        final Object prior = this.lookup( _key );
+        this.top.map.put( _key, _value );
+        return prior;
+    }
+
+    @Override
+    public Object putIfAbsent( final Object _key, final Object _value ) {
+        final Object prior = this.lookup( _key );
+        if ( prior == null )
+            this.put( _key, _value );
+        return prior;
+    }
+
+    @Override
+    public void putAll( final Map<?,?> _m ) {
+        for ( Map.Entry<?,?> e: _m.entrySet() )
+            this.put( e.getKey(), e.getValue() );
+    }
+
+    @Override
+    public Object remove( final Object _key ) {
+        final Object prior = this.lookup( _key );
+        final Frame f = this.top;
+        if ( f.parent == null )
+            f.map.remove( _key );
+        else if ( prior != null )
+            f.map.put( _key, Removed.INSTANCE ); // hide the definition in the outer frame
+        return prior;
+    }
+
+    @Override
+    public boolean remove( final Object _key, final Object _value ) {
+        final Object current = this.lookup( _key );
+        if ( current == null || ! current.equals( _value ) )
+            return false;
+        this.remove( _key );
+        return true;
+    }
+
+    @Override
+    public Object replace( final Object _key, final Object _value ) {
+        return ( this.lookup( _key ) != null ) ? this.put( _key, _value ) : null;
+    }
+
+    @Override
+    public boolean replace( final Object _key, final Object _oldValue, final Object _newValue ) {
+        final Object current = this.lookup( _key );
+        if ( current == null || ! current.equals( _oldValue ) )
+            return false;
+        this.put( _key, _newValue );
+        return true;
+    }
+
+    @Override
+    public void replaceAll( final BiFunction<? super Object, ? super Object, ?> _function ) {
+        for ( Map.Entry<Object,Object> e: this.flatten().entrySet() )
+            this.put( e.getKey(), _function.apply( e.getKey(), e.getValue() ) );
+    }
+
+    @Override
+    public Object computeIfAbsent( final Object _key, final Function<? super Object, ?> _mappingFunction ) {
+        final Object current = this.lookup( _key );
+        if ( current != null )
+            return current;
+        final Object value = _mappingFunction.apply( _key );
+        if ( value != null )
+            this.put( _key, value );
+        return value;
+    }
+
+    @Override
+    public Object computeIfPresent( final Object _key, final BiFunction<? super Object, ? super Object, ?> _remappingFunction ) {
+        final Object current = this.lookup( _key );
+        if ( current == null )
+            return null;
+        return this.store( _key, _remappingFunction.apply( _key, current ) );
+    }
+
+    @Override
+    public Object compute( final Object _key, final BiFunction<? super Object, ? super Object, ?> _remappingFunction ) {
+        final Object current = this.lookup( _key );
+        final Object value = _remappingFunction.apply( _key, current );
+        if ( value == null && current == null )
+            return null;
+        return this.store( _key, value );
+    }
+
+    @Override
+    public Object merge( final Object _key, final Object _value, final BiFunction<? super Object, ? super Object, ?> _remappingFunction ) {
+        if ( _value == null )
+            throw new NullPointerException();
+        final Object current = this.lookup( _key );
+        return this.store( _key, ( current == null ) ? _value : _remappingFunction.apply( current, _value ) );
+    }
+
+    /** For compute() and merge():  a null _value removes _key */
+    private Object store( final Object _key, final Object _value ) {
+        if ( _value == null )
+            this.remove( _key );
+        else
+            this.put( _key, _value );
+        return _value;
+    }
+
+    /** Removes everything visible from this scope (the frames of the parent scopes are Not modified; their definitions are merely hidden) */
+    @Override
+    public void clear() {
+        final Frame f = this.top;
+        if ( f.parent == null ) {
+            f.map.clear();
+        } else {
+            for ( Object key: this.flatten().keySet() )
+                f.map.put( key, Removed.INSTANCE );
+        }
+    }
+
+    @Override public int size()                             { return this.flatten().size(); }
+    @Override public boolean isEmpty()                      { return this.flatten().isEmpty(); }
+    @Override public boolean contains( final Object _v )     { return this.flatten().containsValue( _v ); }
+    @Override public boolean containsValue( final Object _v ){ return this.flatten().containsValue( _v ); }
+    @Override public Enumeration<Object> keys()             { return Collections.enumeration( this.flatten().keySet() ); }
+    @Override public Enumeration<Object> elements()         { return Collections.enumeration( this.flatten().values() ); }
+    @Override public Enumeration<?> propertyNames()         { return this.keys(); }
+    @Override public Set<Object> keySet()                   { return Collections.unmodifiableSet( this.flatten().keySet() ); }
+    @Override public Set<Map.Entry<Object,Object>> entrySet() { return Collections.unmodifiableSet( this.flatten().entrySet() ); }
+    @Override public Collection<Object> values()            { return Collections.unmodifiableCollection( this.flatten().values() ); }
+    @Override public void forEach( final BiConsumer<? super Object, ? super Object> _action ) { this.flatten().forEach( _action ); }
+
+    @Override
+    public Set<String> stringPropertyNames() {
+        final java.util.LinkedHashSet<String> names = new java.util.LinkedHashSet<>();
+        for ( Map.Entry<Object,Object> e: this.flatten().entrySet() )
+            if ( e.getKey() instanceof String && e.getValue() instanceof String )
+                names.add( (String) e.getKey() );
+        return Collections.unmodifiableSet( names );
+    }
+
+    /** @return a NotNull independent copy (with just one frame) of the flattened view */
+    @Override
+    public Object clone() {
+        final BatchSymbolTable copy = new BatchSymbolTable();
+        copy.base.map.putAll( this.flatten() );
+        return copy;
+    }
+
+    @Override public boolean equals( final Object _o ) { return ( _o == this ) || ( ( _o instanceof Map ) && this.flatten().equals( _o ) ); }
+    @Override public int hashCode()                    { return this.flatten().hashCode(); }
+    @Override public String toString()                 { return this.flatten().toString(); }
+
+}
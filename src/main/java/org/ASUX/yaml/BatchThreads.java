@@ -0,0 +1,112 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *  <p>Thread-pools for the concurrent parts of a batch-file ('foreach --parallel' and independent lines - see {@link BatchFileSchedule}).</p>
+ *  <p>CPU-bound work runs on a fixed pool of platform threads (one per CPU, unless 'foreach --parallel=N').
+ *     With '--virtualThreads', I/O-bound work (see {@link BatchFileProgram.Instruction#isIOBound()}) runs on virtual threads instead - one per iteration/segment, unless 'foreach --parallel=N' - so that, for example,
+ *     hundreds of 'aws.sdk' look-ups inside a loop can all wait on the network at the same time, without hundreds of OS threads.</p>
+ *  <p>Virtual threads are part of Java 21 and later, while this project compiles for Java 8.  So, they are looked up via reflection.  On older JVMs, platform threads are used (as if '--virtualThreads' was Not specified).</p>
+ *  <p>Either way, the caller owns the pool: it joins ALL the tasks it submitted, in index order, and calls shutdownNow() in a finally block - so NO task outlives the loop (or window of segments) that started it.</p>
+ */
+public final class BatchThreads {
+
+    public static final String CLASSNAME = BatchThreads.class.getName();
+
+    /** Null if this JVM has No virtual threads */
+    private static final ThreadFactory VIRTUAL_FACTORY = lookupVirtualThreadFactory();
+
+    private BatchThreads() {}
+
+    //=================================================================================
+    /**
+     *  @return Thread.ofVirtual().factory() - or null, if this JVM is older than Java 21
+     */
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            final Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+            return (ThreadFactory) builderClass.getMethod( "factory" ).invoke( builder );
+        } catch ( Exception e ) { // NoSuchMethodException (older JVM), or UnsupportedOperationException (as invoked via reflection)
+            return null;
+        }
+    }
+
+    /**
+     *  @return true if this JVM supports virtual threads (Java 21 and later)
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     *  @param _threads the # of tasks that can run at the same time.  If &lt;= 0 and _bVirtual, then there is No limit.  If &lt;= 0 otherwise, then # of CPUs.
+     *  @param _bVirtual whether the tasks are I/O-bound AND the user specified '--virtualThreads'
+     *  @return NotNull new pool.  The caller must shutdown() it.
+     */
+    public static ExecutorService newPool( final int _threads, final boolean _bVirtual ) {
+        if ( _bVirtual && VIRTUAL_FACTORY != null )
+            return ( _threads > 0 ) ? Executors.newFixedThreadPool( _threads, VIRTUAL_FACTORY ) : Executors.newCachedThreadPool( VIRTUAL_FACTORY );
+        return Executors.newFixedThreadPool( ( _threads > 0 ) ? _threads : Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     *  @param _tasks the # of tasks that will be submitted to the pool
+     *  @param _parallelism the # the user asked for (example: 'foreach --parallel=N').  If &lt;= 0, then none.
+     *  @param _bVirtual whether the tasks are I/O-bound AND the user specified '--virtualThreads'
+     *  @return the _threads to pass to {@link #newPool(int, boolean)}
+     */
+    public static int poolSize( final int _tasks, final int _parallelism, final boolean _bVirtual ) {
+        if ( _bVirtual && VIRTUAL_FACTORY != null )
+            return ( _parallelism > 0 ) ? Math.min( _tasks, _parallelism ) : 0; // 0 => one virtual thread per task
+        return Math.min( _tasks, ( _parallelism > 0 ) ? _parallelism : Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     *  @param _threads as returned by {@link #poolSize(int, int, boolean)}
+     *  @param _bVirtual same as passed to {@link #poolSize(int, int, boolean)}
+     *  @return for use in verbose/stats output. Example: "4 threads", "a virtual thread each"
+     */
+    public static String describe( final int _threads, final boolean _bVirtual ) {
+        final boolean bVirtual = _bVirtual && VIRTUAL_FACTORY != null;
+        if ( bVirtual && _threads <= 0 )
+            return "a virtual thread each";
+        return _threads +( bVirtual ? " virtual" : "" ) +" threads";
+    }
+
+}
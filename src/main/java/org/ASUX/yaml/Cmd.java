@@ -32,6 +32,11 @@
 
 package org.ASUX.yaml;
 
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 
 import static org.junit.Assert.assertNotNull;
@@ -87,37 +92,7 @@ public class Cmd {
         final String HDR = CLASSNAME +": go(): ";
 
         try {
-            if ( _cmdLineArgs.verbose )  System.out.println( HDR +"arguments ="+ _cmdLineArgs );
-
-            String implMainEntryClassNameStr = null;
-            if ( YAML_Libraries.isCollectionsImpl( _cmdLineArgs.YAMLLibrary ) ) {
-                implMainEntryClassNameStr = "org.ASUX.yaml.CollectionsImpl.Cmd";
-
-            } else if ( YAML_Libraries.isNodeImpl( _cmdLineArgs.YAMLLibrary ) ) {
-                implMainEntryClassNameStr = "org.ASUX.YAML.NodeImpl.Cmd";
-            }
-            assertNotNull( implMainEntryClassNameStr ); // :-) I'm relying on YAML_library ENUM-class to make sure this ass-ert does NOT throw
-
-            //--------------------------------
-            // returns: protected Class<?> -- throws ClassNotFoundException
-            final Class<?> implMainEntryClass = Cmd.class.getClassLoader().loadClass(implMainEntryClassNameStr);
-            // findClass() method of ClassLoader is NOT VISIBLE - its a protected method.
-            // The findClass() method searches for the class in the current class loader, if the class wasn't found by the parent class loader.
-            // i.e., findClass() will be invoked by loadClass(), after checking the parent class loader for the requested class.
-            if ( _cmdLineArgs.verbose )  System.out.println( HDR +"implMainEntryClassNameStr=["+implMainEntryClassNameStr+"] successfully loaded using ClassLoader.");
-
-            //--------------------------------
-            // First check to see if a static method called Run(/* no parameters */) is defined.
-            // If not, then try run( date, String, CrontabEntry, Timer )...
-            final Class<?>[] paramClassList = { CmdLineArgsCommon.class };
-            final Object[] methodArgs = { _cmdLineArgs };
-            org.ASUX.common.GenericProgramming.invokeStaticMethod( implMainEntryClass, "go", paramClassList, methodArgs );
-            if ( _cmdLineArgs.verbose ) System.out.println( HDR +"returned from successfully invoking "+implMainEntryClassNameStr+".main().");
-
-            // !!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!
-            // It's the assumption that the main() method of the 'implMainEntryClass' .. will internally invoke <implMainEntryClass>.startYAMLImplementation()
-            // Basically, bottomline: This method does NOT have to invoke <implMainEntryClass>.startYAMLImplementation().
-
+            run( _cmdLineArgs );
         } catch (ClassNotFoundException e2) {
             e2.printStackTrace(System.err);
             System.err.println( "\n\nInternal Error!\t"+ HDR +" error(ClassNotFoundException): '" + _cmdLineArgs + "'.");
@@ -130,6 +105,49 @@ public class Cmd {
 
     } // go()
 
+    /**
+     * Same as {@link #go(CmdLineArgsCommon)}, except that failures are thrown (rather than exiting the JVM).  Used by {@link CmdFanOut}, to report failures per input-file.
+     * @param _cmdLineArgs The object created by YAMLCmdANTLR4Parser class, after it has parsed user's commandline arguments.
+     * @throws ClassNotFoundException if the YAML-library's implementation is Not in the classpath
+     * @throws Exception whatever is thrown by the YAML-library's implementation
+     */
+    public static void run( CmdLineArgsCommon _cmdLineArgs ) throws ClassNotFoundException, Exception
+    {
+        final String HDR = CLASSNAME +": run(): ";
+
+        if ( _cmdLineArgs.verbose )  System.out.println( HDR +"arguments ="+ _cmdLineArgs );
+
+        String implMainEntryClassNameStr = null;
+        if ( YAML_Libraries.isCollectionsImpl( _cmdLineArgs.YAMLLibrary ) ) {
+            implMainEntryClassNameStr = "org.ASUX.yaml.CollectionsImpl.Cmd";
+
+        } else if ( YAML_Libraries.isNodeImpl( _cmdLineArgs.YAMLLibrary ) ) {
+            implMainEntryClassNameStr = "org.ASUX.YAML.NodeImpl.Cmd";
+        }
+        assertNotNull( implMainEntryClassNameStr ); // :-) I'm relying on YAML_library ENUM-class to make sure this ass-ert does NOT throw
+
+        //--------------------------------
+        // returns: protected Class<?> -- throws ClassNotFoundException
+        final Class<?> implMainEntryClass = Cmd.class.getClassLoader().loadClass(implMainEntryClassNameStr);
+        // findClass() method of ClassLoader is NOT VISIBLE - its a protected method.
+        // The findClass() method searches for the class in the current class loader, if the class wasn't found by the parent class loader.
+        // i.e., findClass() will be invoked by loadClass(), after checking the parent class loader for the requested class.
+        if ( _cmdLineArgs.verbose )  System.out.println( HDR +"implMainEntryClassNameStr=["+implMainEntryClassNameStr+"] successfully loaded using ClassLoader.");
+
+        //--------------------------------
+        // First check to see if a static method called Run(/* no parameters */) is defined.
+        // If not, then try run( date, String, CrontabEntry, Timer )...
+        final Class<?>[] paramClassList = { CmdLineArgsCommon.class };
+        final Object[] methodArgs = { _cmdLineArgs };
+        org.ASUX.common.GenericProgramming.invokeStaticMethod( implMainEntryClass, "go", paramClassList, methodArgs );
+        if ( _cmdLineArgs.verbose ) System.out.println( HDR +"returned from successfully invoking "+implMainEntryClassNameStr+".main().");
+
+        // !!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!
+        // It's the assumption that the main() method of the 'implMainEntryClass' .. will internally invoke <implMainEntryClass>.startYAMLImplementation()
+        // Basically, bottomline: This method does NOT have to invoke <implMainEntryClass>.startYAMLImplementation().
+
+    } // run()
+
     //=================================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=================================================================================
@@ -140,32 +158,87 @@ public class Cmd {
      */
     public static void main( String[] args )
     {
-        final String HDR = CLASSNAME +": main(): ";
+        final int status = run( args, System.in, System.out, System.err, null );
+        if ( status != 0 )
+            System.exit( status );
+    } // main()
+
+    /**
+     * <p>Same as {@link #main(String[])}, except that it does NOT exit the JVM.  Used by {@link CmdDaemon}, which runs many of these at the same time.</p>
+     * <p>If '-i' is '-' (or '-o' is '-'), the data is read from _stdin (or written to _stdout), via a temporary file.  The 'print' statements of batch-files write to _stdout.</p>
+     * @param _args user's commandline arguments
+     * @param _stdin NotNull (example: System.in)
+     * @param _stdout NotNull (example: System.out)
+     * @param _stderr NotNull (example: System.err)
+     * @param _workingDir Nullable.  If NotNull, relative paths are relative to this directory, instead of this JVM's working directory.  See {@link CmdLineArgsCommon#resolvePath(String)}
+     * @return the exit-status: 0 if all OK, 1 if any of the input-files failed (see {@link CmdFanOut}), and 6 on any other failure
+     */
+    public static int run( final String[] _args, final InputStream _stdin, final PrintStream _stdout, final PrintStream _stderr, final String _workingDir )
+    {
+        final String HDR = CLASSNAME +": run(): ";
         CmdLineArgsBasic cmdLineArgsBasic = null;
 
         try {
             cmdLineArgsBasic = new CmdLineArgsBasic();
             cmdLineArgsBasic.define();
-            cmdLineArgsBasic.parse( args );
+            cmdLineArgsBasic.parse( _args );
 
-// System.err.println("cmdLineArgsBasic.verbose="+cmdLineArgsBasic.verbose);
-
-            if ( cmdLineArgsBasic.verbose )  System.out.println(HDR + "arguments ="+ cmdLineArgsBasic );
+            if ( cmdLineArgsBasic.verbose )  _stdout.println(HDR + "arguments ="+ cmdLineArgsBasic );
 
             final ArrayList<org.ASUX.language.antlr4.CmdLineArgs> cmds =
-                    new YAMLCmdANTLR4Parser( cmdLineArgsBasic.verbose ).parseYamlCommandLine( String.join(" ", args));
+                    new YAMLCmdANTLR4Parser( cmdLineArgsBasic.verbose ).parseYamlCommandLine( String.join(" ", CmdLineArgsBasic.removeLocalOptions( _args ) ) );
 
+            int failedFiles = 0;
             for ( org.ASUX.language.antlr4.CmdLineArgs cmd: cmds ) {
                 final CmdLineArgsCommon subClassObj = (CmdLineArgsCommon) cmd;
-                go( subClassObj );
+                cmdLineArgsBasic.copyLocalOptions( subClassObj );
+                subClassObj.workingDir = _workingDir;
+                subClassObj.stdout = _stdout;
+                subClassObj.stderr = _stderr;
+                subClassObj.inputFilePath = subClassObj.resolvePath( subClassObj.inputFilePath );
+                subClassObj.outputFilePath = subClassObj.resolvePath( subClassObj.outputFilePath );
+                if ( CmdFanOut.isFanOut( subClassObj ) )
+                    failedFiles += new CmdFanOut( subClassObj ).go(); // '-i' is a glob-pattern, directory or @file-list
+                else
+                    run( subClassObj, _stdin, _stdout );
             }
+            return ( failedFiles > 0 ) ? 1 : 0;
 
         } catch (Throwable t) {
-            t.printStackTrace(System.err);
-            System.err.println( "\n\nInternal Error!\t"+ HDR +" for '" + cmdLineArgsBasic + "'.");
-            System.exit(6);
+            t.printStackTrace( _stderr );
+            _stderr.println( "\n\nInternal Error!\t"+ HDR +" for '" + cmdLineArgsBasic + "'.");
+            return 6;
         }
 
-    } // main()
+    } // run()
+
+    /**
+     * Same as {@link #run(CmdLineArgsCommon)}, except that '-i -' reads from _stdin and '-o -' writes to _stdout (rather than System.in and System.out).
+     * The YAML-libraries read/write files (or System.in/System.out).  So, unless _stdin and _stdout are the JVM's own, a temporary file is used in between.
+     */
+    private static void run( final CmdLineArgsCommon _cmdLineArgs, final InputStream _stdin, final PrintStream _stdout ) throws ClassNotFoundException, Exception
+    {
+        Path tmpIn = null;
+        Path tmpOut = null;
+        try {
+            if ( "-".equals( _cmdLineArgs.inputFilePath ) && _stdin != System.in ) {
+                tmpIn = Files.createTempFile( "org.ASUX.yaml.stdin.", ".yaml" );
+                Files.copy( _stdin, tmpIn, StandardCopyOption.REPLACE_EXISTING );
+                _cmdLineArgs.inputFilePath = tmpIn.toString();
+            }
+            if ( "-".equals( _cmdLineArgs.outputFilePath ) && _stdout != System.out ) {
+                tmpOut = Files.createTempFile( "org.ASUX.yaml.stdout.", ".yaml" );
+                _cmdLineArgs.outputFilePath = tmpOut.toString();
+            }
+            run( _cmdLineArgs );
+            if ( tmpOut != null ) {
+                Files.copy( tmpOut, _stdout );
+                _stdout.flush();
+            }
+        } finally {
+            if ( tmpIn != null ) Files.deleteIfExists( tmpIn );
+            if ( tmpOut != null ) Files.deleteIfExists( tmpOut );
+        }
+    }
 
 }
@@ -0,0 +1,159 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>The thin client for {@link CmdDaemon}: takes the exact same command-line as {@link Cmd}, and has the daemon run it.  Its stdin, stdout, stderr and exit-status are those of the command.</p>
+ *  <p>This class deliberately uses nothing but the JDK (and constants from {@link CmdDaemon}), so that it starts as fast as a JVM can.</p>
+ *  <p>If No daemon is running (No state-file, or nothing listening on that port), the command is run within this JVM (by {@link Cmd#main(String[])}).</p>
+ *
+ * @see org.ASUX.yaml.CmdDaemon
+ */
+public final class CmdClient {
+
+    public static final String CLASSNAME = CmdClient.class.getName();
+
+    /**
+     *  @param _args the command-line (exactly as for {@link Cmd#main(String[])})
+     *  @return the exit-status of the command.  -1 if No daemon is running
+     *  @throws IOException if the connection to the daemon failed midway
+     */
+    public static int run( final String[] _args ) throws IOException
+    {
+        final Path stateFile = CmdDaemon.getStateFile();
+        final String[] state;
+        try {
+            state = new String( Files.readAllBytes( stateFile ), StandardCharsets.UTF_8 ).trim().split( "\\s+" );
+        } catch ( NoSuchFileException e ) {
+            return -1;
+        }
+        if ( state.length != 2 )
+            throw new IOException( CLASSNAME +": corrupt state-file "+ stateFile );
+
+        final Socket socket;
+        try {
+            socket = new Socket( InetAddress.getLoopbackAddress(), Integer.parseInt( state[0] ) );
+        } catch ( ConnectException e ) {
+            return -1; // stale state-file.  The daemon is gone.
+        }
+        try {
+            final DataInputStream in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+            final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+            out.writeUTF( CmdDaemon.MAGIC );
+            out.writeUTF( state[1] );
+            out.writeUTF( System.getProperty( "user.dir" ) );
+            out.writeInt( _args.length );
+            for ( String arg: _args )
+                out.writeUTF( arg );
+            out.flush();
+
+            final Thread feeder = new Thread( () -> {
+                try {
+                    final byte[] buf = new byte[ 64 * 1024 ];
+                    for ( int n = System.in.read( buf ); n >= 0; n = System.in.read( buf ) ) {
+                        if ( n == 0 ) continue;
+                        out.writeInt( n );
+                        out.write( buf, 0, n );
+                        out.flush();
+                    }
+                    out.writeInt( 0 );
+                    out.flush();
+                } catch ( IOException e ) {
+                    // the command has completed (without reading all of stdin)
+                }
+            }, CLASSNAME +"-stdin" );
+            feeder.setDaemon( true );
+            feeder.start();
+
+            final byte[] buf = new byte[ 64 * 1024 ];
+            while ( true ) {
+                final byte channel = in.readByte();
+                if ( channel == CmdDaemon.EXIT ) {
+                    System.out.flush();
+                    System.err.flush();
+                    return in.readInt();
+                }
+                final PrintStream ps = ( channel == CmdDaemon.STDERR ) ? System.err : System.out;
+                for ( int len = in.readInt(); len > 0; ) {
+                    final int n = in.read( buf, 0, Math.min( len, buf.length ) );
+                    if ( n < 0 ) throw new java.io.EOFException( CLASSNAME +": the daemon closed the connection midway" );
+                    ps.write( buf, 0, n );
+                    len -= n;
+                }
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param args the command-line (exactly as for {@link Cmd#main(String[])})
+     */
+    public static void main( String[] args )
+    {
+        final String HDR = CLASSNAME +": main(): ";
+        int status;
+        try {
+            status = run( args );
+        } catch ( Throwable t ) {
+            t.printStackTrace( System.err );
+            System.err.println( "\n\nInternal Error!\t"+ HDR +" while talking to the daemon (see "+ CmdDaemon.getStateFile() +")" );
+            status = 6;
+        }
+        if ( status < 0 ) { // No daemon.  So, do it ourselves.
+            Cmd.main( args );
+            status = 0;
+        }
+        System.exit( status );
+    }
+
+}
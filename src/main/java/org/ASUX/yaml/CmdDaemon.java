@@ -0,0 +1,377 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>A long-lived server, that runs {@link Cmd#run(String[], InputStream, PrintStream, PrintStream, String)} on behalf of {@link CmdClient}.  So, the JVM-startup, the class-loading (ANTLR4, SnakeYAML, Jackson, ..) and the warm-up are paid just once -
+ *      and, the caches (parsed command-lines, compiled batch-files, macro-templates, ..) are re-used across invocations.</p>
+ *  <p>Example: <code>java org.ASUX.yaml.CmdDaemon --threads 8 &amp;</code> and then, instead of <code>java org.ASUX.yaml.Cmd ...</code>, use <code>java org.ASUX.yaml.CmdClient ...</code> (same command-line).</p>
+ *  <p>It listens on a localhost port (Java 8 has No Unix-domain sockets).  The port# and a random secret are written into a file (default: ~/.asux/yaml-daemon) that ONLY the current user can read.
+ *      A client must send that secret, else the connection is dropped.</p>
+ *  <p>The protocol (java.io.DataOutputStream format): the client sends {@link #MAGIC}, the secret, its current working directory, the # of arguments and each argument.
+ *      Followed by its stdin, as chunks (length, bytes), ending with a chunk of length 0.
+ *      The server sends back the stdout ({@link #STDOUT}) and stderr ({@link #STDERR}) as chunks (channel, length, bytes), and finally {@link #EXIT} followed by the exit-status.</p>
+ *  <p>Each request is given its own stdin, stdout and stderr (and the client's working directory) - System.in, System.out and System.err are NOT touched.
+ *      '-i -' and '-o -' and the 'print' statements of batch-files use the request's streams.  But, whatever the YAML-libraries print directly onto System.out (like --verbose output) shows up on this daemon's console.</p>
+ *  <p>Whatever code still invokes System.exit() - like the YAML-libraries' own Cmd.go() - does NOT kill this daemon.  See {@link ExitGuard}.  That request fails with the status passed to System.exit().</p>
+ *  <p>The working directory of this JVM can NOT change.  So, relative paths - whether arguments ('-i', '-o' and '@file') or INSIDE batch-files ('useAsInput @file', 'saveTo @file', 'batch @file', and the '-i' / '-o' of commands) - are made relative to the client's working directory.
+ *      See {@link CmdLineArgsCommon#workingDir}.</p>
+ *
+ * @see org.ASUX.yaml.CmdClient
+ */
+public final class CmdDaemon {
+
+    public static final String CLASSNAME = CmdDaemon.class.getName();
+
+    static final String MAGIC = "ASUX.yaml.CmdDaemon/1";
+    static final byte EXIT = 0;
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+
+    /** Where the port# and secret are saved.  Override using the system-property of the same name as this constant's value */
+    public static final String STATEFILE_PROPERTY = "org.ASUX.yaml.daemon";
+    public static final String DEFAULT_STATEFILE = System.getProperty( "user.home" ) +"/.asux/yaml-daemon";
+
+    private final boolean verbose;
+    private final int port;
+    private final int threads;
+    private final Path stateFile;
+    private String secret;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _port localhost port# to listen on.  0 means any free port
+     *  @param _threads max. # of requests processed at the same time
+     *  @param _stateFile NotNull file into which the port# and secret are written
+     */
+    public CmdDaemon( final boolean _verbose, final int _port, final int _threads, final Path _stateFile ) {
+        this.verbose = _verbose;
+        this.port = _port;
+        this.threads = _threads;
+        this.stateFile = _stateFile;
+    }
+
+    /** @return the state-file as per {@link #STATEFILE_PROPERTY} (or {@link #DEFAULT_STATEFILE}) */
+    static Path getStateFile() {
+        return Paths.get( System.getProperty( STATEFILE_PROPERTY, DEFAULT_STATEFILE ) );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** Sends whatever is written into it to the client, as chunks of one channel ({@link #STDOUT} or {@link #STDERR}) */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte channel;
+        ChannelOutputStream( final DataOutputStream _out, final byte _channel ) {
+            this.out = _out;
+            this.channel = _channel;
+        }
+        @Override public void write( final int _b ) throws IOException {
+            this.write( new byte[] { (byte) _b }, 0, 1 );
+        }
+        @Override public void write( final byte[] _b, final int _off, final int _len ) throws IOException {
+            if ( _len <= 0 ) return;
+            synchronized( this.out ) {
+                this.out.writeByte( this.channel );
+                this.out.writeInt( _len );
+                this.out.write( _b, _off, _len );
+            }
+        }
+        @Override public void flush() throws IOException {
+            synchronized( this.out ) { this.out.flush(); }
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  <p>While the daemon is serving, a System.exit() (by any thread) throws a SecurityException, instead of exiting the JVM.  Nothing else is checked.</p>
+     *  <p>If the System.exit() is invoked by a request's own thread, the status is remembered - and is sent to the client as the exit-status.</p>
+     */
+    @SuppressWarnings("removal") // java.lang.SecurityManager is deprecated since Java 17.  Nothing else can stop a System.exit()
+    private static final class ExitGuard extends SecurityManager {
+        /** per request-thread: [0] = the status passed to System.exit(), or Integer.MIN_VALUE if it was Not invoked */
+        static final ThreadLocal<int[]> STATUS = new ThreadLocal<>();
+        @Override public void checkExit( final int _status ) {
+            final int[] holder = STATUS.get();
+            if ( holder != null ) holder[0] = _status;
+            throw new SecurityException( CLASSNAME +": System.exit("+ _status +") is Not allowed, while the daemon is serving requests" );
+        }
+        @Override public void checkPermission( final java.security.Permission _perm ) { /* everything else is allowed */ }
+        @Override public void checkPermission( final java.security.Permission _perm, final Object _context ) { /* everything else is allowed */ }
+
+        /**
+         *  @return Nullable.  The exception, if it could Not be installed (Java 18+ needs -Djava.security.manager=allow)
+         */
+        static RuntimeException install() {
+            try {
+                System.setSecurityManager( new ExitGuard() );
+                return null;
+            } catch ( SecurityException | UnsupportedOperationException e ) {
+                return e;
+            }
+        }
+
+        /** @param _prior Nullable.  As returned by {@link #current()} before {@link #install()} */
+        static void uninstall( final Object _prior ) {
+            if ( System.getSecurityManager() instanceof ExitGuard )
+                System.setSecurityManager( (SecurityManager) _prior );
+        }
+
+        /** @return Nullable.  The current SecurityManager */
+        static Object current() {
+            return System.getSecurityManager();
+        }
+    }
+
+    /**
+     *  Listens for requests (forever).
+     *  @throws Exception if the port could Not be opened, or the state-file could Not be written
+     */
+    public void serve() throws Exception
+    {
+        final String HDR = CLASSNAME +": serve(): ";
+        warmUp();
+
+        final byte[] random = new byte[ 24 ];
+        new SecureRandom().nextBytes( random );
+        this.secret = java.util.Base64.getEncoder().encodeToString( random );
+
+        final Object priorSecMgr = ExitGuard.current();
+        final RuntimeException notGuarded = ExitGuard.install();
+        if ( notGuarded != null ) // Java 18+ needs -Djava.security.manager=allow
+            System.err.println( HDR +"WARNING: a command that invokes System.exit() will kill this daemon, as the SecurityManager could Not be set: "+ notGuarded );
+
+        final ExecutorService pool = Executors.newFixedThreadPool( this.threads );
+        try ( ServerSocket server = new ServerSocket( this.port, 256, InetAddress.getLoopbackAddress() ) ) {
+            this.writeStateFile( server.getLocalPort() );
+            Runtime.getRuntime().addShutdownHook( new Thread( () -> {
+                try { Files.deleteIfExists( this.stateFile ); } catch ( IOException e ) { /* nothing more can be done */ }
+            } ) );
+            System.out.println( HDR +"listening on localhost:"+ server.getLocalPort() +" with "+ this.threads +" threads.  See "+ this.stateFile );
+            while ( true ) {
+                final Socket socket = server.accept();
+                pool.execute( () -> this.handle( socket ) );
+            }
+        } finally {
+            pool.shutdownNow();
+            ExitGuard.uninstall( priorSecMgr );
+        }
+    }
+
+    /** Loads the heavy classes now, rather than during the 1st request */
+    private static void warmUp() {
+        for ( String className: new String[] { YAMLCmdANTLR4Parser.class.getName(), "org.ASUX.YAML.NodeImpl.Cmd", "org.ASUX.yaml.CollectionsImpl.Cmd" } ) {
+            try {
+                Class.forName( className, true, CmdDaemon.class.getClassLoader() );
+            } catch ( ClassNotFoundException | LinkageError e ) {
+                // that YAML-library is Not in the classpath
+            }
+        }
+    }
+
+    /** Writes "port# secret" into this.stateFile, readable ONLY by the current user */
+    private void writeStateFile( final int _port ) throws IOException {
+        final Path dir = this.stateFile.toAbsolutePath().getParent();
+        Files.createDirectories( dir );
+        final Path tmp = Files.createTempFile( dir, this.stateFile.getFileName().toString(), ".tmp" ); // created with owner-only permissions
+        Files.write( tmp, ( _port +" "+ this.secret +"\n" ).getBytes( StandardCharsets.UTF_8 ) );
+        Files.move( tmp, this.stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private void handle( final Socket _socket )
+    {
+        final String HDR = CLASSNAME +": handle(): ";
+        try ( Socket socket = _socket ) {
+            final DataInputStream in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+            final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+            if ( ! MAGIC.equals( in.readUTF() ) || ! this.secret.equals( in.readUTF() ) )
+                return; // Not a (legitimate) client
+            final String cwd = in.readUTF();
+            final String[] args = new String[ in.readInt() ];
+            for ( int ix = 0; ix < args.length; ix ++ )
+                args[ ix ] = in.readUTF();
+            final String[] absArgs = absolutePaths( cwd, args );
+            if ( this.verbose ) System.out.println( HDR +"cwd="+ cwd +" args="+ java.util.Arrays.toString( absArgs ) );
+
+            // the client's stdin.  Read by a separate thread, as the command may (or may Not) read it.
+            final PipedInputStream stdin = new PipedInputStream( 64 * 1024 );
+            final PipedOutputStream stdinFeed = new PipedOutputStream( stdin );
+            final Thread feeder = new Thread( () -> {
+                try {
+                    final byte[] buf = new byte[ 64 * 1024 ];
+                    for ( int len = in.readInt(); len > 0; len = in.readInt() ) {
+                        while ( len > 0 ) {
+                            final int n = in.read( buf, 0, Math.min( len, buf.length ) );
+                            if ( n < 0 ) return;
+                            stdinFeed.write( buf, 0, n );
+                            len -= n;
+                        }
+                    }
+                } catch ( IOException e ) {
+                    // client went away, or the request completed without reading all of stdin
+                } finally {
+                    try { stdinFeed.close(); } catch ( IOException e ) { /* ignore */ }
+                }
+            }, CLASSNAME +"-stdin" );
+            feeder.setDaemon( true );
+            feeder.start();
+
+            final PrintStream stdout = new PrintStream( new BufferedOutputStream( new ChannelOutputStream( out, STDOUT ), 64 * 1024 ), false );
+            final PrintStream stderr = new PrintStream( new BufferedOutputStream( new ChannelOutputStream( out, STDERR ), 8 * 1024 ), true );
+            final int[] exitStatus = { Integer.MIN_VALUE };
+            ExitGuard.STATUS.set( exitStatus );
+            int status;
+            try {
+                status = Cmd.run( absArgs, stdin, stdout, stderr, cwd );
+            } finally {
+                ExitGuard.STATUS.remove();
+                stdin.close(); // so that the feeder-thread does Not block forever
+            }
+            if ( exitStatus[0] != Integer.MIN_VALUE )
+                status = exitStatus[0]; // System.exit() was invoked (and blocked by ExitGuard)
+            synchronized( out ) {
+                stdout.flush();
+                stderr.flush();
+                out.writeByte( EXIT );
+                out.writeInt( status );
+                out.flush();
+            }
+            if ( this.verbose ) System.out.println( HDR +"exit-status="+ status +" for args="+ java.util.Arrays.toString( absArgs ) );
+
+        } catch ( IOException e ) {
+            if ( this.verbose ) e.printStackTrace( System.err );
+        }
+    }
+
+    /**
+     *  Converts relative paths (as provided to '-i', '--inputfile', '-o', '--outputfile' and any argument that starts with '@') into absolute paths.
+     *  @param _cwd the client's working directory
+     *  @param _args NotNull
+     *  @return a NotNull copy of _args
+     */
+    static String[] absolutePaths( final String _cwd, final String[] _args ) {
+        final String[] args = _args.clone();
+        for ( int ix = 0; ix < args.length; ix ++ ) {
+            final String prior = ( ix > 0 ) ? _args[ ix - 1 ] : "";
+            final boolean bFileOption = prior.equals( "-i" ) || prior.equals( "--inputfile" ) || prior.equals( "-o" ) || prior.equals( "--outputfile" );
+            if ( bFileOption && ! args[ ix ].equals( "-" ) )
+                args[ ix ] = absolutePath( _cwd, args[ ix ] );
+            else if ( args[ ix ].startsWith( "@" ) && args[ ix ].length() > 1 )
+                args[ ix ] = "@"+ absolutePath( _cwd, args[ ix ].substring( 1 ) );
+        }
+        return args;
+    }
+
+    private static String absolutePath( final String _cwd, final String _path ) {
+        final Path p = Paths.get( _path );
+        return p.isAbsolute() ? _path : Paths.get( _cwd ).resolve( p ).normalize().toString();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Starts the daemon.  Options: [--verbose] [--port #] [--threads #] [--stateFile path]
+     * @param args see above
+     */
+    public static void main( String[] args )
+    {
+        final String HDR = CLASSNAME +": main(): ";
+        boolean verbose = false;
+        int port = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path stateFile = getStateFile();
+        try {
+            for ( int ix = 0; ix < args.length; ix ++ ) {
+                switch( args[ ix ] ) {
+                    case "--verbose":   verbose = true; break;
+                    case "--port":      port = Integer.parseInt( args[ ++ix ] ); break;
+                    case "--threads":   threads = Integer.parseInt( args[ ++ix ] ); break;
+                    case "--stateFile": stateFile = Paths.get( args[ ++ix ] ); break;
+                    default: throw new IllegalArgumentException( "Unknown option '"+ args[ ix ] +"'" );
+                }
+            }
+            if ( threads < 1 )
+                throw new IllegalArgumentException( "--threads must be 1 or more" );
+        } catch ( RuntimeException e ) {
+            System.err.println( HDR + e.getMessage() +"\nUsage: java "+ CLASSNAME +" [--verbose] [--port #] [--threads #] [--stateFile path]" );
+            System.exit(2);
+        }
+
+        try {
+            new CmdDaemon( verbose, port, threads, stateFile ).serve();
+        } catch (Throwable t) {
+            t.printStackTrace(System.err);
+            System.err.println( "\n\nInternal Error!\t"+ HDR );
+            System.exit(6);
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import org.ASUX.language.antlr4.GenericCmdANTLR4Parser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>ASUX has multiple COMMAND-FAMILIES: YAML, AWS, CFN, TEXT, .. ..  Each family has its own ANTLR4-Parser and its own subclass of {@link CmdInvoker} - that live in OTHER ASUX projects (and so, are loaded via reflection).</p>
+ *  <p>This class resolves those classes and their constructors ONCE per JVM (as {@link MethodHandle}s), so that every line in a batch-file does NOT have to repeat ClassLoader.loadClass() + getConstructor().</p>
+ *  <p>Parser instances are re-used (one per thread, per verbose-level), as they're Not thread-safe, but are safe to re-use for multiple lines.</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class CmdFamilyRegistry {
+
+    public static final String CLASSNAME = CmdFamilyRegistry.class.getName();
+
+    private static final ConcurrentHashMap<String, CmdFamily> FAMILIES = new ConcurrentHashMap<>();
+
+    static {
+        register( "yaml",       "org.ASUX.yaml.CmdLineArgsCommon",      "org.ASUX.yaml.YAMLCmdANTLR4Parser",    "org.ASUX.YAML.NodeImpl.CmdInvoker" );
+        register( "aws.sdk",    "org.ASUX.AWSSDK.CmdLineArgsAWS",       "org.ASUX.yaml.AWSSDKCmdANTLR4Parser",  "org.ASUX.AWSSDK.CmdInvoker" );
+        register( "aws.cfn",    "org.ASUX.AWS.CFN.CmdLineArgs",         "org.ASUX.yaml.AWSCFNCmdANTLR4Parser",  "org.ASUX.AWS.CFN.CmdInvoker" );
+    }
+
+    private CmdFamilyRegistry() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  <p>One command-family (example: all the lines in a batch-file that start with 'aws.sdk').</p>
+     *  <p>The classes are resolved lazily, on first use - as most batch-files use just one or two families, and the others may Not even be on the classpath.</p>
+     */
+    public static final class CmdFamily {
+        public final String name;
+        public final String cmdArgsClassName;
+        public final String antlr4ParserClassName;
+        public final String implClassName;
+
+        private volatile MethodHandle parserConstructor = null;     // (boolean) --> GenericCmdANTLR4Parser
+        private volatile MethodHandle invokerConstructor = null;    // (CmdLineArgsCommon, MemoryAndContext) --> CmdInvoker
+
+        /** per thread: [0] is the non-verbose parser, [1] is the verbose parser */
+        private final ThreadLocal<GenericCmdANTLR4Parser[]> parsers = new ThreadLocal<GenericCmdANTLR4Parser[]>() {
+            @Override protected GenericCmdANTLR4Parser[] initialValue() { return new GenericCmdANTLR4Parser[2]; }
+        };
+
+        private CmdFamily( final String _name, final String _cmdArgsClassName, final String _antlr4ParserClassName, final String _implClassName ) {
+            this.name = _name;
+            this.cmdArgsClassName = _cmdArgsClassName;
+            this.antlr4ParserClassName = _antlr4ParserClassName;
+            this.implClassName = _implClassName;
+        }
+
+        /**
+         *  Do the equivalent of:- new org.ASUX.yaml.YAMLCmdANTLR4Parser( _verbose ) .. but only ONCE per thread.
+         *  @param _verbose Whether you want deluge of debug-output onto System.out.
+         *  @return NotNull parser, which must be used ONLY by the current thread
+         *  @throws Exception if the class can Not be loaded, or its constructor fails
+         */
+        public GenericCmdANTLR4Parser getParser( final boolean _verbose ) throws Exception {
+            final GenericCmdANTLR4Parser[] perThread = this.parsers.get();
+            final int ix = _verbose ? 1 : 0;
+            if ( perThread[ix] == null ) {
+                MethodHandle mh = this.parserConstructor;
+                if ( mh == null )
+                    this.parserConstructor = mh = findConstructor( this.antlr4ParserClassName, MethodType.methodType( Object.class, boolean.class ), boolean.class );
+                try {
+                    perThread[ix] = (GenericCmdANTLR4Parser) (Object) mh.invokeExact( _verbose );
+                } catch ( Throwable t ) {
+                    throw asException( t );
+                }
+            }
+            return perThread[ix];
+        }
+
+        /**
+         *  Do the equivalent of:- new org.ASUX.YAML.NodeImpl.CmdInvoker( _cmdLineArgs, _memoryAndContext );
+         *  @param _cmdLineArgs NotNull
+         *  @param _memoryAndContext Nullable
+         *  @return a NotNull new instance of the family's subclass of {@link CmdInvoker}
+         *  @throws Exception if the class can Not be loaded, or its constructor fails
+         */
+        public CmdInvoker<?> newCmdInvoker( final CmdLineArgsCommon _cmdLineArgs, final MemoryAndContext _memoryAndContext ) throws Exception {
+            MethodHandle mh = this.invokerConstructor;
+            if ( mh == null )
+                this.invokerConstructor = mh = findConstructor( this.implClassName, MethodType.methodType( Object.class, CmdLineArgsCommon.class, MemoryAndContext.class ),
+                                                                CmdLineArgsCommon.class, MemoryAndContext.class );
+            try {
+                return (CmdInvoker<?>) (Object) mh.invokeExact( _cmdLineArgs, _memoryAndContext );
+            } catch ( Throwable t ) {
+                throw asException( t );
+            }
+        }
+
+        public String toString() {
+            return this.name +" --> "+ this.antlr4ParserClassName +" & "+ this.implClassName;
+        }
+    } // class CmdFamily
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  Register a new (or replace an existing) command-family
+     *  @param _name the 1st word of the batch-file line (example: 'yaml' 'aws.sdk')
+     *  @param _cmdArgsClassName full class-name of the subclass of {@link CmdLineArgsCommon}
+     *  @param _antlr4ParserClassName full class-name of the implementation of {@link GenericCmdANTLR4Parser} (must have a public constructor taking a single boolean)
+     *  @param _implClassName full class-name of the subclass of {@link CmdInvoker} (must have a public constructor taking CmdLineArgsCommon and MemoryAndContext)
+     */
+    public static void register( final String _name, final String _cmdArgsClassName, final String _antlr4ParserClassName, final String _implClassName ) {
+        FAMILIES.put( _name, new CmdFamily( _name, _cmdArgsClassName, _antlr4ParserClassName, _implClassName ) );
+    }
+
+    /**
+     *  @param _name the 1st word of the batch-file line (example: 'yaml' 'aws.sdk')
+     *  @return null if _name is NOT a known command-family
+     */
+    public static CmdFamily lookup( final String _name ) {
+        return ( _name == null ) ? null : FAMILIES.get( _name );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _className full class-name, to be loaded via ClassLoader
+     *  @param _exactType the type that the returned MethodHandle will be invoked with, via invokeExact()
+     *  @param _paramTypes the parameter-types of the public constructor
+     *  @return a MethodHandle for that constructor, adapted to _exactType
+     *  @throws Exception ClassNotFoundException, NoSuchMethodException, IllegalAccessException
+     */
+    private static MethodHandle findConstructor( final String _className, final MethodType _exactType, final Class<?>... _paramTypes ) throws Exception {
+        final Class<?> cls = Cmd.class.getClassLoader().loadClass( _className ); // returns: protected Class<?> -- throws ClassNotFoundException
+        final MethodHandle mh = MethodHandles.publicLookup().findConstructor( cls, MethodType.methodType( void.class, _paramTypes ) );
+        return mh.asType( _exactType );
+    }
+
+    /** MethodHandle.invokeExact() throws Throwable.  Convert that to what the rest of this project expects. */
+    private static Exception asException( final Throwable _t ) {
+        if ( _t instanceof Error )
+            throw (Error) _t;
+        return ( _t instanceof Exception ) ? (Exception) _t : new Exception( _t );
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>Runs ONE command (incl. a batch-file) on MANY input-files, on a pool of threads (see '--jobs' command-line option).  That is the case, when '-i' is one of:</p>
+ *  <ul>
+ *  <li>a glob-pattern (in quotes, so that the shell does Not expand it).  Example: <code>-i 'templates/**&#47;*.yaml'</code></li>
+ *  <li>a directory: every *.yaml, *.yml and *.json file within it (incl. sub-directories)</li>
+ *  <li>a file-list, prefixed with '@': a file with one path per line (blank lines and lines starting with '#' are ignored).  Example: <code>-i @files.txt</code></li>
+ *  </ul>
+ *  <p>Unless a file of exactly that name exists (example: 'data[1].yaml'), in which case '-i' is just that one file - as before.</p>
+ *  <p>'-o' must then be a directory.  Each output-file is written into it, at the same relative path as the input-file (relative to the directory of the glob-pattern, the directory itself, or the common parent directory of the file-list).</p>
+ *  <p>A failure is reported for that input-file, and the other input-files are still processed.  Batch-files are compiled just once (see {@link BatchFileProgram#getOrCompile}).</p>
+ *
+ * @see org.ASUX.yaml.Cmd
+ */
+public final class CmdFanOut {
+
+    public static final String CLASSNAME = CmdFanOut.class.getName();
+
+    private static final String GLOB_CHARS = "*?[{";
+
+    private final CmdLineArgsCommon cmdLineArgs;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _cmdLineArgs NotNull, for which {@link #isFanOut(CmdLineArgsCommon)} is true
+     */
+    public CmdFanOut( final CmdLineArgsCommon _cmdLineArgs ) {
+        this.cmdLineArgs = _cmdLineArgs;
+    }
+
+    /**
+     *  @param _cmdLineArgs NotNull
+     *  @return true if '-i' is a glob-pattern, a directory or a @file-list.  But, false if a file of exactly that name exists (example: a file named 'data[1].yaml' or '@x.yaml'), as it was always read as-is.
+     */
+    public static boolean isFanOut( final CmdLineArgsCommon _cmdLineArgs ) {
+        final String input = _cmdLineArgs.inputFilePath;
+        if ( input == null || input.equals( "-" ) || input.length() <= 1 )
+            return false;
+        if ( isExistingFile( input ) )
+            return false;
+        return input.startsWith( "@" ) || isGlob( input ) || Files.isDirectory( Paths.get( input ) );
+    }
+
+    private static boolean isExistingFile( final String _s ) {
+        try {
+            return Files.isRegularFile( Paths.get( _s ) );
+        } catch ( java.nio.file.InvalidPathException e ) {
+            return false; // example: '*' on Windows
+        }
+    }
+
+    private static boolean isGlob( final String _s ) {
+        for ( int ix = 0; ix < _s.length(); ix ++ )
+            if ( GLOB_CHARS.indexOf( _s.charAt( ix ) ) >= 0 )
+                return true;
+        return false;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  Runs the command on each input-file.  Failures are reported (onto {@link CmdLineArgsCommon#getStderr()}) per input-file.
+     *  @return # of input-files that failed
+     *  @throws InvalidCmdLineArgumentException if '-o' is Not a directory, or if No input-files were found
+     *  @throws Exception if the input-files could Not be listed
+     */
+    public int go() throws InvalidCmdLineArgumentException, Exception
+    {
+        final String HDR = CLASSNAME +": go(): ";
+        final long start = System.nanoTime();
+
+        final String output = this.cmdLineArgs.outputFilePath;
+        if ( output == null || output.equals( "-" ) || Files.isRegularFile( Paths.get( output ) ) )
+            throw new InvalidCmdLineArgumentException( "When '-i' has multiple files ("+ this.cmdLineArgs.inputFilePath +"), '-o' must be a directory, and NOT '"+ output +"'" );
+        final Path outDir = Paths.get( output );
+
+        final List<Path> files = new ArrayList<>();
+        final Path baseDir = this.listInputFiles( files );
+        if ( files.isEmpty() )
+            throw new InvalidCmdLineArgumentException( "No input-files found for '-i "+ this.cmdLineArgs.inputFilePath +"'" );
+
+        final int threads = Math.min( files.size(), ( this.cmdLineArgs.jobs > 0 ) ? this.cmdLineArgs.jobs : Runtime.getRuntime().availableProcessors() );
+        if ( this.cmdLineArgs.verbose ) System.out.println( HDR +"processing "+ files.size() +" files (from "+ baseDir +" into "+ outDir +") on "+ threads +" threads" );
+
+        final ArrayList< Future<?> > futures = new ArrayList<>( files.size() );
+        final ExecutorService pool = Executors.newFixedThreadPool( threads );
+        int failures = 0;
+        try {
+            for ( Path file: files ) {
+                final CmdLineArgsCommon perFile = org.ASUX.common.Utils.deepClone( this.cmdLineArgs );
+                final Path outFile = outDir.resolve( baseDir.relativize( file ).toString() );
+                perFile.inputFilePath = file.toString();
+                perFile.outputFilePath = outFile.toString();
+                perFile.stdout = this.cmdLineArgs.stdout; // Not serialized, so Not deep-cloned
+                perFile.stderr = this.cmdLineArgs.stderr;
+                futures.add( pool.submit( () -> {
+                    if ( outFile.getParent() != null ) Files.createDirectories( outFile.getParent() );
+                    Cmd.run( perFile );
+                    return null;
+                } ) );
+            }
+            // in the order of the input-files, so that the report is deterministic
+            for ( int ix = 0; ix < files.size(); ix ++ ) {
+                try {
+                    futures.get( ix ).get();
+                } catch ( ExecutionException ee ) {
+                    failures ++;
+                    final Throwable cause = ( ee.getCause() != null ) ? ee.getCause() : ee;
+                    if ( this.cmdLineArgs.verbose ) cause.printStackTrace( this.cmdLineArgs.getStderr() );
+                    this.cmdLineArgs.getStderr().println( "ERROR: "+ files.get( ix ) +": "+ cause );
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if ( this.cmdLineArgs.showStats || failures > 0 )
+            this.cmdLineArgs.getStderr().println( HDR +"processed "+ files.size() +" files in "+ ( System.nanoTime() - start ) / 1000000 +"ms.  "+ failures +" failed." );
+        return failures;
+    }
+
+    /**
+     *  @param _files NotNull empty list, into which the input-files are added (sorted, for a deterministic order)
+     *  @return the directory, relative to which the output-files are mirrored
+     */
+    private Path listInputFiles( final List<Path> _files ) throws IOException
+    {
+        final String input = this.cmdLineArgs.inputFilePath;
+
+        if ( input.startsWith( "@" ) ) { // a file-list
+            final Path listFile = Paths.get( input.substring( 1 ) );
+            final java.util.LinkedHashSet<Path> unique = new java.util.LinkedHashSet<>(); // else, 2 threads would write the same output-file
+            for ( String line: Files.readAllLines( listFile, StandardCharsets.UTF_8 ) ) {
+                line = line.trim();
+                if ( line.length() > 0 && ! line.startsWith( "#" ) )
+                    unique.add( Paths.get( line ).toAbsolutePath().normalize() );
+            }
+            _files.addAll( unique );
+            return commonParent( _files );
+        }
+
+        if ( ! isGlob( input ) ) { // a directory
+            final Path dir = Paths.get( input ).toAbsolutePath().normalize();
+            try ( Stream<Path> s = Files.walk( dir ) ) {
+                _files.addAll( s.filter( p -> Files.isRegularFile( p ) && p.getFileName().toString().toLowerCase().matches( ".*\\.(yaml|yml|json)" ) ).sorted().collect( Collectors.toList() ) );
+            }
+            return dir;
+        }
+
+        // a glob-pattern: the leading path-elements without any glob-characters make up the directory to search
+        final String sep = java.io.File.separator;
+        final String[] elems = input.split( java.util.regex.Pattern.quote( sep ) );
+        int ix = 0;
+        final StringBuilder base = new StringBuilder( input.startsWith( sep ) ? sep : "" );
+        for ( ; ix < elems.length - 1 && ! isGlob( elems[ ix ] ); ix ++ )
+            if ( elems[ ix ].length() > 0 )
+                base.append( elems[ ix ] ).append( sep );
+        final Path dir = Paths.get( base.length() > 0 ? base.toString() : "." ).toAbsolutePath().normalize();
+        final String pattern = String.join( sep, java.util.Arrays.copyOfRange( elems, ix, elems.length ) );
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher( "glob:"+ pattern );
+        // 'dir/**/*.yaml' should include 'dir/x.yaml' as well (java.nio's glob requires at least one sub-directory)
+        final PathMatcher matcher0 = pattern.startsWith( "**"+ sep ) ? FileSystems.getDefault().getPathMatcher( "glob:"+ pattern.substring( 2 + sep.length() ) ) : matcher;
+        final int maxDepth = pattern.contains( "**" ) ? Integer.MAX_VALUE : ( elems.length - ix );
+        if ( Files.isDirectory( dir ) ) {
+            try ( Stream<Path> s = Files.walk( dir, maxDepth ) ) {
+                _files.addAll( s.filter( p -> Files.isRegularFile( p ) && ( matcher.matches( dir.relativize( p ) ) || matcher0.matches( dir.relativize( p ) ) ) ).sorted().collect( Collectors.toList() ) );
+            }
+        }
+        return dir;
+    }
+
+    private static Path commonParent( final List<Path> _files ) {
+        if ( _files.isEmpty() )
+            return Paths.get( "." ).toAbsolutePath();
+        Path common = _files.get( 0 ).getParent();
+        for ( Path p: _files )
+            while ( common != null && ! p.startsWith( common ) )
+                common = common.getParent();
+        return ( common != null ) ? common : _files.get( 0 ).getRoot();
+    }
+
+}
@@ -183,6 +183,40 @@ public abstract class CmdInvoker<T> implements java.io.Serializable, Cloneable {
                 throws FileNotFoundException, IOException, Exception,
                 YAMLPath.YAMLPathException;
 
+    /**
+     *  <p>Runs several read-only commands (example: 'read'), each against the SAME _inputData.  See {@link BatchFileProgram#getReadGroupEnd(int)}</p>
+     *  <p>If _inputData is made of java.util.LinkedHashMap and java.util.List (as for the {@link YAML_Libraries#isCollectionsImpl} YAML-library), and ALL the commands are 'read' (without '--projection'),
+     *      the YAML-paths of all the commands are merged into one {@link YAMLPathQuery}, and _inputData is traversed just ONCE - to find the parts of it that any of the commands can match (see {@link YAMLPathQuery#prune}).
+     *      Each command is then run (by {@link #processCommand}, so its output is exactly as usual) on just those parts - which each of them matches exactly as within the whole of _inputData.</p>
+     *  <p>Else, one command is run after the other - each on the whole of _inputData.</p>
+     *  @param _cmds NotNull list of 1 or more commands, each of whose cmdType is {@link Enums.CmdEnum#isReadOnly()}
+     *  @param _inputData the input to each of the commands (see {@link #processCommand})
+     *  @return NotNull list (same size as _cmds) of the output of each command
+     *  @throws YAMLPath.YAMLPathException if Pattern for YAML-Path provided is either semantically empty or is NOT java.util.Pattern compatible.
+     *  @throws FileNotFoundException if the filenames within _cmdLineArgs do NOT exist
+     *  @throws IOException if the filenames within _cmdLineArgs give any sort of read/write troubles
+     *  @throws Exception by any of the commands
+     */
+    public java.util.ArrayList<Object> processQueries( final java.util.List<org.ASUX.yaml.CmdLineArgsCommon> _cmds, final Object _inputData )
+                throws FileNotFoundException, IOException, Exception,
+                YAMLPath.YAMLPathException
+    {
+        final java.util.ArrayList<Object> outputs = new java.util.ArrayList<>( _cmds.size() );
+        final java.util.ArrayList<YAMLPath> paths = new java.util.ArrayList<>( _cmds.size() );
+        if ( _inputData instanceof java.util.LinkedHashMap ) {
+            for ( org.ASUX.yaml.CmdLineArgsCommon cmd: _cmds ) {
+                if ( cmd.cmdType != Enums.CmdEnum.READ || ! ( cmd instanceof CmdLineArgsReadCmd ) || ((CmdLineArgsReadCmd) cmd).projectionPath != null )
+                    break;
+                final CmdLineArgsReadCmd read = (CmdLineArgsReadCmd) cmd;
+                paths.add( new YAMLPath( read.verbose, read.yamlRegExpStr, read.yamlPatternDelimiter ) );
+            }
+        }
+        final Object input = ( ! paths.isEmpty() && paths.size() == _cmds.size() ) ? new YAMLPathQuery( paths ).prune( _inputData ) : _inputData;
+        for ( org.ASUX.yaml.CmdLineArgsCommon cmd: _cmds )
+            outputs.add( this.processCommand( cmd, input ) );
+        return outputs;
+    }
+
     //==============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
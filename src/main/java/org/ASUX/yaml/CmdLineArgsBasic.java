@@ -68,6 +68,26 @@ public class CmdLineArgsBasic extends org.ASUX.yaml.CmdLineArgsCommon {
 
     protected static final String YAMLLIB = "yamllibrary";
 
+    protected static final String PROFILE = "profile";
+    protected static final String PROFILEJSON = "profileJSON";
+    protected static final String INCREMENTAL = "incremental";
+    protected static final String CHECKPOINT = "checkpoint";
+    protected static final String CHECKPOINTINTERVAL = "checkpointInterval";
+    protected static final String RESUME = "resume";
+    protected static final String MEMORYBUDGET = "memoryBudget";
+    protected static final String JOBS = "jobs";
+    protected static final String VIRTUALTHREADS = "virtualThreads";
+    protected static final String PREFETCH = "prefetch";
+
+    /** <p>These options are NOT part of the ANTLR4-grammar (see {@link YAMLCmdANTLR4Parser}).  They are handled ONLY by this class.</p>
+     *  <p>Each entry is { short-option, long-option, # of args }</p>
+     *  @see #removeLocalOptions(String[])
+     */
+    protected static final String[][] LOCALOPTIONS = { { "zp", PROFILE, "0" }, { "zpj", PROFILEJSON, "1" }, { "zi", INCREMENTAL, "1" },
+                                                        { "zc", CHECKPOINT, "1" }, { "zci", CHECKPOINTINTERVAL, "1" }, { "zr", RESUME, "0" },
+                                                        { "zm", MEMORYBUDGET, "1" }, { "zj", JOBS, "1" }, { "zv", VIRTUALTHREADS, "0" },
+                                                        { "zf", PREFETCH, "0" } };
+
     //------------------------------------
     // private CmdLineArgs cmdLineArgs;
 
@@ -138,6 +158,32 @@ public class CmdLineArgsBasic extends org.ASUX.yaml.CmdLineArgsCommon {
 
         this.options.addOptionGroup(grp2);
 
+        //----------------------------------
+        addSimpleOption( this.options, "zp", PROFILE, "For batch-files: show - at end - the slowest lines of the batch-file, with time taken for macros, parsing, execution and cloning" );
+        opt = genOption( "zpj", PROFILEJSON, "For batch-files: same as --"+ PROFILE +", plus save all the measurements as JSON into this file", 1, "jsonfile" );
+        opt.setRequired(false);
+        this.options.addOption(opt);
+
+        opt = genOption( "zi", INCREMENTAL, "For batch-files: memoize the output of each step into this directory.  When re-run, unchanged steps are NOT re-executed", 1, "cachedir" );
+        opt.setRequired(false);
+        this.options.addOption(opt);
+
+        opt = genOption( "zc", CHECKPOINT, "For batch-files: periodically save the progress (line#, properties and memory) into this file", 1, "checkpointfile" );
+        opt.setRequired(false);
+        this.options.addOption(opt);
+        opt = genOption( "zci", CHECKPOINTINTERVAL, "For batch-files: # of seconds between checkpoints (default: "+ CmdLineArgsCommon.DEFAULT_CHECKPOINTINTERVAL +")", 1, "seconds" );
+        opt.setRequired(false);
+        this.options.addOption(opt);
+        addSimpleOption( this.options, "zr", RESUME, "For batch-files: restart from the checkpoint saved by a previous (failed) run.  Requires --"+ CHECKPOINT );
+        addSimpleOption( this.options, "zv", VIRTUALTHREADS, "For batch-files (Java 21 or later): run I/O-bound 'foreach --parallel' loops (example: aws.sdk commands) and independent lines on virtual threads - one per iteration, unless --parallel=N" );
+        addSimpleOption( this.options, "zf", PREFETCH, "For batch-files: read the files of upcoming 'useAsInput @file' lines in the background (incl. those of the next iterations of a 'foreach'), so they are ready when needed" );
+        opt = genOption( "zj", JOBS, "When '-i' is a glob-pattern (example: 'dir/**/*.yaml'), a directory or @file-list: # of input-files processed at the same time (default: # of CPUs)", 1, "#" );
+        opt.setRequired(false);
+        this.options.addOption(opt);
+        opt = genOption( "zm", MEMORYBUDGET, "For batch-files: max. memory (example: 512m or 4g) for content saved via 'saveTo'.  Beyond that, the least-recently used content is moved to temporary files", 1, "bytes" );
+        opt.setRequired(false);
+        this.options.addOption(opt);
+
         //----------------------------------
         opt = genOption( "zy", YAMLLIB, "only valid values are: "+ YAML_Libraries.list("\t"), 1, "yamllibparam" );
         opt.setRequired(false);
@@ -207,6 +253,22 @@ public class CmdLineArgsBasic extends org.ASUX.yaml.CmdLineArgsCommon {
 
         this.offline = _apacheCmdProcessor.hasOption(OFFLINE);
 
+        this.profileJSONFile = _apacheCmdProcessor.getOptionValue(PROFILEJSON);
+        this.profile = _apacheCmdProcessor.hasOption(PROFILE) || ( this.profileJSONFile != null );
+        this.incrementalCacheDir = _apacheCmdProcessor.getOptionValue(INCREMENTAL);
+        this.checkpointFile = _apacheCmdProcessor.getOptionValue(CHECKPOINT);
+        if ( _apacheCmdProcessor.getOptionValue(CHECKPOINTINTERVAL) != null )
+            this.checkpointIntervalSecs = Integer.parseInt( _apacheCmdProcessor.getOptionValue(CHECKPOINTINTERVAL) );
+        this.resume = _apacheCmdProcessor.hasOption(RESUME);
+        if ( this.resume && this.checkpointFile == null )
+            throw new ParseException( "--"+ RESUME +" requires --"+ CHECKPOINT +" <checkpointfile>" );
+        this.virtualThreads = _apacheCmdProcessor.hasOption(VIRTUALTHREADS);
+        this.prefetch = _apacheCmdProcessor.hasOption(PREFETCH);
+        if ( _apacheCmdProcessor.getOptionValue(JOBS) != null )
+            this.jobs = Integer.parseInt( _apacheCmdProcessor.getOptionValue(JOBS) );
+        if ( _apacheCmdProcessor.getOptionValue(MEMORYBUDGET) != null )
+            this.memoryBudget = parseBytes( MEMORYBUDGET, _apacheCmdProcessor.getOptionValue(MEMORYBUDGET) );
+
         //-------------------------------------------
         if ( _apacheCmdProcessor.hasOption( NOQUOTE     ) ) this.quoteType = org.ASUX.yaml.Enums.ScalarStyle.PLAIN; // this translates to 'null'
         if ( _apacheCmdProcessor.hasOption( SINGLEQUOTE ) ) this.quoteType = org.ASUX.yaml.Enums.ScalarStyle.SINGLE_QUOTED;
@@ -228,6 +290,75 @@ public class CmdLineArgsBasic extends org.ASUX.yaml.CmdLineArgsCommon {
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=================================================================================
 
+    /**
+     *  <p>The ANTLR4-grammar (see {@link YAMLCmdANTLR4Parser}) will barf on the options in {@link #LOCALOPTIONS}.  So, they must be removed before the command-line is passed to the ANTLR4 parser.</p>
+     *  @param _args command line argument array - as received as-is from main().
+     *  @return a NotNull copy of _args, without any of the {@link #LOCALOPTIONS} (and their values)
+     */
+    public static String[] removeLocalOptions( final String[] _args ) {
+        final java.util.ArrayList<String> list = new java.util.ArrayList<>( _args.length );
+        for ( int ix = 0; ix < _args.length; ix ++ ) {
+            int skip = -1;
+            for ( String[] opt: LOCALOPTIONS ) {
+                if ( _args[ix].equals( "-"+ opt[0] ) || _args[ix].equals( "--"+ opt[1] ) )
+                    skip = Integer.parseInt( opt[2] );
+                else if ( _args[ix].startsWith( "--"+ opt[1] +"=" ) )
+                    skip = 0;
+            }
+            if ( skip < 0 )
+                list.add( _args[ix] );
+            else
+                ix += skip; // skip over the values of this option
+        }
+        return list.toArray( new String[ list.size() ] );
+    }
+
+    /**
+     *  Pass on the {@link #LOCALOPTIONS} to the command(s) as parsed by the ANTLR4 parser.
+     *  @param _cmd NotNull
+     */
+    public void copyLocalOptions( final CmdLineArgsCommon _cmd ) {
+        _cmd.profile = _cmd.profile || this.profile;
+        if ( _cmd.profileJSONFile == null )
+            _cmd.profileJSONFile = this.profileJSONFile;
+        if ( _cmd.incrementalCacheDir == null )
+            _cmd.incrementalCacheDir = this.incrementalCacheDir;
+        if ( _cmd.checkpointFile == null ) {
+            _cmd.checkpointFile = this.checkpointFile;
+            _cmd.checkpointIntervalSecs = this.checkpointIntervalSecs;
+        }
+        _cmd.resume = _cmd.resume || this.resume;
+        if ( _cmd.memoryBudget <= 0 )
+            _cmd.memoryBudget = this.memoryBudget;
+        if ( _cmd.jobs <= 0 )
+            _cmd.jobs = this.jobs;
+        _cmd.virtualThreads = _cmd.virtualThreads || this.virtualThreads;
+        _cmd.prefetch = _cmd.prefetch || this.prefetch;
+    }
+
+    /**
+     *  @param _option the name of the command-line option (for the error-message)
+     *  @param _s # of bytes, optionally followed by k, m or g (case-insensitive).  Example: 512m
+     *  @return # of bytes
+     *  @throws ParseException if _s is Not a valid size
+     */
+    protected static long parseBytes( final String _option, final String _s ) throws ParseException {
+        final java.util.regex.Matcher m = java.util.regex.Pattern.compile( "^\\s*(\\d+)\\s*([kKmMgG]?)[bB]?\\s*$" ).matcher( _s );
+        if ( ! m.matches() )
+            throw new ParseException( "--"+ _option +" must be a # of bytes (optionally suffixed with k, m or g), and NOT '"+ _s +"'" );
+        final long n = Long.parseLong( m.group(1) );
+        switch( m.group(2).toLowerCase() ) {
+            case "k":   return n << 10;
+            case "m":   return n << 20;
+            case "g":   return n << 30;
+            default:    return n;
+        }
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
     /**
      *  <p>Subclasses to override this method - - to parse for additional options.</p>
      *  <p>FYI: This method does nothing in this parent class, as it's a placeholder for any subclasses.</p>
@@ -45,7 +45,7 @@ package org.ASUX.yaml;
  * @see org.ASUX.yaml.CmdLineArgsMacroCmd
  * @see org.ASUX.yaml.CmdLineArgsBatchCmd
  */
-public abstract class CmdLineArgsCommon implements org.ASUX.language.antlr4.CmdLineArgs,    java.io.Serializable  {
+public abstract class CmdLineArgsCommon implements org.ASUX.language.antlr4.CmdLineArgs,    java.io.Serializable, Cloneable  {
 
     private static final long serialVersionUID = 141L;
 
@@ -56,6 +56,36 @@ public abstract class CmdLineArgsCommon implements org.ASUX.language.antlr4.CmdL
     public boolean showStats    = false;
     public boolean offline   = false;
 
+    /** For batch-files only.  Whether to collect (per line of the batch-file) timings and allocations.  See {@link BatchProfiler} */
+    public boolean profile   = false;
+    /** For batch-files only.  Nullable.  If NotNull, the file into which the output of {@link BatchProfiler#toJSON()} is written */
+    public String profileJSONFile = null;
+    /** For batch-files only.  Nullable.  If NotNull, the directory in which the output of each step of a batch-file is memoized.  See {@link BatchStepCache} */
+    public String incrementalCacheDir = null;
+
+    public static final int DEFAULT_CHECKPOINTINTERVAL = 60;
+    /** For batch-files only.  Nullable.  If NotNull, the file into which the progress of the batch-file is periodically saved.  See {@link BatchCheckpoint}.  This is deliberately NOT passed on by {@link #copyBasicFlags(org.ASUX.language.antlr4.CmdLineArgs)} */
+    public String checkpointFile = null;
+    /** For batch-files only.  # of seconds between 2 checkpoints */
+    public int checkpointIntervalSecs = DEFAULT_CHECKPOINTINTERVAL;
+    /** For batch-files only.  Whether to restart from the {@link #checkpointFile} */
+    public boolean resume = false;
+    /** For batch-files only.  Max. # of bytes of content saved into memory (via 'saveTo') that is kept on the heap.  0 means unlimited.  See {@link MemorySpill} */
+    public long memoryBudget = 0;
+    /** When '-i' is a glob-pattern, a directory or @file-list: # of input-files processed at the same time.  0 means # of CPUs.  See {@link CmdFanOut} */
+    public int jobs = 0;
+    /** For batch-files only.  Whether to run I/O-bound work on virtual threads (Java 21 or later).  See {@link BatchThreads} */
+    public boolean virtualThreads = false;
+    /** For batch-files only.  Whether to read the files of upcoming 'useAsInput' lines in the background.  See {@link BatchPrefetcher} */
+    public boolean prefetch = false;
+
+    /** Nullable.  If NotNull, relative paths (the '-i' and '-o' of commands within batch-files, the '@file' of 'useAsInput', 'saveTo' and 'batch') are relative to this directory, instead of this JVM's working directory.  See {@link #resolvePath(String)} */
+    public String workingDir = null;
+    /** Nullable.  If NotNull, where the 'print' statements of batch-files (and failures of {@link CmdFanOut}) go, instead of System.out.  Not serialized (as it can Not be) */
+    public transient java.io.PrintStream stdout = null;
+    /** Nullable.  If NotNull, where the errors go, instead of System.err.  Not serialized (as it can Not be) */
+    public transient java.io.PrintStream stderr = null;
+
     public Enums.ScalarStyle quoteType = Enums.ScalarStyle.UNDEFINED;
     public YAML_Libraries YAMLLibrary = YAML_Libraries.NodeImpl_Library; // some default value for now
 
@@ -84,7 +114,11 @@ public abstract class CmdLineArgsCommon implements org.ASUX.language.antlr4.CmdL
      */
     public String toString() {
         return
-        " --verbose="+verbose+" --showStats="+showStats
+        " --verbose="+verbose+" --showStats="+showStats +" --profile="+profile +( (profileJSONFile==null) ? "" : " --profileJSON="+profileJSONFile ) +( (incrementalCacheDir==null) ? "" : " --incremental="+incrementalCacheDir )
+        +( (checkpointFile==null) ? "" : " --checkpoint="+checkpointFile +" --checkpointInterval="+checkpointIntervalSecs +" --resume="+resume )
+        +( (memoryBudget<=0) ? "" : " --memoryBudget="+memoryBudget )
+        +( virtualThreads ? " --virtualThreads" : "" )
+        +( prefetch ? " --prefetch" : "" )
         +" inpfile="+inputFilePath+" outputfile="+outputFilePath
         +" this.quoteType=["+this.quoteType+"]  offline="+this.offline
         +" Cmd-Type="+cmdType +"  Full-Command=("+cmdAsStr+") "
@@ -111,11 +145,63 @@ public abstract class CmdLineArgsCommon implements org.ASUX.language.antlr4.CmdL
         this.verbose   = this.verbose || _orig.verbose;  // pass on whatever this user specified on cmdline re: --verbose or not.
         this.showStats = this.showStats || _orig.showStats;
         this.offline = this.offline || _orig.offline;
+        this.profile = this.profile || _orig.profile;
+        if ( this.profileJSONFile == null )
+            this.profileJSONFile = _orig.profileJSONFile;
+        if ( this.incrementalCacheDir == null )
+            this.incrementalCacheDir = _orig.incrementalCacheDir;
+        if ( this.memoryBudget <= 0 )
+            this.memoryBudget = _orig.memoryBudget;
+        this.virtualThreads = this.virtualThreads || _orig.virtualThreads;
+        this.prefetch = this.prefetch || _orig.prefetch;
+        if ( this.workingDir == null )
+            this.workingDir = _orig.workingDir;
+        if ( this.stdout == null )
+            this.stdout = _orig.stdout;
+        if ( this.stderr == null )
+            this.stderr = _orig.stderr;
 
         if ( this.quoteType == Enums.ScalarStyle.UNDEFINED )
             this.quoteType = _orig.quoteType; // if user did NOT specify a quote-option _INSIDE__ batchfile @ current line, then use whatever was specified on CmdLine when starting BATCH command.
     }
 
+    /** @return NotNull, either {@link #stdout} or System.out */
+    public java.io.PrintStream getStdout() {
+        return ( this.stdout != null ) ? this.stdout : System.out;
+    }
+
+    /** @return NotNull, either {@link #stderr} or System.err */
+    public java.io.PrintStream getStderr() {
+        return ( this.stderr != null ) ? this.stderr : System.err;
+    }
+
+    /**
+     * Converts a relative path into one relative to {@link #workingDir}.  Example: 'a/b.yaml' and '@a/b.yaml' (a reference to a file).
+     * @param _path Nullable.  '-' (stdin / stdout), absolute paths and references to memory (like '!label') are returned as-is.
+     * @return the same as _path, if {@link #workingDir} is null
+     */
+    public String resolvePath( final String _path ) {
+        if ( this.workingDir == null || _path == null || _path.isEmpty() || _path.equals( "-" ) || _path.startsWith( "!" ) )
+            return _path;
+        if ( _path.startsWith( "@" ) )
+            return "@"+ this.resolvePath( _path.substring( 1 ) );
+        final java.nio.file.Path p = java.nio.file.Paths.get( _path );
+        return p.isAbsolute() ? _path : java.nio.file.Paths.get( this.workingDir ).resolve( p ).normalize().toString();
+    }
+
+    /**
+     * <p>A cheap alternative to org.ASUX.common.Utils.deepClone() - as all the attributes of this class and its subclasses are primitives, enums or Strings.</p>
+     * <p>ATTENTION: Subclasses that add attributes that are mutable objects, must override this method.</p>
+     * @return a new copy, that can be modified without affecting this object
+     */
+    public CmdLineArgsCommon copy() {
+        try {
+            return (CmdLineArgsCommon) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError( e ); // we implement Cloneable. So, this can NOT happen.
+        }
+    }
+
     // /**
     //  * Copy these attributes to the provided object of this class: {@link #verbose}, {@link #showStats}, {@link #offline}, {@link #quoteType}
     //  * @param _copy a NotNull reference
@@ -224,6 +224,15 @@ public final class Enums
             }
             return retval.toString();
         }
+
+        //=================================
+        /**
+         * Whether this command leaves its input-YAML untouched.  Used for copy-on-write of YAML that is shared (example: after a 'saveTo' within a batch-file).
+         * @return true for read, list and table commands.  false for any command that may modify its input (or, if we're Not sure).
+         */
+        public boolean isReadOnly() {
+            return this == READ || this == LIST || this == TABLE;
+        }
     }
 
     //=================================================================================
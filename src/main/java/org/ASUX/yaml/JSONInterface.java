@@ -141,7 +141,7 @@ public abstract class JSONInterface {
             final CmdLineArgsCommon cmdLineArgsCommon = JSONTools.toCmdLineArgs( verbose, jsonString );
             if ( verbose ) System.err.println( HDR +"cmdLineArgsCommon = ["+ cmdLineArgsCommon +"]" );
 
-            Cmd.go( cmdLineArgsCommon );
+            Cmd.run( cmdLineArgsCommon ); // throws, rather than Cmd.go()'s System.exit().  So, only this main() exits the JVM.
 
         } catch (Exception e) {
             e.printStackTrace(System.err); // main().  For Unit testing
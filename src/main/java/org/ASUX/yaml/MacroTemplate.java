@@ -0,0 +1,269 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import org.ASUX.common.Macros;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>The pre-compiled form of a string (typically a line of a batch-file) that has Macro-expressions like ${ASUX::name} in it: the literal segments and the names of the properties in between.</p>
+ *  <p>The result of the last evaluation is remembered, along with the values of ALL the properties it depended on (incl. properties referenced by the values of other properties).
+ *      As long as NONE of those values change, the remembered result is returned as-is - without running {@link Macros#evalThoroughly} again.  Inside 'foreach' loops, that is the case for most lines.</p>
+ *  <p>When any of those values do change: if every macro is defined in exactly ONE property-set (and its value has No macros in it), the result is simply the concatenation of the literals and the values.
+ *      Otherwise, the string is evaluated by {@link Macros#evalThoroughly} as always - so, the semantics (which property-set wins, nested macros, ..) are exactly the same.</p>
+ *  <p>Strings that have '${' in any other form (that this class does Not understand) are never remembered.</p>
+ *
+ * @see org.ASUX.yaml.BatchCmdProcessor
+ */
+public final class MacroTemplate {
+
+    public static final String CLASSNAME = MacroTemplate.class.getName();
+
+    private static final Pattern PATTERN_MACRO = Pattern.compile( "\\$\\{ASUX::([^}]+)\\}" );
+
+    /** Max # of distinct strings, whose compiled form is cached by {@link #compile(String)} */
+    public static final int CACHE_SIZE = 4096;
+
+    /** LRU cache (as LinkedHashMap is in access-order).  Always synchronize on this object before use. */
+    private static final LinkedHashMap< String, MacroTemplate > TEMPLATES =
+                    new LinkedHashMap< String, MacroTemplate >( 64, 0.75f, true ) {
+                        private static final long serialVersionUID = 1L;
+                        @Override protected boolean removeEldestEntry( final java.util.Map.Entry< String, MacroTemplate > _eldest ) {
+                            return this.size() > CACHE_SIZE;
+                        }
+                    };
+    private static final java.util.concurrent.atomic.AtomicLong CACHE_HITS = new java.util.concurrent.atomic.AtomicLong();
+    private static final java.util.concurrent.atomic.AtomicLong CACHE_MISSES = new java.util.concurrent.atomic.AtomicLong();
+
+    //------------------------------------------------------------------------------
+    public final String template;
+    /** literals.length === variables.length + 1.  The template is: literals[0] variables[0] literals[1] .. variables[n-1] literals[n] */
+    private final String[] literals;
+    private final String[] variables;
+    /** false if the template has '${' that is NOT a ${ASUX::..} macro */
+    private final boolean bCacheable;
+
+    /** Nullable.  The result of the most recent evaluation */
+    private volatile Expansion last = null;
+
+    /** Immutable.  A result of evaluating the template, plus what it depended upon */
+    private static final class Expansion {
+        final String[] dependencies;
+        final Object[] fingerprint;
+        final String result;
+        Expansion( final String[] _dependencies, final Object[] _fingerprint, final String _result ) {
+            this.dependencies = _dependencies;
+            this.fingerprint = _fingerprint;
+            this.result = _result;
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private MacroTemplate( final String _template ) {
+        this.template = _template;
+        final ArrayList<String> lits = new ArrayList<>();
+        final ArrayList<String> vars = new ArrayList<>();
+        final Matcher m = PATTERN_MACRO.matcher( _template );
+        int pos = 0;
+        while ( m.find() ) {
+            lits.add( _template.substring( pos, m.start() ) );
+            vars.add( m.group( 1 ) );
+            pos = m.end();
+        }
+        lits.add( _template.substring( pos ) );
+        this.literals = lits.toArray( new String[ lits.size() ] );
+        this.variables = vars.toArray( new String[ vars.size() ] );
+        boolean bOk = true;
+        for ( String lit: this.literals )
+            bOk = bOk && ! lit.contains( "${" );
+        this.bCacheable = bOk;
+    }
+
+    /**
+     *  @param _s NotNull string that may have Macro-expressions like ${ASUX::..}
+     *  @return NotNull compiled form (cached, see {@link #CACHE_SIZE})
+     */
+    public static MacroTemplate compile( final String _s ) {
+        synchronized( TEMPLATES ) {
+            MacroTemplate t = TEMPLATES.get( _s );
+            if ( t == null ) {
+                t = new MacroTemplate( _s );
+                TEMPLATES.put( _s, t );
+            }
+            return t;
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  Drop-in replacement for {@link Macros#evalThoroughly}
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _s Nullable string that may have Macro-expressions like ${ASUX::..}
+     *  @param _allProps NotNull property-sets to lookup the values of macros
+     *  @return the Macro-evaluated version of _s (null if _s is null)
+     *  @throws Exception if there is any issues with evaluating Macros
+     */
+    public static String evalThoroughly( final boolean _verbose, final String _s, final LinkedHashMap<String,Properties> _allProps ) throws Exception {
+        if ( _s == null || _s.indexOf( "${" ) < 0 )
+            return _s; // nothing to evaluate
+        return compile( _s ).eval( _verbose, _allProps );
+    }
+
+    /**
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _allProps NotNull property-sets to lookup the values of macros
+     *  @return the Macro-evaluated version of {@link #template}
+     *  @throws Exception if there is any issues with evaluating Macros
+     */
+    public String eval( final boolean _verbose, final LinkedHashMap<String,Properties> _allProps ) throws Exception
+    {
+        if ( ! this.bCacheable )
+            return Macros.evalThoroughly( _verbose, this.template, _allProps );
+
+        final Expansion prev = this.last;
+        if ( prev != null && java.util.Arrays.equals( prev.fingerprint, fingerprint( prev.dependencies, _allProps ) ) ) {
+            CACHE_HITS.incrementAndGet();
+            if ( _verbose ) System.out.println( CLASSNAME +": eval(): re-using evaluation of: "+ this.template );
+            return prev.result;
+        }
+
+        CACHE_MISSES.incrementAndGet();
+        final String concatenated = this.concatenate( _allProps );
+        final String result = ( concatenated != null ) ? concatenated : Macros.evalThoroughly( _verbose, this.template, _allProps );
+        final String[] dependencies = this.dependencies( _allProps );
+        if ( dependencies != null )
+            this.last = new Expansion( dependencies, fingerprint( dependencies, _allProps ), result );
+        return result;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  The simple case: each macro is defined in exactly ONE property-set (so, it does Not matter which property-set wins), and its value has No macros in it.
+     *  @param _allProps NotNull
+     *  @return Nullable.  null if this is Not the simple case.  Else, the literals and the values concatenated.
+     */
+    private String concatenate( final LinkedHashMap<String,Properties> _allProps ) {
+        final StringBuilder sb = new StringBuilder( this.template.length() + 16 * this.variables.length );
+        for ( int ix = 0; ix < this.variables.length; ix ++ ) {
+            String value = null;
+            for ( Properties props: _allProps.values() ) {
+                final String v = ( props == null ) ? null : props.getProperty( this.variables[ ix ] );
+                if ( v == null )
+                    continue;
+                if ( value != null || v.indexOf( "${" ) >= 0 )
+                    return null;
+                value = v;
+            }
+            if ( value == null )
+                return null; // undefined macro.  Leave it to Macros.evalThoroughly()
+            sb.append( this.literals[ ix ] ).append( value );
+        }
+        return sb.append( this.literals[ this.variables.length ] ).toString();
+    }
+
+    /**
+     *  All the properties that the evaluation depends on: the variables of this template, plus (recursively) the variables referenced in their values.
+     *  @param _allProps NotNull
+     *  @return Nullable.  null if a value has a '${' that this class does NOT understand (so the result must NOT be remembered)
+     */
+    private String[] dependencies( final LinkedHashMap<String,Properties> _allProps ) {
+        final LinkedHashSet<String> deps = new LinkedHashSet<>();
+        final ArrayList<String> pending = new ArrayList<>( java.util.Arrays.asList( this.variables ) );
+        while ( ! pending.isEmpty() ) {
+            final String name = pending.remove( pending.size() - 1 );
+            if ( ! deps.add( name ) )
+                continue;
+            for ( Properties props: _allProps.values() ) {
+                final String value = ( props == null ) ? null : props.getProperty( name );
+                if ( value == null || value.indexOf( "${" ) < 0 )
+                    continue;
+                final MacroTemplate nested = new MacroTemplate( value );
+                if ( ! nested.bCacheable )
+                    return null;
+                pending.addAll( java.util.Arrays.asList( nested.variables ) );
+            }
+        }
+        return deps.toArray( new String[ deps.size() ] );
+    }
+
+    /**
+     *  @param _dependencies NotNull
+     *  @param _allProps NotNull
+     *  @return the value of each dependency within each property-set (in order).  Any change to any of these values (or to the # of property-sets) invalidates a previous evaluation.
+     */
+    private static Object[] fingerprint( final String[] _dependencies, final LinkedHashMap<String,Properties> _allProps ) {
+        final Object[] values = new Object[ _dependencies.length * _allProps.size() ];
+        int ix = 0;
+        for ( Properties props: _allProps.values() )
+            for ( String name: _dependencies )
+                values[ ix ++ ] = ( props == null ) ? null : props.getProperty( name );
+        return values;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  For use with --showStats
+     *  @return a NotNull human-readable summary of how often a previous evaluation was re-used
+     */
+    public static String getCacheStats() {
+        final int size;
+        synchronized( TEMPLATES ) {
+            size = TEMPLATES.size();
+        }
+        return "Macro-evaluation cache: "+ CACHE_HITS.get() +" hits, "+ CACHE_MISSES.get() +" misses, "+ size +" templates (max "+ CACHE_SIZE +")";
+    }
+
+    public String toString() {
+        return "MacroTemplate("+ this.variables.length +" macros) ["+ this.template +"]";
+    }
+
+}
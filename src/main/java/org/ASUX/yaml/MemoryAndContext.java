@@ -71,6 +71,9 @@ public class MemoryAndContext implements java.io.Serializable, Cloneable {
      */
     private transient LinkedHashMap<String, Object> savedOutputMaps = new LinkedHashMap<>();
 
+    /** Nullable.  NotNull ONLY if a memory-budget was set (see {@link #setMemoryBudget(long)}).  Not copied by a deepClone(). */
+    private transient MemorySpill memorySpill = null;
+
     private LinkedHashMap<String,Properties> allPropsReference = null;
 
     private final org.ASUX.yaml.CmdInvoker<?> cmdinvoker;
@@ -142,6 +145,27 @@ public class MemoryAndContext implements java.io.Serializable, Cloneable {
         this.allPropsReference = _props;
     }
 
+    /**
+     *  <p>Limits how much of the content saved into memory is kept on the heap.  Beyond that, the least-recently used content is moved into temporary files.  See {@link MemorySpill}</p>
+     *  @param _bytes max. # of bytes (as estimated).  0 or less means unlimited
+     *  @throws Exception if the YAML implementation is Not available
+     */
+    public void setMemoryBudget( final long _bytes ) throws Exception {
+        this.memorySpill = ( _bytes > 0 ) ? new MemorySpill( this.verbose, _bytes, this.cmdinvoker.getYAMLImplementation() ) : null;
+    }
+
+    /** @return Nullable.  NotNull ONLY if a memory-budget was set (see {@link #setMemoryBudget(long)}) */
+    public MemorySpill getMemorySpill() {
+        return this.memorySpill;
+    }
+
+    /** Removes the memory-budget (if any), and deletes its temporary files.  See {@link MemorySpill#close} */
+    public void closeMemorySpill() {
+        if ( this.memorySpill != null )
+            this.memorySpill.close( this.savedOutputMaps );
+        this.memorySpill = null;
+    }
+
     //======================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //======================================================================
@@ -161,7 +185,13 @@ public class MemoryAndContext implements java.io.Serializable, Cloneable {
             throw new Exception( CLASSNAME +": getDataFromMemory: Invalid label/name/reference ["+ _src +"] provided to retrieve this data from batch-memory " );
 
         final String savedMapName = _src.startsWith("!") ?  _src.substring(1) : _src;
-        final Object recalledContent = (this.savedOutputMaps != null) ?  this.savedOutputMaps.get( savedMapName ) : null;
+        Object recalledContent = (this.savedOutputMaps != null) ?  this.savedOutputMaps.get( savedMapName ) : null;
+        if ( this.memorySpill != null ) {
+            recalledContent = this.memorySpill.recall( this.savedOutputMaps, savedMapName );
+        } else if ( recalledContent instanceof MemorySpill.Spilled ) { // a copy (see CmdInvoker.deepClone()) of memory that has a budget
+            recalledContent = ( (MemorySpill.Spilled) recalledContent ).load( this.cmdinvoker.getYAMLImplementation() );
+            this.savedOutputMaps.put( savedMapName, recalledContent );
+        }
         if (this.verbose) System.out.println( CLASSNAME +": getDataFromReference("+ _src +"): memory says=" + ((recalledContent==null)?"null":recalledContent.toString()) );
         return recalledContent;
     }
@@ -185,6 +215,7 @@ public class MemoryAndContext implements java.io.Serializable, Cloneable {
         if ( (this.savedOutputMaps != null) && (saveToMapName != null) && (saveToMapName.length() > 0) ) {
             // This can happen only within a BatchYaml-file context.  It only makes any sense (and will only work) within a BatchYaml-file context.
             this.savedOutputMaps.put( saveToMapName, _val2bRemembered );  // remove '!' as the 1st character in the destination-reference provided
+            if ( this.memorySpill != null ) this.memorySpill.onSave( this.savedOutputMaps, saveToMapName );
             if (this.verbose) System.out.println( CLASSNAME +": saveDataIntoMemory("+ _dest +"): saved into 'memoryAndContext' --> " + _val2bRemembered );
         }
     }
@@ -0,0 +1,448 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>Enforces a memory-budget (see '--memoryBudget' command-line option) on the content saved into memory by 'saveTo' (see {@link MemoryAndContext#getSavedOutputMaps()}).</p>
+ *  <p>The heap-size of each saved content is estimated ONCE, when it's saved (by walking a sample of the object-graph - see {@link #estimateSize(Object)}).  Whenever the total exceeds the budget, the least-recently used content (as per 'saveTo' and 'useAsInput') is
+ *      written into a file within a temporary directory (in the same GZIP-compressed binary-form as a {@link BatchCheckpoint}), and replaced - within memory - by a {@link Spilled} placeholder.
+ *      {@link MemoryAndContext#getDataFromMemory(String)} transparently reads the content back from that file.</p>
+ *  <p>Content that was read back, and that is again the least-recently used, is Not written again: the existing file is re-used.
+ *      A file is deleted once its content is overwritten (by another 'saveTo' with the same label), else by {@link #close}.</p>
+ *  <p>Content that is NEITHER YAML NOR java.io.Serializable is never moved out of memory.</p>
+ *  <p>Not thread-safe: it must be used ONLY by the thread that owns the {@link MemoryAndContext}.  Copies of {@link MemoryAndContext} (for 'foreach --parallel') have No budget, but they can still read back the placeholders.</p>
+ *
+ * @see org.ASUX.yaml.MemoryAndContext
+ */
+public final class MemorySpill {
+
+    public static final String CLASSNAME = MemorySpill.class.getName();
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** What is left in memory, in place of content that was moved into a temporary file */
+    public static final class Spilled implements java.io.Serializable {
+        private static final long serialVersionUID = 418L;
+        public final String label;
+        public final String path;
+        /** estimated heap-size (in bytes) of the content, when it was in memory */
+        public final long estimatedSize;
+        /** size (in bytes) of the file */
+        public final long fileSize;
+
+        private Spilled( final String _label, final Path _path, final long _estimatedSize ) throws java.io.IOException {
+            this.label = _label;
+            this.path = _path.toString();
+            this.estimatedSize = _estimatedSize;
+            this.fileSize = Files.size( _path );
+        }
+
+        /**
+         *  @param _yamlImpl NotNull, used to convert YAML-text back into YAML content
+         *  @return the content, exactly as it was when it was moved out of memory
+         *  @throws Exception if the file could Not be read (or was deleted)
+         */
+        public Object load( final YAMLImplementation<?> _yamlImpl ) throws Exception {
+            try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new GZIPInputStream( Files.newInputStream( Paths.get( this.path ) ) ) ) ) ) {
+                return BatchCheckpoint.readValue( in, _yamlImpl );
+            }
+        }
+
+        /** Copies the (uncompressed) content of the file, which is in the exact form written by {@link BatchCheckpoint#writeValue} */
+        void copyTo( final DataOutputStream _out ) throws java.io.IOException {
+            try ( InputStream in = new GZIPInputStream( Files.newInputStream( Paths.get( this.path ) ) ) ) {
+                final byte[] buf = new byte[ 64 * 1024 ];
+                for ( int n = in.read( buf ); n > 0; n = in.read( buf ) )
+                    _out.write( buf, 0, n );
+            }
+        }
+
+        public String toString() {
+            return "<'"+ this.label +"' ("+ this.estimatedSize +" bytes) moved out of memory into "+ this.path +">";
+        }
+    }
+
+    /** Content that is in memory */
+    private static final class Resident {
+        final Object value;
+        final long size;
+        /** Nullable.  If NotNull, the file that this content was read back from */
+        final Spilled origin;
+        /** true if this content can NOT be moved out of memory */
+        boolean pinned = false;
+        Resident( final Object _value, final long _size, final Spilled _origin ) {
+            this.value = _value;
+            this.size = _size;
+            this.origin = _origin;
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private final boolean verbose;
+    private final long budget;
+    private final YAMLImplementation<?> yamlImpl;
+
+    /** Nullable.  The temporary directory, created when content is moved out of memory for the first time */
+    private Path dir = null;
+
+    /** in least-recently used order */
+    private final LinkedHashMap<String,Resident> resident = new LinkedHashMap<>( 64, 0.75f, true );
+    private long residentBytes = 0;
+    /** the placeholders (that are currently in memory) for the files created by this instance */
+    private final HashMap<String,Spilled> spilled = new HashMap<>();
+
+    private long spills = 0;
+    private long reuses = 0;
+    private long reloads = 0;
+    private long bytesWritten = 0;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _verbose Whether you want deluge of debug-output onto System.out.
+     *  @param _budget max. # of bytes (as estimated) of content to keep in memory.  Must be &gt; 0
+     *  @param _yamlImpl NotNull, used to convert YAML content into YAML-text (and back)
+     */
+    public MemorySpill( final boolean _verbose, final long _budget, final YAMLImplementation<?> _yamlImpl ) {
+        this.verbose = _verbose;
+        this.budget = _budget;
+        this.yamlImpl = _yamlImpl;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  To be invoked right after _label was saved into memory.  If the budget is exceeded, the least-recently used content (other than _label) is moved out of memory.
+     *  @param _memory NotNull, see {@link MemoryAndContext#getSavedOutputMaps()}
+     *  @param _label the label that was just saved
+     *  @throws Exception if content could Not be written into a temporary file
+     */
+    public void onSave( final LinkedHashMap<String,Object> _memory, final String _label ) throws Exception {
+        this.reconcile( _memory );
+        this.resident.get( _label ); // most-recently used
+        this.enforce( _memory, _label );
+    }
+
+    /**
+     *  To be invoked (instead of _memory.get(_label)) to read content from memory.  If that content was moved out of memory, it is read back from its file (and put back into memory).
+     *  @param _memory NotNull, see {@link MemoryAndContext#getSavedOutputMaps()}
+     *  @param _label the label to lookup
+     *  @return Nullable.  The content saved under _label
+     *  @throws Exception if the content could Not be read back from its file
+     */
+    public Object recall( final LinkedHashMap<String,Object> _memory, final String _label ) throws Exception {
+        this.reconcile( _memory );
+        final Object o = _memory.get( _label );
+        if ( ! ( o instanceof Spilled ) ) {
+            this.resident.get( _label ); // most-recently used
+            return o;
+        }
+        final Spilled placeholder = (Spilled) o;
+        final Object value = placeholder.load( this.yamlImpl );
+        this.reloads ++;
+        if ( this.verbose ) System.out.println( CLASSNAME +": recall("+ _label +"): read back "+ placeholder );
+        _memory.put( _label, value );
+        this.spilled.remove( _label );
+        this.resident.put( _label, new Resident( value, placeholder.estimatedSize, placeholder ) );
+        this.residentBytes += placeholder.estimatedSize;
+        this.enforce( _memory, _label );
+        return value;
+    }
+
+    /**
+     *  <p>To be invoked once the batch-file has completed (successfully or not).  Deletes all the temporary files, and the temporary directory.</p>
+     *  <p>Content that is still moved out of memory can No longer be read back.  So, it's removed from _memory.</p>
+     *  @param _memory NotNull, see {@link MemoryAndContext#getSavedOutputMaps()}
+     */
+    public void close( final LinkedHashMap<String,Object> _memory ) {
+        for ( Map.Entry<String,Spilled> e: this.spilled.entrySet() ) {
+            if ( _memory.get( e.getKey() ) == e.getValue() )
+                _memory.remove( e.getKey() );
+            this.delete( e.getValue().path );
+        }
+        for ( Resident r: this.resident.values() )
+            if ( r.origin != null )
+                this.delete( r.origin.path );
+        this.spilled.clear();
+        this.resident.clear();
+        this.residentBytes = 0;
+        if ( this.dir != null ) {
+            this.delete( this.dir.toString() );
+            this.dir = null;
+        }
+    }
+
+    private void delete( final String _path ) {
+        try {
+            Files.deleteIfExists( Paths.get( _path ) );
+        } catch ( java.io.IOException e ) {
+            System.err.println( CLASSNAME +": close(): WARNING: failed to delete temporary file "+ _path +".  "+ e );
+        }
+    }
+
+    /** @return a NotNull one-line summary */
+    public String getStats() {
+        return "Memory-budget: "+ this.residentBytes +" of "+ this.budget +" bytes in use, "+ this.spilled.size() +" labels on disk, "
+                + this.spills +" moved out of memory ("+ this.bytesWritten +" bytes written, "+ this.reuses +" re-used an existing file), "+ this.reloads +" read back";
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  Memory is also modified directly (example: merging the 'saveTo' of 'foreach --parallel' iterations, or restoring a {@link BatchCheckpoint}).
+     *  So, brings this.resident and this.spilled up to date with what is actually in memory.
+     */
+    private void reconcile( final LinkedHashMap<String,Object> _memory ) throws java.io.IOException {
+        for ( Iterator<Map.Entry<String,Resident>> it = this.resident.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String,Resident> e = it.next();
+            if ( _memory.get( e.getKey() ) != e.getValue().value ) { // overwritten or removed
+                it.remove();
+                this.residentBytes -= e.getValue().size;
+                if ( e.getValue().origin != null ) Files.deleteIfExists( Paths.get( e.getValue().origin.path ) );
+            }
+        }
+        for ( Iterator<Map.Entry<String,Spilled>> it = this.spilled.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String,Spilled> e = it.next();
+            if ( _memory.get( e.getKey() ) != e.getValue() ) { // overwritten or removed
+                it.remove();
+                Files.deleteIfExists( Paths.get( e.getValue().path ) );
+            }
+        }
+        for ( Map.Entry<String,Object> e: _memory.entrySet() ) {
+            if ( e.getValue() == null || e.getValue() instanceof Spilled || this.resident.containsKey( e.getKey() ) )
+                continue;
+            final long size = estimateSize( e.getValue() );
+            this.resident.put( e.getKey(), new Resident( e.getValue(), size, null ) );
+            this.residentBytes += size;
+        }
+    }
+
+    /** While over budget, moves the least-recently used content (other than _except) out of memory */
+    private void enforce( final LinkedHashMap<String,Object> _memory, final String _except ) throws Exception {
+        while ( this.residentBytes > this.budget ) {
+            String victim = null;
+            for ( Map.Entry<String,Resident> e: this.resident.entrySet() ) // Not resident.get(), which would modify the LRU-order while iterating
+                if ( ! e.getValue().pinned && ! e.getKey().equals( _except ) ) {
+                    victim = e.getKey();
+                    break;
+                }
+            if ( victim == null )
+                return; // whatever is left can NOT be moved out of memory
+            final Resident r = this.resident.get( victim );
+            final Spilled placeholder;
+            try {
+                placeholder = ( r.origin != null ) ? r.origin : this.write( victim, r );
+            } catch ( java.io.NotSerializableException e ) {
+                if ( this.verbose ) System.out.println( CLASSNAME +": enforce(): will keep '"+ victim +"' in memory, as: "+ e.getMessage() );
+                r.pinned = true;
+                continue;
+            }
+            if ( r.origin != null ) this.reuses ++;
+            this.spills ++;
+            _memory.put( victim, placeholder ); // same position within memory (it's a LinkedHashMap)
+            this.resident.remove( victim );
+            this.residentBytes -= r.size;
+            this.spilled.put( victim, placeholder );
+            if ( this.verbose ) System.out.println( CLASSNAME +": enforce(): "+ placeholder );
+        }
+    }
+
+    private Spilled write( final String _label, final Resident _r ) throws Exception {
+        if ( this.dir == null )
+            this.dir = Files.createTempDirectory( "asux-memory-" );
+        final Path file = Files.createTempFile( this.dir, "saveTo-", ".bin.gz" );
+        try {
+            try ( DataOutputStream out = new DataOutputStream( new GZIPOutputStream( new BufferedOutputStream( Files.newOutputStream( file ) ) ) ) ) {
+                BatchCheckpoint.writeValue( out, _r.value, this.yamlImpl );
+            }
+        } catch ( Exception e ) {
+            Files.deleteIfExists( file );
+            throw e;
+        }
+        final Spilled placeholder = new Spilled( _label, file, _r.size );
+        this.bytesWritten += placeholder.fileSize;
+        return placeholder;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private static final ConcurrentHashMap< Class<?>, Field[] > FIELDS = new ConcurrentHashMap<>();
+
+    /** Maps, Collections and arrays with more entries than this are estimated from a sample (this many entries), which is then scaled up */
+    static final int SAMPLE_SIZE = 32;
+    /** Once this many objects have been visited, each Map, Collection or array is estimated from just ONE of its entries (scaled up) */
+    static final int MAX_VISITS = 10000;
+
+    /**
+     *  <p>Estimates the heap-size of _o and everything reachable from it (each object is counted once).</p>
+     *  <p>Strings, arrays, Maps and Collections are estimated from their sizes.  Other classes from the JDK (boxed numbers, ..) are counted as small objects.
+     *      For all other classes (example: SnakeYAML's Node and the Mark that it references), the fields are followed.</p>
+     *  <p>The object-graph is walked breadth-first, and NOT in full:  only the first {@link #SAMPLE_SIZE} entries of large Maps/Collections/arrays are followed (and the result scaled up to the # of entries).
+     *      Beyond {@link #MAX_VISITS} objects, only the 1st entry is followed.  So, the cost is about the same for a 1 MB and a 1 GB tree.</p>
+     *  @param _o Nullable
+     *  @return an estimate (in bytes) - good enough to compare the sizes of 2 YAML trees, Not much more
+     */
+    public static long estimateSize( final Object _o ) {
+        final IdentityHashMap<Object,Boolean> seen = new IdentityHashMap<>();
+        final ArrayDeque<Object> todo = new ArrayDeque<>();
+        final ArrayDeque<Double> weights = new ArrayDeque<>(); // how many objects (of the actual graph) each object in 'todo' stands for
+        if ( _o != null ) { todo.addLast( _o ); weights.addLast( 1.0 ); }
+        double total = 0;
+        int visits = 0;
+        while ( ! todo.isEmpty() ) {
+            final Object o = todo.pollFirst();
+            final double w = weights.pollFirst();
+            if ( seen.put( o, Boolean.TRUE ) != null )
+                continue;
+            final int sample = ( ++ visits < MAX_VISITS ) ? SAMPLE_SIZE : 1;
+            final Class<?> c = o.getClass();
+            if ( o instanceof String ) {
+                total += w * ( 40 + 2L * ( (String) o ).length() );
+            } else if ( c.isArray() ) {
+                final int len = Array.getLength( o );
+                if ( c.getComponentType().isPrimitive() ) {
+                    total += w * ( 16 + (long) len * primitiveSize( c.getComponentType() ) );
+                } else {
+                    total += w * ( 16 + 8L * len );
+                    final int stride = Math.max( 1, ( len + sample - 1 ) / sample );
+                    for ( int ix = 0; ix < len; ix += stride ) {
+                        final Object e = ( (Object[]) o )[ ix ];
+                        if ( e != null ) { todo.addLast( e ); weights.addLast( w * Math.min( stride, len - ix ) ); }
+                    }
+                }
+            } else if ( o instanceof Map ) {
+                final int size = ( (Map<?,?>) o ).size();
+                total += w * ( 48 + 40L * size );
+                final double scale = w * size / Math.max( 1, Math.min( size, sample ) );
+                int count = 0;
+                for ( Iterator<? extends Map.Entry<?,?>> it = ( (Map<?,?>) o ).entrySet().iterator(); it.hasNext() && count < sample; count ++ ) {
+                    final Map.Entry<?,?> e = it.next();
+                    if ( e.getKey() != null ) { todo.addLast( e.getKey() ); weights.addLast( scale ); }
+                    if ( e.getValue() != null ) { todo.addLast( e.getValue() ); weights.addLast( scale ); }
+                }
+            } else if ( o instanceof Collection ) {
+                final int size = ( (Collection<?>) o ).size();
+                total += w * ( 40 + 24L * size );
+                final double scale = w * size / Math.max( 1, Math.min( size, sample ) );
+                int count = 0;
+                for ( Iterator<?> it = ( (Collection<?>) o ).iterator(); it.hasNext() && count < sample; count ++ ) {
+                    final Object e = it.next();
+                    if ( e != null ) { todo.addLast( e ); weights.addLast( scale ); }
+                }
+            } else if ( o instanceof Enum || o instanceof Class ) {
+                // shared constants.  Not part of this content.
+            } else if ( c.getName().startsWith( "java." ) ) {
+                total += w * 16;
+            } else {
+                final Field[] fields = fieldsOf( c );
+                total += w * ( 16 + 8L * fields.length );
+                for ( Field f: fields ) {
+                    if ( f.getType().isPrimitive() ) continue;
+                    try {
+                        final Object v = f.get( o );
+                        if ( v != null ) { todo.addLast( v ); weights.addLast( w ); }
+                    } catch ( IllegalAccessException e ) {
+                        // count just the reference
+                    }
+                }
+            }
+        }
+        return (long) total;
+    }
+
+    private static Field[] fieldsOf( final Class<?> _c ) {
+        Field[] fields = FIELDS.get( _c );
+        if ( fields == null ) {
+            final ArrayList<Field> list = new ArrayList<>();
+            for ( Class<?> c = _c; c != null && ! c.getName().startsWith( "java." ); c = c.getSuperclass() ) {
+                for ( Field f: c.getDeclaredFields() ) {
+                    if ( Modifier.isStatic( f.getModifiers() ) ) continue;
+                    try {
+                        f.setAccessible( true );
+                        list.add( f );
+                    } catch ( RuntimeException e ) { // java.lang.reflect.InaccessibleObjectException (Java 9+) or SecurityException
+                        // Not counted
+                    }
+                }
+            }
+            fields = list.toArray( new Field[ list.size() ] );
+            FIELDS.putIfAbsent( _c, fields );
+        }
+        return fields;
+    }
+
+    private static int primitiveSize( final Class<?> _c ) {
+        if ( _c == long.class || _c == double.class ) return 8;
+        if ( _c == int.class || _c == float.class ) return 4;
+        if ( _c == short.class || _c == char.class ) return 2;
+        return 1;
+    }
+
+}
@@ -73,6 +73,20 @@ public class YAMLCmdANTLR4Parser implements org.ASUX.language.antlr4.GenericCmdA
 
     public boolean verbose;
 
+    /** Max # of distinct command-lines, whose parsed output is cached by {@link #parseYamlCommandLine} */
+    public static final int CACHE_SIZE = 1024;
+
+    /** LRU cache (as LinkedHashMap is in access-order).  Always synchronize on this object before use. */
+    private static final java.util.LinkedHashMap< String, ArrayList<CmdLineArgsCommon> > PARSED_CACHE =
+                    new java.util.LinkedHashMap< String, ArrayList<CmdLineArgsCommon> >( 64, 0.75f, true ) {
+                        private static final long serialVersionUID = 1L;
+                        @Override protected boolean removeEldestEntry( final java.util.Map.Entry< String, ArrayList<CmdLineArgsCommon> > _eldest ) {
+                            return this.size() > CACHE_SIZE;
+                        }
+                    };
+    private static final java.util.concurrent.atomic.AtomicLong CACHE_HITS = new java.util.concurrent.atomic.AtomicLong();
+    private static final java.util.concurrent.atomic.AtomicLong CACHE_MISSES = new java.util.concurrent.atomic.AtomicLong();
+
     //==============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
@@ -227,7 +241,58 @@ public class YAMLCmdANTLR4Parser implements org.ASUX.language.antlr4.GenericCmdA
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
 
+    /**
+     *  <p>Parses the command-line (a single line within a batch-file, or the command-line provided by the user).</p>
+     *  <p>Inside 'foreach' loops, the exact same (macro-expanded) line is typically parsed over and over.
+     *      So, the parsed output is cached (see {@link #CACHE_SIZE}) by the exact command-line string, and each invocation returns a fresh copy.</p>
+     *  @param _cmdLineStr NotNull command-line string
+     *  @return a NotNull list (empty, if there are syntax errors).  The caller is free to modify the objects within.
+     *  @throws Exception any unexpected internal errors
+     */
     public ArrayList<org.ASUX.language.antlr4.CmdLineArgs> parseYamlCommandLine( final String _cmdLineStr ) throws Exception {
+        ArrayList<CmdLineArgsCommon> templates;
+        synchronized( PARSED_CACHE ) {
+            templates = PARSED_CACHE.get( _cmdLineStr );
+        }
+        if ( templates == null ) {
+            CACHE_MISSES.incrementAndGet();
+            final ArrayList<org.ASUX.language.antlr4.CmdLineArgs> parsed = this.parseYamlCommandLineUncached( _cmdLineStr );
+            if ( parsed.isEmpty() ) // do NOT cache syntax-errors, so that error-messages are shown each time.
+                return parsed;
+            templates = new ArrayList<>( parsed.size() );
+            for ( org.ASUX.language.antlr4.CmdLineArgs c: parsed )
+                templates.add( ((CmdLineArgsCommon) c).copy() );
+            synchronized( PARSED_CACHE ) {
+                PARSED_CACHE.put( _cmdLineStr, templates );
+            }
+            return parsed;
+        }
+
+        CACHE_HITS.incrementAndGet();
+        if ( this.verbose ) System.out.println( HDR0 +".parseYamlCommandLine(): cache-hit for: "+ _cmdLineStr );
+        final ArrayList<org.ASUX.language.antlr4.CmdLineArgs> returnArray = new ArrayList<>( templates.size() );
+        for ( CmdLineArgsCommon c: templates )
+            returnArray.add( c.copy() ); // the cached templates are never handed out
+        return returnArray;
+    }
+
+    /**
+     *  For use with --showStats
+     *  @return a NotNull human-readable summary of cache hits/misses of {@link #parseYamlCommandLine}
+     */
+    public static String getCacheStats() {
+        final int size;
+        synchronized( PARSED_CACHE ) {
+            size = PARSED_CACHE.size();
+        }
+        return "Parsed command-line cache: "+ CACHE_HITS.get() +" hits, "+ CACHE_MISSES.get() +" misses, "+ size +" entries (max "+ CACHE_SIZE +")";
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private ArrayList<org.ASUX.language.antlr4.CmdLineArgs> parseYamlCommandLineUncached( final String _cmdLineStr ) throws Exception {
         final String HDR = HDR0 + ".parseYamlCommandLine():\t";
         final ArrayList<org.ASUX.language.antlr4.CmdLineArgs> returnArray = new ArrayList<>();
 
@@ -209,6 +209,70 @@ public abstract class YAMLImplementation<T> implements Serializable
 
     public abstract YAMLImplementation<T> deepClone() throws Exception;
 
+    //=================================================================================
+
+    /**
+     *  <p>Think of a YAML-implementation as 2 parts: (1) its configuration - the {@link #getLibraryOptionsObject()} (example: SnakeYAML's DumperOptions) - which is shared and treated as immutable,
+     *      and (2) its per-invocation state (example: the writer used by {@link #write} and {@link #close}), which can NOT be used by 2 commands at the same time.</p>
+     *  <p>Rather than {@link #deepClone()} the implementation for every command (example: every line of a batch-file), a command {@link #acquire()}s a copy and {@link #release}s it when done.
+     *      The next command re-uses that same copy.  So, the # of deep-clones is the # of commands running at the same time (example: 'foreach --parallel' and '--prefetch'), Not the # of commands.</p>
+     *  <p>A command that needs a different configuration must {@link #setLibraryOptionsObject} a new object (never modify the shared one in-place).  Such a copy is Not re-used.</p>
+     *  <p>This is thread-safe.</p>
+     *  @param <T> either SnakeYAML's Node.class or LinkedHashMap&lt;String,Object&gt; for EsotericSoftware's YAML implementation
+     */
+    public static final class Shared<T> {
+        private final YAMLImplementation<T> prototype;
+        private final Object options;
+        private final java.util.concurrent.ConcurrentLinkedQueue< YAMLImplementation<T> > idle = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        /** the library-options object of each copy, as it was deep-cloned */
+        private final java.util.Map< YAMLImplementation<T>, Object > optionsOfCopy = java.util.Collections.synchronizedMap( new java.util.IdentityHashMap<>() );
+
+        /** @param _prototype NotNull.  What is copied.  It's never handed out by {@link #acquire()} */
+        public Shared( final YAMLImplementation<T> _prototype ) {
+            this.prototype = _prototype;
+            this.options = _prototype.getLibraryOptionsObject();
+        }
+
+        /**
+         *  @param _impl Nullable
+         *  @return true if _impl is either the prototype of this object or a copy {@link #acquire()}d from it, and its configuration has Not been replaced since
+         */
+        public boolean isFor( final YAMLImplementation<?> _impl ) {
+            if ( _impl == null )
+                return false;
+            if ( _impl == this.prototype )
+                return _impl.getLibraryOptionsObject() == this.options;
+            final Object optionsOfCopy = this.optionsOfCopy.get( _impl );
+            return optionsOfCopy != null && optionsOfCopy == _impl.getLibraryOptionsObject();
+        }
+
+        /**
+         *  @return a NotNull copy of the prototype, for use by ONE command at a time.  Either one that was {@link #release}d, or a new deep-clone
+         *  @throws Exception if {@link #deepClone()} fails
+         */
+        public YAMLImplementation<T> acquire() throws Exception {
+            YAMLImplementation<T> impl = this.idle.poll();
+            if ( impl == null ) {
+                impl = this.prototype.deepClone();
+                this.optionsOfCopy.put( impl, impl.getLibraryOptionsObject() );
+            }
+            return impl;
+        }
+
+        /**
+         *  The command is done with _impl (as returned by {@link #acquire()}).  It's re-used ONLY if its configuration is still the shared one.
+         *  @param _impl Nullable
+         */
+        public void release( final YAMLImplementation<T> _impl ) {
+            if ( _impl == null || ! this.optionsOfCopy.containsKey( _impl ) )
+                return;
+            if ( this.optionsOfCopy.get( _impl ) == _impl.getLibraryOptionsObject() )
+                this.idle.offer( _impl );
+            else
+                this.optionsOfCopy.remove( _impl );
+        }
+    }
+
     //=================================================================================
     /**
      *  <p>This is one of the factory methods</p>
@@ -299,6 +363,7 @@ public abstract class YAMLImplementation<T> implements Serializable
      *  @param _cmdLineArgs NotNull instance of a subclass of {@link org.ASUX.yaml.CmdLineArgsCommon}
      *  @param _cmdInvoker  NotNull instance of a subclass of {@link org.ASUX.yaml.CmdInvoker}
      *  @return a NotNull reference to a subclass
+     *  @throws IllegalStateException if the implementation-class could Not be loaded or started up (instead of System.exit(), which would kill a CmdDaemon)
      */
     public static <T> YAMLImplementation<T> startupYAMLImplementationFactory( final YAML_Libraries _yamllibrary_type, final org.ASUX.yaml.CmdLineArgsCommon _cmdLineArgs, final CmdInvoker _cmdInvoker )
     {   final String HDR = CLASSNAME +": startupYAMLImplementationFactory("+ _yamllibrary_type +",_cmdLineArgs,_cmdInvoker): ";
@@ -340,19 +405,13 @@ public abstract class YAMLImplementation<T> implements Serializable
             }
 
         } catch (ClassNotFoundException e2) {
-            e2.printStackTrace(System.err); // main() unit-testing
-            System.err.println( "\n\nInternal Error!\t"+ HDR +" error(ClassNotFoundException): '" + _cmdLineArgs + "'.");
-            System.exit(6);
+            // NOT System.exit(), as a CmdDaemon runs many requests within the same JVM.  Cmd.main() exits with status 6 for this.
+            throw new IllegalStateException( "\n\nInternal Error!\t"+ HDR +" error(ClassNotFoundException): '" + _cmdLineArgs + "'.", e2 );
+        } catch (RuntimeException | Error e) {
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace(System.err); // main() unit-testing
-            System.err.println( "\n\nInternal Error!\t"+ HDR +" for '" + _cmdLineArgs + "'.");
-            System.exit(6);
-        } catch (Throwable t) {
-            t.printStackTrace(System.err); // main() unit-testing
-            System.err.println( "\n\nInternal Error!\t"+ HDR +" for '" + _cmdLineArgs + "'.");
-            System.exit(6);
+            throw new IllegalStateException( "\n\nInternal Error!\t"+ HDR +" for '" + _cmdLineArgs + "'.", e );
         }
-        return null; // We shouldn't be getting here, because of the System.exit() in the catch-blocks above.
 
     }
 
@@ -33,14 +33,8 @@
 package org.ASUX.yaml;
 
 import java.util.regex.*;
-import java.util.stream.IntStream;
 //import java.io.Cloneable;
 import java.io.Serializable;
-import java.io.ByteArrayOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ObjectOutputStream;
-import java.io.ObjectInputStream;
-import java.io.IOException;
 
 /** This class encapsulates a YAML Path/Pattern, and makes it super-easy to parse and manipulate it.
  *  In fact, this class makes it very safe to assume that the user's input (for the YAMLPath/pattern) is valid and squeaky-clean.
@@ -69,10 +63,13 @@ import java.io.IOException;
         .. ..
         final YAMLPath cloneOfYAMLPath = YAMLPath.deepClone(_yamlPath); // to keep _yamlPath intact as we recurse in and out of sub-yaml-elements
 </pre>
+ *  <p>Instead of the above (re-evaluating regular-expressions, and cloning at each level), traversals should use {@link #getMatcher()} - which advances a small integer state per YAML-node.</p>
+ *  <p>Alternatively, the parsed path-elements are immutable, and the position within them is just an int (a <b>cursor</b>).  So, a recursive traversal can pass a cursor down (see {@link #getCursor()}, {@link #next(int)}, {@link #get(int)}, ..) - instead of cloning this object.
+ *      And {@link #deepClone} is a cheap shallow-copy (the path-elements are shared), that copies just the cursor.</p>
  *
  * @see org.ASUX.yaml.Cmd
  */
-public class YAMLPath implements Serializable {
+public class YAMLPath implements Serializable, Cloneable {
 
     public static final String DEFAULTDELIMITER = "\\.";
     public static final String DEFAULTPRINTDELIMITER = "\t";
@@ -93,12 +90,16 @@ public class YAMLPath implements Serializable {
      */
     public final boolean verbose;
 
-    public boolean isValid = false;
+    public final boolean isValid;
     public final String yamlPathStr;
     public final String delimiter;
     public final String prntDelimiter;
-    public String[] yamlElemArr = new String[]{"UNinitialized", "yamlElemArr"};
+    /** The parsed path-elements.  Shared by all the clones of this object (see {@link #deepClone}).  So, NEVER modify it. */
+    public final String[] yamlElemArr;
+    /** Same as {@link #yamlElemArr}, but classified.  See {@link #getElement(int)} */
+    private final YAMLPathElement[] elements;
 
+    /** The cursor.  See {@link #getCursor()} */
     protected int indexPtr = -1;
 
     //------------------------------------------------------------------------------
@@ -160,7 +161,10 @@ public class YAMLPath implements Serializable {
         }catch(PatternSyntaxException e){
             if ( _verbose ) e.printStackTrace(System.err);
             System.err.println( HDR +" Invalid delimiter-pattern '"+ _delim +"' provided to constructor " );
-            return; // invalid YAML Path.  Let "this.isValid" stay as false
+            this.yamlElemArr = new String[]{"UNinitialized", "yamlElemArr"};
+            this.elements = new YAMLPathElement[0];
+            this.isValid = false;
+            return; // invalid YAML Path.
         }
 
         if (this.verbose) System.out.println( HDR +" Sanity check completed for yp=["+ _yp +"]" );
@@ -168,18 +172,19 @@ public class YAMLPath implements Serializable {
 
         final String delim = ( ".".equals(_delim) ) ? "\\." : _delim;
         if (this.verbose) System.out.println( HDR +" about to split '"+_yp+"' with delimiter '"+ delim +"'");
-        this.yamlElemArr = _yp.split( delim );
+        final String[] elemArr = _yp.split( delim );
 
-        if (this.verbose) System.out.println( HDR +" this.yamlElemArr has length '"+this.yamlElemArr.length+"'");
+        if (this.verbose) System.out.println( HDR +" this.yamlElemArr has length '"+elemArr.length+"'");
         if (this.verbose) {
-            if ( this.yamlElemArr != null & this.yamlElemArr.length > 0 )
-                System.out.println( HDR +" this.yamlElemArr[0] = '"+this.yamlElemArr[0]+"'");
+            if ( elemArr != null & elemArr.length > 0 )
+                System.out.println( HDR +" this.yamlElemArr[0] = '"+elemArr[0]+"'");
             else
                 System.out.println( HDR +" this.yamlElemArr is NULL or empty");
         }
 
-        for(int ix=0; ix < this.yamlElemArr.length; ix++ ) {
-            String elem = this.yamlElemArr[ix];
+        final YAMLPathElement[] elements = new YAMLPathElement[ elemArr.length ];
+        for(int ix=0; ix < elemArr.length; ix++ ) {
+            String elem = elemArr[ix];
             try {
                 if (this.verbose) System.out.println( HDR +" checking on .. YAML-element '"+ elem +"'.");
                 if (elem.equals("**") ) {
@@ -187,17 +192,20 @@ public class YAMLPath implements Serializable {
                 }else {
                     if (elem.equals("*") ) {
                         elem = MATCHANYSINGLEPATHELEMENT; // convert human-friendly * into formal-regexp .*
-                        this.yamlElemArr[ix] = elem;
+                        elemArr[ix] = elem;
                     }
-                    if (this.verbose) System.out.println( HDR +" YAML-element='"+ this.yamlElemArr[ix] +"'.");
-                    /* final Pattern p = */ Pattern.compile(elem); // not using this, but if 'elem' is invalid, exception thrown
+                    if (this.verbose) System.out.println( HDR +" YAML-element='"+ elemArr[ix] +"'.");
                 }
+                elements[ix] = YAMLPathElement.of( elem ); // if 'elem' is invalid, exception thrown
+                if (this.verbose) System.out.println( HDR +" classified as "+ elements[ix] );
             }catch(PatternSyntaxException e){
                 if ( this.verbose ) e.printStackTrace(System.err);
                 throw new YAMLPathException(  HDR +" Invalid YAML-Path Regular-Expression '"+ elem +"' @ position# "+ ix +".\nException-message: "+ e );
             }
         } // for
 
+        this.yamlElemArr = elemArr; // From now on, NEVER modified.
+        this.elements = elements;
         this.isValid = (this.yamlElemArr.length > 0);
         this.indexPtr = (this.yamlElemArr.length > 0) ? 0 : -1;
     } // Constructor
@@ -220,29 +228,117 @@ public class YAMLPath implements Serializable {
         return this.isValid;
     }
 
+    //=======================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=======================================================================
+
+    /** <p>The current position within the path-elements.  It's just an int: copying it costs nothing.  Pass it to {@link #hasNext(int)}, {@link #next(int)}, {@link #get(int)}, .. .. - which do NOT change this object.</p>
+     *  <p>Flags (like {@link #hasWildcardPrefix(int)}) are derived from the cursor and the (immutable) path-elements.  So, they need Not be carried around.</p>
+     *  @return the cursor (same as {@link #index()} for a valid object)
+     */
+    public int getCursor() {
+        return this.indexPtr;
+    }
+
+    /** Moves this object to the position of a cursor
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     */
+    public void setCursor( final int _cursor ) {
+        this.indexPtr = _cursor;
+    }
+
+    /** Same as {@link #hasNext()}, but for the cursor passed in
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     *  @return true means {@link #get(int)} will return a valid string
+     */
+    public boolean hasNext( final int _cursor ) {
+        if ( ! this.isValid ) return false;
+        return _cursor < this.yamlElemArr.length;
+    }
+
+    /** Same as {@link #next()}, but for the cursor passed in
+     *  @param _cursor as returned by {@link #getCursor()} or by this method
+     *  @return the cursor pointing to the next path-element
+     */
+    public int next( final int _cursor ) {
+        return this.hasNext( _cursor ) ? _cursor + 1 : _cursor;
+    }
+
+    /** Same as {@link #get()}, but for the cursor passed in
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     *  @return Nullable.  The path-element at that cursor
+     */
+    public String get( final int _cursor ) {
+        if ( ! this.isValid ) return null;
+        if ( _cursor >= 0 && _cursor < this.yamlElemArr.length )
+            return this.yamlElemArr[ _cursor ];
+        else
+            return null;
+    }
+
+    /** Whether the path-element at the cursor is a plain key, a simple wildcard, or a regular-expression.  Traversals can look up a plain key directly (see {@link YAMLPathElement#isLiteral()}).
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     *  @return Nullable.  The classified path-element at that cursor
+     */
+    public YAMLPathElement getElement( final int _cursor ) {
+        if ( ! this.isValid ) return null;
+        if ( _cursor >= 0 && _cursor < this.elements.length )
+            return this.elements[ _cursor ];
+        else
+            return null;
+    }
+
+    /** Same as {@link #hasWildcardPrefix()}, but for the cursor passed in
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     *  @return whether the YAML-Element before that cursor was "**" or Not.
+     */
+    public boolean hasWildcardPrefix( final int _cursor ) {
+        if ( ! this.isValid ) return false;
+        if ( _cursor <= 0 || _cursor >= this.yamlElemArr.length )
+            return false; // at the beginning of the YAML path (SEMANTICALLY false), or beyond the end
+        return "**".equals( this.yamlElemArr[ _cursor - 1 ] );
+    }
+
+    /** Same as {@link #getPrefix()}, but for the cursor passed in
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     *  @return Nullable.  The path-elements before the cursor (each followed by {@link #prntDelimiter})
+     */
+    public String getPrefix( final int _cursor ) {
+        if ( ! this.isValid ) return null;
+        if ( _cursor >= this.yamlElemArr.length )
+            return null; // We've a problem if we're here
+        final StringBuilder retStrBldr = new StringBuilder();
+        for ( int ix = 0; ix < _cursor; ix ++ )
+            retStrBldr.append( this.yamlElemArr[ix] ).append( this.prntDelimiter );
+        return retStrBldr.toString();
+    }
+
+    /** Same as {@link #getSuffix()}, but for the cursor passed in
+     *  @param _cursor as returned by {@link #getCursor()} or {@link #next(int)}
+     *  @return Nullable.  The path-elements after the cursor (each preceded by {@link #prntDelimiter})
+     */
+    public String getSuffix( final int _cursor ) {
+        if ( ! this.isValid ) return null;
+        if ( _cursor >= this.yamlElemArr.length )
+            return null; // We've a problem if we're here
+        final StringBuilder retStrBldr = new StringBuilder();
+        for ( int ix = _cursor + 1; ix < this.yamlElemArr.length; ix ++ )
+            retStrBldr.append( this.prntDelimiter ).append( this.yamlElemArr[ix] );
+        return retStrBldr.toString();
+    }
+
     //=======================================================================
     /** For example strings like "<code>paths.*.*.responses.200</code>", your first call will return true.  If you call {@link #next()} <b>up to 4 times</b>, this function will return true.  After you call next() a 5th time, this function will return false.
      *  @return true means {@link #get()} will return a valid string, GUARANTEED to NOT Throw any runtime exception :-)
      */
     public boolean hasNext() {
-        // final String HDR = CLASSNAME +": hasNext():";
-        // System.out.println( HDR +"hasNext(): Starting.");
-        if ( ! this.isValid ) return false;
-        return this.indexPtr < this.yamlElemArr.length;
+        return this.hasNext( this.indexPtr );
     }
 
     /** For example strings like "<code>paths.*.*.responses.200</code>", your <b>1st 5 invocations</b> will make this object point to valid Path-Elements (call {@link #get} to get those valid Path-Element-strings.  After you call <code>next()</code> a 6th time (for same example), this object will point to null(String) and from then onwards, {@link #get} will return null.
      */
     public void next() {
-//        String retstr = null;
-//        if ( this.hasNext() ) {
-//            retstr = this.yamlElemArr[this.indexPtr];
-//            this.indexPtr ++;
-//        }
-//        return retstr;
-        if ( this.hasNext() ) {
-            this.indexPtr ++;
-        }
+        this.indexPtr = this.next( this.indexPtr );
     }
 
 
@@ -265,11 +361,7 @@ public class YAMLPath implements Serializable {
      *  @return a string that does NOT have periods/dots/delimiter in it.  The string may be (based on example above) = "*".
      */
     public String get() {
-        if ( ! this.isValid ) return null;
-        if ( this.indexPtr < this.yamlElemArr.length )
-            return this.yamlElemArr[this.indexPtr];
-        else
-            return null;
+        return this.get( this.indexPtr );
     }
 
     /** For example: if the cmdline or batch-yaml files provide a YAML-Path pattern strings like "<code>paths.*.*.responses.200</code>", this function returns EXACTLY that (as-is)
@@ -291,52 +383,21 @@ public class YAMLPath implements Serializable {
      *  @return a string that does NOT have periods/dots in it.  The string may be (based on example above) = "*".
      */
     public String getPrefix() {
-        if ( ! this.isValid ) return null;
-        if ( this.indexPtr < this.yamlElemArr.length ) {
-            final StringBuilder retStrBldr = new StringBuilder();
-            // Compiler error: local variables referenced from a lambda expression must be final or effectively final
-            // IntStream.range(0, this.indexPtr).forEach(i -> retStr += this.yamlElemArr[i]);
-            final int[] range = IntStream.range(0, this.indexPtr).toArray();
-            for(int ix : range )
-                retStrBldr.append(  this.yamlElemArr[ix] ).append( this.prntDelimiter );
-            return retStrBldr.toString();
-        }else{
-            return null; // We've a problem if we're here
-        }
+        return this.getPrefix( this.indexPtr );
     }
 
     /** For example: strings like "<code>**.xml</code>", before your 1st call to next(), this function will return true.  After the 1st call to next(), this function will return "true".  After the 2nd call .., this will return false
      *  @return whether the previous YAML-Element was "**" or Not.
      */
     public boolean hasWildcardPrefix() {
-        if ( ! this.isValid ) return false;
-        if ( this.indexPtr < this.yamlElemArr.length ) {
-            if ( this.indexPtr <= 0 ) {
-                return false; // We are the beginning of the YAML path.  So, SEMANTICALLY false!
-            } else {
-                return ( "**".equals( this.yamlElemArr[this.indexPtr - 1] ) );
-            }
-        }else{
-            return false; // We've a problem if we're here
-        }
+        return this.hasWildcardPrefix( this.indexPtr );
     }
     
     /** For example strings like "<code>paths.*.*.responses.200</code>", before your 1st call to next(), this function will return "<code>paths.*.*.responses.200</code>".  After the 1st call to next(), this function will return "<code>*.*.responses.200</code>".  After the 3rd call to next(), this will return "<code>responses.200</code>".  After you call next() a 5th time(or more), this function will return null(String).
      *  @return a string that does NOT have periods/dots in it.  The string may be (based on example above) = "*".
      */
     public String getSuffix() {
-        if ( ! this.isValid ) return null;
-        if ( this.indexPtr < this.yamlElemArr.length ) {
-            final StringBuilder retStrBldr = new StringBuilder();
-            // Compiler error: local variables referenced from a lambda expression must be final or effectively final
-            // IntStream.range(this.indexPtr, this.yamlElemArr.length).forEach(i -> retstr+= this.yamlElemArr[i]);
-            int[] range = IntStream.range(this.indexPtr, this.yamlElemArr.length).skip(1).toArray();
-            for(int ix : range )
-                retStrBldr.append( this.prntDelimiter ).append( this.yamlElemArr[ix] );
-            return retStrBldr.toString();
-        }else{
-            return null; // We've a problem if we're here
-        }
+        return this.getSuffix( this.indexPtr );
     }
 
     /**
@@ -353,23 +414,28 @@ public class YAMLPath implements Serializable {
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=======================================================================
 
-    /** This deepClone function is unnecessary, if you can invoke org.apache.commons.lang3.SerializationUtils.clone(this)
-     *  @param _orig what you want to deep-clone
-     *  @return a deep-cloned copy, created by serializing into a ByteArrayOutputStream and reading it back (leveraging ObjectOutputStream)
+    /** The compiled form of the (whole) YAML-path, for use by traversals of YAML-trees.  It does Not depend on (nor change) the current position of this object (see {@link #next()}).
+     *  @return NotNull.  Shared by all YAMLPath instances with the same path-elements.  Null ONLY if this object is invalid (see {@link #isValid()})
+     */
+    public YAMLPathMatcher getMatcher() {
+        if ( ! this.isValid ) return null;
+        return YAMLPathMatcher.compile( this.yamlElemArr ); // each element was already validated by the constructor
+    }
+
+    //=======================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=======================================================================
+
+    /** A shallow copy: the (immutable) path-elements are shared, and ONLY the cursor (see {@link #getCursor()}) is copied.  So, calling next() on the copy does Not affect the original.
+     *  @param _orig what you want to copy
+     *  @return a copy of the same class as _orig (null if _orig is null)
      */
     public static YAMLPath deepClone(YAMLPath _orig) {
+        if ( _orig == null ) return null;
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(_orig);
-            
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            return (YAMLPath) ois.readObject();
-        } catch (IOException e) {
-            return null;
-        } catch (ClassNotFoundException e) {
-            return null;
+            return (YAMLPath) _orig.clone();
+        } catch (CloneNotSupportedException e) {
+            return null; // can NOT happen, as this class implements Cloneable
         }
     }
 
@@ -381,8 +447,7 @@ public class YAMLPath implements Serializable {
      *  This equality function is needed for efficient processing within InsertYamlProcessor.java.
      *  This function does NOT assume any common objects/strings.
      *  It does a TRUE value-based comparison.
-     *  This does !!!NOT!!! tke advantage of the fact that this class is java.io.Streamable.
-     *  So.. basically this function simply compares the prefix and suffixes of LHS and RHS (the underlying implementation for java.io.Streamable).
+     *  So.. basically this function simply compares the prefix and suffixes of LHS and RHS - element by element (without building the strings returned by {@link #getPrefix()} and {@link #getSuffix()}).
      *  By implications, if you have cloned a YAMLPath instance and called next() on the clone, both the original and clone areEquivalent===true;
      *  @param _lhs left hand side
      *  @param _rhs right hand side
@@ -390,32 +455,35 @@ public class YAMLPath implements Serializable {
      */
     public static boolean areEquivalent( YAMLPath _lhs, YAMLPath _rhs ) {
         if ( _lhs == null && _rhs == null ) return true;
-        if ( _lhs == null || _lhs.getPrefix() == null || _lhs.getSuffix() == null ) return false;
-        return _lhs.getPrefix().equals(_rhs.getPrefix()) && _lhs.getSuffix().equals(_rhs.getSuffix());
+        if ( _lhs == null || _rhs == null ) return false;
+        if ( ! _lhs.isValid || ! _rhs.isValid || _lhs.indexPtr >= _lhs.yamlElemArr.length || _rhs.indexPtr >= _rhs.yamlElemArr.length ) return false;
+        if ( _lhs.indexPtr != _rhs.indexPtr || _lhs.yamlElemArr.length != _rhs.yamlElemArr.length || ! _lhs.prntDelimiter.equals( _rhs.prntDelimiter ) ) return false;
+        if ( _lhs.yamlElemArr == _rhs.yamlElemArr ) return true; // clones share the path-elements
+        for ( int ix = 0; ix < _lhs.yamlElemArr.length; ix ++ )
+            if ( ix != _lhs.indexPtr && ! _lhs.yamlElemArr[ix].equals( _rhs.yamlElemArr[ix] ) ) // the current element is Not part of either prefix or suffix
+                return false;
+        return true;
     }
 
     /** See also {@link #areEquivalent}.
      *  This function does NOT assume any common objects/strings.
-     *  It does a TRUE value-based comparison - by taking advantage of the fact that this class is java.io.Streamable.
+     *  It does a TRUE value-based comparison of every attribute of this class (the same attributes that java.io.Serializable would write out).
      *  By implications, if you have cloned a YAMLPath instance and called next() on the clone, they are NOT equal.
      *  @param _lhs left hand side
      *  @param _rhs right hand side
      *  @return true or fale
      */
     public static boolean equals( YAMLPath _lhs, YAMLPath _rhs ) {
-        try {
-            ByteArrayOutputStream baosLHS = new ByteArrayOutputStream();
-            ObjectOutputStream oosLHS = new ObjectOutputStream(baosLHS);
-            oosLHS.writeObject(_lhs);
-            ByteArrayOutputStream baosRHS = new ByteArrayOutputStream();
-            ObjectOutputStream oosRHS = new ObjectOutputStream(baosRHS);
-            oosRHS.writeObject(_rhs);
-            return java.util.Arrays.equals( baosLHS.toByteArray(), baosRHS.toByteArray() );
-        } catch (IOException e) {
-            return false;
-        // } catch (ClassNotFoundException e) {
-        //     return null;
-        }
+        if ( _lhs == _rhs ) return true;
+        if ( _lhs == null || _rhs == null ) return false;
+        return _lhs.getClass() == _rhs.getClass()
+            && _lhs.verbose == _rhs.verbose
+            && _lhs.isValid == _rhs.isValid
+            && _lhs.indexPtr == _rhs.indexPtr
+            && java.util.Objects.equals( _lhs.yamlPathStr, _rhs.yamlPathStr )
+            && java.util.Objects.equals( _lhs.delimiter, _rhs.delimiter )
+            && java.util.Objects.equals( _lhs.prntDelimiter, _rhs.prntDelimiter )
+            && java.util.Arrays.equals( _lhs.yamlElemArr, _rhs.yamlElemArr );
     }
 
     //==============================================================================
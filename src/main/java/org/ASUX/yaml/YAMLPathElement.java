@@ -0,0 +1,151 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>One path-element of a {@link YAMLPath}, classified by what it takes to match a YAML-key against it (see {@link Kind}).</p>
+ *  <p>Most path-elements are plain keys (example: each of <code>Resources.MyBucket.Properties</code>).  For those, a traversal can look up the key directly in each YAML-mapping (see {@link #isLiteral()}), rather than match every key.
+ *      Other simple forms are matched by cheap String-checks.  ONLY the rest are matched using a (pre-compiled) regular-expression.</p>
+ *  <p>The classification does NOT change what matches: each path-element is still a java.util.regex pattern (example: <code>pet*</code> is "pe" followed by zero or more "t").
+ *      A path-element is classified as anything but {@link Kind#REGEX}, ONLY when the String-check gives the exact same answer as the regular-expression.</p>
+ *  <p>Immutable.</p>
+ *
+ * @see org.ASUX.yaml.YAMLPath
+ * @see org.ASUX.yaml.YAMLPathMatcher
+ */
+public final class YAMLPathElement implements Serializable {
+
+    private static final long serialVersionUID = 421L;
+
+    public static final String CLASSNAME = YAMLPathElement.class.getName();
+
+    /** characters that make a regular-expression anything but a plain string */
+    private static final Pattern PATTERN_LITERAL = Pattern.compile( "[^\\\\.\\[\\]{}()*+?^$|]*" );
+
+    /** How a YAML-key is matched against a path-element */
+    public enum Kind {
+        /** '**' - zero or more path-elements (of any value) */
+        DEEP_WILDCARD,
+        /** '*' (that is, '.*') - any key */
+        ANY,
+        /** a plain key (example: 'Properties') - matched with String.equals() */
+        LITERAL,
+        /** 'abc.*' - matched with String.startsWith() */
+        PREFIX,
+        /** '.*abc' - matched with String.endsWith() */
+        SUFFIX,
+        /** anything else - matched with the pre-compiled regular-expression */
+        REGEX
+    };
+
+    public final Kind kind;
+    /** NotNull.  The path-element, exactly as in {@link YAMLPath#yamlElemArr} */
+    public final String text;
+    /** For LITERAL, the key.  For PREFIX and SUFFIX, the fixed part.  Else, null. */
+    public final String literal;
+    /** For REGEX, the pre-compiled regular-expression.  Else, null. */
+    private final Pattern pattern;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private YAMLPathElement( final Kind _kind, final String _text, final String _literal, final Pattern _pattern ) {
+        this.kind = _kind;
+        this.text = _text;
+        this.literal = _literal;
+        this.pattern = _pattern;
+    }
+
+    /**
+     *  @param _elem NotNull path-element.  Either '**', or a java.util.regex pattern
+     *  @return NotNull classified path-element
+     *  @throws java.util.regex.PatternSyntaxException if _elem is Not a valid regular-expression
+     */
+    public static YAMLPathElement of( final String _elem ) {
+        if ( "**".equals( _elem ) )
+            return new YAMLPathElement( Kind.DEEP_WILDCARD, _elem, null, null );
+        if ( YAMLPath.MATCHANYSINGLEPATHELEMENT.equals( _elem ) )
+            return new YAMLPathElement( Kind.ANY, _elem, null, null );
+        if ( PATTERN_LITERAL.matcher( _elem ).matches() )
+            return new YAMLPathElement( Kind.LITERAL, _elem, _elem, null );
+        if ( _elem.endsWith( ".*" ) && PATTERN_LITERAL.matcher( _elem.substring( 0, _elem.length() - 2 ) ).matches() )
+            return new YAMLPathElement( Kind.PREFIX, _elem, _elem.substring( 0, _elem.length() - 2 ), null );
+        if ( _elem.startsWith( ".*" ) && PATTERN_LITERAL.matcher( _elem.substring( 2 ) ).matches() )
+            return new YAMLPathElement( Kind.SUFFIX, _elem, _elem.substring( 2 ), null );
+        return new YAMLPathElement( Kind.REGEX, _elem, null, Pattern.compile( _elem ) );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** @return true if a traversal can simply look up {@link #literal} within a YAML-mapping (instead of matching each key) */
+    public boolean isLiteral() {
+        return this.kind == Kind.LITERAL;
+    }
+
+    /**
+     *  @param _key NotNull YAML-key
+     *  @return true if _key matches this path-element.  For '**', always true.
+     */
+    public boolean matches( final String _key ) {
+        switch( this.kind ) {
+            case DEEP_WILDCARD: return true;
+            case ANY:           return ! hasLineTerminator( _key, 0, _key.length() );
+            case LITERAL:       return this.literal.equals( _key );
+            case PREFIX:        return _key.startsWith( this.literal ) && ! hasLineTerminator( _key, this.literal.length(), _key.length() );
+            case SUFFIX:        return _key.endsWith( this.literal ) && ! hasLineTerminator( _key, 0, _key.length() - this.literal.length() );
+            default:            return this.pattern.matcher( _key ).matches();
+        }
+    }
+
+    /** '.' (in '.*') does Not match line-terminators.  So, neither must ANY, PREFIX and SUFFIX. */
+    private static boolean hasLineTerminator( final String _s, final int _from, final int _to ) {
+        for ( int ix = _from; ix < _to; ix ++ ) {
+            final char c = _s.charAt( ix );
+            if ( c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029' )
+                return true;
+        }
+        return false;
+    }
+
+    public String toString() {
+        return this.kind +"("+ this.text +")";
+    }
+
+}
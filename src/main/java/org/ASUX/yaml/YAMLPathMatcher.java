@@ -0,0 +1,360 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>The compiled form of a {@link YAMLPath}: an automaton over the path-elements.  Each path-element's regular-expression is compiled exactly ONCE (see {@link #compile(String[])}), and '**' is a loop within the automaton (matching zero or more path-elements) - rather than backtracking.</p>
+ *  <p>A traversal of the YAML-tree keeps a small integer state per node:</p>
+ *<pre>
+ final YAMLPathMatcher m = _yamlPath.getMatcher();
+ walk( root, m.start() );
+ ..
+ void walk( node, int state ) {
+    for each (key, child) of node {
+        final int next = m.step( state, key );
+        if ( m.isDead( next ) ) continue;       // No descendant of child can match
+        if ( m.isMatch( next ) ) .. found ..
+        walk( child, next );
+    }
+ }
+</pre>
+ *  <p>The states are the sets of path-elements that may come next (as in an NFA), determinized lazily (as in a DFA): each set is numbered when it's 1st reached,
+ *      and the transition taken for each key is remembered (for up to {@link #MAX_CACHED_KEYS} distinct keys per state).  So, each path-element is evaluated at most once per (state, key).</p>
+ *  <p>Path-elements are matched as classified by {@link YAMLPathElement} (a regular-expression ONLY when needed).  When ALL the path-elements that may come next are plain keys,
+ *      {@link #getLiteralKeys(int)} lists them - so that a traversal can look them up directly in a YAML-mapping, instead of stepping through every key of it.</p>
+ *  <p>It can also follow SEVERAL YAML-paths at once (see {@link #compile(List)}): the positions of a state then come from any of the YAML-paths, and {@link #getMatches(int)} tells which YAML-paths match.
+ *      Like a trie, YAML-paths with a common prefix walk that prefix together.  See {@link YAMLPathQuery}.</p>
+ *  <p>Thread-safe.  The same instance is shared by all {@link YAMLPath}s with the same path-elements.</p>
+ *
+ * @see org.ASUX.yaml.YAMLPath
+ */
+public final class YAMLPathMatcher {
+
+    public static final String CLASSNAME = YAMLPathMatcher.class.getName();
+
+    /** The state in which nothing can match anymore (No matter what keys follow) */
+    public static final int DEAD = -1;
+
+    /** Max # of distinct YAML-paths (or sets of YAML-paths), whose compiled form is cached by {@link #compile(List)} */
+    public static final int CACHE_SIZE = 1024;
+
+    /** Max # of distinct keys, for which the transition is remembered (per state).  Beyond that, transitions are computed every time. */
+    public static final int MAX_CACHED_KEYS = 512;
+
+    /** LRU cache (as LinkedHashMap is in access-order).  Always synchronize on this object before use. */
+    private static final LinkedHashMap< List<List<String>>, YAMLPathMatcher > MATCHERS =
+                    new LinkedHashMap< List<List<String>>, YAMLPathMatcher >( 64, 0.75f, true ) {
+                        private static final long serialVersionUID = 1L;
+                        @Override protected boolean removeEldestEntry( final java.util.Map.Entry< List<List<String>>, YAMLPathMatcher > _eldest ) {
+                            return this.size() > CACHE_SIZE;
+                        }
+                    };
+
+    private static final int[] NONE = new int[0];
+
+    //------------------------------------------------------------------------------
+    /** a DFA-state */
+    private static final class State {
+        /** the positions (index into {@link #classified}) that may come next.  Never modified. */
+        final BitSet positions;
+        /** the YAML-paths that match at this state (in ascending order) */
+        final int[] accepting;
+        /** If NOT DEAD, the next state - for ANY key (as ALL the positions are '**').  Else, see {@link #next} */
+        final int anyKey;
+        /** Nullable.  See {@link #getLiteralKeys(int)} */
+        final String[] literalKeys;
+        /** key -&gt; next state */
+        final ConcurrentHashMap<String, Integer> next = new ConcurrentHashMap<>();
+        State( final BitSet _positions, final int[] _accepting, final int _anyKey, final String[] _literalKeys ) {
+            this.positions = _positions;
+            this.accepting = _accepting;
+            this.anyKey = _anyKey;
+            this.literalKeys = _literalKeys;
+        }
+    }
+
+    /** the path-elements of each YAML-path */
+    private final List<List<String>> paths;
+    /** The path-elements of ALL the YAML-paths (classified), one after the other.  After the path-elements of each YAML-path, is a null (its end) */
+    private final YAMLPathElement[] classified;
+    /** Index === position (same as {@link #classified}).  For the end of a YAML-path, the index of that YAML-path.  -1 otherwise. */
+    private final int[] endOf;
+
+    /** Index === state#.  Copy-on-write (replaced as a whole, whenever a new state is found) */
+    private volatile State[] states = new State[0];
+    /** Always synchronize on this object before use */
+    private final HashMap<BitSet, Integer> stateNums = new HashMap<>();
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private YAMLPathMatcher( final List<List<String>> _paths ) {
+        this.paths = _paths;
+        int count = 0;
+        for ( List<String> elems: _paths )
+            count += elems.size() + 1;
+        this.classified = new YAMLPathElement[ count ];
+        this.endOf = new int[ count ];
+        final BitSet start = new BitSet( count );
+        int pos = 0;
+        for ( int num = 0; num < _paths.size(); num ++ ) {
+            start.set( pos );
+            for ( String elem: _paths.get( num ) ) {
+                this.classified[ pos ] = YAMLPathElement.of( elem );
+                this.endOf[ pos ++ ] = -1;
+            }
+            this.endOf[ pos ++ ] = num;
+        }
+        this.stateOf( this.closure( start ) ); // state# 0
+    }
+
+    /**
+     *  @param _elements NotNull path-elements (example: {@link YAMLPath#yamlElemArr}).  Each is a java.util.regex pattern, or '**'
+     *  @return NotNull compiled form (cached, see {@link #CACHE_SIZE})
+     *  @throws java.util.regex.PatternSyntaxException if any path-element is Not a valid regular-expression
+     */
+    public static YAMLPathMatcher compile( final String[] _elements ) {
+        return compile( Collections.singletonList( _elements ) );
+    }
+
+    /**
+     *  @param _paths NotNull list of 1 or more YAML-paths.  Each is the NotNull path-elements of a YAML-path (see {@link #compile(String[])}).  Duplicates are ok.
+     *  @return NotNull compiled form, that follows ALL of _paths at once (cached, see {@link #CACHE_SIZE}).  The # of each YAML-path is its index within _paths (see {@link #getMatches(int)})
+     *  @throws java.util.regex.PatternSyntaxException if any path-element is Not a valid regular-expression
+     */
+    public static YAMLPathMatcher compile( final List<String[]> _paths ) {
+        final ArrayList<List<String>> key = new ArrayList<>( _paths.size() );
+        for ( String[] elems: _paths )
+            key.add( Collections.unmodifiableList( Arrays.asList( elems.clone() ) ) );
+        final List<List<String>> paths = Collections.unmodifiableList( key );
+        synchronized( MATCHERS ) {
+            YAMLPathMatcher m = MATCHERS.get( paths );
+            if ( m == null ) {
+                m = new YAMLPathMatcher( paths );
+                MATCHERS.put( paths, m );
+            }
+            return m;
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** @return the state before any key is seen (that is, at the root of the YAML) */
+    public int start() {
+        return 0;
+    }
+
+    /**
+     *  @param _state as returned by {@link #start()} or by this method
+     *  @param _key NotNull.  The key of the child-node being descended into
+     *  @return the state at that child-node.  {@link #DEAD} if neither that child-node nor any of its descendants can match.
+     */
+    public int step( final int _state, final String _key ) {
+        if ( _state == DEAD )
+            return DEAD;
+        final State s = this.states[ _state ];
+        if ( s.anyKey != DEAD )
+            return s.anyKey;
+        final Integer known = s.next.get( _key );
+        if ( known != null )
+            return known;
+
+        final BitSet nxt = new BitSet( this.classified.length );
+        for ( int pos = s.positions.nextSetBit( 0 ); pos >= 0; pos = s.positions.nextSetBit( pos + 1 ) ) {
+            if ( this.endOf[ pos ] >= 0 )
+                continue;
+            if ( this.isDeep( pos ) )
+                nxt.set( pos );     // '**' consumes this key, and can consume more
+            else if ( this.classified[ pos ].matches( _key ) )
+                nxt.set( pos + 1 );
+        }
+        final int ret = nxt.isEmpty() ? DEAD : this.stateOf( this.closure( nxt ) );
+        if ( s.next.size() < MAX_CACHED_KEYS )
+            s.next.put( _key, ret );
+        return ret;
+    }
+
+    /**
+     *  @param _state as returned by {@link #step(int, String)}
+     *  @return true if the path of keys leading to this state, matches the whole YAML-path (any of the YAML-paths, see {@link #compile(List)})
+     */
+    public boolean isMatch( final int _state ) {
+        return _state != DEAD && this.states[ _state ].accepting.length > 0;
+    }
+
+    /**
+     *  @param _state as returned by {@link #step(int, String)}
+     *  @return NotNull, the #s of the YAML-paths (see {@link #compile(List)}) that the path of keys leading to this state matches, in ascending order.  Empty if none.
+     */
+    public int[] getMatches( final int _state ) {
+        return this.acceptingOf( _state ).clone();
+    }
+
+    /**
+     *  <p>For a YAML-mapping at this state: if this returns NotNull, ONLY the keys returned can lead anywhere (stepping with any other key leads to {@link #DEAD}).
+     *      So, a traversal can look up just these keys in the mapping (example: LinkedHashMap.get()), rather than calling {@link #step(int, String)} for each key of the mapping.</p>
+     *  @param _state as returned by {@link #step(int, String)}
+     *  @return Nullable.  Null if any key (Not just a few plain keys) may lead somewhere.  An empty array if No key can.
+     */
+    public String[] getLiteralKeys( final int _state ) {
+        final String[] keys = this.literalKeysOf( _state );
+        return ( keys == null ) ? null : keys.clone();
+    }
+
+    /**
+     *  @param _state as returned by {@link #step(int, String)}
+     *  @return true if neither the node at this state, nor any of its descendants, can match
+     */
+    public boolean isDead( final int _state ) {
+        return _state == DEAD;
+    }
+
+    /**
+     *  @param _keys NotNull.  The keys from the root of the YAML, to a node
+     *  @return true if that node matches the whole YAML-path
+     */
+    public boolean matches( final String... _keys ) {
+        int state = this.start();
+        for ( int ix = 0; ix < _keys.length && state != DEAD; ix ++ )
+            state = this.step( state, _keys[ ix ] );
+        return this.isMatch( state );
+    }
+
+    /** @return the # of YAML-paths (1, unless compiled using {@link #compile(List)}) */
+    public int getPathCount() {
+        return this.paths.size();
+    }
+
+    /** @return # of states found so far (for debugging) */
+    public int getStateCount() {
+        return this.states.length;
+    }
+
+    //------------------------------------------------------------------------------
+    /** Same as {@link #getMatches(int)}, but NOT a copy (for traversals within this package).  Do NOT modify. */
+    int[] acceptingOf( final int _state ) {
+        return ( _state == DEAD ) ? NONE : this.states[ _state ].accepting;
+    }
+
+    /** Same as {@link #getLiteralKeys(int)}, but NOT a copy (for traversals within this package).  Do NOT modify. */
+    String[] literalKeysOf( final int _state ) {
+        return ( _state == DEAD ) ? new String[0] : this.states[ _state ].literalKeys;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** '**' matches zero path-elements too.  So, wherever '**' may come next, so may whatever follows it. */
+    private BitSet closure( final BitSet _positions ) {
+        for ( int pos = _positions.nextSetBit( 0 ); pos >= 0; pos = _positions.nextSetBit( pos + 1 ) )
+            if ( this.isDeep( pos ) )
+                _positions.set( pos + 1 );
+        return _positions;
+    }
+
+    /**
+     *  @param _positions NotNull, Not empty, closed (see {@link #closure})
+     *  @return the state# for this set of positions (a new state#, if this set was Not seen before)
+     */
+    private int stateOf( final BitSet _positions ) {
+        synchronized( this.stateNums ) {
+            final Integer known = this.stateNums.get( _positions );
+            if ( known != null )
+                return known;
+            final int num = this.states.length;
+            this.stateNums.put( _positions, num );
+
+            final ArrayList<Integer> accepting = new ArrayList<>();
+            // if ALL positions are '**' (or ends), the next state is the same, whatever the key
+            boolean bAnyKey = true;
+            boolean bDescend = false;
+            final BitSet loops = new BitSet( this.classified.length );
+            // if ALL positions are plain keys, those are the ONLY keys that lead anywhere
+            LinkedHashSet<String> literals = new LinkedHashSet<>();
+            for ( int pos = _positions.nextSetBit( 0 ); pos >= 0; pos = _positions.nextSetBit( pos + 1 ) ) {
+                if ( this.endOf[ pos ] >= 0 ) {
+                    accepting.add( this.endOf[ pos ] );
+                    continue;
+                }
+                bDescend = true;
+                bAnyKey = bAnyKey && this.isDeep( pos );
+                if ( this.isDeep( pos ) )
+                    loops.set( pos );
+                if ( literals != null && this.classified[ pos ].isLiteral() )
+                    literals.add( this.classified[ pos ].literal );
+                else
+                    literals = null;
+            }
+            final int[] acceptingArr = new int[ accepting.size() ];
+            for ( int ix = 0; ix < acceptingArr.length; ix ++ )
+                acceptingArr[ ix ] = accepting.get( ix );
+
+            // a state whose positions are all '**' goes back to itself - unless some YAML-path ends here (without a '**' just before it), as that must NOT match any descendant.
+            // A state with only ends left, is left to step() (and goes to DEAD).
+            bAnyKey = bAnyKey && bDescend && this.closure( loops ).equals( _positions );
+
+            final State[] grown = Arrays.copyOf( this.states, num + 1 );
+            grown[ num ] = new State( _positions, acceptingArr, bAnyKey ? num : DEAD,
+                                        ( literals == null ) ? null : literals.toArray( new String[ literals.size() ] ) );
+            this.states = grown;
+            return num;
+        }
+    }
+
+    private boolean isDeep( final int _pos ) {
+        return this.endOf[ _pos ] < 0 && this.classified[ _pos ].kind == YAMLPathElement.Kind.DEEP_WILDCARD;
+    }
+
+    public String toString() {
+        final ArrayList<String> strs = new ArrayList<>( this.paths.size() );
+        for ( List<String> elems: this.paths )
+            strs.add( String.join( ".", elems ) );
+        return "YAMLPathMatcher("+ this.states.length +" states) "+ String.join( ", ", strs );
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  <p>This is part of org.ASUX.yaml GitHub.com project and the <a href="https://github.com/org-asux/org-ASUX.github.io/wiki">org.ASUX.cmdline</a> GitHub.com projects.</p>
+ *  <p>Evaluates MANY {@link YAMLPath}s in ONE traversal of the YAML-tree.  Example: each column of a 'table' command, or several 'read' commands on the same YAML (see {@link CmdInvoker#processQueries}).</p>
+ *  <p>The YAML-paths are merged into a single automaton (see {@link YAMLPathMatcher#compile(List)}).  Like a trie, YAML-paths with a common prefix walk that prefix together.
+ *      So, a YAML-node that can Not match ANY of the YAML-paths is skipped (along with all its descendants), and a node is visited ONCE - No matter how many YAML-paths it matches.</p>
+ *  <p>This class does Not know about any YAML-library.  A {@link Navigator} does (see {@link #COLLECTIONS} for java.util.Map and java.util.List).</p>
+ *<pre>
+ final YAMLPathQuery q = new YAMLPathQuery( Arrays.asList( yp1, yp2, yp3 ) );
+ final ArrayList&lt;ArrayList&lt;Object&gt;&gt; found = q.evaluate( root, YAMLPathQuery.COLLECTIONS );
+ // found.get(0) === whatever yp1 matched (in document order) ..
+</pre>
+ *  <p>Thread-safe.  The same instance can be used for any # of YAML-trees.</p>
+ *
+ * @see org.ASUX.yaml.YAMLPathMatcher
+ */
+public final class YAMLPathQuery {
+
+    public static final String CLASSNAME = YAMLPathQuery.class.getName();
+
+    /** The state in which nothing can match anymore (No matter what keys follow) */
+    public static final int DEAD = YAMLPathMatcher.DEAD;
+
+    //------------------------------------------------------------------------------
+    /**
+     *  How to walk the YAML-tree of a specific YAML-library
+     *  @param <N> the type of a YAML-node (example: org.yaml.snakeyaml.nodes.Node)
+     */
+    public interface Navigator<N> {
+        /**
+         *  @param _node NotNull
+         *  @return Nullable.  The children of a YAML-mapping or YAML-sequence (as key, child) in document-order.  Null (or empty) for a scalar.
+         */
+        Iterator<? extends Map.Entry<String, ? extends N>> children( N _node );
+
+        /**
+         *  @param _node NotNull
+         *  @param _key NotNull.  Same as one of the keys returned by {@link #children}
+         *  @return Nullable.  Null if _node has No child under _key (or, is a scalar).  The key and child otherwise.
+         */
+        Map.Entry<String, ? extends N> child( N _node, String _key );
+    }
+
+    /**
+     *  What to do with what's found by {@link #walk}
+     *  @param <N> the type of a YAML-node (example: org.yaml.snakeyaml.nodes.Node)
+     */
+    public interface Visitor<N> {
+        /**
+         *  @param _pathNum index of the YAML-path (in the list passed to the constructor) that matched
+         *  @param _node whatever matched (BEFORE any of its descendants are visited)
+         */
+        void onMatch( int _pathNum, N _node );
+
+        /**
+         *  @param _pathNum same as passed to {@link #onMatch}
+         *  @param _node same as passed to {@link #onMatch}, AFTER all its descendants have been visited
+         */
+        default void onLeave( int _pathNum, N _node ) {}
+    }
+
+    //------------------------------------------------------------------------------
+    /** For YAML-libraries whose YAML-tree is made of java.util.Map (mappings) and java.util.List (sequences).  The key of each item of a sequence is its index (example: "0").  Keys of mappings that are Not Strings (example: 200) are converted using String.valueOf() */
+    public static final Navigator<Object> COLLECTIONS = new Navigator<Object>() {
+        public Iterator<? extends Map.Entry<String, ? extends Object>> children( final Object _node ) {
+            if ( _node instanceof Map ) {
+                final Iterator<? extends Map.Entry<?, ?>> iter = ((Map<?, ?>) _node).entrySet().iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public Map.Entry<String, Object> next() {
+                        final Map.Entry<?, ?> e = iter.next();
+                        return new AbstractMap.SimpleImmutableEntry<String, Object>( String.valueOf( e.getKey() ), e.getValue() );
+                    }
+                };
+            } else if ( _node instanceof List ) {
+                final List<?> list = (List<?>) _node;
+                final Iterator<?> iter = list.iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int ix = 0;
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public Map.Entry<String, Object> next() {
+                        return new AbstractMap.SimpleImmutableEntry<String, Object>( Integer.toString( this.ix ++ ), iter.next() );
+                    }
+                };
+            }
+            return null;
+        }
+        public Map.Entry<String, ? extends Object> child( final Object _node, final String _key ) {
+            if ( _node instanceof Map ) {
+                final Map<?, ?> map = (Map<?, ?>) _node;
+                final Object val = map.get( _key );
+                if ( val != null || map.containsKey( _key ) )
+                    return new AbstractMap.SimpleImmutableEntry<String, Object>( _key, val );
+                // Keys that are Not Strings (example: 200 for HTTP response-codes) are matched as String.valueOf() - same as children() does
+                for ( Map.Entry<?, ?> e: map.entrySet() )
+                    if ( ! ( e.getKey() instanceof String ) && _key.equals( String.valueOf( e.getKey() ) ) )
+                        return new AbstractMap.SimpleImmutableEntry<String, Object>( _key, e.getValue() );
+                return null;
+            } else if ( _node instanceof List ) {
+                final List<?> list = (List<?>) _node;
+                try {
+                    final int ix = Integer.parseInt( _key );
+                    return ( ix >= 0 && ix < list.size() && _key.equals( Integer.toString( ix ) ) ) ? new AbstractMap.SimpleImmutableEntry<String, Object>( _key, list.get( ix ) ) : null;
+                } catch( NumberFormatException e ) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    };
+
+    private final List<YAMLPath> paths;
+
+    /** follows ALL of {@link #paths} at once */
+    private final YAMLPathMatcher matcher;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     *  @param _paths NotNull list of 1 or more valid YAML-paths.  Duplicates are ok.
+     *  @throws YAMLPath.YAMLPathException if any of the YAML-paths is Not valid (see {@link YAMLPath#isValid})
+     */
+    public YAMLPathQuery( final List<YAMLPath> _paths ) throws YAMLPath.YAMLPathException {
+        this( _paths, elementsOf( _paths, null ) );
+    }
+
+    /**
+     *  @param _paths NotNull list of 1 or more valid YAML-paths
+     *  @param _elements NotNull.  The path-elements to match, for each of _paths
+     */
+    private YAMLPathQuery( final List<YAMLPath> _paths, final List<String[]> _elements ) {
+        this.paths = new ArrayList<>( _paths );
+        this.matcher = YAMLPathMatcher.compile( _elements );
+    }
+
+    /**
+     *  <p>For the 'table' command: the 1st YAML-path is _rowPath.  It's followed by one YAML-path per column, each of which is _rowPath + that column.  See {@link #table}</p>
+     *  @param _rowPath NotNull valid YAML-path of the rows
+     *  @param _columns NotNull list of 1 or more columns.  Each is a YAML-path (relative to a row) using the same delimiter as _rowPath
+     *  @return NotNull new instance
+     *  @throws YAMLPath.YAMLPathException if any of the YAML-paths is Not valid
+     */
+    public static YAMLPathQuery forTable( final YAMLPath _rowPath, final String[] _columns ) throws YAMLPath.YAMLPathException {
+        final ArrayList<YAMLPath> list = new ArrayList<>();
+        list.add( _rowPath );
+        for ( String col: _columns )
+            list.add( new YAMLPath( _rowPath.verbose, col, _rowPath.delimiter ) );
+        return new YAMLPathQuery( list, elementsOf( list, _rowPath ) );
+    }
+
+    /**
+     *  @param _paths NotNull list of 1 or more YAML-paths
+     *  @param _rowPath Nullable.  If NotNull, the path-elements of every YAML-path in _paths (except the 1st) are prefixed by those of _rowPath.  See {@link #forTable}
+     *  @return NotNull list (same size as _paths)
+     *  @throws YAMLPath.YAMLPathException if any of the YAML-paths is Not valid (see {@link YAMLPath#isValid})
+     */
+    private static List<String[]> elementsOf( final List<YAMLPath> _paths, final YAMLPath _rowPath ) throws YAMLPath.YAMLPathException {
+        if ( _paths.isEmpty() )
+            throw new YAMLPath.YAMLPathException( CLASSNAME +": No YAML-paths provided" );
+        final ArrayList<String[]> list = new ArrayList<>( _paths.size() );
+        for ( YAMLPath yp: _paths ) {
+            if ( yp == null || ! yp.isValid )
+                throw new YAMLPath.YAMLPathException( CLASSNAME +": invalid YAML-path ["+ yp +"]" );
+            final int prefix = ( _rowPath == null || list.isEmpty() ) ? 0 : _rowPath.yamlElemArr.length;
+            final String[] elems = new String[ prefix + yp.yamlElemArr.length ];
+            System.arraycopy( _rowPath == null ? yp.yamlElemArr : _rowPath.yamlElemArr, 0, elems, 0, prefix );
+            System.arraycopy( yp.yamlElemArr, 0, elems, prefix, yp.yamlElemArr.length );
+            list.add( elems );
+        }
+        return list;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** @return the # of YAML-paths */
+    public int size() {
+        return this.paths.size();
+    }
+
+    /**
+     *  @param _pathNum 0 .. {@link #size()}-1
+     *  @return the YAML-path, as passed to the constructor.  For instances created by {@link #forTable}: the row-path, followed by the columns (relative to the row)
+     */
+    public YAMLPath getPath( final int _pathNum ) {
+        return this.paths.get( _pathNum );
+    }
+
+    /**
+     *  The ONE traversal of _root.  Descendants of a YAML-node are visited ONLY if they can match some YAML-path.
+     *  @param <N> the type of a YAML-node
+     *  @param _root NotNull root of the YAML-tree
+     *  @param _nav NotNull
+     *  @param _visitor NotNull.  Called for each match, in document-order.  If a node matches more than one YAML-path, in ascending order of the YAML-paths.
+     */
+    public <N> void walk( final N _root, final Navigator<N> _nav, final Visitor<N> _visitor ) {
+        this.walk( _root, this.matcher.start(), _nav, _visitor );
+    }
+
+    /**
+     *  @param <N> the type of a YAML-node
+     *  @param _root NotNull root of the YAML-tree
+     *  @param _nav NotNull
+     *  @return NotNull list, with one entry per YAML-path (same order as passed to the constructor): the NotNull list of whatever that YAML-path matched, in document-order
+     */
+    public <N> ArrayList<ArrayList<N>> evaluate( final N _root, final Navigator<N> _nav ) {
+        final ArrayList<ArrayList<N>> found = new ArrayList<>( this.paths.size() );
+        for ( int ix = 0; ix < this.paths.size(); ix ++ )
+            found.add( new ArrayList<N>() );
+        this.walk( _root, this.matcher.start(), _nav, (num, node) -> found.get( num ).add( node ) );
+        return found;
+    }
+
+    /**
+     *  For instances created by {@link #forTable}: one row per node matching the row-path, in document-order.
+     *  @param <N> the type of a YAML-node
+     *  @param _root NotNull root of the YAML-tree
+     *  @param _nav NotNull
+     *  @return NotNull list of rows.  Each row has one entry per column: the 1st match of that column within that row, or null if the column is missing
+     */
+    public <N> ArrayList<ArrayList<N>> table( final N _root, final Navigator<N> _nav ) {
+        final int columns = this.paths.size() - 1;
+        final ArrayList<ArrayList<N>> rows = new ArrayList<>();
+        final ArrayList<ArrayList<N>> open = new ArrayList<>(); // stack of rows, whose descendants are being visited
+        this.walk( _root, this.matcher.start(), _nav, new Visitor<N>() {
+            public void onMatch( final int _num, final N _node ) {
+                if ( _num == 0 ) {
+                    final ArrayList<N> row = new ArrayList<>( Arrays.asList( newCells( columns ) ) );
+                    rows.add( row );
+                    open.add( row );
+                } else if ( ! open.isEmpty() ) {
+                    final ArrayList<N> row = open.get( open.size() - 1 ); // the innermost row that contains _node
+                    if ( row.get( _num - 1 ) == null )
+                        row.set( _num - 1, _node );
+                }
+            }
+            public void onLeave( final int _num, final N _node ) {
+                if ( _num == 0 )
+                    open.remove( open.size() - 1 );
+            }
+        });
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <N> N[] newCells( final int _count ) {
+        return (N[]) new Object[ _count ];
+    }
+
+    /**
+     *  <p>For a YAML-tree made of java.util.LinkedHashMap and java.util.List (see {@link #COLLECTIONS}): a copy of _root, that has ONLY the mappings on the way to whatever ANY of the YAML-paths matches.
+     *      Whatever matches is NOT copied (the same object, with all its descendants).  So, each YAML-path matches exactly the same objects (in the same order) within the copy, as within _root.</p>
+     *  <p>YAML-sequences (and mappings of any other class) are NOT copied: if any YAML-path can reach into one, it's kept as-is.  So, the index of each item (and the class of each node) is unchanged.</p>
+     *  @param _root NotNull root of the YAML-tree
+     *  @return NotNull.  An empty java.util.LinkedHashMap, if _root is a java.util.LinkedHashMap within which nothing matches.  _root itself, if _root is anything else.
+     */
+    public Object prune( final Object _root ) {
+        if ( _root.getClass() != java.util.LinkedHashMap.class )
+            return _root;
+        final Object pruned = this.prune( _root, this.matcher.start() );
+        return ( pruned != null ) ? pruned : new java.util.LinkedHashMap<Object, Object>();
+    }
+
+    /** @return Nullable.  Null if nothing within _node can match */
+    private Object prune( final Object _node, final int _state ) {
+        if ( this.matcher.isMatch( _state ) )
+            return _node;
+        if ( _node instanceof List )
+            return _node;
+        if ( ! ( _node instanceof Map ) )
+            return null; // a scalar that does Not match
+        if ( _node.getClass() != java.util.LinkedHashMap.class )
+            return _node;
+        final java.util.LinkedHashMap<Object, Object> copy = new java.util.LinkedHashMap<>();
+        for ( Map.Entry<?, ?> e: ((Map<?, ?>) _node).entrySet() ) {
+            final int nxt = this.matcher.step( _state, String.valueOf( e.getKey() ) );
+            if ( nxt == DEAD )
+                continue;
+            final Object child = ( e.getValue() == null ) ? null : this.prune( e.getValue(), nxt );
+            if ( child != null || ( e.getValue() == null && this.matcher.isMatch( nxt ) ) )
+                copy.put( e.getKey(), child ); // the same key-object (example: Integer 200)
+        }
+        return copy.isEmpty() ? null : copy;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private <N> void walk( final N _node, final int _state, final Navigator<N> _nav, final Visitor<N> _visitor ) {
+        final int[] accepting = this.matcher.acceptingOf( _state );
+        for ( int num: accepting )
+            _visitor.onMatch( num, _node );
+
+        final String[] literalKeys = this.matcher.literalKeysOf( _state );
+        if ( literalKeys != null ) {
+            // hash-lookups, instead of stepping through every key of _node.  None at all, if No descendant can match.
+            for ( String key: literalKeys ) {
+                final Map.Entry<String, ? extends N> e = _nav.child( _node, key );
+                if ( e == null ) continue;
+                final int nxt = this.matcher.step( _state, key );
+                if ( nxt != DEAD )
+                    this.walk( e.getValue(), nxt, _nav, _visitor );
+            }
+        } else {
+            final Iterator<? extends Map.Entry<String, ? extends N>> iter = _nav.children( _node );
+            while ( iter != null && iter.hasNext() ) {
+                final Map.Entry<String, ? extends N> e = iter.next();
+                final int nxt = this.matcher.step( _state, e.getKey() );
+                if ( nxt != DEAD )
+                    this.walk( e.getValue(), nxt, _nav, _visitor );
+            }
+        }
+
+        for ( int ix = accepting.length - 1; ix >= 0; ix -- )
+            _visitor.onLeave( accepting[ ix ], _node );
+    }
+
+    public String toString() {
+        final ArrayList<String> strs = new ArrayList<>( this.paths.size() );
+        for ( YAMLPath yp: this.paths )
+            strs.add( yp.yamlPathStr );
+        return "YAMLPathQuery("+ this.paths.size() +" YAML-paths, "+ this.matcher.getStateCount() +" states) "+ strs;
+    }
+
+}
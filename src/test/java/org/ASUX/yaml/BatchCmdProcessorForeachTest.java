@@ -0,0 +1,173 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests 'foreach --parallel' for a subclass of {@link BatchCmdProcessor} that implements ONLY {@link BatchCmdProcessor#processFOREACHCmd_Step1}
+ *  (i.e., relies on the default {@link BatchCmdProcessor#getFOREACHIterations}).
+ *  The YAML here is a plain String.  A 'foreach' iterates over its comma-separated parts.  A command appends "|" and its 2nd word to its input.
+ */
+public class BatchCmdProcessorForeachTest {
+
+    /** Every command that ran: "input|word" */
+    static final Set<String> EXECUTED = ConcurrentHashMap.newKeySet();
+    static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+    /** Nullable.  If NotNull, each command waits (a while) for the others - to detect whether they run at the same time */
+    static volatile CountDownLatch rendezvous = null;
+    static volatile int step1Invocations = 0;
+
+    public static class Proc extends BatchCmdProcessor<String> {
+        public Proc( final CmdLineArgsCommon _c ) { super( _c ); }
+        protected boolean instanceof_YAMLImplClass( Object _o ) { return _o instanceof String; }
+        protected String toStringDebug( Object _o ) { return ""+ _o; }
+        protected String getEmptyYAML() { return ""; }
+        protected boolean isEmptyYAML( String _n ) { return _n.isEmpty(); }
+        protected String getNewSingleYAMLEntry( String _k, String _v, Enums.ScalarStyle _q ) { return _k; }
+        protected String deepClone( String _n ) { return _n; }
+        /** just like the YAML-libraries: set the foreach-properties, and run the lines inside the loop for each part */
+        protected String processFOREACHCmd_Step1( final BatchFileGrammer _batchCmds, final String _node ) throws Exception {
+            step1Invocations ++;
+            String output = _node;
+            final String[] parts = _node.split( "," );
+            for ( int ix = 0; ix < parts.length; ix ++ ) {
+                this.allProps.get( FOREACH_PROPERTIES ).setProperty( FOREACH_INDEX, ""+ ix );
+                this.allProps.get( FOREACH_PROPERTIES ).setProperty( FOREACH_ITER_VALUE, parts[ ix ] );
+                output = this.processBatch( true, BatchFileGrammer.deepClone( _batchCmds ), parts[ ix ] );
+            }
+            return output;
+        }
+    }
+
+    public static class Parser implements org.ASUX.language.antlr4.GenericCmdANTLR4Parser {
+        public Parser( final boolean _verbose ) {}
+        public ArrayList<org.ASUX.language.antlr4.CmdLineArgs> parseYamlCommandLine( final String _s ) {
+            final CmdLineArgsBatchCmd c = new CmdLineArgsBatchCmd();
+            c.cmdAsStr = _s;
+            c.inputFilePath = "-";
+            c.outputFilePath = "-";
+            c.cmdType = Enums.CmdEnum.READ;
+            final ArrayList<org.ASUX.language.antlr4.CmdLineArgs> l = new ArrayList<>();
+            l.add( c );
+            return l;
+        }
+    }
+
+    public static class Inv extends CmdInvoker<String> {
+        private static final long serialVersionUID = 1L;
+        public Inv( final CmdLineArgsCommon _c ) { super( _c ); }
+        public Inv( final CmdLineArgsCommon _c, final MemoryAndContext _m ) { super( _c, _m ); }
+        public Object processCommand( final CmdLineArgsCommon _c, final Object _input ) throws Exception {
+            final CountDownLatch latch = rendezvous;
+            if ( latch != null ) {
+                latch.countDown();
+                latch.await( 5, TimeUnit.SECONDS );
+            }
+            THREADS.add( Thread.currentThread().getName() );
+            final String out = _input +"|"+ _c.cmdAsStr.split(" ")[1];
+            EXECUTED.add( out );
+            return out;
+        }
+        public Object getDataFromReference( final String _s ) throws Exception { return this.memoryAndContext.getDataFromMemory( _s ); }
+        public void saveDataIntoReference( final String _s, final Object _o ) throws Exception { this.memoryAndContext.saveDataIntoMemory( _s, _o ); }
+    }
+
+    private static final class Impl extends YAMLImplementation<String> {
+        private static final long serialVersionUID = 1L;
+        Impl() { super( false, YAML_Libraries.ASUXYAML_Library ); }
+        public boolean instanceof_YAMLImplClass( Object _o ) { return _o instanceof String; }
+        public String toStringDebug( Object _o ) { return ""+ _o; }
+        public String getEmptyYAML() { return ""; }
+        public boolean isEmptyYAML( String _n ) { return _n.isEmpty(); }
+        public String getNewScalarEntry( String _val ) { return _val; }
+        public String getNewSingleYAMLEntry( String _k, String _v ) { return _k; }
+        public String getScalarContent( String _n ) { return _n; }
+        public Class<?> getLibraryOptionsClass() { return Object.class; }
+        public Object getLibraryOptionsObject() { return null; }
+        public void setLibraryOptionsObject( Object _o ) {}
+        public String load( java.io.Reader _r ) { return ""; }
+        public void write( java.io.Writer _w, Object _o ) {}
+        public void close() {}
+        public YAMLImplementation<String> deepClone() { return new Impl(); }
+    }
+
+    private static String run( final String... _lines ) throws Exception {
+        CmdFamilyRegistry.register( "yaml", CmdLineArgsBatchCmd.class.getName(), Parser.class.getName(), Inv.class.getName() );
+        final java.io.File f = java.io.File.createTempFile( "foreach", ".batch" );
+        f.deleteOnExit();
+        try ( java.io.PrintWriter w = new java.io.PrintWriter( f ) ) {
+            for ( String l: _lines ) w.println( l );
+        }
+        final CmdLineArgsCommon c = new CmdLineArgsBatchCmd();
+        final Proc proc = new Proc( c );
+        final Inv inv = new Inv( c );
+        inv.setYAMLImplementation( new Impl() );
+        proc.setMemoryAndContext( inv.getMemoryAndContext() );
+        EXECUTED.clear();
+        THREADS.clear();
+        step1Invocations = 0;
+        return proc.go( "@"+ f.getPath(), "" );
+    }
+
+    @Test
+    public void testParallelUsesStep1() throws Exception {
+        rendezvous = new CountDownLatch( 2 ); // at least 2 iterations must be running at the same time
+        try {
+            final String out = run( "makeNewRoot a,b,c,d", "foreach --parallel=4", "yaml --read x", "end" );
+            assertEquals( "d|--read", out ); // the output of the last iteration, just like a serial loop
+        } finally {
+            rendezvous = null;
+        }
+        assertEquals( new java.util.HashSet<>( java.util.Arrays.asList( "a|--read", "b|--read", "c|--read", "d|--read" ) ), EXECUTED );
+        assertEquals( 1, step1Invocations ); // to find out the iterations.  The lines inside the loop were run by processFOREACHIterations()
+        assertTrue( THREADS.toString(), THREADS.size() > 1 );
+    }
+
+    @Test
+    public void testSerialIsUnchanged() throws Exception {
+        final String out = run( "makeNewRoot a,b,c", "foreach", "yaml --read x", "end" );
+        assertEquals( "c|--read", out );
+        assertEquals( 3, EXECUTED.size() );
+        assertEquals( 1, THREADS.size() );
+        assertEquals( 1, step1Invocations );
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import org.ASUX.common.ConfigFileScanner;
+
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+/**
+ *  <p>For performance-testing purposes only.  Usage: <code>java org.ASUX.yaml.BatchFileGrammerBenchmark batchFile [iterations]</code></p>
+ *  <p>Reports how many lines/sec {@link BatchFileGrammer#identifyLine()} can classify (excluding the time to read the file).</p>
+ */
+public class BatchFileGrammerBenchmark {
+
+    public static final String CLASSNAME = BatchFileGrammerBenchmark.class.getName();
+
+    public static void main( final String[] args ) {
+        try {
+            final int iterations = ( args.length > 1 ) ? Integer.parseInt( args[1] ) : 1000;
+            final BatchFileGrammer orig = new BatchFileGrammer( false, new LinkedHashMap<String,Properties>() );
+            orig.useDelimiter( ";|"+System.lineSeparator() );
+            orig.openFile( args[0], true, false );
+
+            long lines = 0;
+            long elapsedNanos = 0;
+            for( int ix = 0; ix < iterations; ix ++ ) {
+                final BatchFileGrammer o = BatchFileGrammer.deepClone( orig ); // reading/cloning the file is NOT part of the measurement
+                final long start = System.nanoTime();
+                while ( ConfigFileScanner.hasNextLine( o ) ) {
+                    o.skipLine();
+                    o.resetFlagsForEachLine();
+                    o.identifyLine();
+                    o.getCommand();
+                    lines ++;
+                }
+                elapsedNanos += System.nanoTime() - start;
+            }
+            System.out.println( CLASSNAME +": classified "+ lines +" lines in "+ (elapsedNanos / 1000000) +" ms = "
+                                + (long) ( lines / ( Math.max( elapsedNanos, 1 ) / 1e9 ) ) +" lines/sec" );
+        } catch (Exception e) {
+            e.printStackTrace(System.err); // main() for performance testing
+            System.err.println( CLASSNAME + ": Usage: java "+ CLASSNAME +" batchFile [iterations]" );
+            System.exit(91);
+        }
+    }
+
+}
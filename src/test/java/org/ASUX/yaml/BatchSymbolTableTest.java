@@ -0,0 +1,138 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests the frames of {@link BatchSymbolTable}: an inner frame hides (and never clobbers) the definitions of the outer frames.
+ */
+public class BatchSymbolTableTest {
+
+    @Test
+    public void testInnerFrameShadowsOuter() {
+        final BatchSymbolTable t = new BatchSymbolTable();
+        t.setProperty( "foreach.index", "0" );
+        t.setProperty( "outer", "o" );
+        t.push();
+        t.setProperty( "foreach.index", "7" );
+        assertEquals( "7", t.getProperty( "foreach.index" ) );
+        assertEquals( "o", t.getProperty( "outer" ) );
+        assertEquals( 2, t.size() );
+        assertEquals( 2, t.getDepth() );
+        t.pop();
+        assertEquals( "0", t.getProperty( "foreach.index" ) );
+        assertEquals( 1, t.getDepth() );
+    }
+
+    @Test
+    public void testRemoveHidesOuterUntilPop() {
+        final BatchSymbolTable t = new BatchSymbolTable();
+        t.setProperty( "k", "v" );
+        t.push();
+        assertEquals( "v", t.remove( "k" ) );
+        assertNull( t.getProperty( "k" ) );
+        assertFalse( t.containsKey( "k" ) );
+        assertTrue( t.isEmpty() );
+        t.pop();
+        assertEquals( "v", t.getProperty( "k" ) );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testPopWithoutPush() {
+        new BatchSymbolTable().pop();
+    }
+
+    @Test
+    public void testChildScopeDoesNotWriteIntoParent() {
+        final Properties initial = new Properties();
+        initial.setProperty( "k", "parent" );
+        final BatchSymbolTable parent = new BatchSymbolTable( initial );
+        final BatchSymbolTable child = parent.newScope();
+        child.setProperty( "k", "child" );
+        child.setProperty( "only.child", "x" );
+        child.remove( "k" );
+        assertNull( child.getProperty( "k" ) );
+        assertEquals( "parent", parent.getProperty( "k" ) );
+        assertNull( parent.getProperty( "only.child" ) );
+
+        parent.setProperty( "later", "y" ); // the child sees the parent, as of any point in time
+        assertEquals( "y", child.getProperty( "later" ) );
+    }
+
+    @Test
+    public void testMapMethodsActOnFrames() {
+        final BatchSymbolTable t = new BatchSymbolTable();
+        t.setProperty( "a", "1" );
+        t.setProperty( "b", "2" );
+        t.push();
+
+        assertEquals( "1", t.computeIfAbsent( "a", k -> "x" ) );
+        assertEquals( "3", t.computeIfAbsent( "c", k -> "3" ) );
+        assertEquals( "11", t.computeIfPresent( "a", ( k, v ) -> v +"1" ) );
+        assertEquals( "2!", t.compute( "b", ( k, v ) -> v +"!" ) );
+        assertEquals( "11+", t.merge( "a", "+", ( v1, v2 ) -> ""+ v1 + v2 ) );
+        assertEquals( "2!", t.replace( "b", "2?" ) );
+        assertTrue( t.replace( "b", "2?", "22" ) );
+        assertFalse( t.replace( "b", "nope", "x" ) );
+        assertFalse( t.remove( "c", "nope" ) );
+        assertTrue( t.remove( "c", "3" ) );
+        assertNull( t.compute( "b", ( k, v ) -> null ) ); // removes b
+        assertNull( t.getProperty( "b" ) );
+        t.replaceAll( ( k, v ) -> "["+ v +"]" );
+        assertEquals( "[11+]", t.getProperty( "a" ) );
+
+        t.pop(); // nothing was written into the outer frame
+        assertEquals( "1", t.getProperty( "a" ) );
+        assertEquals( "2", t.getProperty( "b" ) );
+        assertNull( t.getProperty( "c" ) );
+        assertEquals( 2, t.size() );
+    }
+
+    @Test
+    public void testCloneIsFlattened() {
+        final BatchSymbolTable t = new BatchSymbolTable();
+        t.setProperty( "a", "1" );
+        t.push();
+        t.setProperty( "a", "2" );
+        final BatchSymbolTable copy = (BatchSymbolTable) t.clone();
+        assertEquals( 1, copy.getDepth() );
+        assertEquals( "2", copy.getProperty( "a" ) );
+        copy.setProperty( "a", "3" );
+        assertEquals( "2", t.getProperty( "a" ) );
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests that {@link MacroTemplate} re-uses a previous evaluation ONLY while the values of the properties it depends on are unchanged.
+ */
+public class MacroTemplateTest {
+
+    private static LinkedHashMap<String,Properties> allProps( final String... _nameValuePairs ) {
+        final Properties props = new Properties();
+        for ( int ix = 0; ix + 1 < _nameValuePairs.length; ix += 2 )
+            props.setProperty( _nameValuePairs[ix], _nameValuePairs[ix+1] );
+        final LinkedHashMap<String,Properties> allProps = new LinkedHashMap<>();
+        allProps.put( org.ASUX.common.ScriptFileScanner.GLOBALVARIABLES, props );
+        allProps.put( BatchCmdProcessor.FOREACH_PROPERTIES, new Properties() );
+        return allProps;
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        final String s = "yaml --read ${ASUX::a}.${ASUX::b} --delimiter . # testCompileIsCached";
+        assertSame( MacroTemplate.compile( s ), MacroTemplate.compile( s ) );
+    }
+
+    @Test
+    public void testNoMacros() throws Exception {
+        final String s = "yaml --read a.b";
+        assertSame( s, MacroTemplate.evalThoroughly( false, s, allProps() ) );
+        assertNull( MacroTemplate.evalThoroughly( false, null, allProps() ) );
+    }
+
+    @Test
+    public void testReuseWhileFingerprintIsUnchanged() throws Exception {
+        final MacroTemplate t = MacroTemplate.compile( "yaml --read ${ASUX::a}.${ASUX::b} # testReuseWhileFingerprintIsUnchanged" );
+        final LinkedHashMap<String,Properties> allProps = allProps( "a", "x", "b", "y" );
+        final String first = t.eval( false, allProps );
+        assertEquals( "yaml --read x.y # testReuseWhileFingerprintIsUnchanged", first );
+        assertSame( first, t.eval( false, allProps ) ); // re-used as-is
+
+        // a different (but equal) set of properties, has the same fingerprint
+        assertSame( first, t.eval( false, allProps( "a", "x", "b", "y", "unrelated", "z" ) ) );
+    }
+
+    @Test
+    public void testChangedValueIsReEvaluated() throws Exception {
+        final MacroTemplate t = MacroTemplate.compile( "yaml --read ${ASUX::a}.${ASUX::b} # testChangedValueIsReEvaluated" );
+        final LinkedHashMap<String,Properties> allProps = allProps( "a", "x", "b", "y" );
+        final String first = t.eval( false, allProps );
+
+        allProps.get( org.ASUX.common.ScriptFileScanner.GLOBALVARIABLES ).setProperty( "b", "z" );
+        final String second = t.eval( false, allProps );
+        assertEquals( "yaml --read x.z # testChangedValueIsReEvaluated", second );
+        assertNotSame( first, second );
+
+        // back to the original value
+        allProps.get( org.ASUX.common.ScriptFileScanner.GLOBALVARIABLES ).setProperty( "b", "y" );
+        assertEquals( first, t.eval( false, allProps ) );
+    }
+
+    @Test
+    public void testNewPropertySetIsReEvaluated() throws Exception {
+        final MacroTemplate t = MacroTemplate.compile( "${ASUX::a} # testNewPropertySetIsReEvaluated" );
+        final LinkedHashMap<String,Properties> allProps = allProps( "a", "x" );
+        final String first = t.eval( false, allProps );
+        assertEquals( "x # testNewPropertySetIsReEvaluated", first );
+
+        // the # of property-sets is part of the fingerprint
+        final Properties more = new Properties();
+        more.setProperty( "unrelated", "z" );
+        allProps.put( "more", more );
+        final String second = t.eval( false, allProps );
+        assertEquals( first, second );
+        assertNotSame( first, second );
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests {@link YAMLImplementation.Shared}: commands re-use the copy released by the previous command, instead of a deep-clone per command.
+ */
+public class YAMLImplementationSharedTest {
+
+    /** counts the deep-clones.  Its configuration is a plain Object */
+    private static final class FakeImpl extends YAMLImplementation<String> {
+        private static final long serialVersionUID = 1L;
+        final AtomicInteger clones;
+        Object options = new Object();
+        FakeImpl( final AtomicInteger _clones ) { super( false, YAML_Libraries.ASUXYAML_Library ); this.clones = _clones; }
+        public boolean instanceof_YAMLImplClass( Object _o ) { return _o instanceof String; }
+        public String toStringDebug( Object _o ) { return ""+ _o; }
+        public String getEmptyYAML() { return ""; }
+        public boolean isEmptyYAML( String _n ) { return _n.isEmpty(); }
+        public String getNewScalarEntry( String _val ) { return _val; }
+        public String getNewSingleYAMLEntry( String _k, String _v ) { return _k +": "+ _v; }
+        public String getScalarContent( String _n ) { return _n; }
+        public Class<?> getLibraryOptionsClass() { return Object.class; }
+        public Object getLibraryOptionsObject() { return this.options; }
+        public void setLibraryOptionsObject( Object _o ) { this.options = _o; }
+        public String load( java.io.Reader _r ) { return ""; }
+        public void write( java.io.Writer _w, Object _o ) {}
+        public void close() {}
+        public YAMLImplementation<String> deepClone() {
+            this.clones.incrementAndGet();
+            return new FakeImpl( this.clones ); // just like a real deep-clone, the copy has its own options-object
+        }
+    }
+
+    @Test
+    public void testReusedAcrossCommands() throws Exception {
+        final AtomicInteger clones = new AtomicInteger();
+        final FakeImpl prototype = new FakeImpl( clones );
+        final YAMLImplementation.Shared<String> shared = new YAMLImplementation.Shared<>( prototype );
+        YAMLImplementation<String> prior = null;
+        for ( int ix = 0; ix < 1000; ix ++ ) {
+            final YAMLImplementation<String> impl = shared.acquire();
+            assertNotSame( prototype, impl );
+            if ( prior != null ) assertSame( prior, impl );
+            shared.release( impl );
+            prior = impl;
+        }
+        assertEquals( 1, clones.get() );
+    }
+
+    @Test
+    public void testOneCopyPerConcurrentCommand() throws Exception {
+        final AtomicInteger clones = new AtomicInteger();
+        final YAMLImplementation.Shared<String> shared = new YAMLImplementation.Shared<>( new FakeImpl( clones ) );
+        final YAMLImplementation<String> a = shared.acquire();
+        final YAMLImplementation<String> b = shared.acquire();
+        assertNotSame( a, b );
+        shared.release( a );
+        shared.release( b );
+        shared.acquire();
+        shared.acquire();
+        assertEquals( 2, clones.get() );
+    }
+
+    @Test
+    public void testChangedConfigurationIsNotReused() throws Exception {
+        final AtomicInteger clones = new AtomicInteger();
+        final FakeImpl prototype = new FakeImpl( clones );
+        final YAMLImplementation.Shared<String> shared = new YAMLImplementation.Shared<>( prototype );
+        final YAMLImplementation<String> impl = shared.acquire();
+        impl.setLibraryOptionsObject( new Object() ); // example: a command with its own quote-style
+        shared.release( impl );
+        assertNotSame( impl, shared.acquire() );
+        assertEquals( 2, clones.get() );
+
+        assertTrue( shared.isFor( prototype ) );
+        prototype.setLibraryOptionsObject( new Object() );
+        assertFalse( shared.isFor( prototype ) );
+        assertFalse( shared.isFor( new FakeImpl( clones ) ) );
+    }
+
+}
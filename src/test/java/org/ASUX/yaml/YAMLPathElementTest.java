@@ -0,0 +1,109 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests {@link YAMLPathElement}: whatever the classification, a path-element matches exactly the same keys as its regular-expression.
+ */
+public class YAMLPathElementTest {
+
+    private static final String[] KEYS = { "", "Properties", "properties", "Prop", "PropertiesX", "MyBucket", "My", "xMyBucket", "Bucket", "MyBucketPolicy",
+                                            "a.b", "ab", "a\nb", "My\nBucket", "x\rBucket", "200", "/pets", "pet", "pett", "pe" };
+
+    private static void assertSameAsRegex( final String _elem, final YAMLPathElement.Kind _kind ) {
+        final YAMLPathElement e = YAMLPathElement.of( _elem );
+        assertEquals( _elem, _kind, e.kind );
+        final Pattern p = Pattern.compile( _elem );
+        for ( String key: KEYS )
+            assertEquals( "'"+ _elem +"' vs. '"+ key +"'", p.matcher( key ).matches(), e.matches( key ) );
+    }
+
+    @Test
+    public void testLiteral() {
+        assertSameAsRegex( "Properties", YAMLPathElement.Kind.LITERAL );
+        assertSameAsRegex( "/pets", YAMLPathElement.Kind.LITERAL );
+        assertSameAsRegex( "200", YAMLPathElement.Kind.LITERAL );
+        assertTrue( YAMLPathElement.of( "Properties" ).isLiteral() );
+        assertEquals( "Properties", YAMLPathElement.of( "Properties" ).literal );
+    }
+
+    @Test
+    public void testAnyPrefixSuffix() {
+        assertSameAsRegex( ".*", YAMLPathElement.Kind.ANY );
+        assertSameAsRegex( "My.*", YAMLPathElement.Kind.PREFIX );
+        assertSameAsRegex( ".*Bucket", YAMLPathElement.Kind.SUFFIX );
+        assertFalse( YAMLPathElement.of( "My.*" ).isLiteral() );
+    }
+
+    /** These look like plain keys (or prefixes), but are NOT:  the regular-expression is used */
+    @Test
+    public void testRegexIsNotMistakenForLiteral() {
+        assertSameAsRegex( "a.b", YAMLPathElement.Kind.REGEX );      // '.' is any character
+        assertSameAsRegex( "pet*", YAMLPathElement.Kind.REGEX );     // "pe" followed by zero or more "t"
+        assertSameAsRegex( "My.*Policy", YAMLPathElement.Kind.REGEX );
+        assertSameAsRegex( "Prop|pet", YAMLPathElement.Kind.REGEX );
+        assertSameAsRegex( "[Pp]roperties", YAMLPathElement.Kind.REGEX );
+        assertSameAsRegex( "a\\.b", YAMLPathElement.Kind.REGEX );
+        assertFalse( YAMLPathElement.of( "a.b" ).isLiteral() );
+    }
+
+    /** A literal path-element must find a key that is Not a String (example: 200 for HTTP response-codes), just like the equivalent regular-expression does */
+    @Test
+    public void testLiteralMatchesNonStringKey() throws Exception {
+        final java.util.Map<Object, Object> responses = new java.util.LinkedHashMap<>();
+        responses.put( 200, "ok" );
+        responses.put( 404L, "missing" );
+        final java.util.Map<String, Object> root = new java.util.LinkedHashMap<>();
+        root.put( "paths", java.util.Collections.singletonMap( "responses", responses ) );
+        assertEquals( YAMLPathElement.Kind.LITERAL, YAMLPathElement.of( "200" ).kind );
+        for ( String yp: new String[] { "paths.responses.200", "paths.responses.20[0-9]", "paths.**.200" } ) {
+            final YAMLPathQuery q = new YAMLPathQuery( java.util.Collections.singletonList( new YAMLPath( false, yp, "." ) ) );
+            assertEquals( yp, java.util.Collections.singletonList( "ok" ), q.evaluate( root, YAMLPathQuery.COLLECTIONS ).get( 0 ) );
+        }
+        final YAMLPathQuery q = new YAMLPathQuery( java.util.Collections.singletonList( new YAMLPath( false, "paths.responses.404", "." ) ) );
+        assertEquals( java.util.Collections.singletonList( "missing" ), q.evaluate( root, YAMLPathQuery.COLLECTIONS ).get( 0 ) );
+    }
+
+    @Test
+    public void testDeepWildcard() {
+        final YAMLPathElement e = YAMLPathElement.of( "**" );
+        assertEquals( YAMLPathElement.Kind.DEEP_WILDCARD, e.kind );
+        assertTrue( e.matches( "anything" ) );
+    }
+
+}
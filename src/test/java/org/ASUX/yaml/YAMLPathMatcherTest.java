@@ -0,0 +1,145 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests {@link YAMLPathMatcher}: '**' matches zero or more path-elements - wherever it is within the YAML-path.
+ */
+public class YAMLPathMatcherTest {
+
+    private static YAMLPathMatcher m( final String... _elements ) {
+        return YAMLPathMatcher.compile( _elements );
+    }
+
+    @Test
+    public void testPlainPath() {
+        final YAMLPathMatcher m = m( "paths", "/pets", "get" );
+        assertTrue( m.matches( "paths", "/pets", "get" ) );
+        assertFalse( m.matches( "paths", "/pets" ) );
+        assertFalse( m.matches( "paths", "/pets", "get", "responses" ) );
+        assertFalse( m.matches( "paths", "/users", "get" ) );
+    }
+
+    @Test
+    public void testDeepWildcardMatchesZeroOrMoreElements() {
+        final YAMLPathMatcher m = m( "paths", "**", "200" );
+        assertTrue( m.matches( "paths", "200" ) );
+        assertTrue( m.matches( "paths", "/pets", "200" ) );
+        assertTrue( m.matches( "paths", "/pets", "get", "responses", "200" ) );
+        assertTrue( m.matches( "paths", "200", "200" ) );
+        assertFalse( m.matches( "paths" ) );
+        assertFalse( m.matches( "paths", "/pets", "200", "description" ) );
+        assertFalse( m.matches( "info", "200" ) );
+    }
+
+    @Test
+    public void testDeepWildcardAtStartAndEnd() {
+        final YAMLPathMatcher leading = m( "**", "description" );
+        assertTrue( leading.matches( "description" ) );
+        assertTrue( leading.matches( "a", "b", "c", "description" ) );
+        assertFalse( leading.matches( "a", "description", "x" ) );
+
+        final YAMLPathMatcher trailing = m( "paths", "**" );
+        assertTrue( trailing.matches( "paths" ) );
+        assertTrue( trailing.matches( "paths", "a", "b", "c" ) );
+        assertFalse( trailing.matches( "info", "a" ) );
+        // once within 'paths', every descendant matches: the same state, whatever the key
+        final int s = trailing.step( trailing.start(), "paths" );
+        assertEquals( s, trailing.step( s, "anything" ) );
+        assertEquals( s, trailing.step( trailing.step( s, "x" ), "y" ) );
+    }
+
+    @Test
+    public void testConsecutiveDeepWildcards() {
+        final YAMLPathMatcher m = m( "a", "**", "**", "b" );
+        assertTrue( m.matches( "a", "b" ) );
+        assertTrue( m.matches( "a", "x", "y", "b" ) );
+        assertFalse( m.matches( "a", "x" ) );
+    }
+
+    @Test
+    public void testDeadStateAndLiteralKeys() {
+        final YAMLPathMatcher m = m( "Resources", "My.*", "Properties" );
+        final int root = m.start();
+        assertArrayEquals( new String[] { "Resources" }, m.getLiteralKeys( root ) );
+        assertTrue( m.isDead( m.step( root, "Outputs" ) ) );
+
+        final int resources = m.step( root, "Resources" );
+        assertNull( m.getLiteralKeys( resources ) ); // 'My.*' is Not a plain key
+        final int bucket = m.step( resources, "MyBucket" );
+        assertArrayEquals( new String[] { "Properties" }, m.getLiteralKeys( bucket ) );
+        assertTrue( m.isMatch( m.step( bucket, "Properties" ) ) );
+        assertTrue( m.isDead( m.step( m.step( bucket, "Properties" ), "x" ) ) );
+
+        assertNull( m( "a", "**", "b" ).getLiteralKeys( m( "a", "**", "b" ).step( 0, "a" ) ) ); // after '**', any key may lead to a match
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        assertSame( m( "x", "**", "y" ), m( "x", "**", "y" ) );
+    }
+
+    /** Against a plain backtracking matcher, for every sequence (up to 4 long) of a few keys */
+    @Test
+    public void testSameAsBacktracking() {
+        final String[][] paths = { { "**" }, { "a", "**" }, { "**", "b" }, { "a", "**", "b" }, { "**", "a", "**" }, { ".*", "**", "b.*" }, { "a|b", "**", "**", "c" } };
+        final String[] keys = { "a", "b", "bb", "c" };
+        for ( String[] path: paths ) {
+            final YAMLPathMatcher m = m( path );
+            for ( int len = 0; len <= 4; len ++ ) {
+                final int combos = (int) Math.pow( keys.length, len );
+                for ( int n = 0; n < combos; n ++ ) {
+                    final String[] seq = new String[ len ];
+                    for ( int ix = 0, r = n; ix < len; ix ++, r /= keys.length )
+                        seq[ ix ] = keys[ r % keys.length ];
+                    assertEquals( Arrays.toString( path ) +" vs. "+ Arrays.toString( seq ), backtrack( path, 0, seq, 0 ), m.matches( seq ) );
+                }
+            }
+        }
+    }
+
+    private static boolean backtrack( final String[] _path, final int _p, final String[] _keys, final int _k ) {
+        if ( _p == _path.length )
+            return _k == _keys.length;
+        if ( "**".equals( _path[ _p ] ) )
+            return backtrack( _path, _p + 1, _keys, _k ) || ( _k < _keys.length && backtrack( _path, _p, _keys, _k + 1 ) );
+        return _k < _keys.length && Pattern.matches( _path[ _p ], _keys[ _k ] ) && backtrack( _path, _p + 1, _keys, _k + 1 );
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Tests {@link YAMLPathQuery}: ONE traversal for many YAML-paths finds exactly what a separate traversal per YAML-path finds.
+ */
+public class YAMLPathQueryTest {
+
+    private static final String[] PATHS = { "paths.*.get.responses.200", "paths.**.description", "info.title", "**.200", "paths./pets.*", "tags.1.name", "paths.**", "nosuch.key" };
+
+    /** a small OpenAPI-like YAML, made of java.util.Map and java.util.List */
+    private static Map<String, Object> yaml() {
+        final Map<String, Object> root = new LinkedHashMap<>();
+        root.put( "info", map( "title", "Petstore", "version", "1.0" ) );
+        root.put( "tags", Arrays.asList( map( "name", "pets" ), map( "name", "store", "description", "tag" ) ) );
+        root.put( "paths", map(
+            "/pets", map( "get", map( "description", "list", "responses", map( "200", map( "description", "ok" ), "404", "missing" ) ),
+                          "post", map( "responses", map( "200", "created" ) ) ),
+            "/users", map( "get", map( "responses", map( "200", map( "description", "ok too" ) ) ) ) ) );
+        return root;
+    }
+
+    private static Map<String, Object> map( final Object... _kv ) {
+        final Map<String, Object> m = new LinkedHashMap<>();
+        for ( int ix = 0; ix < _kv.length; ix += 2 )
+            m.put( (String) _kv[ ix ], _kv[ ix + 1 ] );
+        return m;
+    }
+
+    private static List<YAMLPath> paths() throws YAMLPath.YAMLPathException {
+        final ArrayList<YAMLPath> list = new ArrayList<>();
+        for ( String p: PATHS )
+            list.add( new YAMLPath( false, p, "." ) );
+        return list;
+    }
+
+    /** The reference: visits EVERY node, and checks the keys leading to it against ONE YAML-path */
+    private static void readOne( final YAMLPathMatcher _m, final Object _node, final ArrayList<String> _keys, final List<Object> _found ) {
+        if ( _m.matches( _keys.toArray( new String[ _keys.size() ] ) ) )
+            _found.add( _node );
+        if ( _node instanceof Map ) {
+            for ( Map.Entry<?, ?> e: ((Map<?, ?>) _node).entrySet() ) {
+                _keys.add( String.valueOf( e.getKey() ) );
+                readOne( _m, e.getValue(), _keys, _found );
+                _keys.remove( _keys.size() - 1 );
+            }
+        } else if ( _node instanceof List ) {
+            final List<?> list = (List<?>) _node;
+            for ( int ix = 0; ix < list.size(); ix ++ ) {
+                _keys.add( Integer.toString( ix ) );
+                readOne( _m, list.get( ix ), _keys, _found );
+                _keys.remove( _keys.size() - 1 );
+            }
+        }
+    }
+
+    @Test
+    public void testOneTraversalSameAsSeparateReads() throws Exception {
+        final Map<String, Object> root = yaml();
+        final List<YAMLPath> paths = paths();
+        final ArrayList<ArrayList<Object>> found = new YAMLPathQuery( paths ).evaluate( root, YAMLPathQuery.COLLECTIONS );
+        assertEquals( paths.size(), found.size() );
+        for ( int ix = 0; ix < paths.size(); ix ++ ) {
+            final ArrayList<Object> expected = new ArrayList<>();
+            readOne( paths.get( ix ).getMatcher(), root, new ArrayList<String>(), expected );
+            assertEquals( PATHS[ ix ], expected, found.get( ix ) );
+            // ALSO the same as a YAMLPathQuery for just that one YAML-path
+            assertEquals( PATHS[ ix ], expected, new YAMLPathQuery( paths.subList( ix, ix + 1 ) ).evaluate( root, YAMLPathQuery.COLLECTIONS ).get( 0 ) );
+        }
+        assertEquals( Arrays.asList( "Petstore" ), found.get( 2 ) );
+        assertEquals( Arrays.asList( "store" ), found.get( 5 ) );
+        assertTrue( found.get( 7 ).isEmpty() );
+    }
+
+    @Test
+    public void testMultiPathMatcher() {
+        final YAMLPathMatcher m = YAMLPathMatcher.compile( Arrays.asList( new String[] { "a", "b" }, new String[] { "a", "**" }, new String[] { "x" } ) );
+        assertEquals( 3, m.getPathCount() );
+        final int a = m.step( m.start(), "a" );
+        assertArrayEquals( new int[] { 1 }, m.getMatches( a ) );
+        assertArrayEquals( new int[] { 0, 1 }, m.getMatches( m.step( a, "b" ) ) );
+        assertArrayEquals( new int[] { 1 }, m.getMatches( m.step( a, "c" ) ) );
+        assertArrayEquals( new int[] { 2 }, m.getMatches( m.step( m.start(), "x" ) ) );
+        assertTrue( m.isDead( m.step( m.step( m.start(), "x" ), "y" ) ) );
+        assertArrayEquals( new String[] { "a", "x" }, m.getLiteralKeys( m.start() ) );
+    }
+
+    @Test
+    public void testTable() throws Exception {
+        final YAMLPathQuery q = YAMLPathQuery.forTable( new YAMLPath( false, "paths.*.*", "." ), new String[] { "description", "responses.200" } );
+        final ArrayList<ArrayList<Object>> rows = q.table( yaml(), YAMLPathQuery.COLLECTIONS );
+        assertEquals( 3, rows.size() );
+        assertEquals( "list", rows.get( 0 ).get( 0 ) );
+        assertEquals( map( "description", "ok" ), rows.get( 0 ).get( 1 ) );
+        assertNull( rows.get( 1 ).get( 0 ) );
+        assertEquals( "created", rows.get( 1 ).get( 1 ) );
+    }
+
+    /** A stand-in for the 'read' command of a YAML-library: its output's shape depends on the # of matches (a single match is returned as-is).  Counts the nodes it visits. */
+    private static final class ReadInvoker extends CmdInvoker<Object> {
+        private static final long serialVersionUID = 1L;
+        int visits = 0;
+        ReadInvoker( final CmdLineArgsCommon _c ) { super( _c ); }
+        public Object processCommand( final CmdLineArgsCommon _c, final Object _in ) throws Exception {
+            final CmdLineArgsReadCmd read = (CmdLineArgsReadCmd) _c;
+            final java.util.LinkedList<Object> found = new java.util.LinkedList<>();
+            this.read( new YAMLPath( false, read.yamlRegExpStr, read.yamlPatternDelimiter ).getMatcher(), _in, new ArrayList<String>(), found );
+            return ( found.size() == 1 ) ? found.get( 0 ) : found;
+        }
+        private void read( final YAMLPathMatcher _m, final Object _node, final ArrayList<String> _keys, final List<Object> _found ) {
+            this.visits ++;
+            if ( _m.matches( _keys.toArray( new String[ _keys.size() ] ) ) )
+                _found.add( _node );
+            if ( _node instanceof Map ) {
+                for ( Map.Entry<?, ?> e: ((Map<?, ?>) _node).entrySet() ) {
+                    _keys.add( String.valueOf( e.getKey() ) );
+                    this.read( _m, e.getValue(), _keys, _found );
+                    _keys.remove( _keys.size() - 1 );
+                }
+            } else if ( _node instanceof List ) {
+                final List<?> list = (List<?>) _node;
+                for ( int ix = 0; ix < list.size(); ix ++ ) {
+                    _keys.add( Integer.toString( ix ) );
+                    this.read( _m, list.get( ix ), _keys, _found );
+                    _keys.remove( _keys.size() - 1 );
+                }
+            }
+        }
+        public Object getDataFromReference( final String _src ) { return null; }
+        public void saveDataIntoReference( final String _dest, final Object _in ) {}
+    }
+
+    private static ArrayList<CmdLineArgsCommon> reads( final String... _paths ) {
+        final ArrayList<CmdLineArgsCommon> cmds = new ArrayList<>();
+        for ( String p: _paths ) {
+            final CmdLineArgsReadCmd read = new CmdLineArgsReadCmd();
+            read.cmdType = Enums.CmdEnum.READ;
+            read.yamlRegExpStr = p;
+            read.yamlPatternDelimiter = ".";
+            cmds.add( read );
+        }
+        return cmds;
+    }
+
+    /** {@link CmdInvoker#processQueries} (the fused reads) gives exactly the same output as running each read on the whole YAML - while visiting fewer nodes */
+    @Test
+    public void testProcessQueriesSameAsUnfused() throws Exception {
+        final Map<String, Object> root = yaml();
+        final Map<Object, Object> codes = new LinkedHashMap<>();
+        codes.put( 200, "ok" );
+        codes.put( 500, Arrays.asList( "a", "b" ) );
+        root.put( "codes", codes );
+        for ( String[] batch: new String[][] { PATHS, { "info.title" }, { "codes.200", "codes.500.1", "tags.0" }, { "nosuch", "info.nosuch" } } ) {
+            final ArrayList<CmdLineArgsCommon> cmds = reads( batch );
+            final ReadInvoker unfused = new ReadInvoker( cmds.get( 0 ) );
+            final ArrayList<Object> expected = new ArrayList<>();
+            for ( CmdLineArgsCommon cmd: cmds )
+                expected.add( unfused.processCommand( cmd, root ) );
+            final ReadInvoker fused = new ReadInvoker( cmds.get( 0 ) );
+            final ArrayList<Object> outputs = fused.processQueries( cmds, root );
+            assertEquals( Arrays.toString( batch ), expected, outputs );
+            for ( int ix = 0; ix < expected.size(); ix ++ ) // the same class (shape) of output
+                assertEquals( expected.get( ix ).getClass(), outputs.get( ix ).getClass() );
+            if ( batch.length > 1 && ! Arrays.asList( batch ).contains( "paths.**" ) )
+                assertTrue( Arrays.toString( batch ), fused.visits < unfused.visits );
+        }
+    }
+
+    @Test
+    public void testPrune() throws Exception {
+        final Map<String, Object> root = yaml();
+        final YAMLPathQuery q = new YAMLPathQuery( Arrays.asList( new YAMLPath( false, "info.title", "." ), new YAMLPath( false, "tags.*.name", "." ) ) );
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> pruned = (Map<String, Object>) q.prune( root );
+        assertEquals( Arrays.asList( "info", "tags" ), new ArrayList<>( pruned.keySet() ) );
+        assertEquals( map( "title", "Petstore" ), pruned.get( "info" ) );
+        assertSame( root.get( "tags" ), pruned.get( "tags" ) ); // sequences are kept as-is
+        assertTrue( ((Map<?, ?>) new YAMLPathQuery( Arrays.asList( new YAMLPath( false, "nosuch", "." ) ) ).prune( root )).isEmpty() );
+    }
+
+}